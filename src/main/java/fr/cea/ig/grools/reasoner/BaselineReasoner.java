@@ -0,0 +1,74 @@
+package fr.cea.ig.grools.reasoner;
+
+import fr.cea.ig.grools.fact.Observation;
+import fr.cea.ig.grools.fact.PriorKnowledge;
+import fr.cea.ig.grools.fact.Relation;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.util.Collection;
+
+/**
+ * BaselineReasoner
+ * <p>
+ * Reason on many genomes which share most of their observations with a baseline genome. The baseline is reasoned once,
+ * then each genome is given as a difference of observation relations from the baseline: the baseline is forked, see
+ * {@link ReasonerImpl#copy()}, the difference is applied on the fork and only prior-knowledges reached from it are
+ * evaluated again, see {@link EvaluationMode#INCREMENTAL}. Work done for a genome grows with its difference rather
+ * than with the size of the genome. Results are the same as {@link EvaluationMode#LEVEL_ORDERED} on a reasoner holding
+ * all observations of the genome.
+ * <p>
+ * Genomes can be reasoned from many threads, the baseline must not be changed meanwhile.
+ */
+public final class BaselineReasoner {
+    @Getter
+    private final ReasonerImpl baseline;
+
+    /**
+     * @param baseline reasoner holding the prior-knowledges and the observations of the baseline genome, it is reasoned
+     *                 level by level unless it is already up to date, its evaluation mode is left unchanged
+     * @throws IllegalArgumentException if the prior-knowledge graph of the baseline has a cycle
+     */
+    public BaselineReasoner( @NonNull final ReasonerImpl baseline ) {
+        this.baseline = baseline;
+        baseline.prepareDeltaReasoning( );
+    }
+
+    private static void checkObservations( @NonNull final Collection< Relation > relations ) {
+        for ( final Relation relation : relations ) {
+            if ( !( relation.getSource( ) instanceof Observation ) || !( relation.getTarget( ) instanceof PriorKnowledge ) )
+                throw new IllegalArgumentException( "Not a relation from an observation to a prior-knowledge: " + relation );
+        }
+    }
+
+    /**
+     * Reason on a genome given by its difference from the baseline. Observations of removed relations stay in the
+     * returned reasoner without relation, deleting them would change the graph and lead to a whole evaluation.
+     * @param added   relations from observations to prior-knowledges which are not in the baseline
+     * @param removed relations from observations to prior-knowledges of the baseline which are not in the genome
+     * @return a reasoned fork of the baseline, values of the genome are read with
+     * {@link ReasonerImpl#getConclusion(PriorKnowledge)}
+     */
+    public ReasonerImpl reasoning( @NonNull final Collection< Relation > added, @NonNull final Collection< Relation > removed ) {
+        final ReasonerImpl genome = genome( added, removed );
+        genome.reasoning( );
+        return genome;
+    }
+
+    /**
+     * @return a fork of the baseline with the difference applied, not yet reasoned
+     */
+    ReasonerImpl genome( @NonNull final Collection< Relation > added, @NonNull final Collection< Relation > removed ) {
+        checkObservations( added );
+        checkObservations( removed );
+        final ReasonerImpl genome;
+        // forking freezes the changes of the baseline
+        synchronized ( baseline ) {
+            genome = ( ReasonerImpl ) baseline.copy( );
+        }
+        genome.setEvaluationMode( EvaluationMode.INCREMENTAL );
+        genome.delete( removed );
+        genome.insert( added );
+        return genome;
+    }
+}
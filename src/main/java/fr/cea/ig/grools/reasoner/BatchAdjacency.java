@@ -0,0 +1,507 @@
+package fr.cea.ig.grools.reasoner;
+
+import fr.cea.ig.grools.fact.Concept;
+import fr.cea.ig.grools.fact.Observation;
+import fr.cea.ig.grools.fact.PriorKnowledge;
+import fr.cea.ig.grools.fact.Relation;
+import lombok.NonNull;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * BatchAdjacency
+ * <p>
+ * Structures of a graph built from a large batch at once, see {@link ConceptGraph#build(Collection, Collection, ForkJoinPool)}.
+ * Concepts get dense ids and relations are deduplicated in a single pass through open addressing tables of ints, then
+ * degrees are counted and adjacency sets and neighbourhoods of each concept are filled at their final size. A graph
+ * reads them through views, nothing is copied into hash maps.
+ */
+final class BatchAdjacency implements Serializable {
+    private static final int FREE = -1;
+    // concepts by task of a parallel build
+    private static final int BUILD_THRESHOLD = 1024;
+
+    private final int size;
+    private final Concept[] concepts;
+    // open addressing tables concept -> id and name -> id
+    private final int[] slots;
+    private final int[] nameSlots;
+    private final Relation[] relations;
+    private final int relationsCount;
+    // open addressing table relation -> index
+    private final int[] relationSlots;
+    private final Set< Relation >[] outgoing;
+    private final Set< Relation >[] incoming;
+    private final int outgoingCount;
+    private final int incomingCount;
+    private final Neighbourhood[] neighbourhoods;
+    private final BitSet leaves;
+    private final BitSet tops;
+
+    /**
+     * @param concepts  concepts, concepts of relations are added too
+     * @param relations relations, duplicates are ignored
+     * @param pool      fills concepts in parallel, null to build sequentially
+     */
+    @SuppressWarnings( "unchecked" )
+    BatchAdjacency( @NonNull final Collection< ? extends Concept > concepts, @NonNull final Collection< Relation > relations,
+                    final ForkJoinPool pool ) {
+        final int bound = concepts.size( ) + 2 * relations.size( );
+        this.concepts = new Concept[ bound ];
+        this.slots = table( bound );
+        this.nameSlots = table( bound );
+        this.relations = new Relation[ relations.size( ) ];
+        this.relationSlots = table( relations.size( ) );
+        final int[] sources = new int[ relations.size( ) ];
+        final int[] targets = new int[ relations.size( ) ];
+        int count = 0;
+        for ( final Concept concept : concepts )
+            count = add( concept, count );
+        int edges = 0;
+        for ( final Relation relation : relations ) {
+            final int slot = relationSlot( relation );
+            if ( relationSlots[ slot ] != FREE )
+                continue;
+            relationSlots[ slot ] = edges;
+            this.relations[ edges ] = relation;
+            int source = idOf( relation.getSource( ) );
+            if ( source == FREE ) {
+                source = count;
+                count = add( relation.getSource( ), count );
+            }
+            int target = idOf( relation.getTarget( ) );
+            if ( target == FREE ) {
+                target = count;
+                count = add( relation.getTarget( ), count );
+            }
+            sources[ edges ] = source;
+            targets[ edges ] = target;
+            edges++;
+        }
+        this.size = count;
+        this.relationsCount = edges;
+
+        final int[] outOffsets = offsets( sources, edges, size );
+        final int[] inOffsets = offsets( targets, edges, size );
+        final Relation[] outEdges = group( this.relations, sources, edges, outOffsets );
+        final Relation[] inEdges = group( this.relations, targets, edges, inOffsets );
+        this.outgoing = new Set[ size ];
+        this.incoming = new Set[ size ];
+        this.neighbourhoods = new Neighbourhood[ size ];
+        ParallelRange.forEach( pool, size, BUILD_THRESHOLD, id -> {
+            outgoing[ id ] = slice( outEdges, outOffsets, id );
+            incoming[ id ] = slice( inEdges, inOffsets, id );
+            // the same indexing as the one of a graph adding relations one by one, each neighbourhood is only filled
+            // by the task of its concept
+            final Neighbourhood neighbourhood = new Neighbourhood( id );
+            if ( this.concepts[ id ] instanceof PriorKnowledge ) {
+                for ( int i = inOffsets[ id ]; i < inOffsets[ id + 1 ]; i++ ) {
+                    final Concept source = inEdges[ i ].getSource( );
+                    if ( source instanceof PriorKnowledge )
+                        neighbourhood.addChild( ( PriorKnowledge ) source, inEdges[ i ].getType( ) );
+                    else if ( source instanceof Observation )
+                        neighbourhood.addObservation( ( Observation ) source );
+                }
+                for ( int i = outOffsets[ id ]; i < outOffsets[ id + 1 ]; i++ ) {
+                    final Concept target = outEdges[ i ].getTarget( );
+                    if ( target instanceof PriorKnowledge )
+                        neighbourhood.addParent( ( PriorKnowledge ) target, outEdges[ i ].getType( ) );
+                }
+            }
+            neighbourhoods[ id ] = neighbourhood;
+        } );
+
+        this.leaves = new BitSet( size );
+        this.tops = new BitSet( size );
+        int outgoingCount = 0;
+        int incomingCount = 0;
+        for ( int id = 0; id < size; id++ ) {
+            outgoingCount += outOffsets[ id ] == outOffsets[ id + 1 ] ? 0 : 1;
+            incomingCount += inOffsets[ id ] == inOffsets[ id + 1 ] ? 0 : 1;
+            if ( this.concepts[ id ] instanceof PriorKnowledge ) {
+                leaves.set( id, neighbourhoods[ id ].getChildren( ).isEmpty( ) );
+                tops.set( id, neighbourhoods[ id ].getParents( ).isEmpty( ) );
+            }
+        }
+        this.outgoingCount = outgoingCount;
+        this.incomingCount = incomingCount;
+    }
+
+    /**
+     * @return an empty open addressing table holding the given number of entries
+     */
+    private static int[] table( final int entries ) {
+        final int[] table = new int[ Integer.highestOneBit( Math.max( 1, entries ) * 2 ) << 1 ];
+        Arrays.fill( table, FREE );
+        return table;
+    }
+
+    private static int start( @NonNull final Object key, final int mask ) {
+        final int hash = key.hashCode( ) * 0x9E3779B9;
+        return ( hash ^ ( hash >>> 16 ) ) & mask;
+    }
+
+    private int slotOf( @NonNull final Object concept ) {
+        final int mask = slots.length - 1;
+        int slot = start( concept, mask );
+        while ( slots[ slot ] != FREE && !concepts[ slots[ slot ] ].equals( concept ) )
+            slot = ( slot + 1 ) & mask;
+        return slot;
+    }
+
+    private int nameSlotOf( @NonNull final String name ) {
+        final int mask = nameSlots.length - 1;
+        int slot = start( name, mask );
+        while ( nameSlots[ slot ] != FREE && !concepts[ nameSlots[ slot ] ].getName( ).equals( name ) )
+            slot = ( slot + 1 ) & mask;
+        return slot;
+    }
+
+    private int relationSlot( @NonNull final Relation relation ) {
+        final int mask = relationSlots.length - 1;
+        int slot = start( relation, mask );
+        while ( relationSlots[ slot ] != FREE && !relations[ relationSlots[ slot ] ].equals( relation ) )
+            slot = ( slot + 1 ) & mask;
+        return slot;
+    }
+
+    /**
+     * Give the next id to a concept not seen yet, a later concept of a same name takes the name as in
+     * {@link ConceptGraph#addConcept(Concept)}
+     * @return the number of concepts
+     */
+    private int add( @NonNull final Concept concept, final int count ) {
+        final int slot = slotOf( concept );
+        if ( slots[ slot ] != FREE )
+            return count;
+        slots[ slot ] = count;
+        concepts[ count ] = concept;
+        nameSlots[ nameSlotOf( concept.getName( ) ) ] = count;
+        return count + 1;
+    }
+
+    /**
+     * @return the dense id of a concept or -1
+     */
+    int idOf( final Object concept ) {
+        return ( concept == null ) ? FREE : slots[ slotOf( concept ) ];
+    }
+
+    private int idOfName( final Object name ) {
+        return ( name instanceof String ) ? nameSlots[ nameSlotOf( ( String ) name ) ] : FREE;
+    }
+
+    int size( ) {
+        return size;
+    }
+
+    /**
+     * @return start of the relations of each concept in a grouped array, then the total count
+     */
+    private static int[] offsets( @NonNull final int[] ends, final int count, final int size ) {
+        final int[] offsets = new int[ size + 1 ];
+        for ( int i = 0; i < count; i++ )
+            offsets[ ends[ i ] + 1 ]++;
+        for ( int id = 0; id < size; id++ )
+            offsets[ id + 1 ] += offsets[ id ];
+        return offsets;
+    }
+
+    /**
+     * @return relations grouped by concept, in their order of the batch
+     */
+    private static Relation[] group( @NonNull final Relation[] edges, @NonNull final int[] ends, final int count, @NonNull final int[] offsets ) {
+        final Relation[] grouped = new Relation[ count ];
+        final int[] cursors = Arrays.copyOf( offsets, offsets.length - 1 );
+        for ( int i = 0; i < count; i++ )
+            grouped[ cursors[ ends[ i ] ]++ ] = edges[ i ];
+        return grouped;
+    }
+
+    /**
+     * @return relations of a concept in a set of their size, null without relation
+     */
+    private static Set< Relation > slice( @NonNull final Relation[] grouped, @NonNull final int[] offsets, final int id ) {
+        final int from = offsets[ id ];
+        final int to = offsets[ id + 1 ];
+        if ( from == to )
+            return null;
+        final Set< Relation > slice = new HashSet<>( ( int ) ( ( to - from ) / 0.75f ) + 1 );
+        for ( int i = from; i < to; i++ )
+            slice.add( grouped[ i ] );
+        return slice;
+    }
+
+    /**
+     * @param isOutgoing true for outgoing relations, false for incoming ones
+     * @return a read-only view of the relations by concept, only concepts owning at least one relation are keys
+     */
+    Map< Concept, Set< Relation > > adjacencyView( final boolean isOutgoing ) {
+        final Set< Relation >[] rows = isOutgoing ? outgoing : incoming;
+        return new IdMap< Concept, Set< Relation > >( this, isOutgoing ? outgoingCount : incomingCount ) {
+            @Override
+            int id( final Object key ) {
+                final int id = store.idOf( key );
+                return ( id == FREE || rows[ id ] == null ) ? FREE : id;
+            }
+
+            @Override
+            Concept key( final int id ) {
+                return store.concepts[ id ];
+            }
+
+            @Override
+            Set< Relation > value( final int id ) {
+                return rows[ id ];
+            }
+        };
+    }
+
+    /**
+     * @return a read-only view of the concepts by name
+     */
+    Map< String, Concept > namesView( ) {
+        // a name taken again by a later concept is only counted once
+        int count = 0;
+        for ( int id = 0; id < size; id++ )
+            count += idOfName( concepts[ id ].getName( ) ) == id ? 1 : 0;
+        return new IdMap< String, Concept >( this, count ) {
+            @Override
+            int id( final Object key ) {
+                return store.idOfName( key );
+            }
+
+            @Override
+            String key( final int id ) {
+                return store.idOfName( store.concepts[ id ].getName( ) ) == id ? store.concepts[ id ].getName( ) : null;
+            }
+
+            @Override
+            Concept value( final int id ) {
+                return store.concepts[ id ];
+            }
+        };
+    }
+
+    /**
+     * @return a read-only view of the concepts by id
+     */
+    Map< Integer, Concept > idsView( ) {
+        return new IdMap< Integer, Concept >( this, size ) {
+            @Override
+            int id( final Object key ) {
+                if ( !( key instanceof Integer ) )
+                    return FREE;
+                final int id = ( Integer ) key;
+                return ( id >= 0 && id < store.size ) ? id : FREE;
+            }
+
+            @Override
+            Integer key( final int id ) {
+                return id;
+            }
+
+            @Override
+            Concept value( final int id ) {
+                return store.concepts[ id ];
+            }
+        };
+    }
+
+    /**
+     * @return a read-only view of the neighbourhoods by concept
+     */
+    Map< Concept, Neighbourhood > neighbourhoodsView( ) {
+        return new IdMap< Concept, Neighbourhood >( this, size ) {
+            @Override
+            int id( final Object key ) {
+                return store.idOf( key );
+            }
+
+            @Override
+            Concept key( final int id ) {
+                return store.concepts[ id ];
+            }
+
+            @Override
+            Neighbourhood value( final int id ) {
+                return store.neighbourhoods[ id ];
+            }
+        };
+    }
+
+    /**
+     * @return a read-only view of the concepts
+     */
+    Set< Concept > conceptsView( ) {
+        return new AbstractView< Concept >( size ) {
+            @Override
+            public boolean contains( final Object o ) {
+                return idOf( o ) != FREE;
+            }
+
+            @Override
+            public Iterator< Concept > iterator( ) {
+                return Arrays.asList( concepts ).subList( 0, size ).iterator( );
+            }
+        };
+    }
+
+    /**
+     * @return a read-only view of the relations
+     */
+    Set< Relation > relationsView( ) {
+        return new AbstractView< Relation >( relationsCount ) {
+            @Override
+            public boolean contains( final Object o ) {
+                return o instanceof Relation && relationSlots[ relationSlot( ( Relation ) o ) ] != FREE;
+            }
+
+            @Override
+            public Iterator< Relation > iterator( ) {
+                return Arrays.asList( relations ).subList( 0, relationsCount ).iterator( );
+            }
+        };
+    }
+
+    /**
+     * @param isLeaf true for prior-knowledges without child prior-knowledge, false for those without parent one
+     * @return a read-only view of these prior-knowledges
+     */
+    Set< PriorKnowledge > priorKnowledgesView( final boolean isLeaf ) {
+        final BitSet flags = isLeaf ? leaves : tops;
+        return new AbstractView< PriorKnowledge >( flags.cardinality( ) ) {
+            @Override
+            public boolean contains( final Object o ) {
+                final int id = idOf( o );
+                return id != FREE && flags.get( id );
+            }
+
+            @Override
+            public Iterator< PriorKnowledge > iterator( ) {
+                return new Iterator< PriorKnowledge >( ) {
+                    private int cursor = flags.nextSetBit( 0 );
+
+                    @Override
+                    public boolean hasNext( ) {
+                        return cursor >= 0;
+                    }
+
+                    @Override
+                    public PriorKnowledge next( ) {
+                        if ( cursor < 0 )
+                            throw new NoSuchElementException( );
+                        final PriorKnowledge pk = ( PriorKnowledge ) concepts[ cursor ];
+                        cursor = flags.nextSetBit( cursor + 1 );
+                        return pk;
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Read-only set of a known size
+     */
+    private abstract static class AbstractView< T > extends AbstractSet< T > implements Serializable {
+        private final int size;
+
+        private AbstractView( final int size ) {
+            this.size = size;
+        }
+
+        @Override
+        public int size( ) {
+            return size;
+        }
+    }
+
+    /**
+     * Read-only map whose keys are some ids, an id without key is skipped
+     */
+    private abstract static class IdMap< K, V > extends AbstractMap< K, V > implements Serializable {
+        final BatchAdjacency store;
+        private final int size;
+
+        private IdMap( @NonNull final BatchAdjacency store, final int size ) {
+            this.store = store;
+            this.size = size;
+        }
+
+        /**
+         * @return id of a key or -1
+         */
+        abstract int id( Object key );
+
+        /**
+         * @return key of an id, null if the id is not a key
+         */
+        abstract K key( int id );
+
+        abstract V value( int id );
+
+        @Override
+        public V get( final Object key ) {
+            final int id = id( key );
+            return ( id == FREE ) ? null : value( id );
+        }
+
+        @Override
+        public boolean containsKey( final Object key ) {
+            return id( key ) != FREE;
+        }
+
+        @Override
+        public int size( ) {
+            return size;
+        }
+
+        @Override
+        public Set< Entry< K, V > > entrySet( ) {
+            return new AbstractSet< Entry< K, V > >( ) {
+                @Override
+                public Iterator< Entry< K, V > > iterator( ) {
+                    return new Iterator< Entry< K, V > >( ) {
+                        private int cursor = skip( 0 );
+
+                        private int skip( int id ) {
+                            while ( id < store.size && ( key( id ) == null || value( id ) == null ) )
+                                id++;
+                            return id;
+                        }
+
+                        @Override
+                        public boolean hasNext( ) {
+                            return cursor < store.size;
+                        }
+
+                        @Override
+                        public Entry< K, V > next( ) {
+                            if ( cursor >= store.size )
+                                throw new NoSuchElementException( );
+                            final Entry< K, V > entry = new SimpleImmutableEntry<>( key( cursor ), value( cursor ) );
+                            cursor = skip( cursor + 1 );
+                            return entry;
+                        }
+                    };
+                }
+
+                @Override
+                public int size( ) {
+                    return size;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package fr.cea.ig.grools.reasoner;
+
+import lombok.NonNull;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * BinaryReader
+ * <p>
+ * Buffered reader of primitives written by {@link BinaryWriter}
+ */
+final class BinaryReader implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_STRING = 1 << 24;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;
+
+    BinaryReader( @NonNull final ReadableByteChannel channel ) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect( BUFFER_SIZE );
+        this.buffer.flip( );
+    }
+
+    /**
+     * @param file a file
+     * @return a reader of the file
+     */
+    static BinaryReader open( @NonNull final File file ) throws IOException {
+        return new BinaryReader( FileChannel.open( file.toPath( ), StandardOpenOption.READ ) );
+    }
+
+    /**
+     * Make at least the given number of bytes readable from the buffer
+     */
+    private void require( final int bytes ) throws IOException {
+        if ( buffer.remaining( ) >= bytes )
+            return;
+        buffer.compact( );
+        while ( buffer.position( ) < bytes ) {
+            if ( channel.read( buffer ) < 0 ) {
+                buffer.flip( );
+                throw new EOFException( );
+            }
+        }
+        buffer.flip( );
+    }
+
+    /**
+     * @return true when every byte has been read
+     */
+    boolean isAtEnd( ) throws IOException {
+        if ( buffer.hasRemaining( ) )
+            return false;
+        buffer.clear( );
+        final int read = channel.read( buffer );
+        buffer.flip( );
+        return read < 0;
+    }
+
+    int readByte( ) throws IOException {
+        require( 1 );
+        return buffer.get( ) & 0xFF;
+    }
+
+    boolean readBoolean( ) throws IOException {
+        return readByte( ) != 0;
+    }
+
+    int readInt( ) throws IOException {
+        require( Integer.BYTES );
+        return buffer.getInt( );
+    }
+
+    long readLong( ) throws IOException {
+        require( Long.BYTES );
+        return buffer.getLong( );
+    }
+
+    int readVarInt( ) throws IOException {
+        int value = 0;
+        for ( int shift = 0; shift < Integer.SIZE; shift += 7 ) {
+            final int b = readByte( );
+            value |= ( b & 0x7F ) << shift;
+            if ( ( b & 0x80 ) == 0 )
+                return value;
+        }
+        throw new StreamCorruptedException( "Malformed varint" );
+    }
+
+    long readVarLong( ) throws IOException {
+        long value = 0;
+        for ( int shift = 0; shift < Long.SIZE; shift += 7 ) {
+            final int b = readByte( );
+            value |= ( long ) ( b & 0x7F ) << shift;
+            if ( ( b & 0x80 ) == 0 )
+                return value;
+        }
+        throw new StreamCorruptedException( "Malformed varint" );
+    }
+
+    /**
+     * @return a count, checked to be positive and at most the given bound
+     */
+    int readCount( final int max ) throws IOException {
+        final int count = readVarInt( );
+        if ( count < 0 || count > max )
+            throw new StreamCorruptedException( "Bad count: " + count );
+        return count;
+    }
+
+    void readBytes( @NonNull final byte[] bytes ) throws IOException {
+        int offset = 0;
+        while ( offset < bytes.length ) {
+            require( 1 );
+            final int length = Math.min( buffer.remaining( ), bytes.length - offset );
+            buffer.get( bytes, offset, length );
+            offset += length;
+        }
+    }
+
+    String readString( ) throws IOException {
+        final byte[] bytes = new byte[ readCount( MAX_STRING ) ];
+        readBytes( bytes );
+        return new String( bytes, StandardCharsets.UTF_8 );
+    }
+
+    @Override
+    public void close( ) throws IOException {
+        channel.close( );
+    }
+}
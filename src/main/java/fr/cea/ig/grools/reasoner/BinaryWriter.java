@@ -0,0 +1,134 @@
+package fr.cea.ig.grools.reasoner;
+
+import lombok.NonNull;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * BinaryWriter
+ * <p>
+ * Buffered writer of primitives to a channel, big-endian. Integers are written with a fixed size or as varints: 7 bits
+ * by byte, low bits first, the high bit set on every byte but the last. Strings are written as their UTF-8 length
+ * then bytes. See {@link BinaryReader}.
+ */
+final class BinaryWriter implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private long position;
+
+    BinaryWriter( @NonNull final WritableByteChannel channel ) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect( BUFFER_SIZE );
+        this.position = 0;
+    }
+
+    /**
+     * @param file a file, created or truncated
+     * @return a writer of the file
+     */
+    static BinaryWriter open( @NonNull final File file ) throws IOException {
+        return new BinaryWriter( FileChannel.open( file.toPath( ), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                   StandardOpenOption.TRUNCATE_EXISTING ) );
+    }
+
+    /**
+     * @return number of bytes written so far
+     */
+    long position( ) {
+        return position + buffer.position( );
+    }
+
+    private void reserve( final int bytes ) throws IOException {
+        if ( buffer.remaining( ) < bytes )
+            drain( );
+    }
+
+    private void drain( ) throws IOException {
+        buffer.flip( );
+        while ( buffer.hasRemaining( ) )
+            position += channel.write( buffer );
+        buffer.clear( );
+    }
+
+    void writeByte( final int value ) throws IOException {
+        reserve( 1 );
+        buffer.put( ( byte ) value );
+    }
+
+    void writeBoolean( final boolean value ) throws IOException {
+        writeByte( value ? 1 : 0 );
+    }
+
+    void writeInt( final int value ) throws IOException {
+        reserve( Integer.BYTES );
+        buffer.putInt( value );
+    }
+
+    void writeLong( final long value ) throws IOException {
+        reserve( Long.BYTES );
+        buffer.putLong( value );
+    }
+
+    /**
+     * @param value a value, negative values take 5 bytes
+     */
+    void writeVarInt( int value ) throws IOException {
+        reserve( 5 );
+        while ( ( value & ~0x7F ) != 0 ) {
+            buffer.put( ( byte ) ( ( value & 0x7F ) | 0x80 ) );
+            value >>>= 7;
+        }
+        buffer.put( ( byte ) value );
+    }
+
+    void writeVarLong( long value ) throws IOException {
+        reserve( 10 );
+        while ( ( value & ~0x7FL ) != 0 ) {
+            buffer.put( ( byte ) ( ( value & 0x7F ) | 0x80 ) );
+            value >>>= 7;
+        }
+        buffer.put( ( byte ) value );
+    }
+
+    void writeBytes( @NonNull final byte[] bytes ) throws IOException {
+        int offset = 0;
+        while ( offset < bytes.length ) {
+            reserve( 1 );
+            final int length = Math.min( buffer.remaining( ), bytes.length - offset );
+            buffer.put( bytes, offset, length );
+            offset += length;
+        }
+    }
+
+    void writeString( @NonNull final String value ) throws IOException {
+        final byte[] bytes = value.getBytes( StandardCharsets.UTF_8 );
+        writeVarInt( bytes.length );
+        writeBytes( bytes );
+    }
+
+    /**
+     * Write buffered bytes to the channel
+     */
+    void flush( ) throws IOException {
+        drain( );
+    }
+
+    @Override
+    public void close( ) throws IOException {
+        try {
+            drain( );
+        }
+        finally {
+            channel.close( );
+        }
+    }
+}
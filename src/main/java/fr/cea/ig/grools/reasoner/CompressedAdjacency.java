@@ -0,0 +1,732 @@
+package fr.cea.ig.grools.reasoner;
+
+import fr.cea.ig.grools.fact.Concept;
+import fr.cea.ig.grools.fact.Observation;
+import fr.cea.ig.grools.fact.ObservationType;
+import fr.cea.ig.grools.fact.PriorKnowledge;
+import fr.cea.ig.grools.fact.Relation;
+import fr.cea.ig.grools.fact.RelationImpl;
+import fr.cea.ig.grools.logic.TruthValueSet;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * CompressedAdjacency
+ * <p>
+ * Read-only storage of a concept graph where each concept owns a dense integer id and where adjacency is kept as
+ * compressed sparse rows. A relation is stored as three primitives (source id, target id, type index) and is only
+ * materialized as a {@link Relation} object while it is visited.
+ * Relations are sorted by source id, thus outgoing rows index relations directly while incoming rows go through a
+ * permutation array. Names are kept in a sorted array. Children, parents and observations of a concept are views of
+ * its rows and direct evidence is computed once by concept, thus no per-concept object is built.
+ */
+public final class CompressedAdjacency implements Serializable {
+    private static final int FREE = -1;
+
+    @Getter
+    private final int conceptsCount;
+    @Getter
+    private final int relationsCount;
+    private final Concept[] concepts;
+    private final Enum< ? >[] types;
+    private final int[] relationSource;
+    private final int[] relationTarget;
+    private final byte[] relationType;
+    private final int[] outgoingOffsets;
+    private final int[] incomingOffsets;
+    private final int[] incomingRelations;
+    // open addressing table concept -> id
+    private final int[] slots;
+    // sorted names and the id of each one
+    private final String[] names;
+    private final int[] nameIds;
+    // union of truth values from observations used for prediction and expectation, by id
+    private final TruthValueSet[] directPredictions;
+    private final TruthValueSet[] directExpectations;
+
+    public CompressedAdjacency( @NonNull final Collection< Concept > concepts, @NonNull final Collection< Relation > relations ) {
+        this.conceptsCount = concepts.size( );
+        this.relationsCount = relations.size( );
+        this.concepts = concepts.toArray( new Concept[ conceptsCount ] );
+        this.slots = new int[ Integer.highestOneBit( Math.max( 1, conceptsCount ) * 2 ) << 1 ];
+        Arrays.fill( slots, FREE );
+        for ( int id = 0; id < conceptsCount; id++ )
+            slots[ freeSlot( this.concepts[ id ] ) ] = id;
+        final Concept[] byName = this.concepts.clone( );
+        Arrays.sort( byName, Comparator.comparing( Concept::getName ) );
+        this.names = new String[ conceptsCount ];
+        this.nameIds = new int[ conceptsCount ];
+        for ( int i = 0; i < conceptsCount; i++ ) {
+            names[ i ] = byName[ i ].getName( );
+            nameIds[ i ] = idOf( byName[ i ] );
+        }
+
+        final List< Enum< ? > > typeDictionary = new ArrayList<>( );
+        final Map< Enum< ? >, Integer > typeToIndex = new HashMap<>( );
+        final int[] sources = new int[ relationsCount ];
+        final int[] targets = new int[ relationsCount ];
+        final byte[] kinds = new byte[ relationsCount ];
+        this.outgoingOffsets = new int[ conceptsCount + 1 ];
+        this.incomingOffsets = new int[ conceptsCount + 1 ];
+        int pos = 0;
+        for ( final Relation relation : relations ) {
+            final int source = idOf( relation.getSource( ) );
+            final int target = idOf( relation.getTarget( ) );
+            if ( source == FREE || target == FREE )
+                throw new IllegalArgumentException( "Relation " + relation + " links a concept which is not in the graph" );
+            Integer kind = typeToIndex.get( relation.getType( ) );
+            if ( kind == null ) {
+                kind = typeDictionary.size( );
+                if ( kind > Byte.MAX_VALUE )
+                    throw new IllegalArgumentException( "Too many relation types" );
+                typeToIndex.put( relation.getType( ), kind );
+                typeDictionary.add( relation.getType( ) );
+            }
+            sources[ pos ] = source;
+            targets[ pos ] = target;
+            kinds[ pos ] = kind.byteValue( );
+            outgoingOffsets[ source + 1 ]++;
+            incomingOffsets[ target + 1 ]++;
+            pos++;
+        }
+        this.types = typeDictionary.toArray( new Enum< ? >[ typeDictionary.size( ) ] );
+        for ( int id = 0; id < conceptsCount; id++ ) {
+            outgoingOffsets[ id + 1 ] += outgoingOffsets[ id ];
+            incomingOffsets[ id + 1 ] += incomingOffsets[ id ];
+        }
+
+        // counting sort of relations by source, then permutation of relations by target
+        this.relationSource = new int[ relationsCount ];
+        this.relationTarget = new int[ relationsCount ];
+        this.relationType = new byte[ relationsCount ];
+        this.incomingRelations = new int[ relationsCount ];
+        final int[] outgoingCursor = Arrays.copyOf( outgoingOffsets, conceptsCount );
+        final int[] incomingCursor = Arrays.copyOf( incomingOffsets, conceptsCount );
+        for ( int i = 0; i < relationsCount; i++ ) {
+            final int relationId = outgoingCursor[ sources[ i ] ]++;
+            relationSource[ relationId ] = sources[ i ];
+            relationTarget[ relationId ] = targets[ i ];
+            relationType[ relationId ] = kinds[ i ];
+        }
+        for ( int relationId = 0; relationId < relationsCount; relationId++ )
+            incomingRelations[ incomingCursor[ relationTarget[ relationId ] ]++ ] = relationId;
+
+        this.directPredictions = new TruthValueSet[ conceptsCount ];
+        this.directExpectations = new TruthValueSet[ conceptsCount ];
+        final TruthValueSet noEvidence = Observation.union( Collections.emptySet( ) );
+        for ( int id = 0; id < conceptsCount; id++ ) {
+            directPredictions[ id ] = noEvidence;
+            directExpectations[ id ] = noEvidence;
+            if ( getInDegree( id ) > 0 && this.concepts[ id ] instanceof PriorKnowledge ) {
+                directPredictions[ id ] = union( id, ObservationType.COMPUTATION, ObservationType.CURATION );
+                directExpectations[ id ] = union( id, ObservationType.EXPERIMENTATION, ObservationType.CURATION );
+            }
+        }
+    }
+
+    private TruthValueSet union( final int id, @NonNull final ObservationType type, @NonNull final ObservationType other ) {
+        final Set< Observation > linked = new HashSet<>( observations( id, type ) );
+        linked.addAll( observations( id, other ) );
+        return Observation.union( linked );
+    }
+
+    private int slotOf( @NonNull final Object concept ) {
+        final int mask = slots.length - 1;
+        int hash = concept.hashCode( ) * 0x9E3779B9;
+        int slot = ( hash ^ ( hash >>> 16 ) ) & mask;
+        while ( slots[ slot ] != FREE && !concepts[ slots[ slot ] ].equals( concept ) )
+            slot = ( slot + 1 ) & mask;
+        return slot;
+    }
+
+    private int freeSlot( @NonNull final Concept concept ) {
+        final int slot = slotOf( concept );
+        if ( slots[ slot ] != FREE )
+            throw new IllegalArgumentException( "Duplicate concept " + concept.getName( ) );
+        return slot;
+    }
+
+    /**
+     * @param concept a concept
+     * @return the dense id of the concept or -1 if the concept is not stored
+     */
+    public int idOf( final Object concept ) {
+        return ( concept == null ) ? FREE : slots[ slotOf( concept ) ];
+    }
+
+    public Concept getConcept( final int id ) {
+        return concepts[ id ];
+    }
+
+    public int getOutDegree( final int id ) {
+        return outgoingOffsets[ id + 1 ] - outgoingOffsets[ id ];
+    }
+
+    public int getInDegree( final int id ) {
+        return incomingOffsets[ id + 1 ] - incomingOffsets[ id ];
+    }
+
+    public int getSourceId( final int relationId ) {
+        return relationSource[ relationId ];
+    }
+
+    public int getTargetId( final int relationId ) {
+        return relationTarget[ relationId ];
+    }
+
+    public Enum< ? > getType( final int relationId ) {
+        return types[ relationType[ relationId ] ];
+    }
+
+    public Relation getRelation( final int relationId ) {
+        return new RelationImpl( concepts[ relationSource[ relationId ] ], concepts[ relationTarget[ relationId ] ], getType( relationId ) );
+    }
+
+    private int find( @NonNull final Relation relation ) {
+        final int source = idOf( relation.getSource( ) );
+        if ( source != FREE ) {
+            for ( int relationId = outgoingOffsets[ source ]; relationId < outgoingOffsets[ source + 1 ]; relationId++ ) {
+                if ( concepts[ relationTarget[ relationId ] ].equals( relation.getTarget( ) ) && getType( relationId ) == relation.getType( ) )
+                    return relationId;
+            }
+        }
+        return FREE;
+    }
+
+    /**
+     * @param id   id of a prior-knowledge or -1
+     * @param type relation type, null for any type
+     * @return read-only view of prior-knowledges which are source of a relation targeting the given prior-knowledge
+     */
+    Set< PriorKnowledge > children( final int id, final Enum< ? > type ) {
+        if ( id == FREE || !( concepts[ id ] instanceof PriorKnowledge ) )
+            return Collections.emptySet( );
+        return new RowView< PriorKnowledge >( this, id, true ) {
+            @Override
+            boolean accepts( final int relationId, final Concept neighbour ) {
+                return neighbour instanceof PriorKnowledge && ( type == null || store.getType( relationId ) == type );
+            }
+        };
+    }
+
+    /**
+     * @param id   id of a prior-knowledge or -1
+     * @param type relation type, null for any type
+     * @return read-only view of prior-knowledges which are target of a relation coming from the given prior-knowledge
+     */
+    Set< PriorKnowledge > parents( final int id, final Enum< ? > type ) {
+        if ( id == FREE || !( concepts[ id ] instanceof PriorKnowledge ) )
+            return Collections.emptySet( );
+        return new RowView< PriorKnowledge >( this, id, false ) {
+            @Override
+            boolean accepts( final int relationId, final Concept neighbour ) {
+                return neighbour instanceof PriorKnowledge && ( type == null || store.getType( relationId ) == type );
+            }
+        };
+    }
+
+    /**
+     * @param id   id of a prior-knowledge or -1
+     * @param type observation type
+     * @return read-only view of observations of given type linked to the given prior-knowledge
+     */
+    Set< Observation > observations( final int id, @NonNull final ObservationType type ) {
+        if ( id == FREE || !( concepts[ id ] instanceof PriorKnowledge ) )
+            return Collections.emptySet( );
+        return new RowView< Observation >( this, id, true ) {
+            @Override
+            boolean accepts( final int relationId, final Concept neighbour ) {
+                return neighbour instanceof Observation && ( ( Observation ) neighbour ).getType( ) == type;
+            }
+        };
+    }
+
+    /**
+     * @return union of truth values from computation and curation observations of a concept
+     */
+    TruthValueSet getDirectPrediction( final int id ) {
+        return directPredictions[ id ];
+    }
+
+    /**
+     * @return union of truth values from experimentation and curation observations of a concept
+     */
+    TruthValueSet getDirectExpectation( final int id ) {
+        return directExpectations[ id ];
+    }
+
+    /**
+     * @return true if a prior-knowledge is the source, or the target, of a relation of the given row
+     */
+    private boolean linksPriorKnowledge( final int id, final boolean isIncoming ) {
+        if ( isIncoming ) {
+            for ( int i = incomingOffsets[ id ]; i < incomingOffsets[ id + 1 ]; i++ )
+                if ( concepts[ relationSource[ incomingRelations[ i ] ] ] instanceof PriorKnowledge )
+                    return true;
+        }
+        else {
+            for ( int relationId = outgoingOffsets[ id ]; relationId < outgoingOffsets[ id + 1 ]; relationId++ )
+                if ( concepts[ relationTarget[ relationId ] ] instanceof PriorKnowledge )
+                    return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param isLeaf true for prior-knowledges without child prior-knowledge, false for those without parent one
+     * @return a read-only view of these prior-knowledges, flagged once
+     */
+    Set< PriorKnowledge > priorKnowledgesView( final boolean isLeaf ) {
+        final BitSet flags = new BitSet( conceptsCount );
+        for ( int id = 0; id < conceptsCount; id++ )
+            if ( concepts[ id ] instanceof PriorKnowledge && !linksPriorKnowledge( id, isLeaf ) )
+                flags.set( id );
+        return new FlagView( this, flags );
+    }
+
+    /**
+     * @return a read-only view of the concepts by name
+     */
+    Map< String, Concept > namesView( ) {
+        return new IdMap< String, Concept >( this ) {
+            @Override
+            int id( final Object key ) {
+                if ( !( key instanceof String ) )
+                    return FREE;
+                final int index = Arrays.binarySearch( store.names, key );
+                return ( index < 0 ) ? FREE : store.nameIds[ index ];
+            }
+
+            @Override
+            String key( final int id ) {
+                return store.concepts[ id ].getName( );
+            }
+
+            @Override
+            Concept value( final int id ) {
+                return store.concepts[ id ];
+            }
+        };
+    }
+
+    /**
+     * @return a read-only view of the concepts by id
+     */
+    Map< Integer, Concept > idsView( ) {
+        return new IdMap< Integer, Concept >( this ) {
+            @Override
+            int id( final Object key ) {
+                if ( !( key instanceof Integer ) )
+                    return FREE;
+                final int id = ( Integer ) key;
+                return ( id >= 0 && id < store.conceptsCount ) ? id : FREE;
+            }
+
+            @Override
+            Integer key( final int id ) {
+                return id;
+            }
+
+            @Override
+            Concept value( final int id ) {
+                return store.concepts[ id ];
+            }
+        };
+    }
+
+    /**
+     * @return a read-only view of the concepts
+     */
+    public Set< Concept > conceptsView( ) {
+        return new ConceptView( this );
+    }
+
+    /**
+     * @return a read-only view of the relations
+     */
+    public Set< Relation > relationsView( ) {
+        return new RelationView( this, 0, relationsCount, null );
+    }
+
+    /**
+     * @return a read-only view of the outgoing relations by concept, only concepts owning at least one outgoing relation are keys
+     */
+    public Map< Concept, Set< Relation > > outgoingView( ) {
+        return new AdjacencyView( this, outgoingOffsets, null );
+    }
+
+    /**
+     * @return a read-only view of the incoming relations by concept, only concepts owning at least one incoming relation are keys
+     */
+    public Map< Concept, Set< Relation > > incomingView( ) {
+        return new AdjacencyView( this, incomingOffsets, incomingRelations );
+    }
+
+    private static final class ConceptView extends AbstractSet< Concept > implements Serializable {
+        private final CompressedAdjacency store;
+
+        private ConceptView( @NonNull final CompressedAdjacency store ) {
+            this.store = store;
+        }
+
+        @Override
+        public boolean contains( final Object o ) {
+            return store.idOf( o ) != FREE;
+        }
+
+        @Override
+        public Iterator< Concept > iterator( ) {
+            return Arrays.asList( store.concepts ).iterator( );
+        }
+
+        @Override
+        public int size( ) {
+            return store.conceptsCount;
+        }
+    }
+
+    private static final class RelationView extends AbstractSet< Relation > implements Serializable {
+        private final CompressedAdjacency store;
+        private final int start;
+        private final int end;
+        private final int[] permutation;
+
+        private RelationView( @NonNull final CompressedAdjacency store, final int start, final int end, final int[] permutation ) {
+            this.store = store;
+            this.start = start;
+            this.end = end;
+            this.permutation = permutation;
+        }
+
+        @Override
+        public boolean contains( final Object o ) {
+            if ( !( o instanceof Relation ) )
+                return false;
+            final int relationId = store.find( ( Relation ) o );
+            if ( relationId == FREE )
+                return false;
+            if ( permutation == null )
+                return start <= relationId && relationId < end;
+            return store.relationTarget[ relationId ] == store.relationTarget[ permutation[ start ] ];
+        }
+
+        @Override
+        public Iterator< Relation > iterator( ) {
+            return new Iterator< Relation >( ) {
+                private int cursor = start;
+
+                @Override
+                public boolean hasNext( ) {
+                    return cursor < end;
+                }
+
+                @Override
+                public Relation next( ) {
+                    if ( cursor >= end )
+                        throw new NoSuchElementException( );
+                    final int relationId = ( permutation == null ) ? cursor : permutation[ cursor ];
+                    cursor++;
+                    return store.getRelation( relationId );
+                }
+            };
+        }
+
+        @Override
+        public int size( ) {
+            return end - start;
+        }
+    }
+
+    private static final class AdjacencyView extends AbstractMap< Concept, Set< Relation > > implements Serializable {
+        private final CompressedAdjacency store;
+        private final int[] offsets;
+        private final int[] permutation;
+
+        private AdjacencyView( @NonNull final CompressedAdjacency store, @NonNull final int[] offsets, final int[] permutation ) {
+            this.store = store;
+            this.offsets = offsets;
+            this.permutation = permutation;
+        }
+
+        private Set< Relation > row( final int id ) {
+            return ( offsets[ id ] == offsets[ id + 1 ] ) ? null : new RelationView( store, offsets[ id ], offsets[ id + 1 ], permutation );
+        }
+
+        @Override
+        public Set< Relation > get( final Object key ) {
+            final int id = store.idOf( key );
+            return ( id == FREE ) ? null : row( id );
+        }
+
+        @Override
+        public boolean containsKey( final Object key ) {
+            final int id = store.idOf( key );
+            return id != FREE && offsets[ id ] != offsets[ id + 1 ];
+        }
+
+        @Override
+        public Set< Entry< Concept, Set< Relation > > > entrySet( ) {
+            return new AbstractSet< Entry< Concept, Set< Relation > > >( ) {
+                @Override
+                public Iterator< Entry< Concept, Set< Relation > > > iterator( ) {
+                    return new Iterator< Entry< Concept, Set< Relation > > >( ) {
+                        private int cursor = skip( 0 );
+
+                        private int skip( int id ) {
+                            while ( id < store.conceptsCount && offsets[ id ] == offsets[ id + 1 ] )
+                                id++;
+                            return id;
+                        }
+
+                        @Override
+                        public boolean hasNext( ) {
+                            return cursor < store.conceptsCount;
+                        }
+
+                        @Override
+                        public Entry< Concept, Set< Relation > > next( ) {
+                            if ( cursor >= store.conceptsCount )
+                                throw new NoSuchElementException( );
+                            final Entry< Concept, Set< Relation > > entry = new SimpleImmutableEntry<>( store.concepts[ cursor ], row( cursor ) );
+                            cursor = skip( cursor + 1 );
+                            return entry;
+                        }
+                    };
+                }
+
+                @Override
+                public int size( ) {
+                    int size = 0;
+                    for ( int id = 0; id < store.conceptsCount; id++ )
+                        if ( offsets[ id ] != offsets[ id + 1 ] )
+                            size++;
+                    return size;
+                }
+            };
+        }
+    }
+
+    /**
+     * Read-only set of the concepts linked to a concept by the relations of one of its rows, a concept linked by
+     * several relations is seen once
+     */
+    private abstract static class RowView< T > extends AbstractSet< T > {
+        final CompressedAdjacency store;
+        private final int start;
+        private final int end;
+        private final boolean isIncoming;
+
+        private RowView( @NonNull final CompressedAdjacency store, final int id, final boolean isIncoming ) {
+            this.store = store;
+            this.isIncoming = isIncoming;
+            this.start = isIncoming ? store.incomingOffsets[ id ] : store.outgoingOffsets[ id ];
+            this.end = isIncoming ? store.incomingOffsets[ id + 1 ] : store.outgoingOffsets[ id + 1 ];
+        }
+
+        /**
+         * @return true if the concept linked by a relation of the row belongs to this view
+         */
+        abstract boolean accepts( int relationId, Concept neighbour );
+
+        private int relationAt( final int position ) {
+            return isIncoming ? store.incomingRelations[ position ] : position;
+        }
+
+        private int neighbourAt( final int position ) {
+            final int relationId = relationAt( position );
+            return isIncoming ? store.relationSource[ relationId ] : store.relationTarget[ relationId ];
+        }
+
+        private boolean isAccepted( final int position ) {
+            return accepts( relationAt( position ), store.concepts[ neighbourAt( position ) ] );
+        }
+
+        /**
+         * @return true if the concept at this position is accepted and is not seen at a previous position
+         */
+        private boolean isFirst( final int position ) {
+            if ( !isAccepted( position ) )
+                return false;
+            final int neighbour = neighbourAt( position );
+            for ( int previous = start; previous < position; previous++ )
+                if ( neighbourAt( previous ) == neighbour && isAccepted( previous ) )
+                    return false;
+            return true;
+        }
+
+        private int skip( int position ) {
+            while ( position < end && !isFirst( position ) )
+                position++;
+            return position;
+        }
+
+        @Override
+        public boolean contains( final Object o ) {
+            final int neighbour = store.idOf( o );
+            if ( neighbour == FREE )
+                return false;
+            for ( int position = start; position < end; position++ )
+                if ( neighbourAt( position ) == neighbour && isAccepted( position ) )
+                    return true;
+            return false;
+        }
+
+        @Override
+        public Iterator< T > iterator( ) {
+            return new Iterator< T >( ) {
+                private int cursor = skip( start );
+
+                @Override
+                public boolean hasNext( ) {
+                    return cursor < end;
+                }
+
+                @Override
+                @SuppressWarnings( "unchecked" )
+                public T next( ) {
+                    if ( cursor >= end )
+                        throw new NoSuchElementException( );
+                    final T concept = ( T ) store.concepts[ neighbourAt( cursor ) ];
+                    cursor = skip( cursor + 1 );
+                    return concept;
+                }
+            };
+        }
+
+        @Override
+        public int size( ) {
+            int size = 0;
+            for ( int position = skip( start ); position < end; position = skip( position + 1 ) )
+                size++;
+            return size;
+        }
+    }
+
+    private static final class FlagView extends AbstractSet< PriorKnowledge > implements Serializable {
+        private final CompressedAdjacency store;
+        private final BitSet flags;
+        private final int size;
+
+        private FlagView( @NonNull final CompressedAdjacency store, @NonNull final BitSet flags ) {
+            this.store = store;
+            this.flags = flags;
+            this.size = flags.cardinality( );
+        }
+
+        @Override
+        public boolean contains( final Object o ) {
+            final int id = store.idOf( o );
+            return id != FREE && flags.get( id );
+        }
+
+        @Override
+        public Iterator< PriorKnowledge > iterator( ) {
+            return new Iterator< PriorKnowledge >( ) {
+                private int cursor = flags.nextSetBit( 0 );
+
+                @Override
+                public boolean hasNext( ) {
+                    return cursor >= 0;
+                }
+
+                @Override
+                public PriorKnowledge next( ) {
+                    if ( cursor < 0 )
+                        throw new NoSuchElementException( );
+                    final PriorKnowledge pk = ( PriorKnowledge ) store.concepts[ cursor ];
+                    cursor = flags.nextSetBit( cursor + 1 );
+                    return pk;
+                }
+            };
+        }
+
+        @Override
+        public int size( ) {
+            return size;
+        }
+    }
+
+    /**
+     * Read-only map where every id is a key
+     */
+    private abstract static class IdMap< K, V > extends AbstractMap< K, V > implements Serializable {
+        final CompressedAdjacency store;
+
+        private IdMap( @NonNull final CompressedAdjacency store ) {
+            this.store = store;
+        }
+
+        /**
+         * @return id of a key or -1
+         */
+        abstract int id( Object key );
+
+        abstract K key( int id );
+
+        abstract V value( int id );
+
+        @Override
+        public V get( final Object key ) {
+            final int id = id( key );
+            return ( id == FREE ) ? null : value( id );
+        }
+
+        @Override
+        public boolean containsKey( final Object key ) {
+            return id( key ) != FREE;
+        }
+
+        @Override
+        public int size( ) {
+            return store.conceptsCount;
+        }
+
+        @Override
+        public Set< Entry< K, V > > entrySet( ) {
+            return new AbstractSet< Entry< K, V > >( ) {
+                @Override
+                public Iterator< Entry< K, V > > iterator( ) {
+                    return new Iterator< Entry< K, V > >( ) {
+                        private int cursor = 0;
+
+                        @Override
+                        public boolean hasNext( ) {
+                            return cursor < store.conceptsCount;
+                        }
+
+                        @Override
+                        public Entry< K, V > next( ) {
+                            if ( cursor >= store.conceptsCount )
+                                throw new NoSuchElementException( );
+                            final Entry< K, V > entry = new SimpleImmutableEntry<>( key( cursor ), value( cursor ) );
+                            cursor++;
+                            return entry;
+                        }
+                    };
+                }
+
+                @Override
+                public int size( ) {
+                    return store.conceptsCount;
+                }
+            };
+        }
+    }
+}
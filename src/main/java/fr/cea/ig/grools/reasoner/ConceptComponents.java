@@ -0,0 +1,204 @@
+package fr.cea.ig.grools.reasoner;
+
+import fr.cea.ig.grools.fact.Concept;
+import fr.cea.ig.grools.fact.PriorKnowledge;
+import fr.cea.ig.grools.fact.Relation;
+import lombok.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * ConceptComponents
+ * <p>
+ * Connected components of a concept graph, relations are followed in both directions.
+ * Components are merged when a relation is inserted. A deletion only marks the component, it is split when dirty
+ * components are taken. A component is dirty when one of its concepts or relations changed since it was last taken.
+ */
+final class ConceptComponents {
+
+    /**
+     * Concepts linked together
+     */
+    static final class Component {
+        private final Set< Concept > members;
+        private PriorKnowledgeLevels levels;
+        private boolean maybeSplit;
+
+        private Component( ) {
+            this.members = new HashSet<>( );
+            this.levels = null;
+            this.maybeSplit = false;
+        }
+
+        Set< Concept > getMembers( ) {
+            return Collections.unmodifiableSet( members );
+        }
+
+        /**
+         * @return prior-knowledges of this component by level, computed again only when the component changed
+         */
+        PriorKnowledgeLevels getLevels( @NonNull final ConceptGraph graph ) {
+            if ( levels == null )
+                levels = new PriorKnowledgeLevels( graph, PriorKnowledgeLevels.priorKnowledges( members ) );
+            return levels;
+        }
+    }
+
+    private final ConceptGraph graph;
+    private final Map< Concept, Component > components;
+    private final Set< Component > dirty;
+
+    ConceptComponents( @NonNull final ConceptGraph graph ) {
+        this.graph = graph;
+        this.components = new HashMap<>( );
+        this.dirty = new LinkedHashSet<>( );
+        graph.getConcepts( ).forEach( this::addConcept );
+        graph.getRelations( ).forEach( this::addRelation );
+    }
+
+    private void markDirty( @NonNull final Component component, final boolean structureHasChanged ) {
+        if ( structureHasChanged )
+            component.levels = null;
+        dirty.add( component );
+    }
+
+    /**
+     * Move members of the smaller component into the bigger one
+     */
+    private Component merge( @NonNull final Component first, @NonNull final Component second ) {
+        final Component big = first.members.size( ) >= second.members.size( ) ? first : second;
+        final Component small = big == first ? second : first;
+        for ( final Concept concept : small.members )
+            components.put( concept, big );
+        big.members.addAll( small.members );
+        big.maybeSplit |= small.maybeSplit;
+        dirty.remove( small );
+        return big;
+    }
+
+    /**
+     * @return components made of concepts from the given component still linked together
+     */
+    private List< Component > split( @NonNull final Component component ) {
+        component.maybeSplit = false;
+        final List< Component > parts = new ArrayList<>( );
+        final Set< Concept > visited = new HashSet<>( );
+        for ( final Concept start : component.members ) {
+            if ( !visited.add( start ) )
+                continue;
+            final Component part = new Component( );
+            final Deque< Concept > toVisit = new ArrayDeque<>( );
+            toVisit.add( start );
+            while ( !toVisit.isEmpty( ) ) {
+                final Concept concept = toVisit.poll( );
+                part.members.add( concept );
+                for ( final Relation relation : graph.getOutgoing( concept ) )
+                    if ( visited.add( relation.getTarget( ) ) )
+                        toVisit.add( relation.getTarget( ) );
+                for ( final Relation relation : graph.getIncoming( concept ) )
+                    if ( visited.add( relation.getSource( ) ) )
+                        toVisit.add( relation.getSource( ) );
+            }
+            parts.add( part );
+        }
+        if ( parts.size( ) == 1 ) {
+            component.levels = null;
+            return Collections.singletonList( component );
+        }
+        for ( final Component part : parts )
+            for ( final Concept concept : part.members )
+                components.put( concept, part );
+        return parts;
+    }
+
+    void addConcept( @NonNull final Concept concept ) {
+        if ( components.containsKey( concept ) )
+            return;
+        final Component component = new Component( );
+        component.members.add( concept );
+        components.put( concept, component );
+        markDirty( component, true );
+    }
+
+    void addRelation( @NonNull final Relation relation ) {
+        addConcept( relation.getSource( ) );
+        addConcept( relation.getTarget( ) );
+        final Component component = components.get( relation.getSource( ) );
+        final Component other = components.get( relation.getTarget( ) );
+        // levels of a merged component miss prior-knowledges of the smaller one, even when joined by an observation
+        if ( component != other )
+            markDirty( merge( component, other ), true );
+        else
+            markDirty( component, relation.getSource( ) instanceof PriorKnowledge );
+    }
+
+    void deleteRelation( @NonNull final Relation relation ) {
+        // both ends, they may already be in distinct components when the relation was not in the graph
+        for ( final Concept concept : new Concept[]{ relation.getSource( ), relation.getTarget( ) } ) {
+            final Component component = components.get( concept );
+            if ( component != null ) {
+                component.maybeSplit = true;
+                markDirty( component, true );
+            }
+        }
+    }
+
+    void deleteConcept( @NonNull final Concept concept ) {
+        final Component component = components.remove( concept );
+        if ( component == null )
+            return;
+        component.members.remove( concept );
+        component.maybeSplit = true;
+        if ( component.members.isEmpty( ) )
+            dirty.remove( component );
+        else
+            markDirty( component, true );
+    }
+
+    /**
+     * Every component has to be evaluated again
+     */
+    void markAllDirty( ) {
+        for ( final Component component : components.values( ) )
+            dirty.add( component );
+    }
+
+    /**
+     * @return the component of a concept or null
+     */
+    Component getComponent( @NonNull final Concept concept ) {
+        return components.get( concept );
+    }
+
+    /**
+     * @return number of distinct components
+     */
+    int size( ) {
+        return new HashSet<>( components.values( ) ).size( );
+    }
+
+    /**
+     * Split components which lost a relation or a concept then return dirty components, they are clean afterward
+     * @return components changed since the last call
+     */
+    List< Component > takeDirty( ) {
+        final List< Component > result = new ArrayList<>( dirty.size( ) );
+        for ( final Component component : dirty ) {
+            if ( component.maybeSplit )
+                result.addAll( split( component ) );
+            else
+                result.add( component );
+        }
+        dirty.clear( );
+        return result;
+    }
+}
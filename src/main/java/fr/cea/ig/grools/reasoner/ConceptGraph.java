@@ -1,97 +1,448 @@
 package fr.cea.ig.grools.reasoner;
 
 import fr.cea.ig.grools.fact.Concept;
+import fr.cea.ig.grools.fact.Observation;
+import fr.cea.ig.grools.fact.ObservationType;
+import fr.cea.ig.grools.fact.PriorKnowledge;
 import fr.cea.ig.grools.fact.Relation;
-import lombok.Getter;
+import fr.cea.ig.grools.logic.TruthValueSet;
 import lombok.NonNull;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * ConceptGraph
+ * <p>
+ * Structures are copy-on-write, {@link #fork()} gives an independent graph in O(1) which shares them until one side
+ * changes.
  */
 public final class ConceptGraph implements Serializable {
-    @Getter
+    private static final TruthValueSet NO_EVIDENCE = Observation.union( Collections.emptySet( ) );
     @NonNull
-    private final Map< Concept, Set< Relation > > outgoing;
-    @Getter
+    private final LayeredMap< Concept, Set< Relation > > outgoing;
     @NonNull
-    private final Map< Concept, Set< Relation > > incoming;
-    @Getter
+    private final LayeredMap< Concept, Set< Relation > > incoming;
     @NonNull
-    private final Map< String, Concept > nameToConcept;
-    @Getter
+    private final LayeredMap< String, Concept > nameToConcept;
     @NonNull
-    private final Set< Relation > relations;
-    @Getter
+    private final LayeredSet< Relation > relations;
     @NonNull
-    private final Set< Concept > concepts;
+    private final LayeredSet< Concept > concepts;
+    private final LayeredMap< Concept, Neighbourhood > neighbourhoods;
+    private final LayeredMap< Integer, Concept > idToConcept;
+    private final LayeredSet< PriorKnowledge > leaves;
+    private final LayeredSet< PriorKnowledge > tops;
+    private final Set< PriorKnowledge > leavesView;
+    private final Set< PriorKnowledge > topsView;
+    // next concept id, ids are never reused
+    private int idsCount;
+    // true when mutators are not supported
+    private boolean isReadOnly;
+    // storage of a compact graph, adjacency of prior-knowledges is read from it instead of neighbourhoods
+    private CompressedAdjacency store;
 
     public ConceptGraph( ) {
-        this.outgoing       = new HashMap<>( );
-        this.incoming       = new HashMap<>( );
-        this.nameToConcept  = new HashMap<>( );
-        this.relations      = new HashSet<>( );
-        this.concepts       = new HashSet<>( );
+        this.outgoing       = new LayeredMap<>( );
+        this.incoming       = new LayeredMap<>( );
+        this.nameToConcept  = new LayeredMap<>( );
+        this.relations      = new LayeredSet<>( );
+        this.concepts       = new LayeredSet<>( );
+        this.neighbourhoods = new LayeredMap<>( );
+        this.idToConcept    = new LayeredMap<>( );
+        this.leaves         = new LayeredSet<>( );
+        this.tops           = new LayeredSet<>( );
+        this.leavesView     = Collections.unmodifiableSet( leaves );
+        this.topsView       = Collections.unmodifiableSet( tops );
+        this.idsCount       = 0;
+        this.isReadOnly     = false;
     }
 
 
+    /**
+     * Given structures are read but never changed, changes of this graph are kept aside
+     */
     public ConceptGraph( @NonNull final Map< Concept, Set< Relation > > outgoing, @NonNull final Map< Concept, Set< Relation > > incoming,
                          @NonNull final Map< String, Concept > nameToConcept, @NonNull final Set< Relation > relations,
                          @NonNull final Set< Concept > concepts ) {
-        this.outgoing = outgoing;
-        this.incoming = incoming;
-        this.nameToConcept = nameToConcept;
-        this.relations = relations;
-        this.concepts = concepts;
+        this.outgoing = new LayeredMap<>( outgoing );
+        this.incoming = new LayeredMap<>( incoming );
+        this.nameToConcept = new LayeredMap<>( nameToConcept );
+        this.relations = new LayeredSet<>( relations );
+        this.concepts = new LayeredSet<>( concepts );
+        this.neighbourhoods = new LayeredMap<>( );
+        this.idToConcept = new LayeredMap<>( );
+        this.leaves = new LayeredSet<>( );
+        this.tops = new LayeredSet<>( );
+        this.leavesView = Collections.unmodifiableSet( leaves );
+        this.topsView = Collections.unmodifiableSet( tops );
+        this.idsCount = 0;
+        this.isReadOnly = false;
+        concepts.forEach( this::neighbourhood );
+        relations.forEach( this::index );
+        concepts.forEach( this::classify );
+    }
+
+    /**
+     * Graph made of a knowledge base image, nothing is read before it is used
+     */
+    private ConceptGraph( @NonNull final KnowledgeBaseImage image ) {
+        this.outgoing       = new LayeredMap<>( image.adjacencyView( true ) );
+        this.incoming       = new LayeredMap<>( image.adjacencyView( false ) );
+        this.nameToConcept  = new LayeredMap<>( image.namesView( ) );
+        this.relations      = new LayeredSet<>( image.relationsView( ) );
+        this.concepts       = new LayeredSet<>( image.conceptsView( ) );
+        this.neighbourhoods = new LayeredMap<>( image.neighbourhoodsView( ) );
+        this.idToConcept    = new LayeredMap<>( image.idsView( ) );
+        this.leaves         = new LayeredSet<>( image.leavesView( ) );
+        this.tops           = new LayeredSet<>( image.topsView( ) );
+        this.leavesView     = Collections.unmodifiableSet( leaves );
+        this.topsView       = Collections.unmodifiableSet( tops );
+        this.idsCount       = image.size( );
+        this.isReadOnly     = false;
+    }
+
+    /**
+     * Graph made of structures filled by {@link #build(Collection, Collection, ForkJoinPool)} or views of
+     * {@link #compact()}, they are read but never changed
+     */
+    private ConceptGraph( @NonNull final Map< Concept, Set< Relation > > outgoing, @NonNull final Map< Concept, Set< Relation > > incoming,
+                          @NonNull final Map< String, Concept > nameToConcept, @NonNull final Set< Relation > relations,
+                          @NonNull final Set< Concept > concepts, @NonNull final Map< Concept, Neighbourhood > neighbourhoods,
+                          @NonNull final Map< Integer, Concept > idToConcept, @NonNull final Set< PriorKnowledge > leaves,
+                          @NonNull final Set< PriorKnowledge > tops ) {
+        this.outgoing       = new LayeredMap<>( outgoing );
+        this.incoming       = new LayeredMap<>( incoming );
+        this.nameToConcept  = new LayeredMap<>( nameToConcept );
+        this.relations      = new LayeredSet<>( relations );
+        this.concepts       = new LayeredSet<>( concepts );
+        this.neighbourhoods = new LayeredMap<>( neighbourhoods );
+        this.idToConcept    = new LayeredMap<>( idToConcept );
+        this.leaves         = new LayeredSet<>( leaves );
+        this.tops           = new LayeredSet<>( tops );
+        this.leavesView     = Collections.unmodifiableSet( this.leaves );
+        this.topsView       = Collections.unmodifiableSet( this.tops );
+        this.idsCount       = concepts.size( );
+        this.isReadOnly     = false;
+    }
+
+    /**
+     * Build a graph from a large batch at once, see {@link #build(Collection, Collection, ForkJoinPool)}
+     */
+    public static ConceptGraph build( @NonNull final Collection< ? extends Concept > concepts, @NonNull final Collection< Relation > relations ) {
+        return build( concepts, relations, ForkJoinPool.commonPool( ) );
+    }
+
+    /**
+     * Build a graph from a large batch at once. Concepts get dense ids and relations are deduplicated in a single
+     * pass, then adjacency sets and neighbourhoods of each concept are filled in parallel at their final size, see
+     * {@link BatchAdjacency}. The graph is the same as the one made by adding concepts then relations one by one, its
+     * structures are shared with forks as usual.
+     * @param concepts  concepts, concepts of relations are added too
+     * @param relations relations, duplicates are ignored
+     * @param pool      fills concepts in parallel, null to build sequentially
+     * @return the graph
+     */
+    public static ConceptGraph build( @NonNull final Collection< ? extends Concept > concepts, @NonNull final Collection< Relation > relations,
+                                      final ForkJoinPool pool ) {
+        final BatchAdjacency adjacency = new BatchAdjacency( concepts, relations, pool );
+        return new ConceptGraph( adjacency.adjacencyView( true ), adjacency.adjacencyView( false ), adjacency.namesView( ),
+                                 adjacency.relationsView( ), adjacency.conceptsView( ), adjacency.neighbourhoodsView( ),
+                                 adjacency.idsView( ), adjacency.priorKnowledgesView( true ),
+                                 adjacency.priorKnowledgesView( false ) );
+    }
+
+    /**
+     * Open a graph on a memory-mapped knowledge base image, see {@link KnowledgeBaseImage}. Prior-knowledges and their
+     * relations are read in place when first used, observations inserted later are kept by the graph. Prior-knowledges
+     * of the image are only known by the graph which built them, they are looked up by name.
+     * @param image an image written by {@link KnowledgeBaseImage#write(ConceptGraph, File)}
+     * @return the graph
+     * @throws IOException if the image can not be opened
+     */
+    public static ConceptGraph open( @NonNull final File image ) throws IOException {
+        return new ConceptGraph( KnowledgeBaseImage.open( image ) );
+    }
+
+    private ConceptGraph( @NonNull final ConceptGraph other ) {
+        this.outgoing = other.outgoing.fork( );
+        this.incoming = other.incoming.fork( );
+        this.nameToConcept = other.nameToConcept.fork( );
+        this.relations = other.relations.fork( );
+        this.concepts = other.concepts.fork( );
+        this.neighbourhoods = other.neighbourhoods.fork( );
+        this.idToConcept = other.idToConcept.fork( );
+        this.leaves = other.leaves.fork( );
+        this.tops = other.tops.fork( );
+        this.leavesView = Collections.unmodifiableSet( leaves );
+        this.topsView = Collections.unmodifiableSet( tops );
+        this.idsCount = other.idsCount;
+        this.isReadOnly = false;
+    }
+
+    /**
+     * Copy-on-write fork of this graph in O(1): both graphs share their structures, only adjacency buckets and
+     * neighbourhoods touched by a later change are copied by the changed graph. Concepts and relations themselves are
+     * shared, thus values computed on a fork have to be read from its reasoner, see
+     * {@link ReasonerImpl#setWriteThrough(boolean)}. A read-only graph is returned as is.
+     * @return the fork
+     */
+    public ConceptGraph fork( ) {
+        return isReadOnly ? this : new ConceptGraph( this );
+    }
+
+    private void checkWritable( ) {
+        if ( isReadOnly )
+            throw new UnsupportedOperationException( "Compact concept graph is read-only" );
+    }
+
+    public Map< Concept, Set< Relation > > getOutgoing( ) {
+        return outgoing;
+    }
+
+    public Map< Concept, Set< Relation > > getIncoming( ) {
+        return incoming;
+    }
+
+    public Map< String, Concept > getNameToConcept( ) {
+        return nameToConcept;
+    }
+
+    public Set< Relation > getRelations( ) {
+        return relations;
+    }
+
+    public Set< Concept > getConcepts( ) {
+        return concepts;
+    }
+
+    /**
+     * @return the neighbourhood of a concept, owned by this graph thus it can be changed
+     */
+    private Neighbourhood neighbourhood( @NonNull final Concept concept ) {
+        Neighbourhood neighbourhood = neighbourhoods.writable( concept, Neighbourhood::new );
+        if ( neighbourhood == null ) {
+            neighbourhood = new Neighbourhood( idsCount++ );
+            neighbourhoods.put( concept, neighbourhood );
+            idToConcept.put( neighbourhood.getId( ), concept );
+        }
+        return neighbourhood;
+    }
+
+    /**
+     * Add a prior-knowledge to leaves and/or tops when it is not linked to any child and/or parent prior-knowledge
+     */
+    private void classify( @NonNull final Concept concept ) {
+        if ( concept instanceof PriorKnowledge && concepts.contains( concept ) ) {
+            if ( getChildren( concept ).isEmpty( ) )
+                leaves.add( ( PriorKnowledge ) concept );
+            if ( getParents( concept ).isEmpty( ) )
+                tops.add( ( PriorKnowledge ) concept );
+        }
+    }
+
+    private void index( @NonNull final Relation relation ) {
+        final Concept source = relation.getSource( );
+        final Concept target = relation.getTarget( );
+        if ( target instanceof PriorKnowledge ) {
+            if ( source instanceof PriorKnowledge ) {
+                neighbourhood( target ).addChild( ( PriorKnowledge ) source, relation.getType( ) );
+                neighbourhood( source ).addParent( ( PriorKnowledge ) target, relation.getType( ) );
+                leaves.remove( target );
+                tops.remove( source );
+            }
+            else if ( source instanceof Observation )
+                neighbourhood( target ).addObservation( ( Observation ) source );
+        }
+    }
+
+    private void unindex( @NonNull final Relation relation ) {
+        final Concept source = relation.getSource( );
+        final Concept target = relation.getTarget( );
+        if ( !neighbourhoods.containsKey( target ) )
+            return;
+        final Neighbourhood targetNeighbourhood = neighbourhood( target );
+        // an other relation between both concepts keeps them linked
+        boolean keepTyped = false;
+        boolean keepAny = false;
+        for ( final Relation other : getOutgoing( source ) ) {
+            if ( other.getTarget( ).equals( target ) ) {
+                keepAny = true;
+                keepTyped |= other.getType( ) == relation.getType( );
+            }
+        }
+        if ( source instanceof PriorKnowledge ) {
+            targetNeighbourhood.removeChild( ( PriorKnowledge ) source, relation.getType( ), keepTyped, keepAny );
+            neighbourhood( source ).removeParent( ( PriorKnowledge ) target, relation.getType( ), keepTyped, keepAny );
+            classify( source );
+            classify( target );
+        }
+        else if ( source instanceof Observation && !keepAny )
+            targetNeighbourhood.removeObservation( ( Observation ) source );
     }
 
     public void addConcept( @NonNull final Concept concept ) {
-        concepts.add( concept );
+        checkWritable( );
+        if ( concepts.add( concept ) ) {
+            neighbourhood( concept );
+            classify( concept );
+        }
         nameToConcept.put( concept.getName( ), concept );
     }
 
     public void deleteConcept( @NonNull final Concept concept ) {
+        checkWritable( );
+        new ArrayList<>( getOutgoing( concept ) ).forEach( this::deleteRelation );
+        new ArrayList<>( getIncoming( concept ) ).forEach( this::deleteRelation );
         concepts.remove( concept );
-        final Set< Relation > outgoingSet = outgoing.get( concept );
-        final Set< Relation > incomingSet = incoming.get( concept );
-        outgoingSet.forEach( outgoing::remove );
-        incomingSet.forEach( incoming::remove );
-        relations.removeAll( outgoingSet );
-        relations.removeAll( incomingSet );
+        nameToConcept.remove( concept.getName( ), concept );
+        outgoing.remove( concept );
+        incoming.remove( concept );
+        final Neighbourhood neighbourhood = neighbourhoods.remove( concept );
+        if ( neighbourhood != null )
+            idToConcept.remove( neighbourhood.getId( ) );
+        leaves.remove( concept );
+        tops.remove( concept );
+    }
+
+    /**
+     * @return relations of a concept owned by this graph, an absent set is created
+     */
+    private static Set< Relation > bucket( @NonNull final LayeredMap< Concept, Set< Relation > > buckets, @NonNull final Concept concept ) {
+        Set< Relation > bucket = buckets.writable( concept, HashSet::new );
+        if ( bucket == null ) {
+            bucket = new HashSet<>( );
+            buckets.put( concept, bucket );
+        }
+        return bucket;
     }
 
     public void deleteRelation( @NonNull final Relation relation ) {
-        relations.remove( relation );
+        checkWritable( );
+        if ( !relations.remove( relation ) )
+            return;
         final Concept source = relation.getSource( );
         final Concept target = relation.getTarget( );
-        incoming.get( target ).remove( relation );
-        outgoing.get( source ).remove( relation );
+        bucket( incoming, target ).remove( relation );
+        bucket( outgoing, source ).remove( relation );
+        unindex( relation );
     }
 
     public void addRelation( @NonNull final Relation relation ) {
-        relations.add( relation );
+        checkWritable( );
+        if ( !relations.add( relation ) )
+            return;
         addConcept( relation.getSource( ) );
         addConcept( relation.getTarget( ) );
-        final Set< Relation > outgoingSet = outgoing.getOrDefault( relation.getSource( ), new HashSet<>( ) );
-        final Set< Relation > incomingSet = incoming.getOrDefault( relation.getTarget( ), new HashSet<>( ) );
-        outgoingSet.add( relation );
-        incomingSet.add( relation );
-        outgoing.put( relation.getSource( ), outgoingSet );
-        incoming.put( relation.getTarget( ), incomingSet );
-
+        bucket( outgoing, relation.getSource( ) ).add( relation );
+        bucket( incoming, relation.getTarget( ) ).add( relation );
+        index( relation );
     }
 
     public void addRelations( @NonNull final Relation... relation ) {
-        addRelations( Arrays.stream( relation ).collect( Collectors.toSet( ) ) );
+        addRelations( Arrays.asList( relation ) );
     }
 
+    /**
+     * Add a batch of relations, buckets of concepts getting many of them grow once to their final size
+     */
     public void addRelations( @NonNull final Collection< Relation > relationsToAdd ) {
+        reserve( relationsToAdd );
         relationsToAdd.forEach( this::addRelation );
     }
 
+    /**
+     * Make room for relations of a batch before they are added one by one, see {@link #presize(LayeredMap, Map)}
+     * @param batch a batch of insertions, other objects than relations are ignored
+     */
+    void reserve( @NonNull final Collection< ? > batch ) {
+        if ( batch.size( ) < 2 )
+            return;
+        checkWritable( );
+        final Map< Concept, Integer > sources = new HashMap<>( );
+        final Map< Concept, Integer > targets = new HashMap<>( );
+        for ( final Object item : batch ) {
+            if ( !( item instanceof Relation ) || relations.contains( item ) )
+                continue;
+            final Relation relation = ( Relation ) item;
+            sources.merge( relation.getSource( ), 1, Integer::sum );
+            targets.merge( relation.getTarget( ), 1, Integer::sum );
+        }
+        presize( outgoing, sources );
+        presize( incoming, targets );
+    }
+
+    /**
+     * A bucket getting more relations than it holds is replaced by a copy of its final size, others grow as usual
+     * @param counts number of relations added by concept
+     */
+    private static void presize( @NonNull final LayeredMap< Concept, Set< Relation > > buckets, @NonNull final Map< Concept, Integer > counts ) {
+        counts.forEach( ( concept, count ) -> {
+            final Set< Relation > bucket = buckets.get( concept );
+            final int size = ( bucket == null ) ? 0 : bucket.size( );
+            if ( count <= size )
+                return;
+            final Set< Relation > grown = new HashSet<>( ( int ) ( ( size + count ) / 0.75f ) + 1 );
+            if ( bucket != null )
+                grown.addAll( bucket );
+            buckets.put( concept, grown );
+        } );
+    }
+
+    /**
+     * Concepts get a dense id when they are added, ids of deleted concepts are not reused
+     * @return the id of a concept of this graph or -1
+     */
+    public int getId( @NonNull final Concept concept ) {
+        if ( store != null )
+            return store.idOf( concept );
+        final Neighbourhood neighbourhood = neighbourhoods.get( concept );
+        return neighbourhood == null ? -1 : neighbourhood.getId( );
+    }
+
+    /**
+     * @return the concept of an id or null if it is not in this graph
+     */
+    public Concept getConcept( final int id ) {
+        return idToConcept.get( id );
+    }
+
+    /**
+     * @return an upper bound of concept ids
+     */
+    public int getIdsCount( ) {
+        return idsCount;
+    }
+
+    /**
+     * Build a read-only copy of this graph where concepts and relations are stored by a {@link CompressedAdjacency}.
+     * Every structure of the copy is a view of the storage: names are looked up in a sorted array, ids, children,
+     * parents and observations are read from rows, direct evidence from arrays, and leaves and tops are flags. No
+     * neighbourhood is built. Mutators of the returned graph throw an UnsupportedOperationException.
+     * @return the compact graph
+     */
+    public ConceptGraph compact( ) {
+        final CompressedAdjacency adjacency = new CompressedAdjacency( concepts, relations );
+        final ConceptGraph compact = new ConceptGraph( adjacency.outgoingView( ), adjacency.incomingView( ), adjacency.namesView( ),
+                                                       adjacency.relationsView( ), adjacency.conceptsView( ),
+                                                       Collections.emptyMap( ), adjacency.idsView( ),
+                                                       adjacency.priorKnowledgesView( true ),
+                                                       adjacency.priorKnowledgesView( false ) );
+        compact.isReadOnly = true;
+        compact.store = adjacency;
+        return compact;
+    }
+
+    /**
+     * @return number of neighbourhoods held by this graph, none for a compact graph
+     */
+    int getNeighbourhoodsCount( ) {
+        return neighbourhoods.size( );
+    }
+
     public Concept getConcept( @NonNull final String name ) {
         return nameToConcept.get( name );
     }
@@ -101,7 +452,7 @@ public final class ConceptGraph implements Serializable {
     }
 
     boolean hasIncomingRelation( @NonNull final Concept concept, Class type ) {
-        Set< Relation > relations = incoming.getOrDefault( concept, new HashSet<>( ) );
+        Set< Relation > relations = incoming.getOrDefault( concept, Collections.emptySet( ) );
         return relations.stream( )
                         .filter( relation -> type.isInstance( relation.getSource( ) ) )
                         .findFirst( )
@@ -113,7 +464,7 @@ public final class ConceptGraph implements Serializable {
     }
 
     boolean hasOutGoingRelation( @NonNull final Concept concept, Class type ) {
-        Set< Relation > relations = outgoing.getOrDefault( concept, new HashSet<>( ) );
+        Set< Relation > relations = outgoing.getOrDefault( concept, Collections.emptySet( ) );
         return relations.stream( )
                         .filter( relation -> type.isInstance( relation.getTarget( ) ) )
                         .findFirst( )
@@ -121,10 +472,114 @@ public final class ConceptGraph implements Serializable {
     }
 
     public Set< Relation > getOutgoing( @NonNull final Concept concept ) {
-        return outgoing.getOrDefault( concept, new HashSet<>( ) );
+        final Set< Relation > bucket = outgoing.get( concept );
+        return ( bucket == null ) ? new HashSet<>( ) : bucket;
     }
 
     public Set< Relation > getIncoming( @NonNull final Concept concept ) {
-        return incoming.getOrDefault( concept, new HashSet<>( ) );
+        final Set< Relation > bucket = incoming.get( concept );
+        return ( bucket == null ) ? new HashSet<>( ) : bucket;
+    }
+
+    /**
+     * @return read-only view of prior-knowledges without child prior-knowledge, kept up to date on each graph change
+     */
+    public Set< PriorKnowledge > getLeaves( ) {
+        return leavesView;
+    }
+
+    /**
+     * @return read-only view of prior-knowledges without parent prior-knowledge, kept up to date on each graph change
+     */
+    public Set< PriorKnowledge > getTops( ) {
+        return topsView;
+    }
+
+    /**
+     * @param priorKnowledge a prior-knowledge
+     * @return read-only view of prior-knowledges which are source of a relation targeting the given prior-knowledge
+     */
+    public Set< PriorKnowledge > getChildren( @NonNull final Concept priorKnowledge ) {
+        if ( store != null )
+            return store.children( store.idOf( priorKnowledge ), null );
+        final Neighbourhood neighbourhood = neighbourhoods.get( priorKnowledge );
+        return ( neighbourhood == null ) ? Collections.emptySet( ) : neighbourhood.getChildren( );
+    }
+
+    /**
+     * @param priorKnowledge a prior-knowledge
+     * @param type           relation type
+     * @return read-only view of prior-knowledges which are source of a relation of given type targeting the given prior-knowledge
+     */
+    public Set< PriorKnowledge > getChildren( @NonNull final Concept priorKnowledge, @NonNull final Enum< ? > type ) {
+        if ( store != null )
+            return store.children( store.idOf( priorKnowledge ), type );
+        final Neighbourhood neighbourhood = neighbourhoods.get( priorKnowledge );
+        return ( neighbourhood == null ) ? Collections.emptySet( ) : neighbourhood.getChildren( type );
+    }
+
+    /**
+     * @param priorKnowledge a prior-knowledge
+     * @return read-only view of prior-knowledges which are target of a relation coming from the given prior-knowledge
+     */
+    public Set< PriorKnowledge > getParents( @NonNull final Concept priorKnowledge ) {
+        if ( store != null )
+            return store.parents( store.idOf( priorKnowledge ), null );
+        final Neighbourhood neighbourhood = neighbourhoods.get( priorKnowledge );
+        return ( neighbourhood == null ) ? Collections.emptySet( ) : neighbourhood.getParents( );
+    }
+
+    /**
+     * @param priorKnowledge a prior-knowledge
+     * @param type           relation type
+     * @return read-only view of prior-knowledges which are target of a relation of given type coming from the given prior-knowledge
+     */
+    public Set< PriorKnowledge > getParents( @NonNull final Concept priorKnowledge, @NonNull final Enum< ? > type ) {
+        if ( store != null )
+            return store.parents( store.idOf( priorKnowledge ), type );
+        final Neighbourhood neighbourhood = neighbourhoods.get( priorKnowledge );
+        return ( neighbourhood == null ) ? Collections.emptySet( ) : neighbourhood.getParents( type );
+    }
+
+    /**
+     * @param priorKnowledge a prior-knowledge
+     * @param type           observation type
+     * @return read-only view of observations of given type linked to the given prior-knowledge
+     */
+    public Set< Observation > getObservations( @NonNull final Concept priorKnowledge, @NonNull final ObservationType type ) {
+        if ( store != null )
+            return store.observations( store.idOf( priorKnowledge ), type );
+        final Neighbourhood neighbourhood = neighbourhoods.get( priorKnowledge );
+        return ( neighbourhood == null ) ? Collections.emptySet( ) : neighbourhood.getObservations( type );
+    }
+
+    /**
+     * Truth value set from computation and curation observations of a prior-knowledge.
+     * It is cached and computed again only after an observation relation of this prior-knowledge changed.
+     * @param priorKnowledge a prior-knowledge
+     * @return the union of truth values from observations used for prediction
+     */
+    public TruthValueSet getDirectPrediction( @NonNull final Concept priorKnowledge ) {
+        if ( store != null ) {
+            final int id = store.idOf( priorKnowledge );
+            return ( id < 0 ) ? NO_EVIDENCE : store.getDirectPrediction( id );
+        }
+        final Neighbourhood neighbourhood = neighbourhoods.get( priorKnowledge );
+        return ( neighbourhood == null ) ? NO_EVIDENCE : neighbourhood.getDirectPrediction( );
+    }
+
+    /**
+     * Truth value set from experimentation and curation observations of a prior-knowledge.
+     * It is cached and computed again only after an observation relation of this prior-knowledge changed.
+     * @param priorKnowledge a prior-knowledge
+     * @return the union of truth values from observations used for expectation
+     */
+    public TruthValueSet getDirectExpectation( @NonNull final Concept priorKnowledge ) {
+        if ( store != null ) {
+            final int id = store.idOf( priorKnowledge );
+            return ( id < 0 ) ? NO_EVIDENCE : store.getDirectExpectation( id );
+        }
+        final Neighbourhood neighbourhood = neighbourhoods.get( priorKnowledge );
+        return ( neighbourhood == null ) ? NO_EVIDENCE : neighbourhood.getDirectExpectation( );
     }
 }
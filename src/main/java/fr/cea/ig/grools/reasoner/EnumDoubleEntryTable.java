@@ -0,0 +1,178 @@
+package fr.cea.ig.grools.reasoner;
+
+import lombok.NonNull;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * EnumDoubleEntryTable
+ * <p>
+ * Double entry table with enum headers. Values are stored in one array, cells are found from ordinals of headers
+ * without boxing nor hashing. A missing header gives a null value instead of an exception.
+ * A frozen table can not be modified, it is safe to share it between threads.
+ */
+public final class EnumDoubleEntryTable< R extends Enum< R >, C extends Enum< C >, V > {
+    private static final int ABSENT = -1;
+
+    private final R[] rowsHeader;
+    private final C[] columnsHeader;
+    // position of a header by ordinal, ABSENT if not in the table
+    private final int[] rowsIndex;
+    private final int[] columnsIndex;
+    private final Object[] values;
+    private final boolean isFrozen;
+
+    private EnumDoubleEntryTable( @NonNull final R[] rowsHeader, @NonNull final C[] columnsHeader, @NonNull final Object[] values, final boolean isFrozen ) {
+        this.rowsHeader = rowsHeader;
+        this.columnsHeader = columnsHeader;
+        this.rowsIndex = index( rowsHeader );
+        this.columnsIndex = index( columnsHeader );
+        this.values = values;
+        this.isFrozen = isFrozen;
+    }
+
+    /**
+     * Table without value
+     */
+    public EnumDoubleEntryTable( @NonNull final R[] rowsHeader, @NonNull final C[] columnsHeader ) {
+        this( rowsHeader.clone( ), columnsHeader.clone( ), new Object[ rowsHeader.length * columnsHeader.length ], false );
+    }
+
+    public EnumDoubleEntryTable( @NonNull final R[] rowsHeader, @NonNull final C[] columnsHeader, @NonNull final V[][] values ) {
+        this( rowsHeader, columnsHeader );
+        if ( values.length != rowsHeader.length )
+            throw new IllegalArgumentException( "Values rows are not equals to number of rows" );
+        for ( int row = 0; row < values.length; row++ ) {
+            if ( values[ row ].length != columnsHeader.length )
+                throw new IllegalArgumentException( "Values row " + row + " is not equals to number of columns" );
+            System.arraycopy( values[ row ], 0, this.values, row * columnsHeader.length, columnsHeader.length );
+        }
+    }
+
+    private static < E extends Enum< E > > int[] index( @NonNull final E[] header ) {
+        int size = 0;
+        for ( final E value : header )
+            size = Math.max( size, value.getDeclaringClass( ).getEnumConstants( ).length );
+        final int[] index = new int[ size ];
+        Arrays.fill( index, ABSENT );
+        for ( int i = 0; i < header.length; i++ ) {
+            if ( index[ header[ i ].ordinal( ) ] != ABSENT )
+                throw new IllegalArgumentException( "Duplicate header " + header[ i ] );
+            index[ header[ i ].ordinal( ) ] = i;
+        }
+        return index;
+    }
+
+    private static int position( @NonNull final int[] index, @NonNull final Enum< ? > header ) {
+        return header.ordinal( ) < index.length ? index[ header.ordinal( ) ] : ABSENT;
+    }
+
+    private int cell( @NonNull final R rowHeader, @NonNull final C columnHeader ) {
+        final int row = position( rowsIndex, rowHeader );
+        final int column = position( columnsIndex, columnHeader );
+        return row == ABSENT || column == ABSENT ? ABSENT : row * columnsHeader.length + column;
+    }
+
+    public boolean contains( @NonNull final R rowName, @NonNull final C columnName ) {
+        return containsRow( rowName ) && containsColumn( columnName );
+    }
+
+    public boolean containsRow( @NonNull final R rowName ) {
+        return position( rowsIndex, rowName ) != ABSENT;
+    }
+
+    public boolean containsColumn( @NonNull final C columnName ) {
+        return position( columnsIndex, columnName ) != ABSENT;
+    }
+
+    public boolean isFrozen( ) {
+        return isFrozen;
+    }
+
+    public List< R > getRowsHeader( ) {
+        return Collections.unmodifiableList( Arrays.asList( rowsHeader ) );
+    }
+
+    public List< C > getColumnsHeader( ) {
+        return Collections.unmodifiableList( Arrays.asList( columnsHeader ) );
+    }
+
+    /**
+     * @return the value or null if a header is not in the table
+     */
+    @SuppressWarnings( "unchecked" )
+    public V get( @NonNull final R rowHeader, @NonNull final C columnHeader ) {
+        final int cell = cell( rowHeader, columnHeader );
+        return cell == ABSENT ? null : ( V ) values[ cell ];
+    }
+
+    /**
+     * @return the value or the given default value if a header is not in the table
+     */
+    public V getOrDefault( @NonNull final R rowHeader, @NonNull final C columnHeader, final V defaultValue ) {
+        return contains( rowHeader, columnHeader ) ? get( rowHeader, columnHeader ) : defaultValue;
+    }
+
+    public void put( @NonNull final R rowHeader, @NonNull final C columnHeader, final V value ) {
+        if ( isFrozen )
+            throw new UnsupportedOperationException( "Frozen table" );
+        final int cell = cell( rowHeader, columnHeader );
+        if ( cell == ABSENT )
+            throw new IllegalArgumentException( "Unknown header " + rowHeader + " or " + columnHeader );
+        values[ cell ] = value;
+    }
+
+    /**
+     * @return read-only view of the values of a row ordered as columns header, empty if the row is not in the table
+     */
+    public List< V > getRow( @NonNull final R rowHeader ) {
+        final int row = position( rowsIndex, rowHeader );
+        return row == ABSENT ? Collections.emptyList( ) : new Slice( row * columnsHeader.length, 1, columnsHeader.length );
+    }
+
+    /**
+     * @return read-only view of the values of a column ordered as rows header, empty if the column is not in the table
+     */
+    public List< V > getColumn( @NonNull final C columnHeader ) {
+        final int column = position( columnsIndex, columnHeader );
+        return column == ABSENT ? Collections.emptyList( ) : new Slice( column, columnsHeader.length, rowsHeader.length );
+    }
+
+    /**
+     * @return a frozen copy of this table, or this table if it is already frozen
+     */
+    public EnumDoubleEntryTable< R, C, V > freeze( ) {
+        return isFrozen ? this : new EnumDoubleEntryTable<>( rowsHeader, columnsHeader, values.clone( ), true );
+    }
+
+    /**
+     * Values from start, separated by step
+     */
+    private final class Slice extends AbstractList< V > {
+        private final int start;
+        private final int step;
+        private final int size;
+
+        private Slice( final int start, final int step, final int size ) {
+            this.start = start;
+            this.step = step;
+            this.size = size;
+        }
+
+        @Override
+        @SuppressWarnings( "unchecked" )
+        public V get( final int index ) {
+            if ( index < 0 || index >= size )
+                throw new IndexOutOfBoundsException( "Index: " + index + ", Size: " + size );
+            return ( V ) values[ start + index * step ];
+        }
+
+        @Override
+        public int size( ) {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package fr.cea.ig.grools.reasoner;
+
+/**
+ * EvaluationMode
+ * <p>
+ * Order used by {@link ReasonerImpl#reasoning()} to evaluate prior-knowledges
+ */
+public enum EvaluationMode {
+    /**
+     * Prior-knowledges are queued each time one of their dependencies changed and evaluated until no value changes.
+     * A prior-knowledge never queued keeps its initial values, and a conclusion is only updated along with a changed
+     * expectation. Thus where other modes give another value, the worklist still holds the initial one.
+     */
+    WORKLIST,
+    /**
+     * Prior-knowledges are evaluated once each, level by level: from leaves to tops for predictions then from tops to
+     * leaves for expectations. Every conclusion is evaluated again, even when the expectation did not change.
+     */
+    LEVEL_ORDERED,
+    /**
+     * Same order and same results as {@link #LEVEL_ORDERED} but each level is split across the fork/join pool of the
+     * reasoner, levels smaller than the parallel threshold are evaluated sequentially
+     */
+    PARALLEL_LEVEL_ORDERED,
+    /**
+     * Same results as {@link #LEVEL_ORDERED} but only connected components changed since the last reasoning are
+     * evaluated, independent components are evaluated in parallel on the fork/join pool of the reasoner
+     */
+    PARTITIONED,
+    /**
+     * Same results as {@link #LEVEL_ORDERED}. Once every prior-knowledge has been evaluated, a later reasoning only
+     * propagates from prior-knowledges touched by observations inserted or deleted since, it stops wherever a value
+     * does not change. A change of the prior-knowledge graph leads to a whole evaluation again.
+     */
+    INCREMENTAL,
+    /**
+     * Same results as {@link #LEVEL_ORDERED}. Predictions are evaluated only beneath prior-knowledges whose evidence
+     * fingerprint changed since they were last evaluated, unchanged sub-graphs are skipped, and a
+     * {@link PredictionMemo} shared by reasoners supplies predictions of already seen fingerprints. A graph with a
+     * cycle is evaluated level by level.
+     */
+    FINGERPRINTED
+}
@@ -0,0 +1,93 @@
+package fr.cea.ig.grools.reasoner;
+
+import fr.cea.ig.grools.Mode;
+import fr.cea.ig.grools.VariantMode;
+import fr.cea.ig.grools.fact.PriorKnowledge;
+import fr.cea.ig.grools.fact.RelationType;
+import lombok.NonNull;
+
+/**
+ * EvidenceFingerprints
+ * <p>
+ * Merkle hash of the evidence beneath each prior-knowledge: its own truth values from observations, its dispensable
+ * and specific flags and the fingerprints of its children with the type of their relation. The prediction of a
+ * prior-knowledge only depends on this evidence and on the mode, thus two prior-knowledges with the same fingerprint,
+ * in the same graph or not, have the same prediction. Names are not hashed.
+ * Fingerprints are computed on demand and kept until evidence beneath them changes. A prior-knowledge graph with a
+ * cycle has no fingerprint.
+ */
+final class EvidenceFingerprints {
+    private static final long SEED = 0x6A09E667F3BCC908L;
+    private static final RelationType[] TYPES = { RelationType.PART, RelationType.SUBTYPE };
+
+    private final ConceptGraph graph;
+    private final LayeredMap< PriorKnowledge, Long > fingerprints;
+
+    EvidenceFingerprints( @NonNull final ConceptGraph graph ) {
+        this.graph = graph;
+        this.fingerprints = new LayeredMap<>( );
+    }
+
+    private EvidenceFingerprints( @NonNull final ConceptGraph graph, @NonNull final LayeredMap< PriorKnowledge, Long > fingerprints ) {
+        this.graph = graph;
+        this.fingerprints = fingerprints;
+    }
+
+    /**
+     * @param forkGraph fork of the graph, see {@link ConceptGraph#fork()}
+     * @return fingerprints of the fork sharing those already computed
+     */
+    EvidenceFingerprints fork( @NonNull final ConceptGraph forkGraph ) {
+        return new EvidenceFingerprints( forkGraph, fingerprints.fork( ) );
+    }
+
+    /**
+     * @return hash of the variants which change predictions
+     */
+    static long variants( @NonNull final Mode mode ) {
+        long h = SEED;
+        for ( final VariantMode variant : VariantMode.values( ) )
+            h = ReasoningCache.combine( h, mode.getVariants( ).contains( variant ) ? variant.ordinal( ) + 1 : 0 );
+        return h;
+    }
+
+    /**
+     * @param pk a prior-knowledge of an acyclic graph
+     * @return its fingerprint, computed again only when evidence beneath it changed
+     */
+    long get( @NonNull final PriorKnowledge pk ) {
+        final Long known = fingerprints.get( pk );
+        if ( known != null )
+            return known;
+        long h = ReasoningCache.combine( SEED, graph.getDirectPrediction( pk ).ordinal( ) );
+        h = ReasoningCache.combine( h, pk.getIsDispensable( ) ? 1 : 0 );
+        h = ReasoningCache.combine( h, graph.getOutgoing( pk ).size( ) == 1 ? 1 : 0 );
+        for ( final RelationType type : TYPES ) {
+            // children are summed, their order does not matter
+            long children = 0;
+            for ( final PriorKnowledge child : graph.getChildren( pk, type ) )
+                children += ReasoningCache.mix( get( child ) );
+            h = ReasoningCache.combine( ReasoningCache.combine( h, type.ordinal( ) ), children );
+        }
+        fingerprints.put( pk, h );
+        return h;
+    }
+
+    /**
+     * Evidence of a prior-knowledge changed, its fingerprint and those of its ancestors are forgotten. An absent
+     * fingerprint implies absent fingerprints of all ancestors, thus the walk stops there.
+     */
+    void invalidate( @NonNull final PriorKnowledge pk ) {
+        if ( fingerprints.remove( pk ) == null )
+            return;
+        for ( final PriorKnowledge parent : graph.getParents( pk ) )
+            invalidate( parent );
+    }
+
+    /**
+     * The prior-knowledge graph changed
+     */
+    void clear( ) {
+        fingerprints.clear( );
+    }
+}
@@ -0,0 +1,480 @@
+package fr.cea.ig.grools.reasoner;
+
+import fr.cea.ig.grools.fact.Concept;
+import fr.cea.ig.grools.fact.Observation;
+import fr.cea.ig.grools.fact.ObservationImpl;
+import fr.cea.ig.grools.fact.ObservationType;
+import fr.cea.ig.grools.fact.PriorKnowledge;
+import fr.cea.ig.grools.fact.PriorKnowledgeImpl;
+import fr.cea.ig.grools.fact.Relation;
+import fr.cea.ig.grools.fact.RelationImpl;
+import fr.cea.ig.grools.logic.Conclusion;
+import fr.cea.ig.grools.logic.TruthValue;
+import fr.cea.ig.grools.logic.TruthValuePowerSet;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * KnowledgeBaseCodec
+ * <p>
+ * Versioned binary format of a concept graph and of the values computed on its prior-knowledges.
+ * A file starts with a header: magic, version and kind of content. The graph section holds:
+ * <ul>
+ * <li>a dictionary of the strings of concepts, names, labels, descriptions and sources, each written once</li>
+ * <li>a dictionary of relation types, by enum class and constant name</li>
+ * <li>concepts, as indexes of their strings and their own fields; the position of a concept is its id in the file</li>
+ * <li>outgoing relations of each concept sorted by target, as varint deltas of target ids and type indexes</li>
+ * </ul>
+ * The states section holds the prediction, expectation, conclusion and specific flag of each prior-knowledge, in
+ * the order of the graph section. A trailer closes the file, a truncated file is rejected.
+ * <p>
+ * A state snapshot holds only what differs between genomes reasoned on the same knowledge base: observations, their
+ * relations to prior-knowledges and the values of prior-knowledges. Prior-knowledges are not written, they are
+ * referred to by their position in name order and the snapshot is bound to the version of the knowledge base, see
+ * {@link #knowledgeBaseVersion(ConceptGraph, PriorKnowledge[])}.
+ */
+final class KnowledgeBaseCodec {
+    static final int MAGIC = 0x47524B42; // GRKB
+    static final int VERSION = 1;
+    static final int TRAILER = 0x454E4421; // END!
+    // kinds of content
+    static final int REASONER = 1;
+    static final int STATE = 3;
+    // kinds of concept
+    private static final int PRIOR_KNOWLEDGE = 0;
+    private static final int OBSERVATION = 1;
+    private static final int NO_STRING = 0;
+    private static final int NONE = 0;
+    private static final ObservationType[] OBSERVATION_TYPES = ObservationType.values( );
+    private static final TruthValue[] TRUTH_VALUES = TruthValue.values( );
+    private static final TruthValuePowerSet[] POWER_SETS = TruthValuePowerSet.values( );
+    private static final Conclusion[] CONCLUSIONS = Conclusion.values( );
+    private static final long VERSION_SEED = 0x6A09E667F3BCC908L;
+
+    private KnowledgeBaseCodec( ) {
+    }
+
+    static void writeHeader( @NonNull final BinaryWriter out, final int kind ) throws IOException {
+        out.writeInt( MAGIC );
+        out.writeInt( VERSION );
+        out.writeByte( kind );
+    }
+
+    /**
+     * @param kind expected kind of content
+     */
+    static void readHeader( @NonNull final BinaryReader in, final int kind ) throws IOException {
+        if ( in.readInt( ) != MAGIC )
+            throw new StreamCorruptedException( "Not a knowledge base file" );
+        final int version = in.readInt( );
+        if ( version != VERSION )
+            throw new StreamCorruptedException( "Unsupported version: " + version );
+        final int actual = in.readByte( );
+        if ( actual != kind )
+            throw new StreamCorruptedException( "Unexpected content: " + actual );
+    }
+
+    static void writeTrailer( @NonNull final BinaryWriter out ) throws IOException {
+        out.writeInt( TRAILER );
+    }
+
+    static void readTrailer( @NonNull final BinaryReader in ) throws IOException {
+        if ( in.readInt( ) != TRAILER || !in.isAtEnd( ) )
+            throw new StreamCorruptedException( "Bad trailer" );
+    }
+
+    /**
+     * Strings by index, index 0 stands for null
+     */
+    private static final class Strings {
+        private final Map< String, Integer > indexes = new HashMap<>( );
+        private final List< String > values = new ArrayList<>( );
+
+        private void add( final String value ) {
+            if ( value != null && !indexes.containsKey( value ) ) {
+                values.add( value );
+                indexes.put( value, values.size( ) );
+            }
+        }
+
+        private int index( final String value ) {
+            return value == null ? NO_STRING : indexes.get( value );
+        }
+    }
+
+    private static String string( @NonNull final String[] strings, final int index ) throws IOException {
+        if ( index < 0 || index > strings.length )
+            throw new StreamCorruptedException( "Bad string index: " + index );
+        return index == NO_STRING ? null : strings[ index - 1 ];
+    }
+
+    private static < T > T value( @NonNull final T[] values, final int index ) throws IOException {
+        if ( index < 0 || index >= values.length )
+            throw new StreamCorruptedException( "Bad index: " + index );
+        return values[ index ];
+    }
+
+    private static int code( final Enum< ? > value ) {
+        return value == null ? NONE : value.ordinal( ) + 1;
+    }
+
+    private static < T > T decode( @NonNull final T[] values, final int code ) throws IOException {
+        return code == NONE ? null : value( values, code - 1 );
+    }
+
+    /**
+     * @param out   where to write
+     * @param graph the graph
+     * @return concepts by id in the file
+     */
+    static Concept[] writeGraph( @NonNull final BinaryWriter out, @NonNull final ConceptGraph graph ) throws IOException {
+        final Concept[] concepts = graph.getConcepts( ).toArray( new Concept[ 0 ] );
+        final Map< Concept, Integer > ids = new HashMap<>( concepts.length * 2 );
+        final Strings strings = new Strings( );
+        for ( int id = 0; id < concepts.length; id++ ) {
+            final Concept concept = concepts[ id ];
+            if ( !( concept instanceof PriorKnowledge ) && !( concept instanceof Observation ) )
+                throw new IllegalArgumentException( "Unsupported concept: " + concept.getClass( ).getName( ) );
+            ids.put( concept, id );
+            strings.add( concept.getName( ) );
+            strings.add( concept.getLabel( ) );
+            strings.add( concept.getDescription( ) );
+            strings.add( concept.getSource( ) );
+        }
+        final List< Enum< ? > > types = new ArrayList<>( );
+        final Map< Enum< ? >, Integer > typeIndexes = new HashMap<>( );
+        for ( final Relation relation : graph.getRelations( ) ) {
+            if ( !typeIndexes.containsKey( relation.getType( ) ) ) {
+                typeIndexes.put( relation.getType( ), types.size( ) );
+                types.add( relation.getType( ) );
+            }
+        }
+
+        out.writeVarInt( strings.values.size( ) );
+        for ( final String value : strings.values )
+            out.writeString( value );
+        out.writeVarInt( types.size( ) );
+        for ( final Enum< ? > type : types ) {
+            out.writeString( type.getDeclaringClass( ).getName( ) );
+            out.writeString( type.name( ) );
+        }
+
+        out.writeVarInt( concepts.length );
+        for ( final Concept concept : concepts ) {
+            out.writeByte( concept instanceof PriorKnowledge ? PRIOR_KNOWLEDGE : OBSERVATION );
+            out.writeVarInt( strings.index( concept.getName( ) ) );
+            out.writeVarInt( strings.index( concept.getLabel( ) ) );
+            out.writeVarInt( strings.index( concept.getDescription( ) ) );
+            out.writeVarInt( strings.index( concept.getSource( ) ) );
+            if ( concept instanceof PriorKnowledge )
+                out.writeBoolean( ( ( PriorKnowledge ) concept ).getIsDispensable( ) );
+            else {
+                final Observation observation = ( Observation ) concept;
+                out.writeVarInt( observation.getType( ).ordinal( ) );
+                out.writeVarInt( observation.getTruthValue( ).ordinal( ) );
+            }
+        }
+
+        final long[] row = new long[ 16 ];
+        for ( final Concept concept : concepts ) {
+            final Set< Relation > outgoing = graph.getOutgoing( concept );
+            // target id in high bits, type index in low bits, sorted by target
+            final long[] edges = outgoing.size( ) <= row.length ? row : new long[ outgoing.size( ) ];
+            int count = 0;
+            for ( final Relation relation : outgoing )
+                edges[ count++ ] = ( ( long ) ids.get( relation.getTarget( ) ) << Integer.SIZE ) | typeIndexes.get( relation.getType( ) );
+            Arrays.sort( edges, 0, count );
+            out.writeVarInt( count );
+            int previous = 0;
+            for ( int i = 0; i < count; i++ ) {
+                final int target = ( int ) ( edges[ i ] >>> Integer.SIZE );
+                out.writeVarInt( target - previous );
+                out.writeVarInt( ( int ) edges[ i ] );
+                previous = target;
+            }
+        }
+        return concepts;
+    }
+
+    /**
+     * @param in    where to read
+     * @param graph an empty graph which receives concepts and relations
+     * @return concepts by id in the file
+     */
+    static Concept[] readGraph( @NonNull final BinaryReader in, @NonNull final ConceptGraph graph ) throws IOException {
+        final String[] strings = new String[ in.readCount( Integer.MAX_VALUE ) ];
+        for ( int i = 0; i < strings.length; i++ )
+            strings[ i ] = in.readString( );
+        final Enum< ? >[] types = new Enum< ? >[ in.readCount( Integer.MAX_VALUE ) ];
+        for ( int i = 0; i < types.length; i++ )
+            types[ i ] = type( in.readString( ), in.readString( ) );
+
+        final Concept[] concepts = new Concept[ in.readCount( Integer.MAX_VALUE ) ];
+        for ( int id = 0; id < concepts.length; id++ ) {
+            final int kind = in.readByte( );
+            final String name = string( strings, in.readVarInt( ) );
+            final String label = string( strings, in.readVarInt( ) );
+            final String description = string( strings, in.readVarInt( ) );
+            final String source = string( strings, in.readVarInt( ) );
+            if ( name == null )
+                throw new StreamCorruptedException( "Concept without name" );
+            if ( kind == PRIOR_KNOWLEDGE )
+                concepts[ id ] = PriorKnowledgeImpl.builder( )
+                                                   .name( name )
+                                                   .label( label )
+                                                   .description( description )
+                                                   .source( source )
+                                                   .isDispensable( in.readBoolean( ) )
+                                                   .build( );
+            else if ( kind == OBSERVATION )
+                concepts[ id ] = ObservationImpl.builder( )
+                                                .name( name )
+                                                .label( label )
+                                                .description( description )
+                                                .source( source )
+                                                .type( value( OBSERVATION_TYPES, in.readVarInt( ) ) )
+                                                .truthValue( value( TRUTH_VALUES, in.readVarInt( ) ) )
+                                                .build( );
+            else
+                throw new StreamCorruptedException( "Bad concept kind: " + kind );
+            graph.addConcept( concepts[ id ] );
+        }
+
+        for ( final Concept source : concepts ) {
+            final int count = in.readCount( Integer.MAX_VALUE );
+            int target = 0;
+            for ( int i = 0; i < count; i++ ) {
+                target += in.readVarInt( );
+                graph.addRelation( new RelationImpl( source, value( concepts, target ), value( types, in.readVarInt( ) ) ) );
+            }
+        }
+        return concepts;
+    }
+
+    @SuppressWarnings( { "unchecked", "rawtypes" } )
+    private static Enum< ? > type( @NonNull final String className, @NonNull final String name ) throws IOException {
+        try {
+            final Class< ? > type = Class.forName( className );
+            if ( !type.isEnum( ) )
+                throw new StreamCorruptedException( "Not a relation type: " + className );
+            return Enum.valueOf( ( Class ) type, name );
+        }
+        catch ( ClassNotFoundException | IllegalArgumentException e ) {
+            throw new StreamCorruptedException( "Unknown relation type: " + className + "." + name );
+        }
+    }
+
+    /**
+     * @param concepts concepts by id, as returned by {@link #writeGraph(BinaryWriter, ConceptGraph)}
+     */
+    static void writeStates( @NonNull final BinaryWriter out, @NonNull final Concept[] concepts,
+                             @NonNull final PriorKnowledgeStates states ) throws IOException {
+        for ( final Concept concept : concepts ) {
+            if ( !( concept instanceof PriorKnowledge ) )
+                continue;
+            final PriorKnowledge pk = ( PriorKnowledge ) concept;
+            out.writeByte( code( states.getPrediction( pk ) ) );
+            out.writeByte( code( states.getExpectation( pk ) ) );
+            out.writeByte( code( states.getConclusion( pk ) ) );
+            out.writeBoolean( states.getIsSpecific( pk ) );
+        }
+    }
+
+    /**
+     * @param concepts concepts by id, as returned by {@link #readGraph(BinaryReader, ConceptGraph)}
+     * @param states   values of the graph which received the concepts, with enough capacity
+     */
+    static void readStates( @NonNull final BinaryReader in, @NonNull final Concept[] concepts,
+                            @NonNull final PriorKnowledgeStates states ) throws IOException {
+        for ( final Concept concept : concepts ) {
+            if ( !( concept instanceof PriorKnowledge ) )
+                continue;
+            final PriorKnowledge pk = ( PriorKnowledge ) concept;
+            states.setPrediction( pk, decode( POWER_SETS, in.readByte( ) ) );
+            states.setExpectation( pk, decode( POWER_SETS, in.readByte( ) ) );
+            states.setConclusion( pk, decode( CONCLUSIONS, in.readByte( ) ) );
+            states.setIsSpecific( pk, in.readBoolean( ) );
+        }
+    }
+
+    /**
+     * @param graph a graph
+     * @return prior-knowledges of the graph in name order, their position is their id in state snapshots
+     */
+    static PriorKnowledge[] sortedPriorKnowledges( @NonNull final ConceptGraph graph ) {
+        final PriorKnowledge[] pks = PriorKnowledgeLevels.priorKnowledges( graph.getConcepts( ) ).toArray( new PriorKnowledge[ 0 ] );
+        Arrays.sort( pks, Comparator.comparing( PriorKnowledge::getName ) );
+        return pks;
+    }
+
+    /**
+     * Order independent hash of prior-knowledges, of their dispensable flag and of relations between them. Two graphs
+     * with the same version give the same ids to their prior-knowledges in state snapshots.
+     * @param graph a graph
+     * @param pks   prior-knowledges of the graph
+     * @return the version
+     */
+    static long knowledgeBaseVersion( @NonNull final ConceptGraph graph, @NonNull final PriorKnowledge[] pks ) {
+        long version = pks.length;
+        for ( final PriorKnowledge pk : pks ) {
+            final long h = ReasoningCache.hash( VERSION_SEED, pk.getName( ) );
+            version += ReasoningCache.combine( h, pk.getIsDispensable( ) ? 1 : 0 );
+            for ( final Relation relation : graph.getOutgoing( pk ) ) {
+                if ( !( relation.getTarget( ) instanceof PriorKnowledge ) )
+                    continue;
+                final long target = ReasoningCache.combine( h, ReasoningCache.hash( VERSION_SEED, relation.getTarget( ).getName( ) ) );
+                version += ReasoningCache.combine( target, ReasoningCache.hash( VERSION_SEED, relation.getType( ).name( ) ) );
+            }
+        }
+        return ReasoningCache.mix( version );
+    }
+
+    /**
+     * Write observations of a graph and their relations, each relation has to target a prior-knowledge
+     * @param pks prior-knowledges by id, as returned by {@link #sortedPriorKnowledges(ConceptGraph)}
+     */
+    static void writeObservations( @NonNull final BinaryWriter out, @NonNull final ConceptGraph graph,
+                                   @NonNull final PriorKnowledge[] pks ) throws IOException {
+        final Map< PriorKnowledge, Integer > ids = new HashMap<>( pks.length * 2 );
+        for ( int id = 0; id < pks.length; id++ )
+            ids.put( pks[ id ], id );
+        final List< Observation > observations = new ArrayList<>( );
+        final Strings strings = new Strings( );
+        final List< Enum< ? > > types = new ArrayList<>( );
+        final Map< Enum< ? >, Integer > typeIndexes = new HashMap<>( );
+        for ( final Concept concept : graph.getConcepts( ) ) {
+            if ( !( concept instanceof Observation ) )
+                continue;
+            observations.add( ( Observation ) concept );
+            strings.add( concept.getName( ) );
+            strings.add( concept.getLabel( ) );
+            strings.add( concept.getDescription( ) );
+            strings.add( concept.getSource( ) );
+            for ( final Relation relation : graph.getOutgoing( concept ) ) {
+                if ( !ids.containsKey( relation.getTarget( ) ) )
+                    throw new IllegalArgumentException( "Relation to a concept outside the knowledge base: " + relation );
+                if ( !typeIndexes.containsKey( relation.getType( ) ) ) {
+                    typeIndexes.put( relation.getType( ), types.size( ) );
+                    types.add( relation.getType( ) );
+                }
+            }
+        }
+
+        out.writeVarInt( strings.values.size( ) );
+        for ( final String value : strings.values )
+            out.writeString( value );
+        out.writeVarInt( types.size( ) );
+        for ( final Enum< ? > type : types ) {
+            out.writeString( type.getDeclaringClass( ).getName( ) );
+            out.writeString( type.name( ) );
+        }
+        out.writeVarInt( observations.size( ) );
+        for ( final Observation observation : observations ) {
+            out.writeVarInt( strings.index( observation.getName( ) ) );
+            out.writeVarInt( strings.index( observation.getLabel( ) ) );
+            out.writeVarInt( strings.index( observation.getDescription( ) ) );
+            out.writeVarInt( strings.index( observation.getSource( ) ) );
+            out.writeVarInt( observation.getType( ).ordinal( ) );
+            out.writeVarInt( observation.getTruthValue( ).ordinal( ) );
+            final Set< Relation > outgoing = graph.getOutgoing( observation );
+            out.writeVarInt( outgoing.size( ) );
+            for ( final Relation relation : outgoing ) {
+                out.writeVarInt( ids.get( relation.getTarget( ) ) );
+                out.writeVarInt( typeIndexes.get( relation.getType( ) ) );
+            }
+        }
+    }
+
+    /**
+     * @param pks prior-knowledges by id, as returned by {@link #sortedPriorKnowledges(ConceptGraph)}
+     * @return observations followed by their relations, in insert order
+     */
+    static List< Object > readObservations( @NonNull final BinaryReader in, @NonNull final PriorKnowledge[] pks ) throws IOException {
+        final String[] strings = new String[ in.readCount( Integer.MAX_VALUE ) ];
+        for ( int i = 0; i < strings.length; i++ )
+            strings[ i ] = in.readString( );
+        final Enum< ? >[] types = new Enum< ? >[ in.readCount( Integer.MAX_VALUE ) ];
+        for ( int i = 0; i < types.length; i++ )
+            types[ i ] = type( in.readString( ), in.readString( ) );
+
+        final int count = in.readCount( Integer.MAX_VALUE );
+        final List< Object > observations = new ArrayList<>( count );
+        final List< Object > relations = new ArrayList<>( count );
+        for ( int i = 0; i < count; i++ ) {
+            final String name = string( strings, in.readVarInt( ) );
+            if ( name == null )
+                throw new StreamCorruptedException( "Observation without name" );
+            final Observation observation = ObservationImpl.builder( )
+                                                           .name( name )
+                                                           .label( string( strings, in.readVarInt( ) ) )
+                                                           .description( string( strings, in.readVarInt( ) ) )
+                                                           .source( string( strings, in.readVarInt( ) ) )
+                                                           .type( value( OBSERVATION_TYPES, in.readVarInt( ) ) )
+                                                           .truthValue( value( TRUTH_VALUES, in.readVarInt( ) ) )
+                                                           .build( );
+            observations.add( observation );
+            for ( int j = in.readCount( Integer.MAX_VALUE ); j > 0; j-- )
+                relations.add( new RelationImpl( observation, value( pks, in.readVarInt( ) ), value( types, in.readVarInt( ) ) ) );
+        }
+        observations.addAll( relations );
+        return observations;
+    }
+
+    /**
+     * Write predictions, expectations then conclusions of prior-knowledges as arrays of one byte per value
+     * @param pks prior-knowledges by id, as returned by {@link #sortedPriorKnowledges(ConceptGraph)}
+     */
+    static void writePackedStates( @NonNull final BinaryWriter out, @NonNull final PriorKnowledge[] pks,
+                                   @NonNull final PriorKnowledgeStates states ) throws IOException {
+        final byte[] packed = new byte[ pks.length ];
+        for ( int id = 0; id < pks.length; id++ )
+            packed[ id ] = ( byte ) code( states.getPrediction( pks[ id ] ) );
+        out.writeBytes( packed );
+        for ( int id = 0; id < pks.length; id++ )
+            packed[ id ] = ( byte ) code( states.getExpectation( pks[ id ] ) );
+        out.writeBytes( packed );
+        for ( int id = 0; id < pks.length; id++ )
+            packed[ id ] = ( byte ) code( states.getConclusion( pks[ id ] ) );
+        out.writeBytes( packed );
+    }
+
+    /**
+     * @param size number of prior-knowledges
+     * @return predictions, expectations and conclusions written by
+     * {@link #writePackedStates(BinaryWriter, PriorKnowledge[], PriorKnowledgeStates)}, codes are checked
+     */
+    static byte[][] readPackedStates( @NonNull final BinaryReader in, final int size ) throws IOException {
+        final byte[][] packed = new byte[ 3 ][ size ];
+        for ( final byte[] values : packed )
+            in.readBytes( values );
+        for ( int id = 0; id < size; id++ ) {
+            decode( POWER_SETS, packed[ 0 ][ id ] );
+            decode( POWER_SETS, packed[ 1 ][ id ] );
+            decode( CONCLUSIONS, packed[ 2 ][ id ] );
+        }
+        return packed;
+    }
+
+    /**
+     * @param packed values read by {@link #readPackedStates(BinaryReader, int)}
+     * @param pks    prior-knowledges by id
+     * @param states where to write values, with enough capacity
+     */
+    static void restorePackedStates( @NonNull final byte[][] packed, @NonNull final PriorKnowledge[] pks,
+                                     @NonNull final PriorKnowledgeStates states ) throws IOException {
+        for ( int id = 0; id < pks.length; id++ ) {
+            states.setPrediction( pks[ id ], decode( POWER_SETS, packed[ 0 ][ id ] ) );
+            states.setExpectation( pks[ id ], decode( POWER_SETS, packed[ 1 ][ id ] ) );
+            states.setConclusion( pks[ id ], decode( CONCLUSIONS, packed[ 2 ][ id ] ) );
+        }
+    }
+}
@@ -0,0 +1,717 @@
+package fr.cea.ig.grools.reasoner;
+
+import fr.cea.ig.grools.fact.Concept;
+import fr.cea.ig.grools.fact.PriorKnowledge;
+import fr.cea.ig.grools.fact.PriorKnowledgeImpl;
+import fr.cea.ig.grools.fact.Relation;
+import fr.cea.ig.grools.fact.RelationImpl;
+import lombok.NonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * KnowledgeBaseImage
+ * <p>
+ * Read-only image of a prior-knowledge graph laid out to be memory-mapped: fixed size sections of ints, adjacency as
+ * compressed sparse rows in both directions, prior-knowledge ids sorted by name and a pool of UTF-8 strings. Nothing
+ * is deserialized when an image is opened, pages are loaded by the operating system when they are read and the page
+ * cache is shared by every process mapping the same file. Prior-knowledges, relations and neighbourhoods are built
+ * on first access and kept, thus memory grows with the part of the graph which is used.
+ * Observations are not part of an image, they are inserted in the graph opened from it, see {@link ConceptGraph#open(File)}.
+ * An image is limited to 2 GiB.
+ */
+public final class KnowledgeBaseImage {
+    static final int IMAGE = 2;
+    private static final int HEADER_INTS = 8;
+    // strings of a prior-knowledge
+    private static final int NAME = 0;
+    private static final int LABEL = 1;
+    private static final int DESCRIPTION = 2;
+    private static final int SOURCE = 3;
+    private static final int STRINGS_BY_PK = 4;
+    // flags of a prior-knowledge
+    private static final int DISPENSABLE = 1;
+    private static final int LEAF = 1 << 1;
+    private static final int TOP = 1 << 2;
+    private static final int NULL_STRING = 1 << 3; // shifted by string index
+
+    private final int size;
+    private final int relationsCount;
+    private final Enum< ? >[] types;
+    private final IntBuffer flags;
+    private final IntBuffer sorted;
+    private final IntBuffer outgoingOffsets;
+    private final IntBuffer outgoingEdges;
+    private final IntBuffer incomingOffsets;
+    private final IntBuffer incomingEdges;
+    private final IntBuffer stringOffsets;
+    private final ByteBuffer strings;
+    private final AtomicReferenceArray< PriorKnowledge > priorKnowledges;
+    private final AtomicReferenceArray< Neighbourhood > neighbourhoods;
+
+    private KnowledgeBaseImage( @NonNull final ByteBuffer buffer ) throws IOException {
+        final IntBuffer header = buffer.asIntBuffer( );
+        if ( header.get( 0 ) != KnowledgeBaseCodec.MAGIC )
+            throw new StreamCorruptedException( "Not a knowledge base file" );
+        if ( header.get( 1 ) != KnowledgeBaseCodec.VERSION )
+            throw new StreamCorruptedException( "Unsupported version: " + header.get( 1 ) );
+        if ( header.get( 2 ) != IMAGE )
+            throw new StreamCorruptedException( "Unexpected content: " + header.get( 2 ) );
+        this.size = header.get( 3 );
+        this.relationsCount = header.get( 4 );
+        final int typesCount = header.get( 5 );
+        final int stringsCount = STRINGS_BY_PK * size + 2 * typesCount;
+        final long ints = HEADER_INTS + 2L * size + 2L * ( size + 1 ) + 4L * relationsCount + stringsCount + 1;
+        if ( size < 0 || relationsCount < 0 || typesCount < 0 || ints * Integer.BYTES > buffer.capacity( ) )
+            throw new StreamCorruptedException( "Truncated image" );
+        int position = HEADER_INTS;
+        this.flags = section( header, position, size );
+        this.sorted = section( header, position += size, size );
+        this.outgoingOffsets = section( header, position += size, size + 1 );
+        this.outgoingEdges = section( header, position += size + 1, 2 * relationsCount );
+        this.incomingOffsets = section( header, position += 2 * relationsCount, size + 1 );
+        this.incomingEdges = section( header, position += size + 1, 2 * relationsCount );
+        this.stringOffsets = section( header, position += 2 * relationsCount, stringsCount + 1 );
+        position += stringsCount + 1;
+        final ByteBuffer pool = buffer.duplicate( );
+        pool.position( position * Integer.BYTES );
+        this.strings = pool.slice( );
+        if ( stringOffsets.get( stringsCount ) > strings.capacity( ) )
+            throw new StreamCorruptedException( "Truncated image" );
+        this.types = new Enum< ? >[ typesCount ];
+        for ( int i = 0; i < typesCount; i++ )
+            types[ i ] = type( string( STRINGS_BY_PK * size + 2 * i ), string( STRINGS_BY_PK * size + 2 * i + 1 ) );
+        this.priorKnowledges = new AtomicReferenceArray<>( size );
+        this.neighbourhoods = new AtomicReferenceArray<>( size );
+    }
+
+    private static IntBuffer section( @NonNull final IntBuffer ints, final int position, final int length ) {
+        final IntBuffer section = ints.duplicate( );
+        section.position( position );
+        section.limit( position + length );
+        return section.slice( );
+    }
+
+    @SuppressWarnings( { "unchecked", "rawtypes" } )
+    private static Enum< ? > type( @NonNull final String className, @NonNull final String name ) throws IOException {
+        try {
+            final Class< ? > type = Class.forName( className );
+            if ( type.isEnum( ) )
+                return Enum.valueOf( ( Class ) type, name );
+        }
+        catch ( ClassNotFoundException | IllegalArgumentException e ) {
+            // reported below
+        }
+        throw new StreamCorruptedException( "Unknown relation type: " + className + "." + name );
+    }
+
+    /**
+     * Map an image read-only
+     * @param file an image written by {@link #write(ConceptGraph, File)}
+     * @return the image
+     * @throws IOException if the file can not be mapped or is not an image
+     */
+    public static KnowledgeBaseImage open( @NonNull final File file ) throws IOException {
+        try ( FileChannel channel = FileChannel.open( file.toPath( ), StandardOpenOption.READ ) ) {
+            if ( channel.size( ) > Integer.MAX_VALUE )
+                throw new IOException( "Image larger than 2 GiB: " + file );
+            // the mapping stays valid once the channel is closed
+            final MappedByteBuffer buffer = channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size( ) );
+            return new KnowledgeBaseImage( buffer );
+        }
+    }
+
+    /**
+     * Write the prior-knowledges of a graph and relations between them as an image, observations are left out
+     * @param graph the graph
+     * @param file  where to write
+     * @throws IOException on write failure
+     */
+    public static void write( @NonNull final ConceptGraph graph, @NonNull final File file ) throws IOException {
+        final List< PriorKnowledge > pks = PriorKnowledgeLevels.priorKnowledges( graph.getConcepts( ) );
+        final byte[][] names = new byte[ pks.size( ) ][];
+        for ( int id = 0; id < names.length; id++ )
+            names[ id ] = pks.get( id ).getName( ).getBytes( StandardCharsets.UTF_8 );
+        final Integer[] byName = new Integer[ pks.size( ) ];
+        for ( int id = 0; id < byName.length; id++ )
+            byName[ id ] = id;
+        Arrays.sort( byName, ( left, right ) -> compareBytes( names[ left ], names[ right ] ) );
+        final Map< PriorKnowledge, Integer > ids = new HashMap<>( pks.size( ) * 2 );
+        for ( int id = 0; id < pks.size( ); id++ )
+            ids.put( pks.get( id ), id );
+
+        final List< Enum< ? > > types = new ArrayList<>( );
+        final Map< Enum< ? >, Integer > typeIndexes = new HashMap<>( );
+        final int[] flags = new int[ pks.size( ) ];
+        final int[] outgoingOffsets = new int[ pks.size( ) + 1 ];
+        final int[] incomingOffsets = new int[ pks.size( ) + 1 ];
+        final List< int[] > edges = new ArrayList<>( );
+        for ( int id = 0; id < pks.size( ); id++ ) {
+            final PriorKnowledge pk = pks.get( id );
+            flags[ id ] = ( pk.getIsDispensable( ) ? DISPENSABLE : 0 )
+                          | ( graph.getLeaves( ).contains( pk ) ? LEAF : 0 )
+                          | ( graph.getTops( ).contains( pk ) ? TOP : 0 );
+            for ( final Relation relation : graph.getOutgoing( pk ) ) {
+                final Integer target = ids.get( relation.getTarget( ) );
+                if ( target == null )
+                    continue;
+                Integer type = typeIndexes.get( relation.getType( ) );
+                if ( type == null ) {
+                    type = types.size( );
+                    typeIndexes.put( relation.getType( ), type );
+                    types.add( relation.getType( ) );
+                }
+                edges.add( new int[]{ id, target, type } );
+                outgoingOffsets[ id + 1 ]++;
+                incomingOffsets[ target + 1 ]++;
+            }
+        }
+        for ( int id = 0; id < pks.size( ); id++ ) {
+            outgoingOffsets[ id + 1 ] += outgoingOffsets[ id ];
+            incomingOffsets[ id + 1 ] += incomingOffsets[ id ];
+        }
+        // edges are already grouped by source, incoming rows are filled by counting sort
+        final int[] incoming = new int[ 2 * edges.size( ) ];
+        final int[] cursor = Arrays.copyOf( incomingOffsets, pks.size( ) );
+        for ( final int[] edge : edges ) {
+            final int slot = cursor[ edge[ 1 ] ]++;
+            incoming[ 2 * slot ] = edge[ 0 ];
+            incoming[ 2 * slot + 1 ] = edge[ 2 ];
+        }
+
+        final List< byte[] > pool = new ArrayList<>( );
+        for ( int id = 0; id < pks.size( ); id++ ) {
+            final PriorKnowledge pk = pks.get( id );
+            pool.add( names[ id ] );
+            final String[] optional = { pk.getLabel( ), pk.getDescription( ), pk.getSource( ) };
+            for ( int i = 0; i < optional.length; i++ ) {
+                if ( optional[ i ] == null )
+                    flags[ id ] |= NULL_STRING << ( LABEL + i );
+                pool.add( optional[ i ] == null ? new byte[ 0 ] : optional[ i ].getBytes( StandardCharsets.UTF_8 ) );
+            }
+        }
+        for ( final Enum< ? > type : types ) {
+            pool.add( type.getDeclaringClass( ).getName( ).getBytes( StandardCharsets.UTF_8 ) );
+            pool.add( type.name( ).getBytes( StandardCharsets.UTF_8 ) );
+        }
+
+        try ( BinaryWriter out = BinaryWriter.open( file ) ) {
+            final int[] header = { KnowledgeBaseCodec.MAGIC, KnowledgeBaseCodec.VERSION, IMAGE, pks.size( ), edges.size( ), types.size( ), 0, 0 };
+            for ( final int value : header )
+                out.writeInt( value );
+            for ( final int value : flags )
+                out.writeInt( value );
+            for ( final Integer id : byName )
+                out.writeInt( id );
+            for ( final int offset : outgoingOffsets )
+                out.writeInt( offset );
+            for ( final int[] edge : edges ) {
+                out.writeInt( edge[ 1 ] );
+                out.writeInt( edge[ 2 ] );
+            }
+            for ( final int offset : incomingOffsets )
+                out.writeInt( offset );
+            for ( final int value : incoming )
+                out.writeInt( value );
+            int offset = 0;
+            out.writeInt( offset );
+            for ( final byte[] bytes : pool )
+                out.writeInt( offset += bytes.length );
+            for ( final byte[] bytes : pool )
+                out.writeBytes( bytes );
+        }
+    }
+
+    /**
+     * Unsigned lexicographic order of UTF-8 bytes, which is the order of code points
+     */
+    private static int compareBytes( @NonNull final byte[] left, @NonNull final byte[] right ) {
+        final int length = Math.min( left.length, right.length );
+        for ( int i = 0; i < length; i++ ) {
+            final int cmp = ( left[ i ] & 0xFF ) - ( right[ i ] & 0xFF );
+            if ( cmp != 0 )
+                return cmp;
+        }
+        return left.length - right.length;
+    }
+
+    /**
+     * Compare a string of the pool with given UTF-8 bytes without decoding it
+     */
+    private int compare( final int index, @NonNull final byte[] bytes ) {
+        final int start = stringOffsets.get( index );
+        final int length = stringOffsets.get( index + 1 ) - start;
+        final int common = Math.min( length, bytes.length );
+        for ( int i = 0; i < common; i++ ) {
+            final int cmp = ( strings.get( start + i ) & 0xFF ) - ( bytes[ i ] & 0xFF );
+            if ( cmp != 0 )
+                return cmp;
+        }
+        return length - bytes.length;
+    }
+
+    private String string( final int index ) {
+        final ByteBuffer bytes = strings.duplicate( );
+        bytes.position( stringOffsets.get( index ) );
+        final byte[] value = new byte[ stringOffsets.get( index + 1 ) - stringOffsets.get( index ) ];
+        bytes.get( value );
+        return new String( value, StandardCharsets.UTF_8 );
+    }
+
+    private String optional( final int id, final int field ) {
+        return ( flags.get( id ) & ( NULL_STRING << field ) ) != 0 ? null : string( STRINGS_BY_PK * id + field );
+    }
+
+    /**
+     * @return number of prior-knowledges
+     */
+    public int size( ) {
+        return size;
+    }
+
+    /**
+     * @return number of relations between prior-knowledges
+     */
+    public int getRelationsCount( ) {
+        return relationsCount;
+    }
+
+    /**
+     * Binary search of a name in place
+     * @return the id of a prior-knowledge or -1
+     */
+    int find( @NonNull final String name ) {
+        final byte[] bytes = name.getBytes( StandardCharsets.UTF_8 );
+        int low = 0;
+        int high = size - 1;
+        while ( low <= high ) {
+            final int middle = ( low + high ) >>> 1;
+            final int id = sorted.get( middle );
+            final int cmp = compare( STRINGS_BY_PK * id + NAME, bytes );
+            if ( cmp < 0 )
+                low = middle + 1;
+            else if ( cmp > 0 )
+                high = middle - 1;
+            else
+                return id;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the prior-knowledge of an id, built on first access
+     */
+    PriorKnowledge getPriorKnowledge( final int id ) {
+        PriorKnowledge pk = priorKnowledges.get( id );
+        if ( pk == null ) {
+            pk = PriorKnowledgeImpl.builder( )
+                                   .name( string( STRINGS_BY_PK * id + NAME ) )
+                                   .label( optional( id, LABEL ) )
+                                   .description( optional( id, DESCRIPTION ) )
+                                   .source( optional( id, SOURCE ) )
+                                   .isDispensable( ( flags.get( id ) & DISPENSABLE ) != 0 )
+                                   .build( );
+            if ( !priorKnowledges.compareAndSet( id, null, pk ) )
+                pk = priorKnowledges.get( id );
+        }
+        return pk;
+    }
+
+    /**
+     * @return the id of a prior-knowledge built by this image, -1 for any other object
+     */
+    int idOf( final Object concept ) {
+        if ( !( concept instanceof PriorKnowledge ) )
+            return -1;
+        final int id = find( ( ( PriorKnowledge ) concept ).getName( ) );
+        return ( id >= 0 && priorKnowledges.get( id ) == concept ) ? id : -1;
+    }
+
+    /**
+     * @return the neighbourhood of an id, built on first access. It is shared, a graph copies it before a change.
+     */
+    Neighbourhood getNeighbourhood( final int id ) {
+        Neighbourhood neighbourhood = neighbourhoods.get( id );
+        if ( neighbourhood == null ) {
+            neighbourhood = new Neighbourhood( id );
+            for ( int edge = incomingOffsets.get( id ); edge < incomingOffsets.get( id + 1 ); edge++ )
+                neighbourhood.addChild( getPriorKnowledge( incomingEdges.get( 2 * edge ) ), types[ incomingEdges.get( 2 * edge + 1 ) ] );
+            for ( int edge = outgoingOffsets.get( id ); edge < outgoingOffsets.get( id + 1 ); edge++ )
+                neighbourhood.addParent( getPriorKnowledge( outgoingEdges.get( 2 * edge ) ), types[ outgoingEdges.get( 2 * edge + 1 ) ] );
+            if ( !neighbourhoods.compareAndSet( id, null, neighbourhood ) )
+                neighbourhood = neighbourhoods.get( id );
+        }
+        return neighbourhood;
+    }
+
+    private boolean hasFlag( final int id, final int flag ) {
+        return ( flags.get( id ) & flag ) == flag;
+    }
+
+    /**
+     * @return a read-only view of prior-knowledges having all given flags
+     */
+    private Set< PriorKnowledge > priorKnowledgesView( final int flag ) {
+        return new AbstractSet< PriorKnowledge >( ) {
+            private int size = -1;
+
+            @Override
+            public boolean contains( final Object o ) {
+                final int id = idOf( o );
+                return id >= 0 && hasFlag( id, flag );
+            }
+
+            @Override
+            public Iterator< PriorKnowledge > iterator( ) {
+                return new Iterator< PriorKnowledge >( ) {
+                    private int cursor = skip( 0 );
+
+                    private int skip( int id ) {
+                        while ( id < KnowledgeBaseImage.this.size && !hasFlag( id, flag ) )
+                            id++;
+                        return id;
+                    }
+
+                    @Override
+                    public boolean hasNext( ) {
+                        return cursor < KnowledgeBaseImage.this.size;
+                    }
+
+                    @Override
+                    public PriorKnowledge next( ) {
+                        if ( cursor >= KnowledgeBaseImage.this.size )
+                            throw new NoSuchElementException( );
+                        final PriorKnowledge pk = getPriorKnowledge( cursor );
+                        cursor = skip( cursor + 1 );
+                        return pk;
+                    }
+                };
+            }
+
+            @Override
+            public int size( ) {
+                if ( size < 0 ) {
+                    int count = 0;
+                    for ( int id = 0; id < KnowledgeBaseImage.this.size; id++ )
+                        if ( hasFlag( id, flag ) )
+                            count++;
+                    size = count;
+                }
+                return size;
+            }
+        };
+    }
+
+    Set< Concept > conceptsView( ) {
+        return Collections.unmodifiableSet( priorKnowledgesView( 0 ) );
+    }
+
+    Set< PriorKnowledge > leavesView( ) {
+        return priorKnowledgesView( LEAF );
+    }
+
+    Set< PriorKnowledge > topsView( ) {
+        return priorKnowledgesView( TOP );
+    }
+
+    private Relation relation( final int source, final int target, final int type ) {
+        return new RelationImpl( getPriorKnowledge( source ), getPriorKnowledge( target ), types[ type ] );
+    }
+
+    /**
+     * Relations of one row
+     */
+    private final class RowView extends AbstractSet< Relation > {
+        private final int id;
+        private final boolean isOutgoing;
+
+        private RowView( final int id, final boolean isOutgoing ) {
+            this.id = id;
+            this.isOutgoing = isOutgoing;
+        }
+
+        private IntBuffer offsets( ) {
+            return isOutgoing ? outgoingOffsets : incomingOffsets;
+        }
+
+        private Relation relation( final int edge ) {
+            final IntBuffer edges = isOutgoing ? outgoingEdges : incomingEdges;
+            final int other = edges.get( 2 * edge );
+            final int type = edges.get( 2 * edge + 1 );
+            return isOutgoing ? KnowledgeBaseImage.this.relation( id, other, type ) : KnowledgeBaseImage.this.relation( other, id, type );
+        }
+
+        @Override
+        public boolean contains( final Object o ) {
+            if ( !( o instanceof Relation ) )
+                return false;
+            final Relation relation = ( Relation ) o;
+            final int other = idOf( isOutgoing ? relation.getTarget( ) : relation.getSource( ) );
+            if ( other < 0 || idOf( isOutgoing ? relation.getSource( ) : relation.getTarget( ) ) != id )
+                return false;
+            final IntBuffer edges = isOutgoing ? outgoingEdges : incomingEdges;
+            for ( int edge = offsets( ).get( id ); edge < offsets( ).get( id + 1 ); edge++ )
+                if ( edges.get( 2 * edge ) == other && types[ edges.get( 2 * edge + 1 ) ] == relation.getType( ) )
+                    return true;
+            return false;
+        }
+
+        @Override
+        public Iterator< Relation > iterator( ) {
+            return new Iterator< Relation >( ) {
+                private int edge = offsets( ).get( id );
+
+                @Override
+                public boolean hasNext( ) {
+                    return edge < offsets( ).get( id + 1 );
+                }
+
+                @Override
+                public Relation next( ) {
+                    if ( !hasNext( ) )
+                        throw new NoSuchElementException( );
+                    return relation( edge++ );
+                }
+            };
+        }
+
+        @Override
+        public int size( ) {
+            return offsets( ).get( id + 1 ) - offsets( ).get( id );
+        }
+    }
+
+    /**
+     * @return a read-only view of all relations
+     */
+    Set< Relation > relationsView( ) {
+        return new AbstractSet< Relation >( ) {
+            @Override
+            public boolean contains( final Object o ) {
+                if ( !( o instanceof Relation ) )
+                    return false;
+                final int source = idOf( ( ( Relation ) o ).getSource( ) );
+                return source >= 0 && new RowView( source, true ).contains( o );
+            }
+
+            @Override
+            public Iterator< Relation > iterator( ) {
+                return new Iterator< Relation >( ) {
+                    private int source = 0;
+                    private int edge = 0;
+
+                    @Override
+                    public boolean hasNext( ) {
+                        return edge < relationsCount;
+                    }
+
+                    @Override
+                    public Relation next( ) {
+                        if ( edge >= relationsCount )
+                            throw new NoSuchElementException( );
+                        while ( outgoingOffsets.get( source + 1 ) <= edge )
+                            source++;
+                        final Relation relation = relation( source, outgoingEdges.get( 2 * edge ), outgoingEdges.get( 2 * edge + 1 ) );
+                        edge++;
+                        return relation;
+                    }
+                };
+            }
+
+            @Override
+            public int size( ) {
+                return relationsCount;
+            }
+        };
+    }
+
+    /**
+     * Read-only map of an id view, only ids accepted by {@link #value(int)} are keys
+     */
+    private abstract class IdMap< K, V > extends AbstractMap< K, V > {
+        private int size = -1;
+
+        /**
+         * @return id of a key or -1
+         */
+        abstract int id( Object key );
+
+        abstract K key( int id );
+
+        /**
+         * @return value of an id or null
+         */
+        abstract V value( int id );
+
+        @Override
+        public V get( final Object key ) {
+            final int id = id( key );
+            return id < 0 ? null : value( id );
+        }
+
+        @Override
+        public boolean containsKey( final Object key ) {
+            return get( key ) != null;
+        }
+
+        @Override
+        public Set< Entry< K, V > > entrySet( ) {
+            return new AbstractSet< Entry< K, V > >( ) {
+                @Override
+                public Iterator< Entry< K, V > > iterator( ) {
+                    return new Iterator< Entry< K, V > >( ) {
+                        private int cursor = skip( 0 );
+
+                        private int skip( int id ) {
+                            while ( id < KnowledgeBaseImage.this.size && value( id ) == null )
+                                id++;
+                            return id;
+                        }
+
+                        @Override
+                        public boolean hasNext( ) {
+                            return cursor < KnowledgeBaseImage.this.size;
+                        }
+
+                        @Override
+                        public Entry< K, V > next( ) {
+                            if ( cursor >= KnowledgeBaseImage.this.size )
+                                throw new NoSuchElementException( );
+                            final Entry< K, V > entry = new SimpleImmutableEntry<>( key( cursor ), value( cursor ) );
+                            cursor = skip( cursor + 1 );
+                            return entry;
+                        }
+                    };
+                }
+
+                @Override
+                public int size( ) {
+                    return IdMap.this.size( );
+                }
+            };
+        }
+
+        @Override
+        public int size( ) {
+            if ( size < 0 ) {
+                int count = 0;
+                for ( int id = 0; id < KnowledgeBaseImage.this.size; id++ )
+                    if ( value( id ) != null )
+                        count++;
+                size = count;
+            }
+            return size;
+        }
+    }
+
+    private abstract class ConceptMap< V > extends IdMap< Concept, V > {
+        @Override
+        int id( final Object key ) {
+            return idOf( key );
+        }
+
+        @Override
+        Concept key( final int id ) {
+            return getPriorKnowledge( id );
+        }
+    }
+
+    /**
+     * @param isOutgoing true for outgoing rows, false for incoming ones
+     * @return read-only view of relations by concept, only concepts owning at least one relation are keys
+     */
+    Map< Concept, Set< Relation > > adjacencyView( final boolean isOutgoing ) {
+        final IntBuffer offsets = isOutgoing ? outgoingOffsets : incomingOffsets;
+        return new ConceptMap< Set< Relation > >( ) {
+            @Override
+            Set< Relation > value( final int id ) {
+                return offsets.get( id ) == offsets.get( id + 1 ) ? null : new RowView( id, isOutgoing );
+            }
+        };
+    }
+
+    Map< Concept, Neighbourhood > neighbourhoodsView( ) {
+        return new ConceptMap< Neighbourhood >( ) {
+            @Override
+            Neighbourhood value( final int id ) {
+                return getNeighbourhood( id );
+            }
+
+            @Override
+            public int size( ) {
+                return KnowledgeBaseImage.this.size;
+            }
+        };
+    }
+
+    Map< String, Concept > namesView( ) {
+        return new IdMap< String, Concept >( ) {
+            @Override
+            int id( final Object key ) {
+                return ( key instanceof String ) ? find( ( String ) key ) : -1;
+            }
+
+            @Override
+            String key( final int id ) {
+                return string( STRINGS_BY_PK * id + NAME );
+            }
+
+            @Override
+            Concept value( final int id ) {
+                return getPriorKnowledge( id );
+            }
+
+            @Override
+            public int size( ) {
+                return KnowledgeBaseImage.this.size;
+            }
+        };
+    }
+
+    Map< Integer, Concept > idsView( ) {
+        return new IdMap< Integer, Concept >( ) {
+            @Override
+            int id( final Object key ) {
+                if ( !( key instanceof Integer ) )
+                    return -1;
+                final int id = ( Integer ) key;
+                return ( id >= 0 && id < KnowledgeBaseImage.this.size ) ? id : -1;
+            }
+
+            @Override
+            Integer key( final int id ) {
+                return id;
+            }
+
+            @Override
+            Concept value( final int id ) {
+                return getPriorKnowledge( id );
+            }
+
+            @Override
+            public int size( ) {
+                return KnowledgeBaseImage.this.size;
+            }
+        };
+    }
+}
@@ -0,0 +1,262 @@
+package fr.cea.ig.grools.reasoner;
+
+import lombok.NonNull;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+/**
+ * LayeredMap
+ * <p>
+ * Copy-on-write map made of frozen layers shared between forks and a private top layer holding changes of this map.
+ * A fork costs O(1), changes of one map are never seen by the other. Values are not copied by the map: a mutable value
+ * has to be taken through {@link #writable(Object, UnaryOperator)} before being changed. Null values are not allowed.
+ */
+final class LayeredMap< K, V > extends AbstractMap< K, V > implements Serializable {
+    // layers are merged when a lookup would walk more of them
+    private static final int MAX_DEPTH = 8;
+
+    // marks a key removed from a lower layer
+    private enum Tombstone { REMOVED }
+
+    private static final class Layer< K > implements Serializable {
+        private final Map< K, ? > entries;
+        private final Layer< K > below;
+        private final int depth;
+
+        private Layer( @NonNull final Map< K, ? > entries, final Layer< K > below ) {
+            this.entries = entries;
+            this.below = below;
+            this.depth = ( below == null ) ? 1 : below.depth + 1;
+        }
+    }
+
+    private Layer< K > layers;
+    private HashMap< K, Object > top;
+    private int size;
+
+    LayeredMap( ) {
+        this.layers = null;
+        this.top = new HashMap<>( );
+        this.size = 0;
+    }
+
+    /**
+     * @param base frozen content of this map, it is read but never changed
+     */
+    LayeredMap( @NonNull final Map< K, ? > base ) {
+        this.layers = base.isEmpty( ) ? null : new Layer<>( base, null );
+        this.top = new HashMap<>( );
+        this.size = base.size( );
+    }
+
+    private LayeredMap( final Layer< K > layers, final int size ) {
+        this.layers = layers;
+        this.top = new HashMap<>( );
+        this.size = size;
+    }
+
+    /**
+     * @return value of a key, Tombstone.REMOVED or null
+     */
+    private Object lookup( final Object key ) {
+        Object value = top.isEmpty( ) ? null : top.get( key );
+        for ( Layer< K > layer = layers; value == null && layer != null; layer = layer.below )
+            value = layer.entries.get( key );
+        return value;
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private static < V > V unwrap( final Object value ) {
+        return ( value == Tombstone.REMOVED ) ? null : ( V ) value;
+    }
+
+    @Override
+    public V get( final Object key ) {
+        return unwrap( lookup( key ) );
+    }
+
+    @Override
+    public boolean containsKey( final Object key ) {
+        return get( key ) != null;
+    }
+
+    @Override
+    public int size( ) {
+        return size;
+    }
+
+    @Override
+    public V put( @NonNull final K key, @NonNull final V value ) {
+        final V previous = get( key );
+        top.put( key, value );
+        if ( previous == null )
+            size++;
+        return previous;
+    }
+
+    @Override
+    public V remove( final Object key ) {
+        final V previous = get( key );
+        if ( previous == null )
+            return null;
+        @SuppressWarnings( "unchecked" )
+        final K k = ( K ) key;
+        if ( layers == null )
+            top.remove( k );
+        else
+            top.put( k, Tombstone.REMOVED );
+        size--;
+        return previous;
+    }
+
+    @Override
+    public void clear( ) {
+        layers = null;
+        top = new HashMap<>( );
+        size = 0;
+    }
+
+    /**
+     * Value of a key which can be changed in place, a value shared with forks is copied first
+     * @param key  a key
+     * @param copy makes a private copy of a shared value
+     * @return the private value or null if the key is absent
+     */
+    @SuppressWarnings( "unchecked" )
+    V writable( @NonNull final K key, @NonNull final UnaryOperator< V > copy ) {
+        final Object own = top.get( key );
+        if ( own != null )
+            return unwrap( own );
+        final V shared = get( key );
+        if ( shared == null )
+            return null;
+        final V value = copy.apply( shared );
+        top.put( key, value );
+        return value;
+    }
+
+    /**
+     * Freeze the content of this map and share it with a new map, both maps keep their own changes from now
+     * @return the fork
+     */
+    LayeredMap< K, V > fork( ) {
+        if ( !top.isEmpty( ) ) {
+            layers = new Layer<>( top, layers );
+            top = new HashMap<>( );
+            if ( layers.depth > MAX_DEPTH )
+                layers = flatten( layers );
+        }
+        return new LayeredMap<>( layers, size );
+    }
+
+    /**
+     * Merge layers above the base one, the base layer may be a lazy view which is not copied
+     * @return an equivalent stack of two layers
+     */
+    private static < K > Layer< K > flatten( @NonNull final Layer< K > layers ) {
+        final Deque< Layer< K > > above = new ArrayDeque<>( );
+        Layer< K > base = layers;
+        for ( ; base.below != null; base = base.below )
+            above.push( base );
+        final HashMap< K, Object > merged = new HashMap<>( );
+        while ( !above.isEmpty( ) )
+            merged.putAll( above.pop( ).entries );
+        return new Layer<>( merged, base );
+    }
+
+    /**
+     * @return true if the key is shadowed by the top layer or by a layer above the given one
+     */
+    private boolean isShadowed( final Object key, @NonNull final Layer< K > layer ) {
+        if ( top.containsKey( key ) )
+            return true;
+        for ( Layer< K > above = layers; above != layer; above = above.below )
+            if ( above.entries.containsKey( key ) )
+                return true;
+        return false;
+    }
+
+    @Override
+    public Set< Entry< K, V > > entrySet( ) {
+        return new AbstractSet< Entry< K, V > >( ) {
+            @Override
+            public Iterator< Entry< K, V > > iterator( ) {
+                return new EntryIterator( );
+            }
+
+            @Override
+            public int size( ) {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Entries of the top layer then of each frozen layer, skipping removed and shadowed keys. A removal through the
+     * iterator leaves a tombstone, frozen layers are never changed.
+     */
+    private final class EntryIterator implements Iterator< Entry< K, V > > {
+        private Layer< K > layer = null;
+        private Iterator< ? extends Entry< K, ? > > entries = top.entrySet( ).iterator( );
+        private Entry< K, V > next = null;
+        // key of the last returned entry, null once removed
+        private K last = null;
+
+        @SuppressWarnings( "unchecked" )
+        private Entry< K, V > advance( ) {
+            while ( true ) {
+                while ( entries.hasNext( ) ) {
+                    final Entry< K, ? > entry = entries.next( );
+                    if ( entry.getValue( ) == Tombstone.REMOVED || ( layer != null && isShadowed( entry.getKey( ), layer ) ) )
+                        continue;
+                    return new SimpleImmutableEntry<>( entry.getKey( ), ( V ) entry.getValue( ) );
+                }
+                layer = ( layer == null ) ? layers : layer.below;
+                if ( layer == null )
+                    return null;
+                entries = layer.entries.entrySet( ).iterator( );
+            }
+        }
+
+        @Override
+        public boolean hasNext( ) {
+            if ( next == null )
+                next = advance( );
+            return next != null;
+        }
+
+        @Override
+        public Entry< K, V > next( ) {
+            if ( !hasNext( ) )
+                throw new NoSuchElementException( );
+            final Entry< K, V > result = next;
+            next = null;
+            last = result.getKey( );
+            return result;
+        }
+
+        @Override
+        public void remove( ) {
+            if ( last == null )
+                throw new IllegalStateException( );
+            // without frozen layer the top one is iterated, unless hasNext() already went past the last entry
+            if ( layers == null && next == null )
+                entries.remove( );
+            else
+                // replaces the value of a key of the top layer or adds a key while a frozen layer is iterated
+                top.put( last, Tombstone.REMOVED );
+            size--;
+            last = null;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package fr.cea.ig.grools.reasoner;
+
+import lombok.NonNull;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * LayeredSet
+ * <p>
+ * Copy-on-write set, see {@link LayeredMap}
+ */
+final class LayeredSet< T > extends AbstractSet< T > implements Serializable {
+
+    /**
+     * A set seen as a map from each element to itself
+     */
+    private static final class SetAsMap< T > extends AbstractMap< T, T > implements Serializable {
+        private final Set< T > set;
+
+        private SetAsMap( @NonNull final Set< T > set ) {
+            this.set = set;
+        }
+
+        @Override
+        @SuppressWarnings( "unchecked" )
+        public T get( final Object key ) {
+            return set.contains( key ) ? ( T ) key : null;
+        }
+
+        @Override
+        public boolean containsKey( final Object key ) {
+            return set.contains( key );
+        }
+
+        @Override
+        public int size( ) {
+            return set.size( );
+        }
+
+        @Override
+        public Set< Entry< T, T > > entrySet( ) {
+            return new AbstractSet< Entry< T, T > >( ) {
+                @Override
+                public Iterator< Entry< T, T > > iterator( ) {
+                    final Iterator< T > elements = set.iterator( );
+                    return new Iterator< Entry< T, T > >( ) {
+                        @Override
+                        public boolean hasNext( ) {
+                            return elements.hasNext( );
+                        }
+
+                        @Override
+                        public Entry< T, T > next( ) {
+                            final T element = elements.next( );
+                            return new SimpleImmutableEntry<>( element, element );
+                        }
+                    };
+                }
+
+                @Override
+                public int size( ) {
+                    return set.size( );
+                }
+            };
+        }
+    }
+
+    private final LayeredMap< T, T > elements;
+
+    LayeredSet( ) {
+        this.elements = new LayeredMap<>( );
+    }
+
+    /**
+     * @param base frozen content of this set, it is read but never changed
+     */
+    LayeredSet( @NonNull final Set< T > base ) {
+        this.elements = new LayeredMap<>( new SetAsMap<>( base ) );
+    }
+
+    private LayeredSet( @NonNull final LayeredMap< T, T > elements ) {
+        this.elements = elements;
+    }
+
+    @Override
+    public boolean contains( final Object element ) {
+        return elements.containsKey( element );
+    }
+
+    @Override
+    public boolean add( @NonNull final T element ) {
+        return elements.put( element, element ) == null;
+    }
+
+    @Override
+    public boolean remove( final Object element ) {
+        return elements.remove( element ) != null;
+    }
+
+    @Override
+    public void clear( ) {
+        elements.clear( );
+    }
+
+    @Override
+    public int size( ) {
+        return elements.size( );
+    }
+
+    @Override
+    public Iterator< T > iterator( ) {
+        final Iterator< Map.Entry< T, T > > entries = elements.entrySet( ).iterator( );
+        return new Iterator< T >( ) {
+            @Override
+            public boolean hasNext( ) {
+                return entries.hasNext( );
+            }
+
+            @Override
+            public T next( ) {
+                return entries.next( ).getKey( );
+            }
+
+            @Override
+            public void remove( ) {
+                entries.remove( );
+            }
+        };
+    }
+
+    /**
+     * @return a fork sharing the content of this set, see {@link LayeredMap#fork()}
+     */
+    LayeredSet< T > fork( ) {
+        return new LayeredSet<>( elements.fork( ) );
+    }
+}
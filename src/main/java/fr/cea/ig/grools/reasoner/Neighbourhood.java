@@ -0,0 +1,197 @@
+package fr.cea.ig.grools.reasoner;
+
+import fr.cea.ig.grools.fact.Observation;
+import fr.cea.ig.grools.fact.ObservationType;
+import fr.cea.ig.grools.fact.PriorKnowledge;
+import fr.cea.ig.grools.logic.TruthValueSet;
+import lombok.NonNull;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Neighbourhood
+ * <p>
+ * Adjacency of a prior-knowledge partitioned by relation type and by kind of linked concept.
+ * Accessors return read-only views allocated once per partition.
+ */
+final class Neighbourhood implements Serializable {
+
+    private static final class Bucket< T > implements Serializable {
+        private final Set< T > values;
+        private final Set< T > view;
+
+        private Bucket( ) {
+            this.values = new HashSet<>( );
+            this.view = Collections.unmodifiableSet( values );
+        }
+
+        private Bucket( @NonNull final Bucket< T > other ) {
+            this.values = new HashSet<>( other.values );
+            this.view = Collections.unmodifiableSet( values );
+        }
+    }
+
+    // dense id of the concept inside its graph
+    private final int id;
+    private final Map< Enum< ? >, Bucket< PriorKnowledge > > childrenByType;
+    private final Map< Enum< ? >, Bucket< PriorKnowledge > > parentsByType;
+    private final Map< ObservationType, Bucket< Observation > > observations;
+    private final Bucket< PriorKnowledge > children;
+    private final Bucket< PriorKnowledge > parents;
+    // truth values made from linked observations, null when they have to be computed again
+    private TruthValueSet directPrediction;
+    private TruthValueSet directExpectation;
+
+    Neighbourhood( final int id ) {
+        this.id = id;
+        this.childrenByType = new HashMap<>( 4 );
+        this.parentsByType = new HashMap<>( 4 );
+        this.observations = new EnumMap<>( ObservationType.class );
+        this.children = new Bucket<>( );
+        this.parents = new Bucket<>( );
+    }
+
+    /**
+     * Deep copy, used when a neighbourhood shared by forked graphs is changed
+     */
+    Neighbourhood( @NonNull final Neighbourhood other ) {
+        this.id = other.id;
+        this.childrenByType = copy( other.childrenByType, new HashMap<>( 4 ) );
+        this.parentsByType = copy( other.parentsByType, new HashMap<>( 4 ) );
+        this.observations = copy( other.observations, new EnumMap<>( ObservationType.class ) );
+        this.children = new Bucket<>( other.children );
+        this.parents = new Bucket<>( other.parents );
+        this.directPrediction = other.directPrediction;
+        this.directExpectation = other.directExpectation;
+    }
+
+    private static < K, T > Map< K, Bucket< T > > copy( @NonNull final Map< K, Bucket< T > > from, @NonNull final Map< K, Bucket< T > > to ) {
+        for ( final Map.Entry< K, Bucket< T > > entry : from.entrySet( ) )
+            to.put( entry.getKey( ), new Bucket<>( entry.getValue( ) ) );
+        return to;
+    }
+
+    int getId( ) {
+        return id;
+    }
+
+    private static < T > Set< T > view( final Bucket< T > bucket ) {
+        return ( bucket == null ) ? Collections.emptySet( ) : bucket.view;
+    }
+
+    private static < K, T > void add( @NonNull final Map< K, Bucket< T > > buckets, @NonNull final K key, @NonNull final T value ) {
+        buckets.computeIfAbsent( key, k -> new Bucket<>( ) ).values.add( value );
+    }
+
+    private static < K, T > void remove( @NonNull final Map< K, Bucket< T > > buckets, @NonNull final K key, @NonNull final T value ) {
+        final Bucket< T > bucket = buckets.get( key );
+        if ( bucket != null ) {
+            bucket.values.remove( value );
+            if ( bucket.values.isEmpty( ) )
+                buckets.remove( key );
+        }
+    }
+
+    /**
+     * @return prior-knowledges which are source of a relation targeting this prior-knowledge
+     */
+    Set< PriorKnowledge > getChildren( ) {
+        return children.view;
+    }
+
+    /**
+     * @return prior-knowledges which are target of a relation coming from this prior-knowledge
+     */
+    Set< PriorKnowledge > getParents( ) {
+        return parents.view;
+    }
+
+    Set< PriorKnowledge > getChildren( @NonNull final Enum< ? > type ) {
+        return view( childrenByType.get( type ) );
+    }
+
+    Set< PriorKnowledge > getParents( @NonNull final Enum< ? > type ) {
+        return view( parentsByType.get( type ) );
+    }
+
+    Set< Observation > getObservations( @NonNull final ObservationType type ) {
+        return view( observations.get( type ) );
+    }
+
+    void addChild( @NonNull final PriorKnowledge child, @NonNull final Enum< ? > type ) {
+        add( childrenByType, type, child );
+        children.values.add( child );
+    }
+
+    void addParent( @NonNull final PriorKnowledge parent, @NonNull final Enum< ? > type ) {
+        add( parentsByType, type, parent );
+        parents.values.add( parent );
+    }
+
+    void addObservation( @NonNull final Observation observation ) {
+        add( observations, observation.getType( ), observation );
+        invalidate( observation.getType( ) );
+    }
+
+    /**
+     * @param child     prior-knowledge to unlink
+     * @param type      type of the removed relation
+     * @param keepTyped true if another relation of the same type still links the child
+     * @param keepAny   true if another relation of any type still links the child
+     */
+    void removeChild( @NonNull final PriorKnowledge child, @NonNull final Enum< ? > type, final boolean keepTyped, final boolean keepAny ) {
+        if ( !keepTyped )
+            remove( childrenByType, type, child );
+        if ( !keepAny )
+            children.values.remove( child );
+    }
+
+    void removeParent( @NonNull final PriorKnowledge parent, @NonNull final Enum< ? > type, final boolean keepTyped, final boolean keepAny ) {
+        if ( !keepTyped )
+            remove( parentsByType, type, parent );
+        if ( !keepAny )
+            parents.values.remove( parent );
+    }
+
+    void removeObservation( @NonNull final Observation observation ) {
+        remove( observations, observation.getType( ), observation );
+        invalidate( observation.getType( ) );
+    }
+
+    private void invalidate( @NonNull final ObservationType type ) {
+        if ( type != ObservationType.EXPERIMENTATION )
+            directPrediction = null;
+        if ( type != ObservationType.COMPUTATION )
+            directExpectation = null;
+    }
+
+    private TruthValueSet union( @NonNull final ObservationType type, @NonNull final ObservationType other ) {
+        final Set< Observation > linked = new HashSet<>( getObservations( type ) );
+        linked.addAll( getObservations( other ) );
+        return Observation.union( linked );
+    }
+
+    /**
+     * @return union of truth values from computation and curation observations
+     */
+    TruthValueSet getDirectPrediction( ) {
+        if ( directPrediction == null )
+            directPrediction = union( ObservationType.COMPUTATION, ObservationType.CURATION );
+        return directPrediction;
+    }
+
+    /**
+     * @return union of truth values from experimentation and curation observations
+     */
+    TruthValueSet getDirectExpectation( ) {
+        if ( directExpectation == null )
+            directExpectation = union( ObservationType.EXPERIMENTATION, ObservationType.CURATION );
+        return directExpectation;
+    }
+}
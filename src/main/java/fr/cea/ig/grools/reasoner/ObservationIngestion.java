@@ -0,0 +1,218 @@
+package fr.cea.ig.grools.reasoner;
+
+import fr.cea.ig.grools.fact.Observation;
+import fr.cea.ig.grools.fact.ObservationImpl;
+import fr.cea.ig.grools.fact.ObservationType;
+import fr.cea.ig.grools.fact.PriorKnowledge;
+import fr.cea.ig.grools.fact.Relation;
+import fr.cea.ig.grools.fact.RelationImpl;
+import fr.cea.ig.grools.logic.TruthValue;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * ObservationIngestion
+ * <p>
+ * Streams observations from a table of hits, such as InterProScan TSV output or HMMER tables, into a reasoner. The file
+ * is read through a buffered channel and lines are split in place, only used columns are decoded. Each line gives one
+ * observation named after its name column and its target, related to the prior-knowledge named in its target column.
+ * Observations are inserted in batches, the memory held by the ingestion is bounded by the batch size whatever the size
+ * of the file.
+ * <p>
+ * Empty lines and lines starting with '#' are ignored. Lines whose target is not a prior-knowledge of the reasoner and
+ * lines giving an observation which is already known are skipped and counted.
+ */
+public final class ObservationIngestion {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final byte COMMENT = '#';
+    private static final String NAME_SEPARATOR = ":";
+
+    private final ReasonerImpl reasoner;
+    private final int nameColumn;
+    private final int targetColumn;
+    private final int batchSize;
+    private final List< Relation > batch;
+    private final Set< String > batchNames;
+    // column of the label, -1 without label
+    @Getter
+    @Setter
+    private int labelColumn;
+    @Getter
+    @Setter
+    @NonNull
+    private ObservationType type;
+    @Getter
+    @Setter
+    @NonNull
+    private TruthValue truthValue;
+    // runs of spaces are one separator
+    @Getter
+    @Setter
+    private char separator;
+    @Getter
+    private long observationsCount;
+    @Getter
+    private long skippedCount;
+    // bounds of used columns in the current line
+    private int[] starts;
+    private int[] ends;
+    private long lineNumber;
+
+    /**
+     * @param reasoner     receives observations
+     * @param nameColumn   column naming the observed entity, a protein for instance, from 0
+     * @param targetColumn column naming the prior-knowledge, from 0
+     * @param batchSize    number of observations inserted at once
+     */
+    public ObservationIngestion( @NonNull final ReasonerImpl reasoner, final int nameColumn, final int targetColumn, final int batchSize ) {
+        if ( nameColumn < 0 || targetColumn < 0 )
+            throw new IllegalArgumentException( "Negative column" );
+        if ( batchSize < 1 )
+            throw new IllegalArgumentException( "Batch size lower than 1: " + batchSize );
+        this.reasoner = reasoner;
+        this.nameColumn = nameColumn;
+        this.targetColumn = targetColumn;
+        this.batchSize = batchSize;
+        this.batch = new ArrayList<>( batchSize );
+        this.batchNames = new HashSet<>( batchSize * 2 );
+        this.labelColumn = -1;
+        this.type = ObservationType.COMPUTATION;
+        this.truthValue = TruthValue.t;
+        this.separator = '\t';
+        this.observationsCount = 0;
+        this.skippedCount = 0;
+    }
+
+    /**
+     * @param file a table of hits, its name is the source of observations
+     * @return number of observations inserted from the file
+     * @throws IOException on read failure or if a line misses a column, observations of previous batches are kept
+     */
+    public long ingest( @NonNull final File file ) throws IOException {
+        try ( FileChannel channel = FileChannel.open( file.toPath( ), StandardOpenOption.READ ) ) {
+            return ingest( channel, file.getName( ) );
+        }
+    }
+
+    /**
+     * @param channel a table of hits, read up to its end and left open
+     * @param source  source of observations, may be null
+     * @return number of observations inserted from the channel
+     * @throws IOException on read failure or if a line misses a column, observations of previous batches are kept
+     */
+    public long ingest( @NonNull final ReadableByteChannel channel, final String source ) throws IOException {
+        final int columns = Math.max( labelColumn, Math.max( nameColumn, targetColumn ) ) + 1;
+        final long previousCount = observationsCount;
+        starts = new int[ columns ];
+        ends = new int[ columns ];
+        lineNumber = 0;
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate( BUFFER_SIZE );
+            boolean isAtEnd = false;
+            while ( !isAtEnd ) {
+                isAtEnd = channel.read( buffer ) < 0;
+                final byte[] bytes = buffer.array( );
+                final int limit = buffer.position( );
+                int start = 0;
+                for ( int i = 0; i < limit; i++ ) {
+                    if ( bytes[ i ] == '\n' ) {
+                        line( bytes, start, i, source );
+                        start = i + 1;
+                    }
+                }
+                if ( isAtEnd ) {
+                    if ( start < limit )
+                        line( bytes, start, limit, source );
+                }
+                else if ( start == 0 && !buffer.hasRemaining( ) ) {
+                    // a line longer than the buffer
+                    buffer = ByteBuffer.wrap( Arrays.copyOf( bytes, bytes.length * 2 ) );
+                    buffer.position( limit );
+                }
+                else {
+                    System.arraycopy( bytes, start, bytes, 0, limit - start );
+                    buffer.position( limit - start );
+                }
+            }
+            flush( );
+        }
+        finally {
+            // a failed batch is dropped
+            batch.clear( );
+            batchNames.clear( );
+        }
+        return observationsCount - previousCount;
+    }
+
+    /**
+     * Split a line into used columns then add its observation to the batch
+     */
+    private void line( @NonNull final byte[] bytes, final int start, int end, final String source ) throws IOException {
+        lineNumber++;
+        if ( end > start && bytes[ end - 1 ] == '\r' )
+            end--;
+        if ( start == end || bytes[ start ] == COMMENT )
+            return;
+        int column = 0;
+        int fieldStart = start;
+        for ( int i = start; i <= end && column < starts.length; i++ ) {
+            if ( i < end && bytes[ i ] != separator )
+                continue;
+            if ( separator == ' ' && i == fieldStart ) {
+                fieldStart = i + 1;
+                continue;
+            }
+            starts[ column ] = fieldStart;
+            ends[ column ] = i;
+            column++;
+            fieldStart = i + 1;
+        }
+        if ( column < starts.length )
+            throw new StreamCorruptedException( "Missing column " + column + " at line " + lineNumber );
+
+        final String target = field( bytes, targetColumn );
+        final PriorKnowledge pk = reasoner.getPriorKnowledge( target );
+        final String name = field( bytes, nameColumn ) + NAME_SEPARATOR + target;
+        if ( pk == null || reasoner.getConcept( name ) != null || !batchNames.add( name ) ) {
+            skippedCount++;
+            return;
+        }
+        final Observation observation = ObservationImpl.builder( )
+                                                       .name( name )
+                                                       .label( labelColumn < 0 ? null : field( bytes, labelColumn ) )
+                                                       .source( source )
+                                                       .type( type )
+                                                       .truthValue( truthValue )
+                                                       .build( );
+        // the observation is added along with its relation
+        batch.add( new RelationImpl( observation, pk, type ) );
+        if ( batch.size( ) >= batchSize )
+            flush( );
+    }
+
+    private String field( @NonNull final byte[] bytes, final int column ) {
+        return new String( bytes, starts[ column ], ends[ column ] - starts[ column ], StandardCharsets.UTF_8 );
+    }
+
+    private void flush( ) {
+        reasoner.insert( batch );
+        observationsCount += batch.size( );
+        batch.clear( );
+        batchNames.clear( );
+    }
+}
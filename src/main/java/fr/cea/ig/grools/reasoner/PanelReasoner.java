@@ -0,0 +1,395 @@
+package fr.cea.ig.grools.reasoner;
+
+import fr.cea.ig.grools.Mode;
+import fr.cea.ig.grools.VariantMode;
+import fr.cea.ig.grools.fact.Observation;
+import fr.cea.ig.grools.fact.ObservationImpl;
+import fr.cea.ig.grools.fact.ObservationType;
+import fr.cea.ig.grools.fact.PriorKnowledge;
+import fr.cea.ig.grools.fact.Relation;
+import fr.cea.ig.grools.fact.RelationType;
+import fr.cea.ig.grools.logic.Conclusion;
+import fr.cea.ig.grools.logic.TruthValue;
+import fr.cea.ig.grools.logic.TruthValuePowerSet;
+import fr.cea.ig.grools.logic.TruthValueSet;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * PanelReasoner
+ * <p>
+ * Reason on one shared prior-knowledge graph for many genomes at once. Genomes are processed by words of 64 lanes,
+ * one lane by genome. During a traversal the value of a prior-knowledge is kept as one bit plane by truth value power
+ * set: bit i of plane v is set when genome i has the value v. Children predictions and parents expectations are
+ * gathered with word-wide OR, lanes holding the same values are grouped by word-wide operations and their merge and
+ * choice is read once from {@link TruthValueKernel}.
+ * Prior-knowledges are not modified, values of each genome are read back from the panel.
+ * Results are the same as {@link EvaluationMode#LEVEL_ORDERED} on the graph with the observations of a genome. Each
+ * prior-knowledge is evaluated once after those it depends on, thus the prior-knowledge graph must not have a cycle.
+ */
+public final class PanelReasoner {
+    private static final int LANES = Long.SIZE;
+    private static final TruthValuePowerSet[] POWER_SETS = TruthValuePowerSet.values( );
+    private static final TruthValueSet[] SETS = TruthValueSet.values( );
+    private static final TruthValue[] TRUTH_VALUES = TruthValue.values( );
+    private static final Conclusion[] CONCLUSIONS = Conclusion.values( );
+    // evidence of a set of observations, indexed by the mask of their truth values ordinals
+    private static final TruthValueSet[] EVIDENCE = evidence( );
+
+    private final ConceptGraph graph;
+    private final Mode mode;
+    @Getter
+    private final int genomesCount;
+    private final int words;
+    private final List< PriorKnowledge > bottomUp;
+    private final List< PriorKnowledge > topDown;
+    private final Map< PriorKnowledge, Integer > ids;
+    // truth values of observations by prior-knowledge id, truth value ordinal and word, null without observation
+    private final long[][][] predictionEvidence;
+    private final long[][][] expectationEvidence;
+    // values ordinals by prior-knowledge id and genome
+    private final byte[][] predictions;
+    private final byte[][] expectations;
+    private final byte[][] conclusions;
+
+    /**
+     * @param graph        prior-knowledges shared by all genomes, observations of this graph are shared too
+     * @param mode         reasoning mode
+     * @param genomesCount number of genomes in the panel
+     * @throws IllegalArgumentException if the number of genomes is negative or if the prior-knowledge graph has a cycle
+     */
+    public PanelReasoner( @NonNull final ConceptGraph graph, @NonNull final Mode mode, final int genomesCount ) {
+        if ( genomesCount < 0 )
+            throw new IllegalArgumentException( "Negative number of genomes: " + genomesCount );
+        final PriorKnowledgeLevels levels = new PriorKnowledgeLevels( graph );
+        if ( !levels.isAcyclic( ) )
+            throw new IllegalArgumentException( "Prior-knowledges of a panel can not be ordered, the graph has a cycle" );
+        this.graph = graph;
+        this.mode = mode;
+        this.genomesCount = genomesCount;
+        this.words = ( genomesCount + LANES - 1 ) / LANES;
+        this.bottomUp = flatten( levels.getBottomUp( ) );
+        this.topDown = flatten( levels.getTopDown( ) );
+        this.ids = new HashMap<>( );
+        for ( final PriorKnowledge pk : bottomUp )
+            ids.put( pk, ids.size( ) );
+        this.predictionEvidence = new long[ ids.size( ) ][][];
+        this.expectationEvidence = new long[ ids.size( ) ][][];
+        this.predictions = new byte[ ids.size( ) ][ genomesCount ];
+        this.expectations = new byte[ ids.size( ) ][ genomesCount ];
+        this.conclusions = new byte[ ids.size( ) ][ genomesCount ];
+        for ( final PriorKnowledge pk : bottomUp ) {
+            for ( final ObservationType type : ObservationType.values( ) ) {
+                // observations of the graph are shared by all lanes of each word
+                for ( final Observation observation : graph.getObservations( pk, type ) )
+                    for ( int word = 0; word < words; word++ )
+                        addEvidence( word, lanes( word ), observation, pk );
+            }
+        }
+    }
+
+    private static List< PriorKnowledge > flatten( @NonNull final List< List< PriorKnowledge > > levels ) {
+        final List< PriorKnowledge > result = new ArrayList<>( );
+        levels.forEach( result::addAll );
+        return result;
+    }
+
+    private static TruthValueSet[] evidence( ) {
+        final TruthValueSet[] evidence = new TruthValueSet[ 1 << TRUTH_VALUES.length ];
+        for ( int mask = 0; mask < evidence.length; mask++ ) {
+            final Set< Observation > observations = new HashSet<>( );
+            for ( final TruthValue truthValue : TRUTH_VALUES ) {
+                if ( ( mask & ( 1 << truthValue.ordinal( ) ) ) != 0 )
+                    observations.add( ObservationImpl.builder( )
+                                                     .name( "evidence_" + truthValue )
+                                                     .type( ObservationType.CURATION )
+                                                     .truthValue( truthValue )
+                                                     .build( ) );
+            }
+            evidence[ mask ] = Observation.union( observations );
+        }
+        return evidence;
+    }
+
+    private long[][] evidenceOf( @NonNull final long[][][] evidence, final int id ) {
+        if ( evidence[ id ] == null )
+            evidence[ id ] = new long[ TRUTH_VALUES.length ][ words ];
+        return evidence[ id ];
+    }
+
+    /**
+     * @return lanes of genomes in a word
+     */
+    private long lanes( final int word ) {
+        final int width = Math.min( LANES, genomesCount - word * LANES );
+        return width == LANES ? -1L : ( 1L << width ) - 1;
+    }
+
+    private void addEvidence( final int word, final long lanes, @NonNull final Observation observation, @NonNull final PriorKnowledge target ) {
+        final int id = ids.get( target );
+        if ( observation.getType( ) != ObservationType.EXPERIMENTATION )
+            evidenceOf( predictionEvidence, id )[ observation.getTruthValue( ).ordinal( ) ][ word ] |= lanes;
+        if ( observation.getType( ) != ObservationType.COMPUTATION )
+            evidenceOf( expectationEvidence, id )[ observation.getTruthValue( ).ordinal( ) ][ word ] |= lanes;
+    }
+
+    /**
+     * Add an observation of one genome on a prior-knowledge of the shared graph
+     */
+    public void addObservation( final int genome, @NonNull final Observation observation, @NonNull final PriorKnowledge target ) {
+        if ( genome < 0 || genome >= genomesCount )
+            throw new IndexOutOfBoundsException( "Genome: " + genome + ", Genomes: " + genomesCount );
+        if ( !ids.containsKey( target ) )
+            throw new IllegalArgumentException( "Unknown prior-knowledge " + target.getName( ) );
+        addEvidence( genome / LANES, 1L << ( genome % LANES ), observation, target );
+    }
+
+    /**
+     * Add an observation of one genome, its target is the target of the relation
+     */
+    public void addObservation( final int genome, @NonNull final Relation relation ) {
+        if ( !( relation.getSource( ) instanceof Observation ) || !( relation.getTarget( ) instanceof PriorKnowledge ) )
+            throw new IllegalArgumentException( "Not a relation from an observation to a prior-knowledge" );
+        addObservation( genome, ( Observation ) relation.getSource( ), ( PriorKnowledge ) relation.getTarget( ) );
+    }
+
+    public TruthValuePowerSet getPrediction( @NonNull final PriorKnowledge pk, final int genome ) {
+        final Integer id = ids.get( pk );
+        return id == null ? null : POWER_SETS[ predictions[ id ][ genome ] ];
+    }
+
+    public TruthValuePowerSet getExpectation( @NonNull final PriorKnowledge pk, final int genome ) {
+        final Integer id = ids.get( pk );
+        return id == null ? null : POWER_SETS[ expectations[ id ][ genome ] ];
+    }
+
+    public Conclusion getConclusion( @NonNull final PriorKnowledge pk, final int genome ) {
+        final Integer id = ids.get( pk );
+        return id == null || conclusions[ id ][ genome ] < 0 ? null : CONCLUSIONS[ conclusions[ id ][ genome ] ];
+    }
+
+    /**
+     * Evaluate all genomes, 64 at a time
+     */
+    public void reasoning( ) {
+        for ( int word = 0; word < words; word++ )
+            reasoning( word );
+    }
+
+    /**
+     * @return one plane by truth value set, a lane is set in the plane of the evidence of this genome
+     */
+    private static long[] evidencePlanes( final long[][] evidence, final int word, final long lanes ) {
+        final long[] planes = new long[ SETS.length ];
+        if ( evidence == null ) {
+            planes[ EVIDENCE[ 0 ].ordinal( ) ] = lanes;
+            return planes;
+        }
+        for ( int mask = 0; mask < EVIDENCE.length; mask++ ) {
+            long selected = lanes;
+            for ( int truthValue = 0; truthValue < TRUTH_VALUES.length; truthValue++ )
+                selected &= ( mask & ( 1 << truthValue ) ) != 0 ? evidence[ truthValue ][ word ] : ~evidence[ truthValue ][ word ];
+            planes[ EVIDENCE[ mask ].ordinal( ) ] |= selected;
+        }
+        return planes;
+    }
+
+    /**
+     * Lanes holding the same bits in every plane get the same result, thus the kernel is read once by group of lanes
+     * @param remaining lanes not evaluated yet, at least one
+     * @param planes    bit planes the result depends on
+     * @return lanes holding the same bits as the lowest remaining lane
+     */
+    private static long group( final long remaining, @NonNull final long[]... planes ) {
+        final int lane = Long.numberOfTrailingZeros( remaining );
+        long group = remaining;
+        for ( final long[] values : planes )
+            for ( final long plane : values )
+                group &= ( plane >>> lane & 1L ) != 0 ? plane : ~plane;
+        return group;
+    }
+
+    /**
+     * @param planes bit planes of truth value power sets
+     * @return mask of truth value power sets of a lane, see {@link TruthValueKernel}
+     */
+    private static int mask( @NonNull final long[] planes, final int lane ) {
+        int mask = 0;
+        for ( int value = 0; value < planes.length; value++ )
+            if ( ( planes[ value ] >>> lane & 1L ) != 0 )
+                mask |= 1 << value;
+        return mask;
+    }
+
+    private static void or( @NonNull final long[] planes, @NonNull final long[] other, final long lanes ) {
+        for ( int value = 0; value < planes.length; value++ )
+            planes[ value ] |= other[ value ] & lanes;
+    }
+
+    /**
+     * Union of each evidence set
+     */
+    private static long[] union( @NonNull final long[] evidence ) {
+        final long[] planes = new long[ POWER_SETS.length ];
+        for ( final TruthValueSet tvs : SETS )
+            planes[ TruthValueKernel.union( tvs ).ordinal( ) ] |= evidence[ tvs.ordinal( ) ];
+        return planes;
+    }
+
+    /**
+     * Lanes with some evidence: remove {{N}} then add the evidence
+     */
+    private static long[] addEvidence( @NonNull final long[] planes, @NonNull final long[] evidence ) {
+        final long unchanged = evidence[ TruthValueSet.N.ordinal( ) ];
+        final long[] result = new long[ POWER_SETS.length ];
+        for ( int value = 0; value < planes.length; value++ )
+            result[ value ] = planes[ value ] & unchanged;
+        for ( final TruthValueSet tvs : SETS ) {
+            if ( tvs == TruthValueSet.N || evidence[ tvs.ordinal( ) ] == 0 )
+                continue;
+            for ( final TruthValuePowerSet value : POWER_SETS ) {
+                final long moved = planes[ value.ordinal( ) ] & evidence[ tvs.ordinal( ) ];
+                if ( moved != 0 )
+                    result[ TruthValueKernel.add( TruthValueKernel.remove( value, TruthValueSet.N ), tvs ).ordinal( ) ] |= moved;
+            }
+        }
+        return result;
+    }
+
+    private void reasoning( final int word ) {
+        final long lanes = lanes( word );
+        final boolean skipDispensable = mode.getVariants( ).contains( VariantMode.DISPENSABLE );
+        final boolean specificRule = mode.getVariants( ).contains( VariantMode.SPECIFIC );
+        final long[][] prediction = new long[ ids.size( ) ][];
+        final long[][] expectation = new long[ ids.size( ) ][];
+        final long[][] brothersChoice = new long[ ids.size( ) ][];
+
+        for ( final PriorKnowledge pk : bottomUp ) {
+            final int id = ids.get( pk );
+            final long[] evidence = evidencePlanes( predictionEvidence[ id ], word, lanes );
+            if ( graph.getLeaves( ).contains( pk ) ) {
+                prediction[ id ] = union( evidence );
+                continue;
+            }
+            final long[] part = new long[ POWER_SETS.length ];
+            final long[] subtype = new long[ POWER_SETS.length ];
+            long specificPresent = 0;
+            for ( final PriorKnowledge child : graph.getChildren( pk, RelationType.PART ) ) {
+                if ( skipDispensable && child.getIsDispensable( ) )
+                    continue;
+                final long[] childPrediction = prediction[ ids.get( child ) ];
+                or( part, childPrediction, lanes );
+                if ( isSpecific( child ) )
+                    specificPresent |= childPrediction[ TruthValuePowerSet.T.ordinal( ) ];
+            }
+            for ( final PriorKnowledge child : graph.getChildren( pk, RelationType.SUBTYPE ) )
+                if ( !skipDispensable || !child.getIsDispensable( ) )
+                    or( subtype, prediction[ ids.get( child ) ], lanes );
+            final long[] specific = { specificPresent };
+            final long[] result = new long[ POWER_SETS.length ];
+            for ( long remaining = lanes; remaining != 0; ) {
+                final long group = group( remaining, part, subtype, specific );
+                final int lane = Long.numberOfTrailingZeros( group );
+                int partMask = mask( part, lane );
+                if ( specificRule && ( specificPresent >>> lane & 1L ) != 0 )
+                    partMask &= ~TruthValueKernel.mask( TruthValuePowerSet.N );
+                final int choices = mask( subtype, lane ) | TruthValueKernel.mask( TruthValueKernel.merge( partMask ) );
+                result[ TruthValueKernel.choice( choices ).ordinal( ) ] |= group;
+                remaining &= ~group;
+            }
+            prediction[ id ] = addEvidence( result, evidence );
+        }
+
+        for ( final PriorKnowledge pk : topDown ) {
+            final int id = ids.get( pk );
+            final long[] evidence = evidencePlanes( expectationEvidence[ id ], word, lanes );
+            if ( graph.getTops( ).contains( pk ) ) {
+                expectation[ id ] = union( evidence );
+                continue;
+            }
+            final long[] result = new long[ POWER_SETS.length ];
+            if ( skipDispensable && pk.getIsDispensable( ) )
+                result[ TruthValuePowerSet.N.ordinal( ) ] = lanes;
+            else {
+                final long[] part = new long[ POWER_SETS.length ];
+                long subtypeIsExpectedFalse = 0;
+                for ( final PriorKnowledge parent : graph.getParents( pk, RelationType.PART ) )
+                    or( part, expectation[ ids.get( parent ) ], lanes );
+                for ( final PriorKnowledge parent : graph.getParents( pk, RelationType.SUBTYPE ) ) {
+                    final int parentId = ids.get( parent );
+                    subtypeIsExpectedFalse |= expectation[ parentId ][ TruthValuePowerSet.F.ordinal( ) ];
+                    if ( brothersChoice[ parentId ] == null )
+                        brothersChoice[ parentId ] = brothersChoice( parent, prediction, lanes );
+                    // lanes where the prediction of this prior-knowledge is the choice among its brothers
+                    long isChosen = 0;
+                    for ( int value = 0; value < POWER_SETS.length; value++ )
+                        isChosen |= brothersChoice[ parentId ][ value ] & prediction[ id ][ value ];
+                    or( part, expectation[ parentId ], isChosen );
+                }
+                result[ TruthValuePowerSet.F.ordinal( ) ] = subtypeIsExpectedFalse & lanes;
+                for ( long remaining = lanes & ~subtypeIsExpectedFalse; remaining != 0; ) {
+                    final long group = group( remaining, part );
+                    TruthValuePowerSet value = TruthValueKernel.merge( mask( part, Long.numberOfTrailingZeros( group ) ) );
+                    if ( value == TruthValuePowerSet.n )
+                        value = TruthValuePowerSet.N;
+                    result[ value.ordinal( ) ] |= group;
+                    remaining &= ~group;
+                }
+            }
+            expectation[ id ] = addEvidence( result, evidence );
+        }
+
+        for ( final PriorKnowledge pk : bottomUp ) {
+            final int id = ids.get( pk );
+            store( prediction[ id ], predictions[ id ], word );
+            store( expectation[ id ], expectations[ id ], word );
+            for ( long remaining = lanes; remaining != 0; remaining &= remaining - 1 ) {
+                final int genome = word * LANES + Long.numberOfTrailingZeros( remaining );
+                final Conclusion conclusion = ReasonerImpl.conclusion( POWER_SETS[ expectations[ id ][ genome ] ],
+                                                                       POWER_SETS[ predictions[ id ][ genome ] ] );
+                conclusions[ id ][ genome ] = conclusion == null ? -1 : ( byte ) conclusion.ordinal( );
+            }
+        }
+    }
+
+    /**
+     * @return planes of the choice among predictions of all children of a prior-knowledge
+     */
+    private long[] brothersChoice( @NonNull final PriorKnowledge parent, @NonNull final long[][] prediction, final long lanes ) {
+        final long[] brothers = new long[ POWER_SETS.length ];
+        for ( final PriorKnowledge brother : graph.getChildren( parent ) )
+            or( brothers, prediction[ ids.get( brother ) ], lanes );
+        final long[] choice = new long[ POWER_SETS.length ];
+        for ( long remaining = lanes; remaining != 0; ) {
+            final long group = group( remaining, brothers );
+            choice[ TruthValueKernel.choice( mask( brothers, Long.numberOfTrailingZeros( group ) ) ).ordinal( ) ] |= group;
+            remaining &= ~group;
+        }
+        return choice;
+    }
+
+    /**
+     * A prior-knowledge is specific when it is linked to only one other concept
+     */
+    private boolean isSpecific( @NonNull final PriorKnowledge pk ) {
+        final Set< Relation > outgoing = graph.getOutgoing( ).get( pk );
+        return outgoing == null ? pk.getIsSpecific( ) : outgoing.size( ) == 1;
+    }
+
+    private static void store( @NonNull final long[] planes, @NonNull final byte[] values, final int word ) {
+        for ( int value = 0; value < planes.length; value++ ) {
+            long bits = planes[ value ];
+            while ( bits != 0 ) {
+                values[ word * LANES + Long.numberOfTrailingZeros( bits ) ] = ( byte ) value;
+                bits &= bits - 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package fr.cea.ig.grools.reasoner;
+
+import lombok.NonNull;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * ParallelRange
+ * <p>
+ * Apply an action on each index of a range, the range is split in halves until it is smaller than a threshold.
+ */
+final class ParallelRange extends RecursiveAction {
+    private final int from;
+    private final int to;
+    private final int threshold;
+    private final IntConsumer action;
+
+    private ParallelRange( final int from, final int to, final int threshold, @NonNull final IntConsumer action ) {
+        this.from = from;
+        this.to = to;
+        this.threshold = threshold;
+        this.action = action;
+    }
+
+    /**
+     * Apply the action on each index from 0 (inclusive) to size (exclusive), sequentially when the pool is null or
+     * when size is lower than the threshold
+     */
+    static void forEach( final ForkJoinPool pool, final int size, final int threshold, @NonNull final IntConsumer action ) {
+        if ( pool == null || size < threshold ) {
+            for ( int i = 0; i < size; i++ )
+                action.accept( i );
+        }
+        else
+            pool.invoke( new ParallelRange( 0, size, Math.max( 1, threshold ), action ) );
+    }
+
+    @Override
+    protected void compute( ) {
+        if ( to - from <= threshold ) {
+            for ( int i = from; i < to; i++ )
+                action.accept( i );
+        }
+        else {
+            final int middle = ( from + to ) >>> 1;
+            invokeAll( new ParallelRange( from, middle, threshold, action ), new ParallelRange( middle, to, threshold, action ) );
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package fr.cea.ig.grools.reasoner;
+
+import fr.cea.ig.grools.logic.TruthValuePowerSet;
+import lombok.NonNull;
+
+/**
+ * PredictionHistogram
+ * <p>
+ * Count of child prior-knowledges by prediction value, for children linked by a relation "is part of" and for children
+ * linked by a relation "is subtype of". When the prediction of a child changes only two counters move, the set of
+ * distinct child values is then read back from the non-zero counters.
+ */
+final class PredictionHistogram {
+    private static final TruthValuePowerSet[] VALUES = TruthValuePowerSet.values( );
+
+    private final int[] part;
+    private final int[] subtype;
+    // part children which are specific and predicted {{t}}
+    private int specificPresent;
+
+    PredictionHistogram( ) {
+        this.part = new int[ VALUES.length ];
+        this.subtype = new int[ VALUES.length ];
+        this.specificPresent = 0;
+    }
+
+    PredictionHistogram( @NonNull final PredictionHistogram other ) {
+        this.part = other.part.clone( );
+        this.subtype = other.subtype.clone( );
+        this.specificPresent = other.specificPresent;
+    }
+
+    void addPart( @NonNull final TruthValuePowerSet prediction, final boolean isSpecific ) {
+        part[ prediction.ordinal( ) ]++;
+        if ( isSpecific && prediction == TruthValuePowerSet.T )
+            specificPresent++;
+    }
+
+    void addSubtype( @NonNull final TruthValuePowerSet prediction ) {
+        subtype[ prediction.ordinal( ) ]++;
+    }
+
+    void movePart( @NonNull final TruthValuePowerSet from, @NonNull final TruthValuePowerSet to, final boolean isSpecific ) {
+        part[ from.ordinal( ) ]--;
+        part[ to.ordinal( ) ]++;
+        if ( isSpecific ) {
+            if ( from == TruthValuePowerSet.T )
+                specificPresent--;
+            if ( to == TruthValuePowerSet.T )
+                specificPresent++;
+        }
+    }
+
+    void moveSubtype( @NonNull final TruthValuePowerSet from, @NonNull final TruthValuePowerSet to ) {
+        subtype[ from.ordinal( ) ]--;
+        subtype[ to.ordinal( ) ]++;
+    }
+
+    boolean hasSpecificPresent( ) {
+        return specificPresent > 0;
+    }
+
+    /**
+     * @return mask of values counted at least once, see {@link TruthValueKernel}
+     */
+    private static int distinct( @NonNull final int[] counts ) {
+        int mask = 0;
+        for ( int i = 0; i < counts.length; i++ )
+            if ( counts[ i ] > 0 )
+                mask |= 1 << i;
+        return mask;
+    }
+
+    /**
+     * Priority (1)part, (2)subtype: part predictions are merged to one truth value power set, then the greatest truth
+     * value is chosen between this one and subtype predictions
+     * @param specificRule true when a specific part child predicted {{t}} discards unknown part children
+     * @return the prediction made from children
+     */
+    TruthValuePowerSet aggregate( final boolean specificRule ) {
+        int predictionsPart = distinct( part );
+        if ( specificRule && hasSpecificPresent( ) )
+            predictionsPart &= ~TruthValueKernel.mask( TruthValuePowerSet.N );
+        final int predictionsSubtype = distinct( subtype ) | TruthValueKernel.mask( TruthValueKernel.merge( predictionsPart ) );
+        return TruthValueKernel.choice( predictionsSubtype );
+    }
+}
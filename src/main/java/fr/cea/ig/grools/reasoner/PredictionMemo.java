@@ -0,0 +1,65 @@
+package fr.cea.ig.grools.reasoner;
+
+import fr.cea.ig.grools.logic.TruthValuePowerSet;
+import lombok.Getter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * PredictionMemo
+ * <p>
+ * Predictions by evidence fingerprint, see {@link EvaluationMode#FINGERPRINTED}. A memo can be shared by reasoners of
+ * many genomes: a prior-knowledge whose evidence was already seen under the same variants takes the known prediction.
+ * At most a given number of fingerprints are kept, the least recently used ones are evicted first.
+ */
+public final class PredictionMemo {
+    @Getter
+    private final int capacity;
+    private final LinkedHashMap< Long, TruthValuePowerSet > predictions;
+    @Getter
+    private long hits;
+    @Getter
+    private long misses;
+
+    /**
+     * @param capacity maximum number of fingerprints
+     */
+    public PredictionMemo( final int capacity ) {
+        if ( capacity < 0 )
+            throw new IllegalArgumentException( "Negative capacity: " + capacity );
+        this.capacity = capacity;
+        this.predictions = new LinkedHashMap< Long, TruthValuePowerSet >( 16, 0.75f, true ) {
+            @Override
+            protected boolean removeEldestEntry( final Map.Entry< Long, TruthValuePowerSet > eldest ) {
+                return size( ) > PredictionMemo.this.capacity;
+            }
+        };
+        this.hits = 0;
+        this.misses = 0;
+    }
+
+    /**
+     * @return the prediction of a fingerprint or null
+     */
+    synchronized TruthValuePowerSet get( final long fingerprint ) {
+        final TruthValuePowerSet prediction = predictions.get( fingerprint );
+        if ( prediction == null )
+            misses++;
+        else
+            hits++;
+        return prediction;
+    }
+
+    synchronized void put( final long fingerprint, final TruthValuePowerSet prediction ) {
+        if ( prediction != null )
+            predictions.put( fingerprint, prediction );
+    }
+
+    /**
+     * @return number of fingerprints kept
+     */
+    public synchronized int size( ) {
+        return predictions.size( );
+    }
+}
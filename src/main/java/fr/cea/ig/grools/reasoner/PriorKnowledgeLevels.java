@@ -0,0 +1,140 @@
+package fr.cea.ig.grools.reasoner;
+
+import fr.cea.ig.grools.fact.Concept;
+import fr.cea.ig.grools.fact.PriorKnowledge;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * PriorKnowledgeLevels
+ * <p>
+ * Prior-knowledges grouped by level of the prior-knowledge graph.
+ * Bottom-up levels start from leaves, a prior-knowledge is one level above its highest child.
+ * Top-down levels start from tops, a prior-knowledge is one level below its deepest parent.
+ * Prior-knowledges inside a cycle can not be ordered, they are put together in an extra last level in name order,
+ * which is evaluated until it does not change.
+ */
+final class PriorKnowledgeLevels {
+    @Getter
+    private final List< List< PriorKnowledge > > bottomUp;
+    @Getter
+    private final List< List< PriorKnowledge > > topDown;
+    private final Map< PriorKnowledge, Integer > bottomUpLevels;
+    private final Map< PriorKnowledge, Integer > topDownLevels;
+    // false when some prior-knowledges are in a cycle
+    @Getter
+    private boolean isAcyclic;
+
+    PriorKnowledgeLevels( @NonNull final ConceptGraph graph ) {
+        this( graph, priorKnowledges( graph.getConcepts( ) ) );
+    }
+
+    /**
+     * @param graph           the graph
+     * @param priorKnowledges prior-knowledges to order, relations to prior-knowledges outside this collection are ignored
+     */
+    PriorKnowledgeLevels( @NonNull final ConceptGraph graph, @NonNull final Collection< PriorKnowledge > priorKnowledges ) {
+        this.isAcyclic = true;
+        this.bottomUp = layers( priorKnowledges, graph::getChildren, graph::getParents );
+        this.topDown = layers( priorKnowledges, graph::getParents, graph::getChildren );
+        this.bottomUpLevels = index( bottomUp );
+        this.topDownLevels = index( topDown );
+    }
+
+    private static Map< PriorKnowledge, Integer > index( @NonNull final List< List< PriorKnowledge > > levels ) {
+        final Map< PriorKnowledge, Integer > index = new HashMap<>( );
+        for ( int level = 0; level < levels.size( ); level++ )
+            for ( final PriorKnowledge pk : levels.get( level ) )
+                index.put( pk, level );
+        return index;
+    }
+
+    /**
+     * @return level of a prior-knowledge from leaves, or -1 if it is not ordered here
+     */
+    int getBottomUpLevel( @NonNull final PriorKnowledge priorKnowledge ) {
+        return bottomUpLevels.getOrDefault( priorKnowledge, -1 );
+    }
+
+    /**
+     * @return level of a prior-knowledge from tops, or -1 if it is not ordered here
+     */
+    int getTopDownLevel( @NonNull final PriorKnowledge priorKnowledge ) {
+        return topDownLevels.getOrDefault( priorKnowledge, -1 );
+    }
+
+    static List< PriorKnowledge > priorKnowledges( @NonNull final Collection< Concept > concepts ) {
+        final List< PriorKnowledge > priorKnowledges = new ArrayList<>( );
+        for ( final Concept concept : concepts )
+            if ( concept instanceof PriorKnowledge )
+                priorKnowledges.add( ( PriorKnowledge ) concept );
+        return priorKnowledges;
+    }
+
+    /**
+     * Kahn's algorithm which keeps the longest distance from the sources
+     * @param priorKnowledges prior-knowledges to order
+     * @param before          prior-knowledges which have to be evaluated before a given one
+     * @param after           prior-knowledges which have to be evaluated after a given one
+     * @return prior-knowledges by level
+     */
+    private List< List< PriorKnowledge > > layers( @NonNull final Collection< PriorKnowledge > priorKnowledges,
+                                                          @NonNull final Function< PriorKnowledge, Set< PriorKnowledge > > before,
+                                                          @NonNull final Function< PriorKnowledge, Set< PriorKnowledge > > after ) {
+        final Map< PriorKnowledge, int[] > pending = new HashMap<>( priorKnowledges.size( ) * 2 );
+        for ( final PriorKnowledge pk : priorKnowledges )
+            pending.put( pk, new int[]{ 0, 0 } ); // { dependencies not yet ordered, level }
+        final Deque< PriorKnowledge > ready = new ArrayDeque<>( );
+        for ( final PriorKnowledge pk : priorKnowledges ) {
+            int count = 0;
+            for ( final PriorKnowledge dependency : before.apply( pk ) )
+                if ( pending.containsKey( dependency ) )
+                    count++;
+            pending.get( pk )[ 0 ] = count;
+            if ( count == 0 )
+                ready.add( pk );
+        }
+
+        final List< List< PriorKnowledge > > levels = new ArrayList<>( );
+        int ordered = 0;
+        while ( !ready.isEmpty( ) ) {
+            final PriorKnowledge pk = ready.poll( );
+            final int level = pending.get( pk )[ 1 ];
+            while ( levels.size( ) <= level )
+                levels.add( new ArrayList<>( ) );
+            levels.get( level ).add( pk );
+            ordered++;
+            for ( final PriorKnowledge next : after.apply( pk ) ) {
+                final int[] state = pending.get( next );
+                if ( state == null )
+                    continue;
+                state[ 1 ] = Math.max( state[ 1 ], level + 1 );
+                if ( --state[ 0 ] == 0 )
+                    ready.add( next );
+            }
+        }
+
+        if ( ordered < priorKnowledges.size( ) ) {
+            isAcyclic = false;
+            final List< PriorKnowledge > cyclic = new ArrayList<>( );
+            for ( final Map.Entry< PriorKnowledge, int[] > entry : pending.entrySet( ) )
+                if ( entry.getValue( )[ 0 ] > 0 )
+                    cyclic.add( entry.getKey( ) );
+            // the worklist of the cycle starts in the same order for every reasoner
+            cyclic.sort( Comparator.comparing( PriorKnowledge::getName ) );
+            levels.add( cyclic );
+        }
+        return levels;
+    }
+}
@@ -0,0 +1,229 @@
+package fr.cea.ig.grools.reasoner;
+
+import fr.cea.ig.grools.fact.PriorKnowledge;
+import fr.cea.ig.grools.fact.PriorKnowledgeImpl;
+import fr.cea.ig.grools.logic.Conclusion;
+import fr.cea.ig.grools.logic.TruthValuePowerSet;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+
+import java.util.Arrays;
+
+/**
+ * PriorKnowledgeStates
+ * <p>
+ * Values computed by one reasoner, kept in dense arrays indexed by the concept id of the graph. Until a value is
+ * written, the initial value of a new prior-knowledge is read, never the value held by the prior-knowledge itself,
+ * thus reasoners sharing a graph do not see the values of each other. Prior-knowledges which are not in the graph are
+ * read and written directly. When write through is enabled every written value is also set on the prior-knowledge,
+ * for callers which read values from prior-knowledges.
+ * Slots of distinct prior-knowledges can be written by distinct threads once capacity has been ensured.
+ * <p>
+ * Arrays are split in pages which are shared with forks until they are written, see {@link #fork(ConceptGraph)}.
+ */
+final class PriorKnowledgeStates {
+    private static final TruthValuePowerSet[] POWER_SETS = TruthValuePowerSet.values( );
+    private static final Conclusion[] CONCLUSIONS = Conclusion.values( );
+    // values read from unset slots
+    private static final PriorKnowledge INITIAL = PriorKnowledgeImpl.builder( ).name( "initial" ).build( );
+    private static final int PAGE_BITS = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    // the initial value is read while a slot is unset
+    private static final byte UNSET = 0;
+    private static final byte NONE = 1;
+    private static final byte FALSE = 1;
+    private static final byte TRUE = 2;
+
+    /**
+     * Values of PAGE_SIZE consecutive ids, a page is written only by the store owning it
+     */
+    private static final class Page {
+        private final byte[] predictions;
+        private final byte[] expectations;
+        private final byte[] conclusions;
+        private final byte[] specifics;
+        private final Object owner;
+
+        private Page( @NonNull final Object owner ) {
+            this.predictions = new byte[ PAGE_SIZE ];
+            this.expectations = new byte[ PAGE_SIZE ];
+            this.conclusions = new byte[ PAGE_SIZE ];
+            this.specifics = new byte[ PAGE_SIZE ];
+            this.owner = owner;
+        }
+
+        private Page( @NonNull final Page other, @NonNull final Object owner ) {
+            this.predictions = other.predictions.clone( );
+            this.expectations = other.expectations.clone( );
+            this.conclusions = other.conclusions.clone( );
+            this.specifics = other.specifics.clone( );
+            this.owner = owner;
+        }
+    }
+
+    private final ConceptGraph graph;
+    private volatile Page[] pages;
+    // pages written by this store are owned by this token
+    private Object token;
+    // true while the pages array itself is shared with a fork
+    private boolean pagesAreShared;
+    @Getter
+    @Setter
+    private boolean writeThrough;
+
+    PriorKnowledgeStates( @NonNull final ConceptGraph graph, final boolean writeThrough ) {
+        this.graph = graph;
+        this.pages = new Page[ 0 ];
+        this.token = new Object( );
+        this.pagesAreShared = false;
+        this.writeThrough = writeThrough;
+        ensureCapacity( );
+    }
+
+    private PriorKnowledgeStates( @NonNull final ConceptGraph graph, @NonNull final PriorKnowledgeStates other ) {
+        this.graph = graph;
+        this.pages = other.pages;
+        this.token = new Object( );
+        this.pagesAreShared = true;
+        this.writeThrough = false;
+    }
+
+    /**
+     * Copy-on-write fork in O(1): pages are shared until one of both stores writes into them. The fork does not write
+     * through since prior-knowledges are shared.
+     * @param forkGraph fork of the graph of this store
+     * @return the fork
+     */
+    synchronized PriorKnowledgeStates fork( @NonNull final ConceptGraph forkGraph ) {
+        token = new Object( );
+        pagesAreShared = true;
+        return new PriorKnowledgeStates( forkGraph, this );
+    }
+
+    /**
+     * Grow arrays to the ids of the graph, to call before writing from many threads
+     */
+    synchronized void ensureCapacity( ) {
+        final int size = ( graph.getIdsCount( ) + PAGE_MASK ) >>> PAGE_BITS;
+        if ( size <= pages.length )
+            return;
+        final Page[] grown = Arrays.copyOf( pages, Math.max( size, pages.length + ( pages.length >> 1 ) ) );
+        for ( int i = pages.length; i < grown.length; i++ )
+            grown[ i ] = new Page( token );
+        pagesAreShared = false;
+        pages = grown;
+    }
+
+    /**
+     * @return slot of a prior-knowledge, -1 if it is not in the graph
+     */
+    private int slot( @NonNull final PriorKnowledge pk ) {
+        final int id = graph.getId( pk );
+        if ( id >= pages.length << PAGE_BITS )
+            ensureCapacity( );
+        return id;
+    }
+
+    private Page page( final int id ) {
+        return pages[ id >>> PAGE_BITS ];
+    }
+
+    /**
+     * @return the page of an id owned by this store, a shared page is copied first
+     */
+    private Page writable( final int id ) {
+        final Page page = page( id );
+        if ( page.owner == token )
+            return page;
+        synchronized ( this ) {
+            if ( pagesAreShared ) {
+                pages = pages.clone( );
+                pagesAreShared = false;
+            }
+            final int index = id >>> PAGE_BITS;
+            final Page shared = pages[ index ];
+            if ( shared.owner == token )
+                return shared;
+            final Page owned = new Page( shared, token );
+            final Page[] current = pages;
+            current[ index ] = owned;
+            // volatile write which publishes the new page
+            pages = current;
+            return owned;
+        }
+    }
+
+    private static byte encode( final Enum< ? > value ) {
+        return value == null ? NONE : ( byte ) ( value.ordinal( ) + 2 );
+    }
+
+    private static < T > T decode( final T[] values, final byte code ) {
+        return code == NONE ? null : values[ code - 2 ];
+    }
+
+    public TruthValuePowerSet getPrediction( @NonNull final PriorKnowledge pk ) {
+        final int id = slot( pk );
+        if ( id < 0 )
+            return pk.getPrediction( );
+        final byte code = page( id ).predictions[ id & PAGE_MASK ];
+        return code == UNSET ? INITIAL.getPrediction( ) : decode( POWER_SETS, code );
+    }
+
+    public void setPrediction( @NonNull final PriorKnowledge pk, final TruthValuePowerSet prediction ) {
+        final int id = slot( pk );
+        if ( id >= 0 )
+            writable( id ).predictions[ id & PAGE_MASK ] = encode( prediction );
+        if ( id < 0 || writeThrough )
+            pk.setPrediction( prediction );
+    }
+
+    public TruthValuePowerSet getExpectation( @NonNull final PriorKnowledge pk ) {
+        final int id = slot( pk );
+        if ( id < 0 )
+            return pk.getExpectation( );
+        final byte code = page( id ).expectations[ id & PAGE_MASK ];
+        return code == UNSET ? INITIAL.getExpectation( ) : decode( POWER_SETS, code );
+    }
+
+    public void setExpectation( @NonNull final PriorKnowledge pk, final TruthValuePowerSet expectation ) {
+        final int id = slot( pk );
+        if ( id >= 0 )
+            writable( id ).expectations[ id & PAGE_MASK ] = encode( expectation );
+        if ( id < 0 || writeThrough )
+            pk.setExpectation( expectation );
+    }
+
+    public Conclusion getConclusion( @NonNull final PriorKnowledge pk ) {
+        final int id = slot( pk );
+        if ( id < 0 )
+            return pk.getConclusion( );
+        final byte code = page( id ).conclusions[ id & PAGE_MASK ];
+        return code == UNSET ? INITIAL.getConclusion( ) : decode( CONCLUSIONS, code );
+    }
+
+    public void setConclusion( @NonNull final PriorKnowledge pk, final Conclusion conclusion ) {
+        final int id = slot( pk );
+        if ( id >= 0 )
+            writable( id ).conclusions[ id & PAGE_MASK ] = encode( conclusion );
+        if ( id < 0 || writeThrough )
+            pk.setConclusion( conclusion );
+    }
+
+    public boolean getIsSpecific( @NonNull final PriorKnowledge pk ) {
+        final int id = slot( pk );
+        if ( id < 0 )
+            return pk.getIsSpecific( );
+        final byte code = page( id ).specifics[ id & PAGE_MASK ];
+        return code == UNSET ? INITIAL.getIsSpecific( ) : code == TRUE;
+    }
+
+    public void setIsSpecific( @NonNull final PriorKnowledge pk, final boolean isSpecific ) {
+        final int id = slot( pk );
+        if ( id >= 0 )
+            writable( id ).specifics[ id & PAGE_MASK ] = isSpecific ? TRUE : FALSE;
+        if ( id < 0 || writeThrough )
+            pk.setIsSpecific( isSpecific );
+    }
+}
@@ -9,18 +9,31 @@ import fr.cea.ig.grools.fact.*;
 import fr.cea.ig.grools.logic.Conclusion;
 import fr.cea.ig.grools.logic.TruthValuePowerSet;
 import fr.cea.ig.grools.logic.TruthValueSet;
+import lombok.Getter;
 import lombok.NonNull;
+import lombok.Setter;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
 import static fr.cea.ig.grools.logic.Conclusion.ABSENT;
@@ -44,7 +57,9 @@ import static fr.cea.ig.grools.logic.Conclusion.UNEXPLAINED;
  * ReasonerImpl
  */
 public class ReasonerImpl implements Reasoner {
-    private final static DoubleEntryTable< TruthValueSet, TruthValueSet, Conclusion > conclusions = new DoubleEntryTable<>(
+    private final static PredictionHistogram NO_CHILDREN = new PredictionHistogram( );
+    private final static int DEFAULT_PARALLEL_THRESHOLD = 512;
+    private final static EnumDoubleEntryTable< TruthValueSet, TruthValueSet, Conclusion > conclusions = new EnumDoubleEntryTable<>(
             new TruthValueSet[]{ TruthValueSet.T, TruthValueSet.F, TruthValueSet.B, TruthValueSet.N },
             new TruthValueSet[]{ TruthValueSet.T, TruthValueSet.F, TruthValueSet.B, TruthValueSet.N },
             new Conclusion[][]{ // PREDICTION
@@ -54,7 +69,8 @@ public class ReasonerImpl implements Reasoner {
                                 { AMBIGUOUS_PRESENCE    , AMBIGUOUS_ABSENCE     , AMBIGUOUS_CONTRADICTORY   , AMBIGUOUS   },// | BOTH
                                 { UNCONFIRMED_PRESENCE  , UNCONFIRMED_ABSENCE   , UNCONFIRMED_CONTRADICTORY , UNEXPLAINED } // | NONE
             }
-    );
+    ).freeze( );
+    private final static EnumDoubleEntryTable< TruthValuePowerSet, TruthValuePowerSet, Conclusion > conclusionKernel = TruthValueKernel.conclusions( conclusions );
     private final ConceptGraph graph;
     private final Mode mode;
     private final Verbosity verbosity;
@@ -63,6 +79,52 @@ public class ReasonerImpl implements Reasoner {
     private int currentFrame;
     private int nextFrame;
     private boolean hasBeenProceesed;
+    private final LayeredMap< PriorKnowledge, PredictionHistogram > histograms;
+    private boolean histogramsAreValid;
+    // true while histograms are shared with a fork, they are then copied on write
+    private boolean histogramsAreShared;
+    private PriorKnowledgeLevels levels;
+    private ConceptComponents components;
+    // true when every prior-knowledge has been evaluated by the last reasoning
+    private boolean isComplete;
+    // variants histograms, components and values were evaluated with, the mode may be changed by another reasoner
+    private final Set< VariantMode > evaluatedVariants;
+    // prior-knowledges evaluated on demand since the last change
+    private final Set< PriorKnowledge > predictedOnDemand;
+    private final Set< PriorKnowledge > expectedOnDemand;
+    // values computed by this reasoner
+    private final PriorKnowledgeStates states;
+    private final EvidenceFingerprints fingerprints;
+    // key of the graph in the cache, kept along with changes
+    private final ReasoningKeys cacheKeys;
+    // fingerprint, with variants, from which the prediction of a prior-knowledge was evaluated
+    private final LayeredMap< PriorKnowledge, Long > evaluatedFingerprints;
+    // prior-knowledges in name order and version of the knowledge base, null until a state snapshot needs them
+    private PriorKnowledge[] snapshotOrder;
+    private long knowledgeBaseVersion;
+    @Getter
+    @Setter
+    @NonNull
+    private EvaluationMode evaluationMode;
+    @Getter
+    @Setter
+    @NonNull
+    private ForkJoinPool forkJoinPool;
+    @Getter
+    @Setter
+    private int parallelThreshold;
+    // results restored instead of evaluated, null without cache
+    @Getter
+    @Setter
+    private ReasoningCache cache;
+    // predictions by fingerprint, may be shared by many reasoners, null without memo
+    @Getter
+    @Setter
+    private PredictionMemo predictionMemo;
+    // changes are recorded there before being applied, null without journal
+    @Getter
+    @Setter
+    private ReasonerJournal journal;
 
     public ReasonerImpl( ) {
         this( new ConceptGraph( ), Mode.NORMAL, Verbosity.QUIET );
@@ -95,6 +157,27 @@ public class ReasonerImpl implements Reasoner {
         this.currentFrame               = 0;
         this.nextFrame                  = 1;
         this.hasBeenProceesed            = hasBeenProcessed;
+        this.histograms                 = new LayeredMap<>( );
+        this.histogramsAreValid         = false;
+        this.histogramsAreShared        = false;
+        this.levels                     = null;
+        this.components                 = null;
+        this.isComplete                 = false;
+        this.evaluatedVariants          = EnumSet.noneOf( VariantMode.class );
+        this.predictedOnDemand          = new HashSet<>( );
+        this.expectedOnDemand           = new HashSet<>( );
+        this.states                     = new PriorKnowledgeStates( graph, false );
+        this.fingerprints               = new EvidenceFingerprints( graph );
+        this.cacheKeys                  = new ReasoningKeys( graph );
+        this.evaluatedFingerprints      = new LayeredMap<>( );
+        this.snapshotOrder              = null;
+        this.knowledgeBaseVersion       = 0;
+        this.evaluationMode             = EvaluationMode.WORKLIST;
+        this.forkJoinPool               = ForkJoinPool.commonPool( );
+        this.parallelThreshold          = DEFAULT_PARALLEL_THRESHOLD;
+        this.cache                      = null;
+        this.predictionMemo             = null;
+        this.journal                    = null;
 
         predictionstoEvaluates[ currentFrame ]  = new HashSet<>( );
         predictionstoEvaluates[ nextFrame ]     = new HashSet<>( );
@@ -102,33 +185,247 @@ public class ReasonerImpl implements Reasoner {
         expectationstoEvaluates[ nextFrame ]    = new HashSet<>( );
     }
 
-    private void markSpecific( ) {
-        graph.getOutgoing( )
-             .entrySet( )
-             .stream( )
-             .filter( entry -> entry.getKey( ) instanceof PriorKnowledge )
-             .forEach( entry -> {
-                 PriorKnowledge pk = ( PriorKnowledge ) entry.getKey( );
-                 if ( entry.getValue( ).size( ) == 1 )
-                     pk.setIsSpecific( true );
-                 else
-                     pk.setIsSpecific( false );
-             } );
+    /**
+     * Copy-on-write fork of a reasoner, see {@link #copy()}
+     */
+    private ReasonerImpl( @NonNull final ReasonerImpl other ) {
+        this.graph                      = other.graph.fork( );
+        this.mode                       = other.mode;
+        this.verbosity                  = other.verbosity;
+        this.predictionstoEvaluates     = new Set[ 2 ];
+        this.expectationstoEvaluates    = new Set[ 2 ];
+        this.currentFrame               = 0;
+        this.nextFrame                  = 1;
+        this.hasBeenProceesed           = other.hasBeenProceesed;
+        this.histograms                 = other.histograms.fork( );
+        this.histogramsAreValid         = other.histogramsAreValid;
+        this.histogramsAreShared        = true;
+        // levels are never changed once built, components are built again when needed
+        this.levels                     = other.levels;
+        this.components                 = null;
+        this.isComplete                 = other.isComplete;
+        this.evaluatedVariants          = EnumSet.noneOf( VariantMode.class );
+        this.predictedOnDemand          = new HashSet<>( );
+        this.expectedOnDemand           = new HashSet<>( );
+        this.states                     = other.states.fork( graph );
+        this.fingerprints               = other.fingerprints.fork( graph );
+        this.cacheKeys                  = other.cacheKeys.fork( graph );
+        this.evaluatedFingerprints      = other.evaluatedFingerprints.fork( );
+        this.snapshotOrder              = other.snapshotOrder;
+        this.knowledgeBaseVersion       = other.knowledgeBaseVersion;
+        this.evaluationMode             = other.evaluationMode;
+        this.forkJoinPool               = other.forkJoinPool;
+        this.parallelThreshold          = other.parallelThreshold;
+        this.cache                      = other.cache;
+        this.predictionMemo             = other.predictionMemo;
+        // changes of a fork are its own
+        this.journal                    = null;
+
+        other.histogramsAreShared = true;
+        evaluatedVariants.addAll( other.evaluatedVariants );
+        predictionstoEvaluates[ currentFrame ]  = new HashSet<>( );
+        predictionstoEvaluates[ nextFrame ]     = new HashSet<>( );
+        expectationstoEvaluates[ currentFrame ] = new HashSet<>( );
+        expectationstoEvaluates[ nextFrame ]    = new HashSet<>( );
+        for ( int frame = 0; frame < 2; frame++ ) {
+            predictionstoEvaluates[ currentFrame ].addAll( other.predictionstoEvaluates[ frame ] );
+            expectationstoEvaluates[ currentFrame ].addAll( other.expectationstoEvaluates[ frame ] );
+        }
+    }
+
+    /**
+     * @return true if at least one prior-knowledge changed
+     */
+    private boolean markSpecific( ) {
+        boolean hasChanged = false;
+        for ( final Map.Entry< Concept, Set< Relation > > entry : graph.getOutgoing( ).entrySet( ) ) {
+            if ( entry.getKey( ) instanceof PriorKnowledge )
+                hasChanged |= markSpecific( ( PriorKnowledge ) entry.getKey( ), entry.getValue( ) );
+        }
+        return hasChanged;
+    }
+
+    /**
+     * @return true if at least one prior-knowledge of the given components changed
+     */
+    private boolean markSpecific( @NonNull final List< ConceptComponents.Component > components ) {
+        boolean hasChanged = false;
+        for ( final ConceptComponents.Component component : components ) {
+            for ( final Concept concept : component.getMembers( ) ) {
+                final Set< Relation > outgoing = graph.getOutgoing( ).get( concept );
+                if ( concept instanceof PriorKnowledge && outgoing != null )
+                    hasChanged |= markSpecific( ( PriorKnowledge ) concept, outgoing );
+            }
+        }
+        return hasChanged;
+    }
+
+    /**
+     * A prior-knowledge is specific when it is linked to only one other concept
+     * @return true if the flag changed
+     */
+    private boolean markSpecific( @NonNull final PriorKnowledge pk, @NonNull final Set< Relation > outgoing ) {
+        final boolean isSpecific = outgoing.size( ) == 1;
+        if ( states.getIsSpecific( pk ) == isSpecific )
+            return false;
+        states.setIsSpecific( pk, isSpecific );
+        return true;
+    }
+
+    /**
+     * Count children predictions of each prior-knowledge, dispensable children are not counted in dispensable mode
+     */
+    private void buildHistograms( ) {
+        histograms.clear( );
+        for ( final Concept concept : graph.getConcepts( ) ) {
+            if ( !( concept instanceof PriorKnowledge ) || graph.getChildren( concept ).isEmpty( ) )
+                continue;
+            histograms.put( ( PriorKnowledge ) concept, histogram( ( PriorKnowledge ) concept ) );
+        }
+        histogramsAreValid = true;
+        histogramsAreShared = false;
+    }
+
+    /**
+     * @return counts of current children predictions of a prior-knowledge
+     */
+    private PredictionHistogram histogram( @NonNull final PriorKnowledge pk ) {
+        final boolean skipDispensable = mode.getVariants( ).contains( VariantMode.DISPENSABLE );
+        final PredictionHistogram histogram = new PredictionHistogram( );
+        for ( final PriorKnowledge child : graph.getChildren( pk, RelationType.PART ) )
+            if ( !skipDispensable || !child.getIsDispensable( ) )
+                histogram.addPart( states.getPrediction( child ), states.getIsSpecific( child ) );
+        for ( final PriorKnowledge child : graph.getChildren( pk, RelationType.SUBTYPE ) )
+            if ( !skipDispensable || !child.getIsDispensable( ) )
+                histogram.addSubtype( states.getPrediction( child ) );
+        return histogram;
+    }
+
+    /**
+     * Prior-knowledge graph changed, histograms and levels have to be computed again
+     */
+    private void structureHasChanged( ) {
+        histogramsAreValid = false;
+        levels = null;
+        fingerprints.clear( );
+        snapshotOrder = null;
+    }
+
+    /**
+     * A relation changed the terms of both its ends in the cache key, they may also be concepts added along with it
+     */
+    private void invalidateCacheKeys( @NonNull final Relation relation ) {
+        if ( relation.getSource( ) instanceof PriorKnowledge )
+            cacheKeys.invalidate( ( PriorKnowledge ) relation.getSource( ) );
+        if ( relation.getTarget( ) instanceof PriorKnowledge )
+            cacheKeys.invalidate( ( PriorKnowledge ) relation.getTarget( ) );
+    }
+
+    /**
+     * The prediction of a prior-knowledge is not the one evaluated from its fingerprint anymore, the fingerprinted
+     * search has to go down to it again thus its ancestors are forgotten too. An absent record implies absent records of
+     * all ancestors, the walk stops there.
+     */
+    private void forgetEvaluatedFingerprint( @NonNull final PriorKnowledge pk ) {
+        if ( evaluatedFingerprints.remove( pk ) == null )
+            return;
+        for ( final PriorKnowledge parent : graph.getParents( pk ) )
+            forgetEvaluatedFingerprint( parent );
+    }
+
+    /**
+     * Set the prediction of a prior-knowledge and move its value into parents histograms
+     */
+    private void updatePrediction( @NonNull final PriorKnowledge pk, @NonNull final TruthValuePowerSet prediction ) {
+        final TruthValuePowerSet previous = states.getPrediction( pk );
+        if ( !evaluatedFingerprints.isEmpty( ) )
+            forgetEvaluatedFingerprint( pk );
+        states.setPrediction( pk, prediction );
+        if ( !histogramsAreValid || previous == prediction )
+            return;
+        if ( mode.getVariants( ).contains( VariantMode.DISPENSABLE ) && pk.getIsDispensable( ) )
+            return;
+        for ( final PriorKnowledge parent : graph.getParents( pk, RelationType.PART ) )
+            histograms.writable( parent, PredictionHistogram::new ).movePart( previous, prediction, states.getIsSpecific( pk ) );
+        for ( final PriorKnowledge parent : graph.getParents( pk, RelationType.SUBTYPE ) )
+            histograms.writable( parent, PredictionHistogram::new ).moveSubtype( previous, prediction );
+    }
+
+    /**
+     * Histograms, components and values evaluated with other variants are dropped
+     */
+    private void variantsHaveChanged( ) {
+        histogramsAreValid = false;
+        isComplete = false;
+        forgetOnDemand( );
+        if ( components != null )
+            components.markAllDirty( );
+    }
+
+    /**
+     * The mode is shared, with forks for instance, its variants may have been changed by another reasoner
+     * @return true if variants are those of the last evaluation
+     */
+    private boolean hasSameVariants( ) {
+        return evaluatedVariants.equals( mode.getVariants( ) );
+    }
+
+    /**
+     * Drop what was evaluated with other variants then record the current ones
+     */
+    private void checkVariants( ) {
+        if ( hasSameVariants( ) )
+            return;
+        variantsHaveChanged( );
+        evaluatedVariants.clear( );
+        evaluatedVariants.addAll( mode.getVariants( ) );
     }
 
     @Override
     public void addVariantMode( VariantMode... variants ) {
+        variantsHaveChanged( );
         mode.setVariants( Arrays.stream( variants )
                                 .collect( Collectors.toCollection( ( ) -> EnumSet.noneOf( VariantMode.class ) ) ) );
+        journalVariants( );
     }
 
     @Override
     public void removeVariantMode( VariantMode... variants ) {
+        variantsHaveChanged( );
         Set< VariantMode > toRemove = Arrays.stream( variants )
                                             .collect( Collectors.toCollection( ( ) -> EnumSet.noneOf( VariantMode.class ) ) );
         Set< VariantMode > current = mode.getVariants( );
         // reference object
         current.removeAll( toRemove );
+        journalVariants( );
+    }
+
+    private void journalVariants( ) {
+        if ( journal == null )
+            return;
+        try {
+            journal.variants( mode.getVariants( ) );
+        }
+        catch ( IOException e ) {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    /**
+     * Record an insert or a delete in the journal before it is applied
+     */
+    private void journal( final boolean isInsert, @NonNull final Object data ) {
+        if ( journal == null )
+            return;
+        try {
+            if ( isInsert )
+                journal.insert( data, graph );
+            else
+                journal.delete( data );
+        }
+        catch ( IOException e ) {
+            throw new UncheckedIOException( e );
+        }
     }
 
     @Override
@@ -137,38 +434,80 @@ public class ReasonerImpl implements Reasoner {
               .forEach( this::insert );
     }
 
+    /**
+     * Insert a batch in its order, with the same result as inserting each object. The batch is recorded at once in the
+     * journal, buckets of the graph grow once to their final size and the structure of the graph is marked as changed
+     * at most once.
+     */
     @Override
     public void insert( @NonNull final Collection< ? > data ) {
-        data.forEach( this::insert );
+        if ( journal != null ) {
+            try {
+                journal.insert( data, graph );
+            }
+            catch ( IOException e ) {
+                throw new UncheckedIOException( e );
+            }
+        }
+        forgetOnDemand( );
+        graph.reserve( data );
+        boolean hasStructureChanged = false;
+        for ( final Object item : data ) {
+            boolean isStructural = false;
+            if ( item instanceof Concept ) {
+                graph.addConcept( ( Concept ) item );
+                if ( components != null )
+                    components.addConcept( ( Concept ) item );
+                if ( item instanceof PriorKnowledge ) {
+                    cacheKeys.invalidate( ( PriorKnowledge ) item );
+                    isStructural = true;
+                }
+            }
+            if ( item instanceof Relation ) {
+                final Relation relation = ( Relation ) item;
+                graph.addRelation( relation );
+                invalidateCacheKeys( relation );
+                if ( components != null )
+                    components.addRelation( relation );
+                if ( relation.getSource( ) instanceof PriorKnowledge )
+                    isStructural = true;
+                else if ( relation.getTarget( ) instanceof PriorKnowledge )
+                    fingerprints.invalidate( ( PriorKnowledge ) relation.getTarget( ) );
+            }
+            // histograms are dropped before any prediction moves
+            if ( isStructural && !hasStructureChanged ) {
+                structureHasChanged( );
+                hasStructureChanged = true;
+            }
+            if ( item instanceof Relation && hasBeenProceesed )
+                observationHasChanged( ( Relation ) item );
+        }
     }
 
     public void insert( @NonNull final Object data ) {
-        if ( data instanceof Concept )
+        journal( true, data );
+        forgetOnDemand( );
+        if ( data instanceof Concept ) {
             graph.addConcept( ( Concept ) data );
+            if ( data instanceof PriorKnowledge )
+                cacheKeys.invalidate( ( PriorKnowledge ) data );
+            if ( components != null )
+                components.addConcept( ( Concept ) data );
+            if ( data instanceof PriorKnowledge )
+                structureHasChanged( );
+        }
         if ( data instanceof Relation ) {
             final Relation relation = ( Relation ) data;
             graph.addRelation( relation );
-            if ( hasBeenProceesed ) {
-                if ( relation.getSource( ) instanceof Observation ) {
-                    final Observation observation = ( Observation ) relation.getSource( );
-                    assert relation.getTarget( ) instanceof PriorKnowledge;
-                    final PriorKnowledge target = ( PriorKnowledge ) relation.getTarget( );
-                    target.setConclusion( UNEXPLAINED );
-                    switch ( observation.getType( ) ) {
-                        case CURATION:
-                            target.setPrediction( TruthValuePowerSet.n );
-                            predictionstoEvaluates[ currentFrame ].add( target );
-                        case EXPERIMENTATION:
-                            target.setExpectation( TruthValuePowerSet.n );
-                            expectationstoEvaluates[ currentFrame ].add( target );
-                            break;
-                        case COMPUTATION:
-                            target.setPrediction( TruthValuePowerSet.n );
-                            predictionstoEvaluates[ currentFrame ].add( target );
-                            break;
-                    }
-                }
-            }
+            invalidateCacheKeys( relation );
+            if ( components != null )
+                components.addRelation( relation );
+            if ( relation.getSource( ) instanceof PriorKnowledge )
+                structureHasChanged( );
+            else if ( relation.getTarget( ) instanceof PriorKnowledge )
+                fingerprints.invalidate( ( PriorKnowledge ) relation.getTarget( ) );
+            if ( hasBeenProceesed )
+                observationHasChanged( relation );
         }
     }
 
@@ -184,48 +523,299 @@ public class ReasonerImpl implements Reasoner {
     }
 
     public void delete( @NonNull final Object data ) {
-        if ( data instanceof Concept )
-            graph.deleteConcept( ( Concept ) data );
+        journal( false, data );
+        forgetOnDemand( );
+        if ( data instanceof Concept ) {
+            final Concept concept = ( Concept ) data;
+            if ( concept instanceof PriorKnowledge )
+                cacheKeys.invalidate( ( PriorKnowledge ) concept );
+            // relations go along with the concept
+            graph.getIncoming( concept ).forEach( this::invalidateCacheKeys );
+            graph.getOutgoing( concept ).forEach( this::invalidateCacheKeys );
+            graph.deleteConcept( concept );
+            if ( components != null )
+                components.deleteConcept( concept );
+            structureHasChanged( );
+        }
         if ( data instanceof Relation ) {
             final Relation relation = ( Relation ) data;
             graph.deleteRelation( relation );
-            if ( hasBeenProceesed ) {
-                if ( relation.getSource( ) instanceof Observation ) {
-                    final Observation observation = ( Observation ) relation.getSource( );
-                    assert relation.getTarget( ) instanceof PriorKnowledge;
-                    final PriorKnowledge target = ( PriorKnowledge ) relation.getTarget( );
-                    target.setConclusion( UNEXPLAINED );
-                    switch ( observation.getType( ) ) {
-                        case CURATION:
-                            target.setPrediction( TruthValuePowerSet.n );
-                            predictionstoEvaluates[ currentFrame ].add( target );
-                        case EXPERIMENTATION:
-                            target.setExpectation( TruthValuePowerSet.n );
-                            expectationstoEvaluates[ currentFrame ].add( target );
-                            break;
-                        case COMPUTATION:
-                            target.setPrediction( TruthValuePowerSet.n );
-                            predictionstoEvaluates[ currentFrame ].add( target );
-                            break;
-                    }
-                }
+            invalidateCacheKeys( relation );
+            if ( components != null )
+                components.deleteRelation( relation );
+            if ( relation.getSource( ) instanceof PriorKnowledge )
+                structureHasChanged( );
+            else if ( relation.getTarget( ) instanceof PriorKnowledge )
+                fingerprints.invalidate( ( PriorKnowledge ) relation.getTarget( ) );
+            if ( hasBeenProceesed )
+                observationHasChanged( relation );
+        }
+    }
+
+    /**
+     * Delete all observations at once, each one is recorded in the journal. Observations are not part of the
+     * prior-knowledge graph thus its structure is kept, only prior-knowledges they were linked to are evaluated again.
+     */
+    public void deleteObservations( ) {
+        final List< Observation > observations = new ArrayList<>( getObservations( ) );
+        for ( final Observation observation : observations )
+            journal( false, observation );
+        forgetOnDemand( );
+        for ( final Observation observation : observations ) {
+            final List< Relation > relations = new ArrayList<>( graph.getOutgoing( observation ) );
+            relations.addAll( graph.getIncoming( observation ) );
+            // the same as deleting each relation then the concept
+            for ( final Relation relation : relations ) {
+                graph.deleteRelation( relation );
+                invalidateCacheKeys( relation );
+                if ( components != null )
+                    components.deleteRelation( relation );
+                if ( relation.getTarget( ) instanceof PriorKnowledge )
+                    fingerprints.invalidate( ( PriorKnowledge ) relation.getTarget( ) );
+                if ( hasBeenProceesed )
+                    observationHasChanged( relation );
             }
+            graph.deleteConcept( observation );
+            if ( components != null )
+                components.deleteConcept( observation );
         }
     }
 
+    /**
+     * An observation was linked to or unlinked from a prior-knowledge after a reasoning, its values are reset and it is
+     * queued for the next reasoning
+     */
+    private void observationHasChanged( @NonNull final Relation relation ) {
+        if ( !( relation.getSource( ) instanceof Observation ) )
+            return;
+        final Observation observation = ( Observation ) relation.getSource( );
+        assert relation.getTarget( ) instanceof PriorKnowledge;
+        final PriorKnowledge target = ( PriorKnowledge ) relation.getTarget( );
+        states.setConclusion( target, UNEXPLAINED );
+        switch ( observation.getType( ) ) {
+            case CURATION:
+                updatePrediction( target, TruthValuePowerSet.n );
+                predictionstoEvaluates[ currentFrame ].add( target );
+            case EXPERIMENTATION:
+                states.setExpectation( target, TruthValuePowerSet.n );
+                expectationstoEvaluates[ currentFrame ].add( target );
+                break;
+            case COMPUTATION:
+                updatePrediction( target, TruthValuePowerSet.n );
+                predictionstoEvaluates[ currentFrame ].add( target );
+                break;
+        }
+    }
+
+    /**
+     * Copy-on-write fork in O(1): the copy shares the concept graph, computed values and histograms of this reasoner
+     * until one of both changes them, then only touched adjacency buckets, histograms and pages of values are copied.
+     * Inserts and deletes on one reasoner are not seen by the other. Concepts are shared, thus the copy does not write
+     * through and its values are read with {@link #getPrediction(PriorKnowledge)}, {@link #getExpectation(PriorKnowledge)}
+     * and {@link #getConclusion(PriorKnowledge)}. The mode is shared, a change of its variants by one reasoner makes the
+     * next reasoning of the other one evaluate the whole graph again.
+     * @return the copy
+     */
     @Override
     public Reasoner copy( ) {
-        return new ReasonerImpl( graph, mode, verbosity );
+        return new ReasonerImpl( this );
     }
 
+    /**
+     * Write the concept graph, the mode and the values of this reasoner in the format of {@link KnowledgeBaseCodec}.
+     * The file is written aside then moved in place, a failed save keeps the previous file.
+     * @param file where to write
+     * @throws IOException on write failure
+     */
     @Override
     public void save( @NonNull File file ) throws IOException {
-        final FileOutputStream fos = new FileOutputStream( file );
-        final ObjectOutputStream oos = new ObjectOutputStream( fos );
-        oos.writeBoolean( hasBeenProceesed );
-        oos.writeObject( mode );
-        oos.writeObject( verbosity );
-        oos.writeObject( graph );
+        save( file, mode.getVariants( ) );
+    }
+
+    /**
+     * @param variants variants of the mode to write, the mode itself is shared with forks
+     */
+    private void save( @NonNull final File file, @NonNull final Set< VariantMode > variants ) throws IOException {
+        final File partial = new File( file.getPath( ) + ".tmp" );
+        try ( BinaryWriter out = BinaryWriter.open( partial ) ) {
+            KnowledgeBaseCodec.writeHeader( out, KnowledgeBaseCodec.REASONER );
+            out.writeBoolean( hasBeenProceesed );
+            out.writeString( mode.name( ) );
+            out.writeVarInt( variants.size( ) );
+            for ( final VariantMode variant : variants )
+                out.writeString( variant.name( ) );
+            out.writeString( verbosity.name( ) );
+            out.writeString( evaluationMode.name( ) );
+            final Concept[] concepts = KnowledgeBaseCodec.writeGraph( out, graph );
+            KnowledgeBaseCodec.writeStates( out, concepts, states );
+            KnowledgeBaseCodec.writeTrailer( out );
+        }
+        catch ( IOException | RuntimeException e ) {
+            Files.deleteIfExists( partial.toPath( ) );
+            throw e;
+        }
+        Files.move( partial.toPath( ), file.toPath( ), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+    }
+
+    /**
+     * Save a point-in-time view of this reasoner without blocking it: a copy-on-write fork is taken in O(1), see
+     * {@link #copy()}, then written by the executor in the format of {@link #save(File)}. Inserts, deletes and
+     * reasoning can go on meanwhile, they are not seen by the checkpoint. Checkpoints to the same file must not
+     * overlap, a new one has to wait for the previous one.
+     * @param file     where to write
+     * @param executor runs the write, it should allow blocking I/O
+     * @return completes when the file is in place, exceptionally with an {@link UncheckedIOException} on failure
+     */
+    public CompletableFuture< Void > checkpoint( @NonNull final File file, @NonNull final Executor executor ) {
+        final ReasonerImpl view = new ReasonerImpl( this );
+        final Set< VariantMode > variants = EnumSet.noneOf( VariantMode.class );
+        variants.addAll( mode.getVariants( ) );
+        return CompletableFuture.runAsync( ( ) -> {
+            try {
+                view.save( file, variants );
+            }
+            catch ( IOException e ) {
+                throw new UncheckedIOException( e );
+            }
+        }, executor );
+    }
+
+    /**
+     * Read a reasoner written by {@link #save(File)}. Its values are those saved, a later reasoning evaluates the
+     * whole graph again. Variants belong to the mode, which is shared by every reasoner of this mode, thus they are
+     * not changed by a load: the mode must already have the saved variants.
+     * @param file a saved reasoner
+     * @return the reasoner
+     * @throws IOException on read failure, if the file is not a saved reasoner or if it was saved with other variants
+     *                     than those of its mode
+     */
+    public static ReasonerImpl load( @NonNull final File file ) throws IOException {
+        try ( BinaryReader in = BinaryReader.open( file ) ) {
+            KnowledgeBaseCodec.readHeader( in, KnowledgeBaseCodec.REASONER );
+            final boolean hasBeenProcessed = in.readBoolean( );
+            final Mode mode;
+            final Set< VariantMode > variants = EnumSet.noneOf( VariantMode.class );
+            final Verbosity verbosity;
+            final EvaluationMode evaluationMode;
+            try {
+                mode = Mode.valueOf( in.readString( ) );
+                for ( int i = in.readCount( VariantMode.values( ).length ); i > 0; i-- )
+                    variants.add( VariantMode.valueOf( in.readString( ) ) );
+                verbosity = Verbosity.valueOf( in.readString( ) );
+                evaluationMode = EvaluationMode.valueOf( in.readString( ) );
+            }
+            catch ( IllegalArgumentException e ) {
+                throw new StreamCorruptedException( e.getMessage( ) );
+            }
+            if ( !variants.equals( mode.getVariants( ) ) )
+                throw new IOException( "Saved with variants " + variants + " of " + mode + ", not " + mode.getVariants( ) );
+            final ConceptGraph graph = new ConceptGraph( );
+            final Concept[] concepts = KnowledgeBaseCodec.readGraph( in, graph );
+            final ReasonerImpl reasoner = new ReasonerImpl( graph, mode, verbosity, hasBeenProcessed );
+            reasoner.setEvaluationMode( evaluationMode );
+            reasoner.states.ensureCapacity( );
+            KnowledgeBaseCodec.readStates( in, concepts, reasoner.states );
+            KnowledgeBaseCodec.readTrailer( in );
+            return reasoner;
+        }
+    }
+
+    private PriorKnowledge[] snapshotOrder( ) {
+        if ( snapshotOrder == null ) {
+            snapshotOrder = KnowledgeBaseCodec.sortedPriorKnowledges( graph );
+            knowledgeBaseVersion = KnowledgeBaseCodec.knowledgeBaseVersion( graph, snapshotOrder );
+        }
+        return snapshotOrder;
+    }
+
+    /**
+     * @return hash of prior-knowledges and of relations between them, a state snapshot can only be loaded by a
+     * reasoner with the same version
+     */
+    public long getKnowledgeBaseVersion( ) {
+        snapshotOrder( );
+        return knowledgeBaseVersion;
+    }
+
+    /**
+     * Write a state snapshot: observations, their relations, the variants of the mode and the values of
+     * prior-knowledges, without the prior-knowledge graph. See {@link KnowledgeBaseCodec}.
+     * The file is written aside then moved in place, a failed save keeps the previous file.
+     * @param file where to write
+     * @throws IOException on write failure
+     * @throws IllegalArgumentException if an observation is related to a concept which is not a prior-knowledge
+     */
+    public void saveState( @NonNull final File file ) throws IOException {
+        final PriorKnowledge[] pks = snapshotOrder( );
+        final File partial = new File( file.getPath( ) + ".tmp" );
+        try ( BinaryWriter out = BinaryWriter.open( partial ) ) {
+            KnowledgeBaseCodec.writeHeader( out, KnowledgeBaseCodec.STATE );
+            out.writeLong( knowledgeBaseVersion );
+            out.writeBoolean( hasBeenProceesed );
+            out.writeVarInt( mode.getVariants( ).size( ) );
+            for ( final VariantMode variant : mode.getVariants( ) )
+                out.writeString( variant.name( ) );
+            out.writeVarInt( pks.length );
+            KnowledgeBaseCodec.writeObservations( out, graph, pks );
+            KnowledgeBaseCodec.writePackedStates( out, pks, states );
+            KnowledgeBaseCodec.writeTrailer( out );
+        }
+        catch ( IOException | RuntimeException e ) {
+            Files.deleteIfExists( partial.toPath( ) );
+            throw e;
+        }
+        Files.move( partial.toPath( ), file.toPath( ), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+    }
+
+    /**
+     * Read a state snapshot written by {@link #saveState(File)} on the same knowledge base. Observations of this
+     * reasoner are replaced by those of the snapshot, values of prior-knowledges are those saved and a later reasoning
+     * evaluates the whole graph again. The file is read entirely before this reasoner is changed. Replaced observations
+     * are recorded in the journal as deletes and inserts, values are not: a replay gives the observations of the
+     * snapshot and a later reasoning evaluates them.
+     * @param file a state snapshot
+     * @throws IOException on read failure, if the file is not a state snapshot or if it belongs to another version of
+     *                     the knowledge base
+     */
+    public void loadState( @NonNull final File file ) throws IOException {
+        final PriorKnowledge[] pks = snapshotOrder( );
+        final boolean hasBeenProcessed;
+        final Set< VariantMode > variants = EnumSet.noneOf( VariantMode.class );
+        final List< Object > observations;
+        final byte[][] packed;
+        try ( BinaryReader in = BinaryReader.open( file ) ) {
+            KnowledgeBaseCodec.readHeader( in, KnowledgeBaseCodec.STATE );
+            final long version = in.readLong( );
+            if ( version != knowledgeBaseVersion )
+                throw new IOException( String.format( "State of knowledge base %016x, not %016x", version, knowledgeBaseVersion ) );
+            hasBeenProcessed = in.readBoolean( );
+            try {
+                for ( int i = in.readCount( VariantMode.values( ).length ); i > 0; i-- )
+                    variants.add( VariantMode.valueOf( in.readString( ) ) );
+            }
+            catch ( IllegalArgumentException e ) {
+                throw new StreamCorruptedException( e.getMessage( ) );
+            }
+            if ( in.readCount( Integer.MAX_VALUE ) != pks.length )
+                throw new StreamCorruptedException( "Bad number of prior-knowledges" );
+            observations = KnowledgeBaseCodec.readObservations( in, pks );
+            packed = KnowledgeBaseCodec.readPackedStates( in, pks.length );
+            KnowledgeBaseCodec.readTrailer( in );
+        }
+
+        deleteObservations( );
+        insert( observations );
+        addVariantMode( variants.toArray( new VariantMode[ 0 ] ) );
+        states.ensureCapacity( );
+        KnowledgeBaseCodec.restorePackedStates( packed, pks, states );
+        markSpecific( );
+        hasBeenProceesed = hasBeenProcessed;
+        histogramsAreValid = false;
+        isComplete = false;
+        evaluatedFingerprints.clear( );
+        if ( components != null )
+            components.markAllDirty( );
+        clearPending( );
     }
 
     @Override
@@ -262,36 +852,28 @@ public class ReasonerImpl implements Reasoner {
 
     @Override
     public Set< PriorKnowledge > getLeavesPriorKnowledges( ) {
-        return getConcepts( ).stream( )
-                             .filter( concept -> concept instanceof PriorKnowledge )
-                             .filter( concept -> !graph.hasIncomingRelation( concept, PriorKnowledge.class ) )
-                             .map( concept -> ( PriorKnowledge ) concept )
-                             .collect( Collectors.toSet( ) );
+        return graph.getLeaves( );
     }
 
     @Override
     public Set< PriorKnowledge > getTopsPriorKnowledges( ) {
-        return getConcepts( ).stream( )
-                             .filter( concept -> concept instanceof PriorKnowledge )
-                             .filter( concept -> !graph.hasOutGoingRelation( concept, PriorKnowledge.class ) )
-                             .map( concept -> ( PriorKnowledge ) concept )
-                             .collect( Collectors.toSet( ) );
+        return graph.getTops( );
     }
 
+    /**
+     * @param priorKnowledge a prior-knowledge
+     * @return read-only view of prior-knowledges linked as target to the given one
+     */
     public Set< PriorKnowledge > getParentsPriorKnowledge( @NonNull final PriorKnowledge priorKnowledge ) {
-        return graph.getOutgoing( priorKnowledge )
-                    .stream( )
-                    .filter( relation -> relation.getTarget( ) instanceof PriorKnowledge )
-                    .map( relation -> ( PriorKnowledge ) relation.getTarget( ) )
-                    .collect( Collectors.toSet( ) );
+        return graph.getParents( priorKnowledge );
     }
 
+    /**
+     * @param priorKnowledge a prior-knowledge
+     * @return read-only view of prior-knowledges linked as source to the given one
+     */
     public Set< PriorKnowledge > getChildrensPriorKnowledge( @NonNull final PriorKnowledge priorKnowledge ) {
-        return graph.getIncoming( priorKnowledge )
-                    .stream( )
-                    .filter( relation -> relation.getSource( ) instanceof PriorKnowledge )
-                    .map( relation -> ( PriorKnowledge ) relation.getSource( ) )
-                    .collect( Collectors.toSet( ) );
+        return graph.getChildren( priorKnowledge );
     }
 
     @Override
@@ -332,39 +914,19 @@ public class ReasonerImpl implements Reasoner {
     }
 
     public Set< PriorKnowledge > getPartOf( @NonNull final PriorKnowledge priorKnowledge ) {
-        return graph.getIncoming( priorKnowledge )
-                    .stream( )
-                    .filter( relation -> relation.getType( ) == RelationType.PART )
-                    .filter( relation -> relation.getSource( ) instanceof PriorKnowledge )
-                    .map( relation -> ( PriorKnowledge ) relation.getSource( ) )
-                    .collect( Collectors.toSet( ) );
+        return graph.getChildren( priorKnowledge, RelationType.PART );
     }
 
     public Set< PriorKnowledge > getHasPart( @NonNull final PriorKnowledge priorKnowledge ) {
-        return graph.getOutgoing( priorKnowledge )
-                    .stream( )
-                    .filter( relation -> relation.getType( ) == RelationType.PART )
-                    .filter( relation -> relation.getTarget( ) instanceof PriorKnowledge )
-                    .map( relation -> ( PriorKnowledge ) relation.getTarget( ) )
-                    .collect( Collectors.toSet( ) );
+        return graph.getParents( priorKnowledge, RelationType.PART );
     }
 
     public Set< PriorKnowledge > getSubtypeOf( @NonNull final PriorKnowledge priorKnowledge ) {
-        return graph.getIncoming( priorKnowledge )
-                    .stream( )
-                    .filter( relation -> relation.getType( ) == RelationType.SUBTYPE )
-                    .filter( relation -> relation.getSource( ) instanceof PriorKnowledge )
-                    .map( relation -> ( PriorKnowledge ) relation.getSource( ) )
-                    .collect( Collectors.toSet( ) );
+        return graph.getChildren( priorKnowledge, RelationType.SUBTYPE );
     }
 
     public Set< PriorKnowledge > getHasSubtype( @NonNull final PriorKnowledge priorKnowledge ) {
-        return graph.getOutgoing( priorKnowledge )
-                    .stream( )
-                    .filter( relation -> relation.getType( ) == RelationType.SUBTYPE )
-                    .filter( relation -> relation.getTarget( ) instanceof PriorKnowledge )
-                    .map( relation -> ( PriorKnowledge ) relation.getTarget( ) )
-                    .collect( Collectors.toSet( ) );
+        return graph.getParents( priorKnowledge, RelationType.SUBTYPE );
     }
 
     @Override
@@ -402,30 +964,14 @@ public class ReasonerImpl implements Reasoner {
     }
 
     public Set< Observation > getPredictionsRelatedToConcept( @NonNull final Concept target ) {
-        final Set< Observation > observations = new HashSet<>( );
-        if ( target != null ) {
-            graph.getIncoming( target )
-                 .stream( )
-                 .map( relation -> relation.getSource( ) )
-                 .filter( concept -> concept instanceof Observation )
-                 .map( concept -> ( Observation ) concept )
-                 .filter( observation -> observation.getType( ).equals( ObservationType.COMPUTATION ) || observation.getType( ).equals( ObservationType.CURATION ) )
-                 .collect( Collectors.toCollection( ( ) -> observations ) );
-        }
+        final Set< Observation > observations = new HashSet<>( graph.getObservations( target, ObservationType.COMPUTATION ) );
+        observations.addAll( graph.getObservations( target, ObservationType.CURATION ) );
         return observations;
     }
 
     public Set< Observation > getExpectationsRelatedToConcept( @NonNull final Concept target ) {
-        final Set< Observation > observations = new HashSet<>( );
-        if ( target != null ) {
-            graph.getIncoming( target )
-                 .stream( )
-                 .map( relation -> relation.getSource( ) )
-                 .filter( concept -> concept instanceof Observation )
-                 .map( concept -> ( Observation ) concept )
-                 .filter( observation -> observation.getType( ).equals( ObservationType.EXPERIMENTATION ) || observation.getType( ).equals( ObservationType.CURATION ) )
-                 .collect( Collectors.toCollection( ( ) -> observations ) );
-        }
+        final Set< Observation > observations = new HashSet<>( graph.getObservations( target, ObservationType.EXPERIMENTATION ) );
+        observations.addAll( graph.getObservations( target, ObservationType.CURATION ) );
         return observations;
     }
 
@@ -449,23 +995,676 @@ public class ReasonerImpl implements Reasoner {
         return subGraph;
     }
 
+    /**
+     * @return the prediction of a prior-knowledge without child prior-knowledge
+     */
+    private TruthValuePowerSet leafPrediction( @NonNull final PriorKnowledge leaf ) {
+        return TruthValueKernel.union( graph.getDirectPrediction( leaf ) );
+    }
+
+    /**
+     * @return the prediction of a prior-knowledge made from its children and its related observations
+     */
+    private TruthValuePowerSet prediction( @NonNull final PriorKnowledge pk ) {
+        // children predictions are counted by value (dispensable children are not counted in dispensable mode)
+        return prediction( pk, histograms.getOrDefault( pk, NO_CHILDREN ) );
+    }
+
+    /**
+     * @param histogram counts of children predictions of the prior-knowledge
+     */
+    private TruthValuePowerSet prediction( @NonNull final PriorKnowledge pk, @NonNull final PredictionHistogram histogram ) {
+        // truth value set from observations related to the prior-knowledge
+        final TruthValueSet directPredictions = graph.getDirectPrediction( pk );
+        // if a prior-knowledge is predicted {{t}} and specific then specific rules is enabled
+        // Priority (1)part, (2)subtype
+        TruthValuePowerSet result = histogram.aggregate( mode.getVariants( ).contains( VariantMode.SPECIFIC ) );
+
+        //TODO flag relation qualifier
+
+        if ( directPredictions != TruthValueSet.N ) {
+            result = TruthValueKernel.remove( result, TruthValueSet.N );
+            result = TruthValueKernel.add( result, directPredictions );
+        }
+        return result;
+    }
+
+    /**
+     * @return the expectation of a prior-knowledge without parent prior-knowledge
+     */
+    private TruthValuePowerSet topExpectation( @NonNull final PriorKnowledge top ) {
+        return TruthValueKernel.union( graph.getDirectExpectation( top ) );
+    }
+
+    /**
+     * @return the expectation of a prior-knowledge made from its parents and its related observations
+     */
+    private TruthValuePowerSet expectation( @NonNull final PriorKnowledge pk ) {
+        final TruthValueSet directExpectations = graph.getDirectExpectation( pk );
+        TruthValuePowerSet result = null;
+
+        if ( mode.getVariants( ).contains( VariantMode.DISPENSABLE ) && pk.getIsDispensable( ) ) {
+            result = TruthValuePowerSet.N;
+        }
+        else {
+            // sets of truth value power sets are encoded as masks, see TruthValueKernel
+            final Set< PriorKnowledge > hasSubtype = getHasSubtype( pk );
+            int expectationPart = 0;
+            for ( final PriorKnowledge parent : getHasPart( pk ) )
+                expectationPart |= TruthValueKernel.mask( states.getExpectation( parent ) );
+            boolean subtypeIsExpectedFalse = false;
+            for ( final PriorKnowledge parent : hasSubtype )
+                subtypeIsExpectedFalse |= states.getExpectation( parent ) == TruthValuePowerSet.F;
+            if ( subtypeIsExpectedFalse )
+                result = TruthValuePowerSet.F;
+            else {
+                for ( final PriorKnowledge parent : hasSubtype ) {
+                    int brothersPredictions = 0;
+                    for ( final PriorKnowledge brother : getChildrensPriorKnowledge( parent ) )
+                        brothersPredictions |= TruthValueKernel.mask( states.getPrediction( brother ) );
+                    if ( states.getPrediction( pk ) == TruthValueKernel.choice( brothersPredictions ) )
+                        expectationPart |= TruthValueKernel.mask( states.getExpectation( parent ) );
+                }
+                result = TruthValueKernel.merge( expectationPart );
+                if ( result == TruthValuePowerSet.n )
+                    result = TruthValuePowerSet.N;
+            }
+        }
+
+        if ( directExpectations != TruthValueSet.N ) {
+            result = TruthValueKernel.remove( result, TruthValueSet.N );
+            result = TruthValueKernel.add( result, directExpectations );
+        }
+        return result;
+    }
+
+    /**
+     * @return the conclusion from current expectation and prediction of a prior-knowledge
+     */
+    private Conclusion conclusion( @NonNull final PriorKnowledge pk ) {
+        return conclusion( states.getExpectation( pk ), states.getPrediction( pk ) );
+    }
+
+    /**
+     * @return the conclusion from an expectation and a prediction
+     */
+    static Conclusion conclusion( @NonNull final TruthValuePowerSet expectation, @NonNull final TruthValuePowerSet prediction ) {
+        return conclusionKernel.get( expectation, prediction );
+    }
+
+    private void forgetOnDemand( ) {
+        predictedOnDemand.clear( );
+        expectedOnDemand.clear( );
+    }
+
+    private boolean hasPending( ) {
+        for ( int frame = 0; frame < 2; frame++ )
+            if ( !predictionstoEvaluates[ frame ].isEmpty( ) || !expectationstoEvaluates[ frame ].isEmpty( ) )
+                return true;
+        return false;
+    }
+
+    /**
+     * Evaluate the prediction of a prior-knowledge after those of its descendants. Its specific flag is marked here, and
+     * its children are counted here when histograms are not valid, thus only reached prior-knowledges are visited.
+     */
+    private void predictOnDemand( @NonNull final PriorKnowledge pk ) {
+        if ( !predictedOnDemand.add( pk ) )
+            return;
+        // histograms of parents count the previous flag
+        if ( markSpecific( pk, graph.getOutgoing( pk ) ) )
+            histogramsAreValid = false;
+        for ( final PriorKnowledge child : graph.getChildren( pk ) )
+            predictOnDemand( child );
+        final TruthValuePowerSet result;
+        if ( graph.getLeaves( ).contains( pk ) )
+            result = leafPrediction( pk );
+        else
+            result = histogramsAreValid ? prediction( pk ) : prediction( pk, histogram( pk ) );
+        if ( states.getPrediction( pk ) != result ) {
+            updatePrediction( pk, result );
+            // a later reasoning has to propagate this change
+            if ( hasBeenProceesed )
+                predictionstoEvaluates[ currentFrame ].add( pk );
+        }
+    }
+
+    /**
+     * Evaluate the expectation and the conclusion of a prior-knowledge after expectations of its ancestors and
+     * predictions of its brothers
+     */
+    private void expectOnDemand( @NonNull final PriorKnowledge pk ) {
+        if ( !expectedOnDemand.add( pk ) )
+            return;
+        predictOnDemand( pk );
+        for ( final PriorKnowledge parent : graph.getParents( pk ) )
+            expectOnDemand( parent );
+        for ( final PriorKnowledge parent : graph.getParents( pk, RelationType.SUBTYPE ) )
+            for ( final PriorKnowledge brother : graph.getChildren( parent ) )
+                predictOnDemand( brother );
+        final TruthValuePowerSet result = graph.getTops( ).contains( pk ) ? topExpectation( pk ) : expectation( pk );
+        if ( states.getExpectation( pk ) != result ) {
+            states.setExpectation( pk, result );
+            if ( hasBeenProceesed )
+                expectationstoEvaluates[ currentFrame ].add( pk );
+        }
+        states.setConclusion( pk, conclusion( pk ) );
+    }
+
+    /**
+     * Conclusions of some prior-knowledges without reasoning on the whole graph. Only prior-knowledges they depend on
+     * are evaluated: descendants for predictions, ancestors and brothers for expectations. Specific flags and children
+     * counts are also only computed for them. Evaluated prior-knowledges are kept until the next insert, delete or
+     * reasoning.
+     * @param names names of prior-knowledges, other names are ignored
+     * @return conclusion by prior-knowledge name
+     */
+    public Map< String, Conclusion > queryConclusions( @NonNull final String... names ) {
+        // values are final when the last reasoning evaluated every prior-knowledge and nothing changed since
+        checkVariants( );
+        final boolean isUpToDate = isUpToDate( );
+        states.ensureCapacity( );
+        final Map< String, Conclusion > result = new LinkedHashMap<>( );
+        for ( final String name : names ) {
+            final PriorKnowledge pk = getPriorKnowledge( name );
+            if ( pk == null )
+                continue;
+            if ( !isUpToDate )
+                expectOnDemand( pk );
+            result.put( name, states.getConclusion( pk ) );
+        }
+        return result;
+    }
+
+    /**
+     * @param name name of a prior-knowledge
+     * @return its conclusion, see {@link #queryConclusions(String...)}, or null if there is no such prior-knowledge
+     */
+    public Conclusion queryConclusion( @NonNull final String name ) {
+        return queryConclusions( name ).get( name );
+    }
+
+    /**
+     * @return prediction of a prior-knowledge computed by this reasoner
+     */
+    public TruthValuePowerSet getPrediction( @NonNull final PriorKnowledge pk ) {
+        return states.getPrediction( pk );
+    }
+
+    /**
+     * @return expectation of a prior-knowledge computed by this reasoner
+     */
+    public TruthValuePowerSet getExpectation( @NonNull final PriorKnowledge pk ) {
+        return states.getExpectation( pk );
+    }
+
+    /**
+     * @return conclusion of a prior-knowledge computed by this reasoner
+     */
+    public Conclusion getConclusion( @NonNull final PriorKnowledge pk ) {
+        return states.getConclusion( pk );
+    }
+
+    /**
+     * @return specific flag of a prior-knowledge as marked by this reasoner
+     */
+    boolean getIsSpecific( @NonNull final PriorKnowledge pk ) {
+        return states.getIsSpecific( pk );
+    }
+
+    /**
+     * @return true if computed values are also set on prior-knowledges, false by default
+     */
+    public boolean isWriteThrough( ) {
+        return states.isWriteThrough( );
+    }
+
+    /**
+     * Without write through, the default, prior-knowledges are left untouched and values are read from this reasoner
+     * only, thus many reasoners can share the same concept graph. Write through is meant for callers which read values
+     * from prior-knowledges, such a reasoner should not share its graph.
+     */
+    public void setWriteThrough( final boolean writeThrough ) {
+        states.setWriteThrough( writeThrough );
+    }
+
     @Override
     public void reasoning( ) {
+        forgetOnDemand( );
+        checkVariants( );
+        states.ensureCapacity( );
+        if ( journal != null ) {
+            try {
+                journal.sync( );
+            }
+            catch ( IOException e ) {
+                throw new UncheckedIOException( e );
+            }
+        }
+        // records are only kept up to date by fingerprinted reasoning
+        if ( evaluationMode != EvaluationMode.FINGERPRINTED )
+            evaluatedFingerprints.clear( );
+        if ( evaluationMode == EvaluationMode.PARTITIONED ) {
+            partitionedReasoning( );
+            return;
+        }
+        if ( evaluationMode == EvaluationMode.INCREMENTAL && canPropagateDelta( ) ) {
+            deltaReasoning( );
+            return;
+        }
+        // the worklist may keep initial values, only level ordered results are cached
+        final ReasoningCache.Key key = ( cache == null || evaluationMode == EvaluationMode.WORKLIST ) ? null : cacheKeys.key( mode );
+        if ( key != null && restore( cache.get( key ) ) ) {
+            histogramsAreValid = false;
+            markSpecific( );
+            hasBeenProceesed = true;
+            if ( components != null )
+                components.markAllDirty( );
+            clearPending( );
+            isComplete = true;
+            return;
+        }
         // deep search and mark could be done once other time just trigger and set expected value inside insert/delete method
         // if( !hasBeenProceesed )
-        markSpecific( );
+        if ( markSpecific( ) || !histogramsAreValid )
+            buildHistograms( );
+        hasBeenProceesed = true;
+        // values of the whole graph may change, components have to be evaluated again if used later
+        if ( components != null )
+            components.markAllDirty( );
+        evaluateWholeGraph( );
+        if ( key != null )
+            cache.put( key, ReasoningCache.entry( PriorKnowledgeLevels.priorKnowledges( graph.getConcepts( ) ), states ) );
+    }
+
+    /**
+     * Write values of a cache entry, histograms do not follow thus they have to be marked invalid by the caller
+     * @param entry an entry or null
+     * @return false if there is no entry or if one of its prior-knowledges is missing, nothing is written then
+     */
+    private boolean restore( final ReasoningCache.Entry entry ) {
+        if ( entry == null )
+            return false;
+        final PriorKnowledge[] pks = new PriorKnowledge[ entry.size( ) ];
+        for ( int i = 0; i < pks.length; i++ ) {
+            pks[ i ] = getPriorKnowledge( entry.getName( i ) );
+            if ( pks[ i ] == null )
+                return false;
+        }
+        for ( int i = 0; i < pks.length; i++ ) {
+            states.setPrediction( pks[ i ], entry.getPrediction( i ) );
+            states.setExpectation( pks[ i ], entry.getExpectation( i ) );
+            states.setConclusion( pks[ i ], entry.getConclusion( i ) );
+        }
+        evaluatedFingerprints.clear( );
+        return true;
+    }
+
+    private void evaluateWholeGraph( ) {
+        switch ( evaluationMode ) {
+            case LEVEL_ORDERED:
+            case INCREMENTAL:
+                levelOrderedReasoning( null );
+                break;
+            case PARALLEL_LEVEL_ORDERED:
+                levelOrderedReasoning( forkJoinPool );
+                break;
+            case FINGERPRINTED:
+                fingerprintedReasoning( );
+                break;
+            case WORKLIST:
+            default:
+                isComplete = false;
+                worklistReasoning( );
+        }
+    }
+
+    /**
+     * Evaluate each prior-knowledge once: predictions from bottom to top of the prior-knowledge graph, then
+     * expectations and conclusions from top to bottom. A prior-knowledge is evaluated when all prior-knowledges it
+     * depends on are final, thus prior-knowledges of a same level are independent and can be evaluated in parallel.
+     * Predictions of a level are written once the whole level is evaluated as they move counters of shared parents.
+     * @param pool pool used to split levels larger than the parallel threshold, null to work sequentially
+     */
+    private void levelOrderedReasoning( final ForkJoinPool pool ) {
+        if ( levels == null )
+            levels = new PriorKnowledgeLevels( graph );
+        evaluate( levels, pool );
+        clearPending( );
+        isComplete = true;
+    }
+
+    /**
+     * Evaluate predictions only beneath prior-knowledges whose evidence fingerprint changed since their prediction was
+     * evaluated: the search goes down from tops and stops at unchanged fingerprints, skipping whole unchanged
+     * sub-graphs. A changed prior-knowledge takes its prediction from the memo when its fingerprint is known, otherwise
+     * it is evaluated, level by level. Expectations depend on ancestors thus they are evaluated for every
+     * prior-knowledge, from top to bottom. A graph with a cycle has no fingerprint, it is evaluated level by level.
+     */
+    private void fingerprintedReasoning( ) {
+        if ( levels == null )
+            levels = new PriorKnowledgeLevels( graph );
+        if ( !levels.isAcyclic( ) ) {
+            evaluatedFingerprints.clear( );
+            levelOrderedReasoning( null );
+            return;
+        }
+        final long variants = EvidenceFingerprints.variants( mode );
+        final List< Set< PriorKnowledge > > queue = new ArrayList<>( );
+        final Set< PriorKnowledge > visited = new HashSet<>( );
+        final Deque< PriorKnowledge > stack = new ArrayDeque<>( );
+        if ( !levels.getTopDown( ).isEmpty( ) )
+            stack.addAll( levels.getTopDown( ).get( 0 ) );
+        while ( !stack.isEmpty( ) ) {
+            final PriorKnowledge pk = stack.pop( );
+            if ( !visited.add( pk ) )
+                continue;
+            final Long evaluated = evaluatedFingerprints.get( pk );
+            if ( evaluated != null && evaluated == ReasoningCache.combine( fingerprints.get( pk ), variants ) )
+                continue;
+            enqueue( queue, levels.getBottomUpLevel( pk ), pk );
+            stack.addAll( graph.getChildren( pk ) );
+        }
+        for ( final Set< PriorKnowledge > level : queue ) {
+            if ( level == null )
+                continue;
+            // prior-knowledges of a level do not depend on each other
+            for ( final PriorKnowledge pk : level ) {
+                final long fingerprint = ReasoningCache.combine( fingerprints.get( pk ), variants );
+                TruthValuePowerSet prediction = ( predictionMemo == null ) ? null : predictionMemo.get( fingerprint );
+                if ( prediction == null ) {
+                    prediction = graph.getLeaves( ).contains( pk ) ? leafPrediction( pk ) : prediction( pk );
+                    if ( predictionMemo != null )
+                        predictionMemo.put( fingerprint, prediction );
+                }
+                if ( states.getPrediction( pk ) != prediction )
+                    updatePrediction( pk, prediction );
+                // after the update, which forgets the previous record
+                evaluatedFingerprints.put( pk, fingerprint );
+            }
+        }
+        evaluateExpectations( levels, null );
+        clearPending( );
+        isComplete = true;
+    }
+
+    /**
+     * @return true when the last reasoning evaluated every prior-knowledge and nothing changed since
+     */
+    boolean isUpToDate( ) {
+        return isComplete && !hasPending( ) && hasSameVariants( );
+    }
+
+    /**
+     * Changes since the last reasoning can be propagated alone when the last reasoning evaluated every
+     * prior-knowledge, and when only observations have been inserted or deleted since
+     */
+    boolean canPropagateDelta( ) {
+        return isComplete && hasBeenProceesed && histogramsAreValid && levels != null && levels.isAcyclic( );
+    }
+
+    /**
+     * Make later changes propagated alone by {@link EvaluationMode#INCREMENTAL}, whatever the evaluation mode of this
+     * reasoner which is left unchanged: levels and histograms are built, and every prior-knowledge is evaluated level
+     * by level unless the last reasoning already did, by partitions or from the cache for instance.
+     * @throws IllegalArgumentException if the prior-knowledge graph has a cycle, changes can not be propagated alone
+     */
+    void prepareDeltaReasoning( ) {
+        checkVariants( );
+        states.ensureCapacity( );
+        if ( levels == null )
+            levels = new PriorKnowledgeLevels( graph );
+        if ( !levels.isAcyclic( ) )
+            throw new IllegalArgumentException( "Changes of a cyclic prior-knowledge graph can not be propagated alone" );
+        if ( canPropagateDelta( ) && isUpToDate( ) )
+            return;
+        forgetOnDemand( );
+        if ( markSpecific( ) || !histogramsAreValid )
+            buildHistograms( );
+        hasBeenProceesed = true;
+        if ( isUpToDate( ) )
+            return;
+        evaluatedFingerprints.clear( );
+        if ( components != null )
+            components.markAllDirty( );
+        levelOrderedReasoning( null );
+    }
+
+    private static void enqueue( @NonNull final List< Set< PriorKnowledge > > queue, final int level, @NonNull final PriorKnowledge pk ) {
+        if ( level < 0 )
+            return;
+        while ( queue.size( ) <= level )
+            queue.add( null );
+        Set< PriorKnowledge > pks = queue.get( level );
+        if ( pks == null ) {
+            pks = new HashSet<>( );
+            queue.set( level, pks );
+        }
+        pks.add( pk );
+    }
+
+    /**
+     * Propagate from prior-knowledges touched by insert/delete since the last reasoning: predictions upward then
+     * expectations and conclusions downward. A prior-knowledge is evaluated once, after all its evaluated
+     * dependencies, and propagation stops wherever a value does not change.
+     */
+    private void deltaReasoning( ) {
+        final List< Set< PriorKnowledge > > predictionQueue = new ArrayList<>( );
+        final List< Set< PriorKnowledge > > expectationQueue = new ArrayList<>( );
+        // values of touched prior-knowledges have been reset by insert/delete, they are propagated even if unchanged
+        final Set< PriorKnowledge > predictionSeeds = new HashSet<>( );
+        final Set< PriorKnowledge > expectationSeeds = new HashSet<>( );
+        for ( int frame = 0; frame < 2; frame++ ) {
+            predictionSeeds.addAll( predictionstoEvaluates[ frame ] );
+            expectationSeeds.addAll( expectationstoEvaluates[ frame ] );
+        }
+        clearPending( );
+        for ( final PriorKnowledge pk : predictionSeeds ) {
+            enqueue( predictionQueue, levels.getBottomUpLevel( pk ), pk );
+            enqueue( expectationQueue, levels.getTopDownLevel( pk ), pk );
+        }
+        for ( final PriorKnowledge pk : expectationSeeds )
+            enqueue( expectationQueue, levels.getTopDownLevel( pk ), pk );
+
+        for ( int level = 0; level < predictionQueue.size( ); level++ ) {
+            if ( predictionQueue.get( level ) == null )
+                continue;
+            for ( final PriorKnowledge pk : predictionQueue.get( level ) ) {
+                final TruthValuePowerSet result = graph.getLeaves( ).contains( pk ) ? leafPrediction( pk ) : prediction( pk );
+                if ( states.getPrediction( pk ) == result && !predictionSeeds.contains( pk ) )
+                    continue;
+                updatePrediction( pk, result );
+                enqueue( expectationQueue, levels.getTopDownLevel( pk ), pk );
+                for ( final PriorKnowledge parent : graph.getParents( pk ) ) {
+                    enqueue( predictionQueue, levels.getBottomUpLevel( parent ), parent );
+                    // expectation of a subtype depends on predictions of all its brothers
+                    for ( final PriorKnowledge brother : graph.getChildren( parent, RelationType.SUBTYPE ) )
+                        enqueue( expectationQueue, levels.getTopDownLevel( brother ), brother );
+                }
+            }
+        }
+
+        for ( int level = 0; level < expectationQueue.size( ); level++ ) {
+            if ( expectationQueue.get( level ) == null )
+                continue;
+            for ( final PriorKnowledge pk : expectationQueue.get( level ) ) {
+                final TruthValuePowerSet result = graph.getTops( ).contains( pk ) ? topExpectation( pk ) : expectation( pk );
+                if ( states.getExpectation( pk ) != result || expectationSeeds.contains( pk ) ) {
+                    states.setExpectation( pk, result );
+                    for ( final PriorKnowledge child : graph.getChildren( pk ) )
+                        enqueue( expectationQueue, levels.getTopDownLevel( child ), child );
+                }
+                states.setConclusion( pk, conclusion( pk ) );
+            }
+        }
+    }
+
+    /**
+     * Evaluate only components which changed since the last reasoning, each one level by level. Components do not
+     * share any prior-knowledge thus they are evaluated in parallel, a lone component is split by level instead.
+     */
+    private void partitionedReasoning( ) {
+        if ( components == null )
+            components = new ConceptComponents( graph );
+        final List< ConceptComponents.Component > dirty = components.takeDirty( );
+        // copy on write of shared histograms is not thread-safe, components may be evaluated in parallel
+        if ( markSpecific( dirty ) || !histogramsAreValid || histogramsAreShared )
+            buildHistograms( );
         hasBeenProceesed = true;
+
+        // components found in the cache are restored, histograms are then built again by the next reasoning
+        boolean hasRestored = false;
+        if ( cache != null ) {
+            final List< ConceptComponents.Component > missed = new ArrayList<>( );
+            for ( final ConceptComponents.Component component : dirty ) {
+                final ReasoningCache.Key key = cacheKeys.key( mode, component.getMembers( ) );
+                if ( restore( cache.get( key ) ) )
+                    hasRestored = true;
+                else
+                    missed.add( component );
+            }
+            dirty.clear( );
+            dirty.addAll( missed );
+        }
+
+        if ( dirty.size( ) == 1 )
+            evaluate( dirty.get( 0 ).getLevels( graph ), forkJoinPool );
+        else {
+            int size = 0;
+            for ( final ConceptComponents.Component component : dirty )
+                size += component.getMembers( ).size( );
+            ParallelRange.forEach( size < parallelThreshold ? null : forkJoinPool, dirty.size( ), 1,
+                                   i -> evaluate( dirty.get( i ).getLevels( graph ), null ) );
+        }
+        if ( cache != null ) {
+            for ( final ConceptComponents.Component component : dirty )
+                cache.put( cacheKeys.key( mode, component.getMembers( ) ),
+                           ReasoningCache.entry( PriorKnowledgeLevels.priorKnowledges( component.getMembers( ) ), states ) );
+        }
+        histogramsAreValid &= !hasRestored;
+        clearPending( );
+        isComplete = true;
+    }
+
+    /**
+     * Evaluate predictions then expectations and conclusions of the given prior-knowledges
+     * @param levels prior-knowledges by level
+     * @param pool   pool used to split levels larger than the parallel threshold, null to work sequentially
+     */
+    private void evaluate( @NonNull final PriorKnowledgeLevels levels, final ForkJoinPool pool ) {
+        evaluatePredictions( levels, pool );
+        evaluateExpectations( levels, pool );
+    }
+
+    /**
+     * Evaluate predictions of the given prior-knowledges, from bottom to top
+     */
+    private void evaluatePredictions( @NonNull final PriorKnowledgeLevels levels, final ForkJoinPool pool ) {
+        final List< List< PriorKnowledge > > bottomUp = levels.getBottomUp( );
+        for ( int index = 0; index < bottomUp.size( ); index++ ) {
+            final List< PriorKnowledge > level = bottomUp.get( index );
+            if ( !levels.isAcyclic( ) && index == bottomUp.size( ) - 1 ) {
+                evaluateCyclicPredictions( level );
+                continue;
+            }
+            final TruthValuePowerSet[] results = new TruthValuePowerSet[ level.size( ) ];
+            ParallelRange.forEach( pool, level.size( ), parallelThreshold, i -> {
+                final PriorKnowledge pk = level.get( i );
+                results[ i ] = graph.getLeaves( ).contains( pk ) ? leafPrediction( pk ) : prediction( pk );
+            } );
+            for ( int i = 0; i < results.length; i++ ) {
+                final PriorKnowledge pk = level.get( i );
+                if ( states.getPrediction( pk ) != results[ i ] )
+                    updatePrediction( pk, results[ i ] );
+            }
+        }
+    }
+
+    /**
+     * Evaluate expectations and conclusions of the given prior-knowledges, from top to bottom. Prior-knowledges of the
+     * extra level of a cyclic graph read expectations of each other, they are evaluated until none changes.
+     */
+    private void evaluateExpectations( @NonNull final PriorKnowledgeLevels levels, final ForkJoinPool pool ) {
+        final List< List< PriorKnowledge > > topDown = levels.getTopDown( );
+        for ( int index = 0; index < topDown.size( ); index++ ) {
+            final List< PriorKnowledge > level = topDown.get( index );
+            if ( !levels.isAcyclic( ) && index == topDown.size( ) - 1 ) {
+                evaluateCyclicExpectations( level );
+                continue;
+            }
+            ParallelRange.forEach( pool, level.size( ), parallelThreshold, i -> {
+                final PriorKnowledge pk = level.get( i );
+                states.setExpectation( pk, graph.getTops( ).contains( pk ) ? topExpectation( pk ) : expectation( pk ) );
+                states.setConclusion( pk, conclusion( pk ) );
+            } );
+        }
+    }
+
+    /**
+     * Evaluate predictions of the prior-knowledges of a cycle as a worklist: each one once, then again whenever the
+     * prediction of one of its children in the cycle changed, until none changes. The result is a fixpoint which does
+     * not depend on the order of the cycle.
+     */
+    private void evaluateCyclicPredictions( @NonNull final List< PriorKnowledge > cycle ) {
+        final Set< PriorKnowledge > members = new HashSet<>( cycle );
+        final Set< PriorKnowledge > queued = new HashSet<>( cycle );
+        final Deque< PriorKnowledge > queue = new ArrayDeque<>( cycle );
+        while ( !queue.isEmpty( ) ) {
+            final PriorKnowledge pk = queue.poll( );
+            queued.remove( pk );
+            final TruthValuePowerSet result = graph.getLeaves( ).contains( pk ) ? leafPrediction( pk ) : prediction( pk );
+            if ( states.getPrediction( pk ) == result )
+                continue;
+            updatePrediction( pk, result );
+            for ( final PriorKnowledge parent : graph.getParents( pk ) )
+                if ( members.contains( parent ) && queued.add( parent ) )
+                    queue.add( parent );
+        }
+    }
+
+    /**
+     * Evaluate expectations and conclusions of the prior-knowledges of a cycle as a worklist: each one once, then
+     * again whenever the expectation of one of its parents in the cycle changed, until none changes
+     */
+    private void evaluateCyclicExpectations( @NonNull final List< PriorKnowledge > cycle ) {
+        final Set< PriorKnowledge > members = new HashSet<>( cycle );
+        final Set< PriorKnowledge > queued = new HashSet<>( cycle );
+        final Deque< PriorKnowledge > queue = new ArrayDeque<>( cycle );
+        while ( !queue.isEmpty( ) ) {
+            final PriorKnowledge pk = queue.poll( );
+            queued.remove( pk );
+            final TruthValuePowerSet result = graph.getTops( ).contains( pk ) ? topExpectation( pk ) : expectation( pk );
+            final boolean hasChanged = states.getExpectation( pk ) != result;
+            states.setExpectation( pk, result );
+            states.setConclusion( pk, conclusion( pk ) );
+            if ( !hasChanged )
+                continue;
+            for ( final PriorKnowledge child : graph.getChildren( pk ) )
+                if ( members.contains( child ) && queued.add( child ) )
+                    queue.add( child );
+        }
+    }
+
+    /**
+     * Pending prior-knowledges from insert/delete are evaluated by a full pass
+     */
+    private void clearPending( ) {
+        for ( int frame = 0; frame < 2; frame++ ) {
+            predictionstoEvaluates[ frame ].clear( );
+            expectationstoEvaluates[ frame ].clear( );
+        }
+    }
+
+    private void worklistReasoning( ) {
         boolean isReasoning = true;
         final Set< PriorKnowledge > tops = getTopsPriorKnowledges( );
         final Set< PriorKnowledge > leaves = getLeavesPriorKnowledges( );
 
 
         for ( final PriorKnowledge leaf : leaves ) {
-            final Set< Observation > predictions = getPredictionsRelatedToConcept( leaf );
-            final TruthValueSet truthValueSet = Observation.union( predictions );
-            final TruthValuePowerSet result = TruthValueSet.union( truthValueSet );
-            if ( leaf.getPrediction( ) != result ) {
-                leaf.setPrediction( result );
+            final TruthValuePowerSet result = leafPrediction( leaf );
+            if ( states.getPrediction( leaf ) != result ) {
+                updatePrediction( leaf, result );
                 predictionstoEvaluates[ currentFrame ].addAll( getParentsPriorKnowledge( leaf ) );
             }
         }
@@ -478,70 +1677,9 @@ public class ReasonerImpl implements Reasoner {
             if ( it.hasNext( ) ) {
                 // take a prior-knowledge "pk" to evaluate
                 final PriorKnowledge pk = it.next( );
-                // get related observations
-                final Set< Observation > observations = getPredictionsRelatedToConcept( pk );
-                // make truth value set from observations related to the prior-knowledge
-                final TruthValueSet directPredictions = Observation.union( observations );
-                TruthValuePowerSet result = null;
-
-                // get child prior-knowledge linked by a relation "is part of" pk
-                final Set< PriorKnowledge > partOf = getPartOf( pk );
-                // get child prior-knowledge linked by a relation "is subtype of" pk
-                final Set< PriorKnowledge > subtypeOf = getSubtypeOf( pk );
-
-                if ( mode.getVariants( ).contains( VariantMode.DISPENSABLE ) ) {
-                    // select dispensable prior-knowledges to be removed from the list part-of prior-knowledge
-                    final Set< PriorKnowledge > toRemovePartPk = partOf.stream( )
-                                                                       .filter( priorknowledge -> priorknowledge.getIsDispensable( ) )
-                                                                       .collect( Collectors.toSet( ) );
-                    partOf.removeAll( toRemovePartPk );
-                    // select dispensable prior-knowledges to be removed from the list subtype-of prior-knowledge
-                    final Set< PriorKnowledge > toRemoveSubtypePK = subtypeOf.stream( )
-                                                                             .filter( priorknowledge -> priorknowledge.getIsDispensable( ) )
-                                                                             .collect( Collectors.toSet( ) );
-                    subtypeOf.removeAll( toRemoveSubtypePK );
-                }
-
-                // make truth value power set from observations related to the list "is part of" pk
-                final Set< TruthValuePowerSet > predictionsPart = partOf.stream( )
-                                                                        .map( PriorKnowledge::getPrediction )
-                                                                        .collect( Collectors.toSet( ) );
-
-                // make truth value power set from observations related to the list "is subtype of" pk
-                final Set< TruthValuePowerSet > predictionsSubtype = subtypeOf.stream( )
-                                                                              .map( PriorKnowledge::getPrediction )
-                                                                              .collect( Collectors.toSet( ) );
-
-                if ( mode.getVariants( ).contains( VariantMode.SPECIFIC ) ) {
-                    // if a prior-knowledge is predicted {{t}} and specific then specific rules is enabled
-                    boolean enableSpecificRule = partOf.stream( )
-                                                       .filter( priorknowledge -> priorknowledge.getIsSpecific( ) )
-                                                       .filter( priorknowledge -> priorknowledge.getPrediction( ) == TruthValuePowerSet.T )
-                                                       .findFirst( )
-                                                       .isPresent( );
-                    if ( enableSpecificRule )
-                        predictionsPart.remove( TruthValuePowerSet.N );
-                }
-
-                // Priority (1)part, (2)subtype
-
-                // merge truth value power set from children to one truth value power set
-                final TruthValuePowerSet tmp = TruthValuePowerSet.merge( predictionsPart );
-
-                // add the truth value power set with others which was linked by a relation "is subtype of" pk
-                predictionsSubtype.add( tmp );
-                // choose the greatest truth value from children
-                result = TruthValuePowerSet.choice( predictionsSubtype );
-
-                //TODO flag relation qualifier
-
-                if ( directPredictions != TruthValueSet.N ) {
-                    result = TruthValuePowerSet.remove( result, TruthValueSet.N );
-                    result = TruthValuePowerSet.add( result, directPredictions );
-                }
-
-                if ( pk.getPrediction( ) != result ) {
-                    pk.setPrediction( result );
+                final TruthValuePowerSet result = prediction( pk );
+                if ( states.getPrediction( pk ) != result ) {
+                    updatePrediction( pk, result );
                     predictionstoEvaluates[ nextFrame ].addAll( getParentsPriorKnowledge( pk ) );
                 }
             }
@@ -564,20 +1702,11 @@ public class ReasonerImpl implements Reasoner {
         predictionstoEvaluates[ nextFrame ] = new HashSet<>( );
 
         for ( final PriorKnowledge top : tops ) {
-            final Set< Observation > expectations = getExpectationsRelatedToConcept( top );
-            final TruthValueSet truthValueSet = Observation.union( expectations );
-            final TruthValuePowerSet result = TruthValueSet.union( truthValueSet );
-            if ( top.getExpectation( ) != result ) {
-                top.setExpectation( result );
+            final TruthValuePowerSet result = topExpectation( top );
+            if ( states.getExpectation( top ) != result ) {
+                states.setExpectation( top, result );
                 expectationstoEvaluates[ currentFrame ].addAll( getChildrensPriorKnowledge( top ) );
-                try {
-                    Conclusion conclusion = conclusions.get( Reasoner.expectationToTruthValueSet( top.getExpectation( ) ),
-                                                             Reasoner.predictionToTruthValueSet( top.getPrediction( ) ) );
-                    top.setConclusion( conclusion );
-                }
-                catch ( Exception e ) {
-                    e.printStackTrace( ); // should never come
-                }
+                states.setConclusion( top, conclusion( top ) );
             }
         }
 
@@ -588,57 +1717,11 @@ public class ReasonerImpl implements Reasoner {
         while ( isReasoning ) {
             if ( it.hasNext( ) ) {
                 final PriorKnowledge pk = it.next( );
-                final Set< Observation > observations = getExpectationsRelatedToConcept( pk );
-                final TruthValueSet directExpectations = Observation.union( observations );
-                TruthValuePowerSet result = null;
-
-                if ( mode.getVariants( ).contains( VariantMode.DISPENSABLE ) && pk.getIsDispensable( ) ) {
-                    result = TruthValuePowerSet.N;
-                }
-                else {
-                    final Set< PriorKnowledge > hasPart = getHasPart( pk );
-                    final Set< PriorKnowledge > hasSubtype = getHasSubtype( pk );
-                    final Set< TruthValuePowerSet > expectationPart = hasPart.stream( )
-                                                                             .map( PriorKnowledge::getExpectation )
-                                                                             .collect( Collectors.toSet( ) );
-                    final Set< TruthValuePowerSet > expectationSubtype = hasSubtype.stream( )
-                                                                                   .map( PriorKnowledge::getExpectation )
-                                                                                   .collect( Collectors.toSet( ) );
-                    if ( expectationSubtype.contains( TruthValuePowerSet.F ) )
-                        result = TruthValuePowerSet.F;
-                    else {
-                        for ( final PriorKnowledge parent : hasSubtype ) {
-                            final Set< PriorKnowledge > brothers = getChildrensPriorKnowledge( parent );
-
-                            final Set< TruthValuePowerSet > brothersPredictions = brothers.stream( )
-                                                                                          .map( PriorKnowledge::getPrediction )
-                                                                                          .collect( Collectors.toSet( ) );
-                            if ( pk.getPrediction( ) == TruthValuePowerSet.choice( brothersPredictions ) )
-                                expectationPart.add( parent.getExpectation( ) );
-                        }
-                        result = TruthValuePowerSet.merge( expectationPart );
-                        if ( result == TruthValuePowerSet.n )
-                            result = TruthValuePowerSet.N;
-                    }
-                }
-
-                if ( directExpectations != TruthValueSet.N ) {
-                    result = TruthValuePowerSet.remove( result, TruthValueSet.N );
-                    result = TruthValuePowerSet.add( result, directExpectations );
-                }
-
-                if ( pk.getExpectation( ) != result ) {
-                    pk.setExpectation( result );
-                    Conclusion conclusion = null;
-                    try {
-                        conclusion = conclusions.get( Reasoner.expectationToTruthValueSet( pk.getExpectation( ) ),
-                                                      Reasoner.predictionToTruthValueSet( pk.getPrediction( ) ) );
-                        expectationstoEvaluates[ nextFrame ].addAll( getChildrensPriorKnowledge( pk ) );
-                    }
-                    catch ( Exception e ) {
-                        e.printStackTrace( ); // should never come
-                    }
-                    pk.setConclusion( conclusion );
+                final TruthValuePowerSet result = expectation( pk );
+                if ( states.getExpectation( pk ) != result ) {
+                    states.setExpectation( pk, result );
+                    states.setConclusion( pk, conclusion( pk ) );
+                    expectationstoEvaluates[ nextFrame ].addAll( getChildrensPriorKnowledge( pk ) );
                 }
             }
             else if ( expectationstoEvaluates[ nextFrame ].isEmpty( ) )
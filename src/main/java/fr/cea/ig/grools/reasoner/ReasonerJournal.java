@@ -0,0 +1,398 @@
+package fr.cea.ig.grools.reasoner;
+
+import fr.cea.ig.grools.VariantMode;
+import fr.cea.ig.grools.fact.Concept;
+import fr.cea.ig.grools.fact.Observation;
+import fr.cea.ig.grools.fact.ObservationImpl;
+import fr.cea.ig.grools.fact.ObservationType;
+import fr.cea.ig.grools.fact.PriorKnowledge;
+import fr.cea.ig.grools.fact.PriorKnowledgeImpl;
+import fr.cea.ig.grools.fact.Relation;
+import fr.cea.ig.grools.fact.RelationImpl;
+import fr.cea.ig.grools.logic.TruthValue;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * ReasonerJournal
+ * <p>
+ * Write-ahead journal of a reasoner: each insert, delete and change of variants goes through
+ * {@link ReasonerImpl#setJournal(ReasonerJournal)} as one record appended before the change is applied. Records are
+ * framed by their length and a CRC32, a record torn by a crash is detected and cut when the journal is replayed.
+ * Appends are buffered and forced to the disk every given number of records, by {@link #sync()} and at each
+ * {@link ReasonerImpl#reasoning()}, thus a crash loses at most the records since the last sync.
+ * <p>
+ * A reasoner is recovered by loading its last snapshot, see {@link ReasonerImpl#load(File)}, then by replaying the
+ * journal. {@link #compact(ReasonerImpl, File)} writes a new snapshot and empties the journal, a crash between both
+ * steps leaves a journal whose records are already held by the snapshot. Replaying them leads to the same state: inserts
+ * of known concepts and relations are skipped, as well as relations whose source or target is missing, these concepts
+ * are deleted by a later record of the journal. Concepts are found by name when records are replayed.
+ */
+public final class ReasonerJournal implements Closeable {
+    private static final int INSERT_CONCEPT = 1;
+    private static final int DELETE_CONCEPT = 2;
+    private static final int INSERT_RELATION = 3;
+    private static final int DELETE_RELATION = 4;
+    private static final int VARIANTS = 5;
+    // kinds of concept
+    private static final int PRIOR_KNOWLEDGE = 0;
+    private static final int OBSERVATION = 1;
+    private static final int MAX_RECORD = 1 << 24;
+    private static final ObservationType[] OBSERVATION_TYPES = ObservationType.values( );
+    private static final TruthValue[] TRUTH_VALUES = TruthValue.values( );
+    private static final VariantMode[] VARIANT_MODES = VariantMode.values( );
+
+    private final File file;
+    private final int syncInterval;
+    private final ByteArrayOutputStream record;
+    private final DataOutputStream payload;
+    private final CRC32 crc;
+    private FileChannel channel;
+    private DataOutputStream out;
+    // records appended since the last sync
+    private int pending;
+    @Getter
+    private long recordsCount;
+
+    /**
+     * @param file         journal, records are appended to it
+     * @param syncInterval number of records between two forced writes to the disk, 1 to force each record
+     * @throws IOException if the journal can not be opened
+     */
+    public ReasonerJournal( @NonNull final File file, final int syncInterval ) throws IOException {
+        if ( syncInterval < 1 )
+            throw new IllegalArgumentException( "Sync interval lower than 1: " + syncInterval );
+        this.file = file;
+        this.syncInterval = syncInterval;
+        this.record = new ByteArrayOutputStream( 256 );
+        this.payload = new DataOutputStream( record );
+        this.crc = new CRC32( );
+        this.pending = 0;
+        this.recordsCount = 0;
+        open( );
+    }
+
+    private void open( ) throws IOException {
+        channel = FileChannel.open( file.toPath( ), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND );
+        out = new DataOutputStream( new BufferedOutputStream( Channels.newOutputStream( channel ), 1 << 16 ) );
+    }
+
+    private static void writeString( @NonNull final DataOutputStream out, final String value ) throws IOException {
+        if ( value == null ) {
+            out.writeInt( -1 );
+            return;
+        }
+        final byte[] bytes = value.getBytes( StandardCharsets.UTF_8 );
+        out.writeInt( bytes.length );
+        out.write( bytes );
+    }
+
+    private static String readString( @NonNull final DataInputStream in ) throws IOException {
+        final int length = in.readInt( );
+        if ( length == -1 )
+            return null;
+        if ( length < 0 || length > MAX_RECORD )
+            throw new StreamCorruptedException( "Bad string length: " + length );
+        final byte[] bytes = new byte[ length ];
+        in.readFully( bytes );
+        return new String( bytes, StandardCharsets.UTF_8 );
+    }
+
+    private static < T > T value( @NonNull final T[] values, final int index ) throws IOException {
+        if ( index < 0 || index >= values.length )
+            throw new StreamCorruptedException( "Bad index: " + index );
+        return values[ index ];
+    }
+
+    /**
+     * Frame the current payload and append it
+     */
+    private void append( ) throws IOException {
+        crc.reset( );
+        crc.update( record.toByteArray( ), 0, record.size( ) );
+        out.writeInt( record.size( ) );
+        out.writeInt( ( int ) crc.getValue( ) );
+        record.writeTo( out );
+        record.reset( );
+        recordsCount++;
+        if ( ++pending >= syncInterval )
+            sync( );
+    }
+
+    private void writeConcept( @NonNull final Concept concept ) throws IOException {
+        payload.writeByte( INSERT_CONCEPT );
+        if ( concept instanceof PriorKnowledge )
+            payload.writeByte( PRIOR_KNOWLEDGE );
+        else if ( concept instanceof Observation )
+            payload.writeByte( OBSERVATION );
+        else
+            throw new IllegalArgumentException( "Unsupported concept: " + concept.getClass( ).getName( ) );
+        writeString( payload, concept.getName( ) );
+        writeString( payload, concept.getLabel( ) );
+        writeString( payload, concept.getDescription( ) );
+        writeString( payload, concept.getSource( ) );
+        if ( concept instanceof PriorKnowledge )
+            payload.writeBoolean( ( ( PriorKnowledge ) concept ).getIsDispensable( ) );
+        else {
+            payload.writeByte( ( ( Observation ) concept ).getType( ).ordinal( ) );
+            payload.writeByte( ( ( Observation ) concept ).getTruthValue( ).ordinal( ) );
+        }
+        append( );
+    }
+
+    private void writeRelation( final int operation, @NonNull final Relation relation ) throws IOException {
+        payload.writeByte( operation );
+        writeString( payload, relation.getSource( ).getName( ) );
+        writeString( payload, relation.getTarget( ).getName( ) );
+        writeString( payload, relation.getType( ).getDeclaringClass( ).getName( ) );
+        writeString( payload, relation.getType( ).name( ) );
+        append( );
+    }
+
+    /**
+     * Record an insert before it is applied to the graph. Concepts of a relation which are not in the graph yet are
+     * recorded first, as the graph adds them with the relation.
+     */
+    synchronized void insert( @NonNull final Object data, @NonNull final ConceptGraph graph ) throws IOException {
+        if ( data instanceof Concept )
+            writeConcept( ( Concept ) data );
+        else if ( data instanceof Relation ) {
+            final Relation relation = ( Relation ) data;
+            if ( graph.getConcept( relation.getSource( ).getName( ) ) != relation.getSource( ) )
+                writeConcept( relation.getSource( ) );
+            if ( graph.getConcept( relation.getTarget( ).getName( ) ) != relation.getTarget( ) )
+                writeConcept( relation.getTarget( ) );
+            writeRelation( INSERT_RELATION, relation );
+        }
+    }
+
+    /**
+     * Record a batch of inserts before it is applied to the graph, a concept is recorded once even when many relations
+     * of the batch bring it
+     */
+    synchronized void insert( @NonNull final Collection< ? > data, @NonNull final ConceptGraph graph ) throws IOException {
+        final Set< Concept > written = Collections.newSetFromMap( new IdentityHashMap<>( ) );
+        for ( final Object item : data ) {
+            if ( item instanceof Concept ) {
+                written.add( ( Concept ) item );
+                writeConcept( ( Concept ) item );
+            }
+            else if ( item instanceof Relation ) {
+                final Relation relation = ( Relation ) item;
+                if ( graph.getConcept( relation.getSource( ).getName( ) ) != relation.getSource( ) && written.add( relation.getSource( ) ) )
+                    writeConcept( relation.getSource( ) );
+                if ( graph.getConcept( relation.getTarget( ).getName( ) ) != relation.getTarget( ) && written.add( relation.getTarget( ) ) )
+                    writeConcept( relation.getTarget( ) );
+                writeRelation( INSERT_RELATION, relation );
+            }
+        }
+    }
+
+    /**
+     * Record a delete before it is applied to the graph
+     */
+    synchronized void delete( @NonNull final Object data ) throws IOException {
+        if ( data instanceof Concept ) {
+            payload.writeByte( DELETE_CONCEPT );
+            writeString( payload, ( ( Concept ) data ).getName( ) );
+            append( );
+        }
+        else if ( data instanceof Relation )
+            writeRelation( DELETE_RELATION, ( Relation ) data );
+    }
+
+    /**
+     * Record the variants of the mode after a change
+     */
+    synchronized void variants( @NonNull final Set< VariantMode > variants ) throws IOException {
+        payload.writeByte( VARIANTS );
+        payload.writeByte( variants.size( ) );
+        for ( final VariantMode variant : variants )
+            payload.writeByte( variant.ordinal( ) );
+        append( );
+    }
+
+    /**
+     * Force appended records to the disk
+     * @throws IOException on write failure
+     */
+    public synchronized void sync( ) throws IOException {
+        out.flush( );
+        if ( pending > 0 )
+            channel.force( false );
+        pending = 0;
+    }
+
+    /**
+     * Write a snapshot of the reasoner then empty the journal. The reasoner must not change meanwhile.
+     * @param reasoner the reasoner written to this journal
+     * @param snapshot where to write the snapshot
+     * @throws IOException on write failure, the journal is kept then
+     */
+    public synchronized void compact( @NonNull final ReasonerImpl reasoner, @NonNull final File snapshot ) throws IOException {
+        sync( );
+        reasoner.save( snapshot );
+        channel.truncate( 0 );
+        channel.force( true );
+    }
+
+    @Override
+    public synchronized void close( ) throws IOException {
+        try {
+            sync( );
+        }
+        finally {
+            out.close( );
+        }
+    }
+
+    /**
+     * Apply records of a journal to a reasoner, a torn or corrupted tail is cut from the file
+     * @param file     a journal
+     * @param reasoner the reasoner loaded from the snapshot the journal follows
+     * @return number of replayed records
+     * @throws IOException if the journal can not be read or if a record is unknown
+     */
+    public static long replay( @NonNull final File file, @NonNull final ReasonerImpl reasoner ) throws IOException {
+        if ( !file.isFile( ) )
+            return 0;
+        final ReasonerJournal journal = reasoner.getJournal( );
+        reasoner.setJournal( null );
+        long count = 0;
+        long valid = 0;
+        try ( DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( file ), 1 << 16 ) ) ) {
+            final CRC32 crc = new CRC32( );
+            while ( true ) {
+                final byte[] bytes;
+                try {
+                    final int length = in.readInt( );
+                    final int checksum = in.readInt( );
+                    if ( length < 0 || length > MAX_RECORD )
+                        break;
+                    bytes = new byte[ length ];
+                    in.readFully( bytes );
+                    crc.reset( );
+                    crc.update( bytes, 0, bytes.length );
+                    if ( ( int ) crc.getValue( ) != checksum )
+                        break;
+                }
+                catch ( EOFException e ) {
+                    break;
+                }
+                apply( new DataInputStream( new ByteArrayInputStream( bytes ) ), reasoner );
+                valid += 2 * Integer.BYTES + bytes.length;
+                count++;
+            }
+        }
+        finally {
+            reasoner.setJournal( journal );
+        }
+        if ( valid < file.length( ) ) {
+            try ( FileChannel channel = FileChannel.open( file.toPath( ), StandardOpenOption.WRITE ) ) {
+                channel.truncate( valid );
+            }
+        }
+        return count;
+    }
+
+    @SuppressWarnings( { "unchecked", "rawtypes" } )
+    private static Enum< ? > type( @NonNull final String className, @NonNull final String name ) throws IOException {
+        try {
+            final Class< ? > type = Class.forName( className );
+            if ( type.isEnum( ) )
+                return Enum.valueOf( ( Class ) type, name );
+        }
+        catch ( ClassNotFoundException | IllegalArgumentException e ) {
+            // reported below
+        }
+        throw new StreamCorruptedException( "Unknown relation type: " + className + "." + name );
+    }
+
+    private static void apply( @NonNull final DataInputStream in, @NonNull final ReasonerImpl reasoner ) throws IOException {
+        final int operation = in.readUnsignedByte( );
+        switch ( operation ) {
+            case INSERT_CONCEPT: {
+                final int kind = in.readUnsignedByte( );
+                final String name = readString( in );
+                final String label = readString( in );
+                final String description = readString( in );
+                final String source = readString( in );
+                // an insert already held by the snapshot
+                if ( reasoner.getConcept( name ) != null )
+                    break;
+                if ( kind == PRIOR_KNOWLEDGE )
+                    reasoner.insert( PriorKnowledgeImpl.builder( )
+                                                       .name( name )
+                                                       .label( label )
+                                                       .description( description )
+                                                       .source( source )
+                                                       .isDispensable( in.readBoolean( ) )
+                                                       .build( ) );
+                else if ( kind == OBSERVATION )
+                    reasoner.insert( ObservationImpl.builder( )
+                                                    .name( name )
+                                                    .label( label )
+                                                    .description( description )
+                                                    .source( source )
+                                                    .type( value( OBSERVATION_TYPES, in.readUnsignedByte( ) ) )
+                                                    .truthValue( value( TRUTH_VALUES, in.readUnsignedByte( ) ) )
+                                                    .build( ) );
+                else
+                    throw new StreamCorruptedException( "Bad concept kind: " + kind );
+                break;
+            }
+            case DELETE_CONCEPT: {
+                final Concept concept = reasoner.getConcept( readString( in ) );
+                if ( concept != null )
+                    reasoner.delete( concept );
+                break;
+            }
+            case INSERT_RELATION:
+            case DELETE_RELATION: {
+                final Concept source = reasoner.getConcept( readString( in ) );
+                final Concept target = reasoner.getConcept( readString( in ) );
+                final Enum< ? > type = type( readString( in ), readString( in ) );
+                // a concept deleted later, the record is held by a compacted snapshot
+                if ( source == null || target == null )
+                    break;
+                final Relation relation = reasoner.getRelation( source, target, type );
+                if ( operation == INSERT_RELATION && relation == null )
+                    reasoner.insert( new RelationImpl( source, target, type ) );
+                else if ( operation == DELETE_RELATION && relation != null )
+                    reasoner.delete( relation );
+                break;
+            }
+            case VARIANTS: {
+                final VariantMode[] variants = new VariantMode[ in.readUnsignedByte( ) ];
+                for ( int i = 0; i < variants.length; i++ )
+                    variants[ i ] = value( VARIANT_MODES, in.readUnsignedByte( ) );
+                reasoner.addVariantMode( variants );
+                break;
+            }
+            default:
+                throw new StreamCorruptedException( "Bad record: " + operation );
+        }
+    }
+}
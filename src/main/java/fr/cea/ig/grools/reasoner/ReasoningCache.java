@@ -0,0 +1,382 @@
+package fr.cea.ig.grools.reasoner;
+
+import fr.cea.ig.grools.Mode;
+import fr.cea.ig.grools.VariantMode;
+import fr.cea.ig.grools.fact.Concept;
+import fr.cea.ig.grools.fact.PriorKnowledge;
+import fr.cea.ig.grools.fact.Relation;
+import fr.cea.ig.grools.logic.Conclusion;
+import fr.cea.ig.grools.logic.TruthValuePowerSet;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ReasoningCache
+ * <p>
+ * Reasoning results keyed by content: the prior-knowledge graph, the truth values brought by observations to each
+ * prior-knowledge, the mode and its variants. Keys are stable across runs, they are made from names thus a genome
+ * submitted again, or a pathway with the same evidence, is restored without evaluation. A key is computed for the whole
+ * graph or for one connected component, see {@link EvaluationMode#PARTITIONED}. Only level ordered evaluation modes
+ * use the cache, values of {@link EvaluationMode#WORKLIST} may differ.
+ * <p>
+ * Entries are kept in memory up to a capacity in bytes, the least recently used ones are evicted first. When a
+ * directory is given, entries are also written there and read back when they are not in memory anymore; this disk tier
+ * is best effort, an entry which can not be written or read is a miss.
+ */
+public final class ReasoningCache {
+    private static final int MAGIC = 0x47524343; // GRCC
+    private static final int VERSION = 1;
+    private static final String SUFFIX = ".grc";
+    private static final TruthValuePowerSet[] POWER_SETS = TruthValuePowerSet.values( );
+    private static final Conclusion[] CONCLUSIONS = Conclusion.values( );
+    private static final byte NONE = -1;
+    private static final long SEED_HIGH = 0xCBF29CE484222325L;
+    private static final long SEED_LOW = 0x84222325CBF29CE4L;
+    private static final long PRIME = 0x100000001B3L;
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+    // element kinds, they take part in element hashes
+    private static final int PRIOR_KNOWLEDGE = 1;
+    private static final int RELATION = 2;
+    private static final int VARIANT = 3;
+    private static final int MODE = 4;
+    // memory estimate of an entry and of each of its prior-knowledges
+    private static final long ENTRY_BYTES = 96;
+    private static final long SLOT_BYTES = 11;
+
+    /**
+     * 128 bits content hash
+     */
+    static final class Key {
+        private final long high;
+        private final long low;
+
+        private Key( final long high, final long low ) {
+            this.high = high;
+            this.low = low;
+        }
+
+        @Override
+        public boolean equals( final Object other ) {
+            if ( !( other instanceof Key ) )
+                return false;
+            final Key key = ( Key ) other;
+            return high == key.high && low == key.low;
+        }
+
+        @Override
+        public int hashCode( ) {
+            return Long.hashCode( high ^ low );
+        }
+
+        @Override
+        public String toString( ) {
+            return String.format( "%016x%016x", high, low );
+        }
+    }
+
+    /**
+     * Values of prior-knowledges by name
+     */
+    static final class Entry {
+        private final String[] names;
+        private final byte[] predictions;
+        private final byte[] expectations;
+        private final byte[] conclusions;
+
+        private Entry( final int size ) {
+            this.names = new String[ size ];
+            this.predictions = new byte[ size ];
+            this.expectations = new byte[ size ];
+            this.conclusions = new byte[ size ];
+        }
+
+        int size( ) {
+            return names.length;
+        }
+
+        String getName( final int i ) {
+            return names[ i ];
+        }
+
+        TruthValuePowerSet getPrediction( final int i ) {
+            return predictions[ i ] == NONE ? null : POWER_SETS[ predictions[ i ] ];
+        }
+
+        TruthValuePowerSet getExpectation( final int i ) {
+            return expectations[ i ] == NONE ? null : POWER_SETS[ expectations[ i ] ];
+        }
+
+        Conclusion getConclusion( final int i ) {
+            return conclusions[ i ] == NONE ? null : CONCLUSIONS[ conclusions[ i ] ];
+        }
+
+        private long bytes( ) {
+            return ENTRY_BYTES + SLOT_BYTES * names.length;
+        }
+    }
+
+    @Getter
+    private final long capacity;
+    private final File directory;
+    private final LinkedHashMap< Key, Entry > entries;
+    private long bytes;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param capacity memory used by entries, in bytes
+     */
+    public ReasoningCache( final long capacity ) {
+        this( capacity, null );
+    }
+
+    /**
+     * @param capacity  memory used by entries, in bytes
+     * @param directory where entries are also written, null to keep them in memory only
+     */
+    public ReasoningCache( final long capacity, final File directory ) {
+        if ( capacity < 0 )
+            throw new IllegalArgumentException( "Negative capacity: " + capacity );
+        if ( directory != null && !directory.isDirectory( ) && !directory.mkdirs( ) )
+            throw new IllegalArgumentException( "Not a directory: " + directory );
+        this.capacity = capacity;
+        this.directory = directory;
+        this.entries = new LinkedHashMap<>( 16, 0.75f, true );
+        this.bytes = 0;
+        this.hits = 0;
+        this.misses = 0;
+    }
+
+    static long mix( long z ) {
+        z = ( z ^ ( z >>> 30 ) ) * 0xBF58476D1CE4E5B9L;
+        z = ( z ^ ( z >>> 27 ) ) * 0x94D049BB133111EBL;
+        return z ^ ( z >>> 31 );
+    }
+
+    static long hash( final long seed, @NonNull final String text ) {
+        long h = seed;
+        for ( int i = 0; i < text.length( ); i++ )
+            h = ( h ^ text.charAt( i ) ) * PRIME;
+        return h;
+    }
+
+    static long combine( final long h, final long value ) {
+        return mix( h + value * GOLDEN );
+    }
+
+    private static long priorKnowledge( final long seed, @NonNull final ConceptGraph graph, @NonNull final PriorKnowledge pk ) {
+        long h = combine( seed, PRIOR_KNOWLEDGE );
+        h = combine( h, hash( seed, pk.getName( ) ) );
+        h = combine( h, pk.getIsDispensable( ) ? 1 : 0 );
+        h = combine( h, graph.getDirectPrediction( pk ).ordinal( ) );
+        h = combine( h, graph.getDirectExpectation( pk ).ordinal( ) );
+        for ( final Relation relation : graph.getOutgoing( pk ) ) {
+            if ( relation.getTarget( ) instanceof PriorKnowledge )
+                h += relation( seed, relation );
+        }
+        return h;
+    }
+
+    private static long relation( final long seed, @NonNull final Relation relation ) {
+        long h = combine( seed, RELATION );
+        h = combine( h, hash( seed, relation.getSource( ).getName( ) ) );
+        h = combine( h, hash( seed, relation.getTarget( ).getName( ) ) );
+        return combine( h, hash( seed, relation.getType( ).name( ) ) );
+    }
+
+    /**
+     * Hash of a prior-knowledge, of its relations to other prior-knowledges and of evidence it gets from observations.
+     * Observations are only seen through the truth values they bring, which is all the reasoning uses.
+     * @return both halves of the hash, keys sum them thus the order of prior-knowledges does not matter
+     */
+    static long[] term( @NonNull final ConceptGraph graph, @NonNull final PriorKnowledge pk ) {
+        return new long[]{ priorKnowledge( SEED_HIGH, graph, pk ), priorKnowledge( SEED_LOW, graph, pk ) };
+    }
+
+    /**
+     * @param high sum of high halves of terms
+     * @param low  sum of low halves of terms
+     * @param mode mode of the reasoning, with its variants
+     * @return the key
+     */
+    static Key key( long high, long low, @NonNull final Mode mode ) {
+        high += combine( combine( SEED_HIGH, MODE ), hash( SEED_HIGH, mode.name( ) ) );
+        low += combine( combine( SEED_LOW, MODE ), hash( SEED_LOW, mode.name( ) ) );
+        for ( final VariantMode variant : mode.getVariants( ) ) {
+            high += combine( combine( SEED_HIGH, VARIANT ), hash( SEED_HIGH, variant.name( ) ) );
+            low += combine( combine( SEED_LOW, VARIANT ), hash( SEED_LOW, variant.name( ) ) );
+        }
+        return new Key( mix( high ), mix( low ) );
+    }
+
+    /**
+     * Order independent hash of prior-knowledges, see {@link #term(ConceptGraph, PriorKnowledge)}. A reasoner keeps the
+     * key of its graph up to date instead, see {@link ReasoningKeys}.
+     * @param graph    the graph
+     * @param mode     mode of the reasoning
+     * @param concepts concepts to describe, other concepts are ignored
+     * @return the key
+     */
+    static Key key( @NonNull final ConceptGraph graph, @NonNull final Mode mode, @NonNull final Collection< Concept > concepts ) {
+        long high = 0;
+        long low = 0;
+        for ( final Concept concept : concepts ) {
+            if ( !( concept instanceof PriorKnowledge ) )
+                continue;
+            final long[] term = term( graph, ( PriorKnowledge ) concept );
+            high += term[ 0 ];
+            low += term[ 1 ];
+        }
+        return key( high, low, mode );
+    }
+
+    /**
+     * @param pks    prior-knowledges to keep
+     * @param states their values
+     * @return an entry holding current values of the prior-knowledges
+     */
+    static Entry entry( @NonNull final List< PriorKnowledge > pks, @NonNull final PriorKnowledgeStates states ) {
+        final Entry entry = new Entry( pks.size( ) );
+        for ( int i = 0; i < pks.size( ); i++ ) {
+            final PriorKnowledge pk = pks.get( i );
+            entry.names[ i ] = pk.getName( );
+            entry.predictions[ i ] = ordinal( states.getPrediction( pk ) );
+            entry.expectations[ i ] = ordinal( states.getExpectation( pk ) );
+            entry.conclusions[ i ] = ordinal( states.getConclusion( pk ) );
+        }
+        return entry;
+    }
+
+    private static byte ordinal( final Enum< ? > value ) {
+        return value == null ? NONE : ( byte ) value.ordinal( );
+    }
+
+    /**
+     * @return the entry of a key from memory or from the disk tier, null on miss
+     */
+    synchronized Entry get( @NonNull final Key key ) {
+        Entry entry = entries.get( key );
+        if ( entry == null && directory != null ) {
+            entry = read( file( key ) );
+            if ( entry != null )
+                keep( key, entry );
+        }
+        if ( entry == null )
+            misses++;
+        else
+            hits++;
+        return entry;
+    }
+
+    synchronized void put( @NonNull final Key key, @NonNull final Entry entry ) {
+        if ( directory != null && !file( key ).exists( ) )
+            write( file( key ), entry );
+        keep( key, entry );
+    }
+
+    private void keep( @NonNull final Key key, @NonNull final Entry entry ) {
+        final Entry previous = entries.put( key, entry );
+        if ( previous != null )
+            bytes -= previous.bytes( );
+        bytes += entry.bytes( );
+        final Iterator< Map.Entry< Key, Entry > > eldest = entries.entrySet( ).iterator( );
+        while ( bytes > capacity && eldest.hasNext( ) ) {
+            bytes -= eldest.next( ).getValue( ).bytes( );
+            eldest.remove( );
+        }
+    }
+
+    /**
+     * @return number of lookups which found an entry
+     */
+    public synchronized long getHits( ) {
+        return hits;
+    }
+
+    /**
+     * @return number of lookups which found no entry
+     */
+    public synchronized long getMisses( ) {
+        return misses;
+    }
+
+    /**
+     * @return number of entries in memory
+     */
+    public synchronized int size( ) {
+        return entries.size( );
+    }
+
+    /**
+     * Drop entries from memory, the disk tier is kept
+     */
+    public synchronized void clear( ) {
+        entries.clear( );
+        bytes = 0;
+    }
+
+    private File file( @NonNull final Key key ) {
+        return new File( directory, key + SUFFIX );
+    }
+
+    private static void write( @NonNull final File file, @NonNull final Entry entry ) {
+        final File partial = new File( file.getPath( ) + ".tmp" );
+        try ( DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( partial ) ) ) ) {
+            out.writeInt( MAGIC );
+            out.writeInt( VERSION );
+            out.writeInt( entry.size( ) );
+            for ( int i = 0; i < entry.size( ); i++ ) {
+                out.writeUTF( entry.names[ i ] );
+                out.writeByte( entry.predictions[ i ] );
+                out.writeByte( entry.expectations[ i ] );
+                out.writeByte( entry.conclusions[ i ] );
+            }
+        }
+        catch ( IOException e ) {
+            partial.delete( );
+            return;
+        }
+        if ( !partial.renameTo( file ) )
+            partial.delete( );
+    }
+
+    private static Entry read( @NonNull final File file ) {
+        if ( !file.isFile( ) )
+            return null;
+        try ( DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( file ) ) ) ) {
+            if ( in.readInt( ) != MAGIC || in.readInt( ) != VERSION )
+                return null;
+            final Entry entry = new Entry( in.readInt( ) );
+            for ( int i = 0; i < entry.size( ); i++ ) {
+                entry.names[ i ] = in.readUTF( );
+                entry.predictions[ i ] = checked( in.readByte( ), POWER_SETS.length );
+                entry.expectations[ i ] = checked( in.readByte( ), POWER_SETS.length );
+                entry.conclusions[ i ] = checked( in.readByte( ), CONCLUSIONS.length );
+            }
+            return entry;
+        }
+        catch ( IOException | IllegalArgumentException | NegativeArraySizeException e ) {
+            return null;
+        }
+    }
+
+    private static byte checked( final byte ordinal, final int count ) {
+        if ( ordinal < NONE || ordinal >= count )
+            throw new IllegalArgumentException( "Bad ordinal: " + ordinal );
+        return ordinal;
+    }
+}
@@ -0,0 +1,126 @@
+package fr.cea.ig.grools.reasoner;
+
+import fr.cea.ig.grools.Mode;
+import fr.cea.ig.grools.fact.Concept;
+import fr.cea.ig.grools.fact.PriorKnowledge;
+import lombok.NonNull;
+
+import java.util.Collection;
+
+/**
+ * ReasoningKeys
+ * <p>
+ * Cache key of a graph kept up to date along with changes: the key sums one term per prior-knowledge, see
+ * {@link ReasoningCache#term(ConceptGraph, PriorKnowledge)}, thus a change only replaces terms of the prior-knowledges
+ * it touches. Terms are summed from the whole graph once, on the first key.
+ */
+final class ReasoningKeys {
+    private final ConceptGraph graph;
+    // terms in the sums
+    private final LayeredMap< PriorKnowledge, long[] > terms;
+    // prior-knowledges whose term is not in the sums
+    private final LayeredSet< PriorKnowledge > stale;
+    private long high;
+    private long low;
+    private boolean isSummed;
+
+    ReasoningKeys( @NonNull final ConceptGraph graph ) {
+        this.graph = graph;
+        this.terms = new LayeredMap<>( );
+        this.stale = new LayeredSet<>( );
+        this.high = 0;
+        this.low = 0;
+        this.isSummed = false;
+    }
+
+    private ReasoningKeys( @NonNull final ConceptGraph graph, @NonNull final ReasoningKeys other ) {
+        this.graph = graph;
+        this.terms = other.terms.fork( );
+        this.stale = other.stale.fork( );
+        this.high = other.high;
+        this.low = other.low;
+        this.isSummed = other.isSummed;
+    }
+
+    /**
+     * @param forkGraph fork of the graph, see {@link ConceptGraph#fork()}
+     * @return keys of the fork sharing terms already computed
+     */
+    ReasoningKeys fork( @NonNull final ConceptGraph forkGraph ) {
+        return new ReasoningKeys( forkGraph, this );
+    }
+
+    /**
+     * A prior-knowledge, its relations to other prior-knowledges or its evidence changed, it may also be new or
+     * deleted. Its term is computed again by the next key.
+     */
+    void invalidate( @NonNull final PriorKnowledge pk ) {
+        if ( !isSummed )
+            return;
+        final long[] term = terms.remove( pk );
+        if ( term != null ) {
+            high -= term[ 0 ];
+            low -= term[ 1 ];
+        }
+        stale.add( pk );
+    }
+
+    /**
+     * The graph changed as a whole, terms are summed again from all prior-knowledges
+     */
+    void clear( ) {
+        terms.clear( );
+        stale.clear( );
+        high = 0;
+        low = 0;
+        isSummed = false;
+    }
+
+    private void sum( @NonNull final PriorKnowledge pk ) {
+        final long[] term = ReasoningCache.term( graph, pk );
+        terms.put( pk, term );
+        high += term[ 0 ];
+        low += term[ 1 ];
+    }
+
+    /**
+     * @param mode mode of the reasoning
+     * @return key of the whole graph, only terms of changed prior-knowledges are computed
+     */
+    ReasoningCache.Key key( @NonNull final Mode mode ) {
+        if ( !isSummed ) {
+            for ( final Concept concept : graph.getConcepts( ) )
+                if ( concept instanceof PriorKnowledge )
+                    sum( ( PriorKnowledge ) concept );
+            isSummed = true;
+        }
+        else {
+            for ( final PriorKnowledge pk : stale )
+                // deleted prior-knowledges are left out
+                if ( graph.getConcept( pk.getName( ) ) == pk )
+                    sum( pk );
+            stale.clear( );
+        }
+        return ReasoningCache.key( high, low, mode );
+    }
+
+    /**
+     * @param mode     mode of the reasoning
+     * @param concepts concepts to describe, other concepts are ignored
+     * @return key of some concepts, known terms are reused
+     */
+    ReasoningCache.Key key( @NonNull final Mode mode, @NonNull final Collection< Concept > concepts ) {
+        long partHigh = 0;
+        long partLow = 0;
+        for ( final Concept concept : concepts ) {
+            if ( !( concept instanceof PriorKnowledge ) )
+                continue;
+            long[] term = terms.get( concept );
+            if ( term == null )
+                term = ReasoningCache.term( graph, ( PriorKnowledge ) concept );
+            partHigh += term[ 0 ];
+            partLow += term[ 1 ];
+        }
+        return ReasoningCache.key( partHigh, partLow, mode );
+    }
+}
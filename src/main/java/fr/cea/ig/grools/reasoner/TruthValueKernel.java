@@ -0,0 +1,151 @@
+package fr.cea.ig.grools.reasoner;
+
+import fr.cea.ig.grools.Reasoner;
+import fr.cea.ig.grools.logic.Conclusion;
+import fr.cea.ig.grools.logic.TruthValuePowerSet;
+import fr.cea.ig.grools.logic.TruthValueSet;
+import lombok.NonNull;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * TruthValueKernel
+ * <p>
+ * Truth value operations as array lookups. A truth value power set is encoded by its ordinal, a set of truth value
+ * power sets by a bitmask of ordinals. Results are taken from the operations of the logic package, once by entry,
+ * thus they are the same.
+ */
+public final class TruthValueKernel {
+    private static final TruthValuePowerSet[] POWER_SETS = TruthValuePowerSet.values( );
+    private static final TruthValueSet[] SETS = TruthValueSet.values( );
+    // merge and choice of each set of truth value power sets
+    private static final byte[] MERGE = new byte[ 1 << POWER_SETS.length ];
+    private static final byte[] CHOICE = new byte[ 1 << POWER_SETS.length ];
+    private static final TruthValuePowerSet[][] ADD = new TruthValuePowerSet[ POWER_SETS.length ][ SETS.length ];
+    private static final TruthValuePowerSet[][] REMOVE = new TruthValuePowerSet[ POWER_SETS.length ][ SETS.length ];
+    private static final TruthValuePowerSet[] UNION = new TruthValuePowerSet[ SETS.length ];
+
+    static {
+        for ( int mask = 0; mask < MERGE.length; mask++ ) {
+            final Set< TruthValuePowerSet > values = values( mask );
+            MERGE[ mask ] = ( byte ) TruthValuePowerSet.merge( values ).ordinal( );
+            CHOICE[ mask ] = ( byte ) TruthValuePowerSet.choice( values ).ordinal( );
+        }
+        for ( final TruthValuePowerSet tvps : POWER_SETS ) {
+            for ( final TruthValueSet tvs : SETS ) {
+                ADD[ tvps.ordinal( ) ][ tvs.ordinal( ) ] = TruthValuePowerSet.add( tvps, tvs );
+                REMOVE[ tvps.ordinal( ) ][ tvs.ordinal( ) ] = TruthValuePowerSet.remove( tvps, tvs );
+            }
+        }
+        for ( final TruthValueSet tvs : SETS )
+            UNION[ tvs.ordinal( ) ] = TruthValueSet.union( tvs );
+    }
+
+    private TruthValueKernel( ) {
+    }
+
+    /**
+     * @return number of truth value power sets, a mask uses this number of bits
+     */
+    public static int size( ) {
+        return POWER_SETS.length;
+    }
+
+    /**
+     * @return the mask of a set made of one truth value power set
+     */
+    public static int mask( @NonNull final TruthValuePowerSet tvps ) {
+        return 1 << tvps.ordinal( );
+    }
+
+    /**
+     * @return the mask of a set of truth value power sets
+     */
+    public static int mask( @NonNull final Set< TruthValuePowerSet > tvps ) {
+        int mask = 0;
+        for ( final TruthValuePowerSet value : tvps )
+            mask |= 1 << value.ordinal( );
+        return mask;
+    }
+
+    /**
+     * @return truth value power sets of a mask
+     */
+    public static Set< TruthValuePowerSet > values( final int mask ) {
+        final Set< TruthValuePowerSet > values = EnumSet.noneOf( TruthValuePowerSet.class );
+        for ( int i = 0; i < POWER_SETS.length; i++ )
+            if ( ( mask & ( 1 << i ) ) != 0 )
+                values.add( POWER_SETS[ i ] );
+        return values;
+    }
+
+    public static TruthValuePowerSet valueOf( final int ordinal ) {
+        return POWER_SETS[ ordinal ];
+    }
+
+    /**
+     * @return same as {@link TruthValuePowerSet#merge(Set)} on the set encoded by the mask
+     */
+    public static TruthValuePowerSet merge( final int mask ) {
+        return POWER_SETS[ MERGE[ mask ] ];
+    }
+
+    /**
+     * @return same as {@link TruthValuePowerSet#choice(Set)} on the set encoded by the mask
+     */
+    public static TruthValuePowerSet choice( final int mask ) {
+        return POWER_SETS[ CHOICE[ mask ] ];
+    }
+
+    /**
+     * @return same as {@link TruthValuePowerSet#add(TruthValuePowerSet, TruthValueSet)}
+     */
+    public static TruthValuePowerSet add( @NonNull final TruthValuePowerSet tvps, @NonNull final TruthValueSet tvs ) {
+        return ADD[ tvps.ordinal( ) ][ tvs.ordinal( ) ];
+    }
+
+    /**
+     * @return same as {@link TruthValuePowerSet#remove(TruthValuePowerSet, TruthValueSet)}
+     */
+    public static TruthValuePowerSet remove( @NonNull final TruthValuePowerSet tvps, @NonNull final TruthValueSet tvs ) {
+        return REMOVE[ tvps.ordinal( ) ][ tvs.ordinal( ) ];
+    }
+
+    /**
+     * @return same as {@link TruthValueSet#union(TruthValueSet)}
+     */
+    public static TruthValuePowerSet union( @NonNull final TruthValueSet tvs ) {
+        return UNION[ tvs.ordinal( ) ];
+    }
+
+    /**
+     * Conclusion of each pair of expectation and prediction
+     * @param table conclusions by expectation and prediction truth value sets
+     * @return frozen table of conclusions by expectation and prediction truth value power sets, null when the given
+     * table has no value
+     */
+    public static EnumDoubleEntryTable< TruthValuePowerSet, TruthValuePowerSet, Conclusion > conclusions( @NonNull final EnumDoubleEntryTable< TruthValueSet, TruthValueSet, Conclusion > table ) {
+        final EnumDoubleEntryTable< TruthValuePowerSet, TruthValuePowerSet, Conclusion > conclusions = new EnumDoubleEntryTable<>( POWER_SETS, POWER_SETS );
+        for ( final TruthValuePowerSet expectation : POWER_SETS ) {
+            for ( final TruthValuePowerSet prediction : POWER_SETS ) {
+                final TruthValueSet expected;
+                final TruthValueSet predicted;
+                try {
+                    expected = Reasoner.expectationToTruthValueSet( expectation );
+                    predicted = Reasoner.predictionToTruthValueSet( prediction );
+                }
+                catch ( RuntimeException e ) {
+                    throw e;
+                }
+                catch ( Exception e ) {
+                    // the logic package has no truth value set for this pair, thus no conclusion
+                    continue;
+                }
+                if ( expected != null && predicted != null )
+                    conclusions.put( expectation, prediction, table.get( expected, predicted ) );
+            }
+        }
+        return conclusions.freeze( );
+    }
+}
@@ -0,0 +1,130 @@
+package fr.cea.ig.grools.reasoner;
+
+import fr.cea.ig.grools.Mode;
+import fr.cea.ig.grools.Verbosity;
+import fr.cea.ig.grools.fact.Observation;
+import fr.cea.ig.grools.fact.ObservationType;
+import fr.cea.ig.grools.fact.PriorKnowledge;
+import fr.cea.ig.grools.fact.PriorKnowledgeImpl;
+import fr.cea.ig.grools.fact.Relation;
+import fr.cea.ig.grools.fact.RelationImpl;
+import fr.cea.ig.grools.fact.RelationType;
+import fr.cea.ig.grools.logic.TruthValue;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static fr.cea.ig.grools.reasoner.Cases.assertSameValues;
+import static fr.cea.ig.grools.reasoner.Cases.observation;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * BaselineReasonerTest
+ */
+public class BaselineReasonerTest {
+    private static final String[] NAMES = { "A", "B", "C", "D" };
+
+    /**
+     * A has parts B and C, D is a subtype of C
+     */
+    private static ReasonerImpl priorKnowledges( ) {
+        final ReasonerImpl reasoner = new ReasonerImpl( Mode.NORMAL, Verbosity.QUIET );
+        final PriorKnowledge[] pks = new PriorKnowledge[ NAMES.length ];
+        for ( int i = 0; i < NAMES.length; i++ )
+            pks[ i ] = PriorKnowledgeImpl.builder( ).name( NAMES[ i ] ).build( );
+        reasoner.insert( ( Object[] ) pks );
+        reasoner.insert( new RelationImpl( pks[ 1 ], pks[ 0 ], RelationType.PART ),
+                         new RelationImpl( pks[ 2 ], pks[ 0 ], RelationType.PART ),
+                         new RelationImpl( pks[ 3 ], pks[ 2 ], RelationType.SUBTYPE ) );
+        return reasoner;
+    }
+
+    private static Relation link( final ReasonerImpl reasoner, final Observation observation, final String name ) {
+        return new RelationImpl( observation, reasoner.getPriorKnowledge( name ), observation.getType( ) );
+    }
+
+    @Test
+    public void genomeFromDifference( ) {
+        final Observation oB = observation( "oB", ObservationType.COMPUTATION, TruthValue.t );
+        final Observation oC = observation( "oC", ObservationType.EXPERIMENTATION, TruthValue.t );
+        final Observation oD = observation( "oD", ObservationType.COMPUTATION, TruthValue.f );
+        final ReasonerImpl baseline = priorKnowledges( );
+        final Relation oBToB = link( baseline, oB, "B" );
+        baseline.insert( oBToB, link( baseline, oC, "C" ) );
+        final BaselineReasoner pipeline = new BaselineReasoner( baseline );
+
+        final List< Relation > added = Collections.singletonList( link( baseline, oD, "D" ) );
+        final List< Relation > removed = Collections.singletonList( oBToB );
+        final ReasonerImpl genome = pipeline.reasoning( added, removed );
+
+        final ReasonerImpl expected = priorKnowledges( );
+        expected.setEvaluationMode( EvaluationMode.LEVEL_ORDERED );
+        expected.insert( link( expected, oC, "C" ), link( expected, oD, "D" ) );
+        expected.reasoning( );
+        final ReasonerImpl expectedBaseline = priorKnowledges( );
+        expectedBaseline.setEvaluationMode( EvaluationMode.LEVEL_ORDERED );
+        expectedBaseline.insert( link( expectedBaseline, oB, "B" ), link( expectedBaseline, oC, "C" ) );
+        expectedBaseline.reasoning( );
+        for ( final String name : NAMES ) {
+            final PriorKnowledge pk = genome.getPriorKnowledge( name );
+            assertEquals( expected.getPrediction( expected.getPriorKnowledge( name ) ), genome.getPrediction( pk ) );
+            assertEquals( expected.getExpectation( expected.getPriorKnowledge( name ) ), genome.getExpectation( pk ) );
+            assertEquals( expected.getConclusion( expected.getPriorKnowledge( name ) ), genome.getConclusion( pk ) );
+            // the baseline is left untouched
+            assertEquals( expectedBaseline.getConclusion( expectedBaseline.getPriorKnowledge( name ) ), baseline.getConclusion( pk ) );
+        }
+    }
+
+    /**
+     * Genomes of a baseline which was reasoned by partitions or restored from the cache are reasoned by propagating
+     * their difference alone
+     */
+    @Test
+    public void genomeTakesDeltaPath( ) {
+        final Observation oB = observation( "oB", ObservationType.COMPUTATION, TruthValue.t );
+        final Observation oD = observation( "oD", ObservationType.COMPUTATION, TruthValue.f );
+        final ReasoningCache cache = new ReasoningCache( 1 << 20 );
+        final ReasonerImpl cached = priorKnowledges( );
+        cached.setEvaluationMode( EvaluationMode.LEVEL_ORDERED );
+        cached.setCache( cache );
+        cached.insert( link( cached, oB, "B" ) );
+        cached.reasoning( );
+        for ( final EvaluationMode evaluationMode : new EvaluationMode[]{ EvaluationMode.PARTITIONED, EvaluationMode.LEVEL_ORDERED } ) {
+            final ReasonerImpl baseline = priorKnowledges( );
+            baseline.setEvaluationMode( evaluationMode );
+            baseline.setCache( evaluationMode == EvaluationMode.LEVEL_ORDERED ? cache : null );
+            baseline.insert( link( baseline, oB, "B" ) );
+            baseline.reasoning( );
+            final BaselineReasoner pipeline = new BaselineReasoner( baseline );
+            assertEquals( evaluationMode, baseline.getEvaluationMode( ) );
+
+            final List< Relation > added = Collections.singletonList( link( baseline, oD, "D" ) );
+            final ReasonerImpl genome = pipeline.genome( added, Collections.emptyList( ) );
+            assertTrue( evaluationMode.toString( ), genome.canPropagateDelta( ) );
+            genome.reasoning( );
+
+            final ReasonerImpl expected = priorKnowledges( );
+            expected.setEvaluationMode( EvaluationMode.LEVEL_ORDERED );
+            expected.insert( link( expected, oB, "B" ), link( expected, oD, "D" ) );
+            expected.reasoning( );
+            assertSameValues( expected, genome, NAMES );
+        }
+        assertEquals( 1, cache.getHits( ) );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void cyclicBaselineIsRejected( ) {
+        final ReasonerImpl baseline = new ReasonerImpl( Mode.NORMAL, Verbosity.QUIET );
+        Cases.cycle( baseline );
+        new BaselineReasoner( baseline );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void differenceIsMadeOfObservations( ) {
+        final ReasonerImpl baseline = priorKnowledges( );
+        final Relation part = new RelationImpl( baseline.getPriorKnowledge( "C" ), baseline.getPriorKnowledge( "B" ), RelationType.PART );
+        new BaselineReasoner( baseline ).reasoning( Collections.singletonList( part ), Collections.emptyList( ) );
+    }
+}
@@ -13,11 +13,41 @@ import fr.cea.ig.grools.fact.Relation;
 import fr.cea.ig.grools.fact.RelationType;
 import lombok.NonNull;
 
+import static org.junit.Assert.assertEquals;
+
 /**
  * Cases
  */
 class Cases {
 
+    static Observation observation( @NonNull final String name, @NonNull final ObservationType type, @NonNull final TruthValue truthValue ) {
+        return ObservationImpl.builder( )
+                              .name( name )
+                              .type( type )
+                              .truthValue( truthValue )
+                              .build( );
+    }
+
+    /**
+     * @return a computed observation
+     */
+    static Observation observation( @NonNull final String name, @NonNull final TruthValue truthValue ) {
+        return observation( name, ObservationType.COMPUTATION, truthValue );
+    }
+
+    /**
+     * Prior-knowledges of the given names have the same values in both reasoners
+     */
+    static void assertSameValues( @NonNull final ReasonerImpl expected, @NonNull final ReasonerImpl actual, @NonNull final String... names ) {
+        for ( final String name : names ) {
+            final PriorKnowledge expectedPk = expected.getPriorKnowledge( name );
+            final PriorKnowledge actualPk = actual.getPriorKnowledge( name );
+            assertEquals( name, expected.getPrediction( expectedPk ), actual.getPrediction( actualPk ) );
+            assertEquals( name, expected.getExpectation( expectedPk ), actual.getExpectation( actualPk ) );
+            assertEquals( name, expected.getConclusion( expectedPk ), actual.getConclusion( actualPk ) );
+        }
+    }
+
     static void case1( @NonNull final Reasoner reasoner ) throws Exception {
         PriorKnowledge pk1 = PriorKnowledgeImpl.builder( )
                                                .name( "pk1" )
@@ -1136,4 +1166,48 @@ class Cases {
         reasoner.insert( cToA,cToB );
         reasoner.reasoning( );
     }
-}
\ No newline at end of file
+
+    /**
+     * B is a part of A, C of B and A of C, D is a subtype of A. Prior-knowledges of the cycle and D can not be ordered.
+     */
+    static void cycle( @NonNull final Reasoner reasoner ) {
+        renamedCycle( reasoner, "A", "B", "C", "D", "E" );
+    }
+
+    /**
+     * Same as {@link #cycle(Reasoner)}, prior-knowledges A to E are named by the given names
+     */
+    static void renamedCycle( @NonNull final Reasoner reasoner, @NonNull final String... names ) {
+        final PriorKnowledge nA = PriorKnowledgeImpl.builder( ).name( names[ 0 ] ).build( );
+        final PriorKnowledge nB = PriorKnowledgeImpl.builder( ).name( names[ 1 ] ).build( );
+        final PriorKnowledge nC = PriorKnowledgeImpl.builder( ).name( names[ 2 ] ).build( );
+        final PriorKnowledge nD = PriorKnowledgeImpl.builder( ).name( names[ 3 ] ).build( );
+        final PriorKnowledge nE = PriorKnowledgeImpl.builder( ).name( names[ 4 ] ).build( );
+        reasoner.insert( nA, nB, nC, nD, nE );
+        reasoner.insert( new RelationImpl( nB, nA, RelationType.PART ),
+                         new RelationImpl( nC, nB, RelationType.PART ),
+                         new RelationImpl( nA, nC, RelationType.PART ),
+                         new RelationImpl( nD, nA, RelationType.SUBTYPE ),
+                         new RelationImpl( nE, nD, RelationType.PART ) );
+        final Observation opE = ObservationImpl.builder( )
+                                               .type( ObservationType.COMPUTATION )
+                                               .name( "opE" )
+                                               .truthValue( TruthValue.t )
+                                               .build( );
+        final Observation opC = ObservationImpl.builder( )
+                                               .type( ObservationType.COMPUTATION )
+                                               .name( "opC" )
+                                               .truthValue( TruthValue.f )
+                                               .build( );
+        final Observation oeB = ObservationImpl.builder( )
+                                               .type( ObservationType.EXPERIMENTATION )
+                                               .name( "oeB" )
+                                               .truthValue( TruthValue.t )
+                                               .build( );
+        reasoner.insert( opE, opC, oeB );
+        reasoner.insert( new RelationImpl( opE, nE, opE.getType( ) ),
+                         new RelationImpl( opC, nC, opC.getType( ) ),
+                         new RelationImpl( oeB, nB, oeB.getType( ) ) );
+        reasoner.reasoning( );
+    }
+}
@@ -0,0 +1,141 @@
+package fr.cea.ig.grools.reasoner;
+
+import fr.cea.ig.grools.Mode;
+import fr.cea.ig.grools.VariantMode;
+import fr.cea.ig.grools.Verbosity;
+import fr.cea.ig.grools.fact.Observation;
+import fr.cea.ig.grools.fact.PriorKnowledge;
+import fr.cea.ig.grools.fact.PriorKnowledgeImpl;
+import fr.cea.ig.grools.fact.RelationImpl;
+import fr.cea.ig.grools.fact.RelationType;
+import fr.cea.ig.grools.logic.Conclusion;
+import fr.cea.ig.grools.logic.TruthValue;
+import fr.cea.ig.grools.logic.TruthValuePowerSet;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static fr.cea.ig.grools.reasoner.Cases.observation;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * CheckpointTest
+ */
+public class CheckpointTest {
+    private static final String[] NAMES = { "A", "B", "C", "D" };
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder( );
+
+    /**
+     * A has parts B and C, D is a subtype of C, B is observed
+     */
+    private static ReasonerImpl genome( ) {
+        final ReasonerImpl reasoner = new ReasonerImpl( Mode.NORMAL, Verbosity.QUIET );
+        final PriorKnowledge[] pks = new PriorKnowledge[ NAMES.length ];
+        for ( int i = 0; i < NAMES.length; i++ )
+            pks[ i ] = PriorKnowledgeImpl.builder( ).name( NAMES[ i ] ).build( );
+        reasoner.insert( ( Object[] ) pks );
+        final Observation oB = observation( "oB", TruthValue.t );
+        reasoner.insert( oB );
+        reasoner.insert( new RelationImpl( pks[ 1 ], pks[ 0 ], RelationType.PART ),
+                         new RelationImpl( pks[ 2 ], pks[ 0 ], RelationType.PART ),
+                         new RelationImpl( pks[ 3 ], pks[ 2 ], RelationType.SUBTYPE ),
+                         new RelationImpl( oB, pks[ 1 ], oB.getType( ) ) );
+        return reasoner;
+    }
+
+    @Test
+    public void checkpointIsPointInTime( ) throws Exception {
+        final ReasonerImpl reasoner = genome( );
+        reasoner.reasoning( );
+        final Map< String, Conclusion > conclusions = new HashMap<>( );
+        final Map< String, TruthValuePowerSet > predictions = new HashMap<>( );
+        for ( final String name : NAMES ) {
+            conclusions.put( name, reasoner.getConclusion( reasoner.getPriorKnowledge( name ) ) );
+            predictions.put( name, reasoner.getPrediction( reasoner.getPriorKnowledge( name ) ) );
+        }
+        final int relationsCount = reasoner.getRelations( ).size( );
+
+        // the write is held until the reasoner changed
+        final List< Runnable > tasks = new ArrayList<>( );
+        final Set< VariantMode > variants = EnumSet.noneOf( VariantMode.class );
+        variants.addAll( reasoner.getMode( ).getVariants( ) );
+        final File file = new File( folder.getRoot( ), "checkpoint.grk" );
+        final CompletableFuture< Void > checkpoint = reasoner.checkpoint( file, tasks::add );
+        final Observation oD = observation( "oD", TruthValue.t );
+        reasoner.insert( oD, new RelationImpl( oD, reasoner.getPriorKnowledge( "D" ), oD.getType( ) ) );
+        reasoner.addVariantMode( VariantMode.DISPENSABLE );
+        reasoner.reasoning( );
+        assertNotEquals( predictions.get( "D" ), reasoner.getPrediction( reasoner.getPriorKnowledge( "D" ) ) );
+        assertFalse( checkpoint.isDone( ) );
+
+        final Thread writer = new Thread( ( ) -> tasks.forEach( Runnable::run ) );
+        writer.start( );
+        writer.join( );
+        checkpoint.get( );
+
+        // variants are those of the shared mode, they are set back to those of the checkpoint before it is loaded
+        reasoner.getMode( ).setVariants( variants );
+        final ReasonerImpl loaded = ReasonerImpl.load( file );
+        assertNull( loaded.getConcept( "oD" ) );
+        assertEquals( relationsCount, loaded.getRelations( ).size( ) );
+        assertEquals( variants, loaded.getMode( ).getVariants( ) );
+        for ( final String name : NAMES ) {
+            assertEquals( conclusions.get( name ), loaded.getConclusion( loaded.getPriorKnowledge( name ) ) );
+            assertEquals( predictions.get( name ), loaded.getPrediction( loaded.getPriorKnowledge( name ) ) );
+        }
+    }
+
+    @Test
+    public void reasoningGoesOnDuringCheckpoint( ) throws Exception {
+        final ReasonerImpl reasoner = genome( );
+        reasoner.reasoning( );
+        final ExecutorService executor = Executors.newSingleThreadExecutor( );
+        try {
+            final List< CompletableFuture< Void > > checkpoints = new ArrayList<>( );
+            for ( int i = 0; i < 8; i++ ) {
+                checkpoints.add( reasoner.checkpoint( new File( folder.getRoot( ), "checkpoint" + i ), executor ) );
+                final Observation observation = observation( "o" + i, i % 2 == 0 ? TruthValue.f : TruthValue.t );
+                reasoner.insert( observation, new RelationImpl( observation, reasoner.getPriorKnowledge( "D" ), observation.getType( ) ) );
+                reasoner.reasoning( );
+            }
+            for ( int i = 0; i < checkpoints.size( ); i++ ) {
+                checkpoints.get( i ).get( );
+                final ReasonerImpl loaded = ReasonerImpl.load( new File( folder.getRoot( ), "checkpoint" + i ) );
+                assertEquals( i + 1, loaded.getObservations( ).size( ) );
+            }
+        }
+        finally {
+            executor.shutdown( );
+        }
+    }
+
+    @Test
+    public void failureIsReported( ) throws Exception {
+        final File missing = new File( new File( folder.getRoot( ), "missing" ), "checkpoint.grk" );
+        try {
+            genome( ).checkpoint( missing, Runnable::run ).get( );
+            fail( "A checkpoint is written into a missing directory" );
+        }
+        catch ( ExecutionException e ) {
+            assertFalse( missing.exists( ) );
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package fr.cea.ig.grools.reasoner;
+
+import fr.cea.ig.grools.fact.Observation;
+import fr.cea.ig.grools.fact.ObservationImpl;
+import fr.cea.ig.grools.fact.ObservationType;
+import fr.cea.ig.grools.fact.PriorKnowledge;
+import fr.cea.ig.grools.fact.PriorKnowledgeImpl;
+import fr.cea.ig.grools.fact.Relation;
+import fr.cea.ig.grools.fact.RelationImpl;
+import fr.cea.ig.grools.fact.RelationType;
+import fr.cea.ig.grools.logic.TruthValue;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * ConceptComponentsTest
+ */
+public class ConceptComponentsTest {
+    private ConceptGraph graph;
+    private ConceptComponents components;
+    private PriorKnowledge pkA;
+    private PriorKnowledge pkB;
+    private PriorKnowledge pkC;
+    private PriorKnowledge pkD;
+    private Relation bToA;
+    private Relation oDToD;
+
+    @Before
+    public void setUp( ) {
+        graph = new ConceptGraph( );
+        pkA = PriorKnowledgeImpl.builder( ).name( "A" ).build( );
+        pkB = PriorKnowledgeImpl.builder( ).name( "B" ).build( );
+        pkC = PriorKnowledgeImpl.builder( ).name( "C" ).build( );
+        pkD = PriorKnowledgeImpl.builder( ).name( "D" ).build( );
+        final Observation oD = ObservationImpl.builder( )
+                                              .name( "oD" )
+                                              .type( ObservationType.CURATION )
+                                              .truthValue( TruthValue.t )
+                                              .build( );
+        bToA = new RelationImpl( pkB, pkA, RelationType.PART );
+        oDToD = new RelationImpl( oD, pkD, oD.getType( ) );
+        graph.addRelations( bToA, new RelationImpl( pkC, pkA, RelationType.PART ), oDToD );
+        components = new ConceptComponents( graph );
+    }
+
+    @Test
+    public void initialComponents( ) {
+        assertEquals( 2, components.size( ) );
+        assertSame( components.getComponent( pkA ), components.getComponent( pkC ) );
+        assertNotSame( components.getComponent( pkA ), components.getComponent( pkD ) );
+        assertEquals( 2, components.takeDirty( ).size( ) );
+        assertTrue( components.takeDirty( ).isEmpty( ) );
+    }
+
+    @Test
+    public void insertMergesComponents( ) {
+        components.takeDirty( );
+        final Relation dToB = new RelationImpl( pkD, pkB, RelationType.SUBTYPE );
+        graph.addRelation( dToB );
+        components.addRelation( dToB );
+        assertEquals( 1, components.size( ) );
+        final List< ConceptComponents.Component > dirty = components.takeDirty( );
+        assertEquals( 1, dirty.size( ) );
+        assertEquals( 5, dirty.get( 0 ).getMembers( ).size( ) );
+        assertEquals( 3, dirty.get( 0 ).getLevels( graph ).getBottomUp( ).size( ) );
+    }
+
+    @Test
+    public void deleteSplitsComponent( ) {
+        components.takeDirty( );
+        graph.deleteRelation( bToA );
+        components.deleteRelation( bToA );
+        final List< ConceptComponents.Component > dirty = components.takeDirty( );
+        assertEquals( 2, dirty.size( ) );
+        assertEquals( 3, components.size( ) );
+        assertNotSame( components.getComponent( pkA ), components.getComponent( pkB ) );
+        assertSame( components.getComponent( pkA ), components.getComponent( pkC ) );
+    }
+
+    @Test
+    public void onlyChangedComponentIsDirty( ) {
+        components.takeDirty( );
+        graph.deleteRelation( oDToD );
+        components.deleteRelation( oDToD );
+        graph.addRelation( oDToD );
+        components.addRelation( oDToD );
+        final List< ConceptComponents.Component > dirty = components.takeDirty( );
+        assertEquals( 1, dirty.size( ) );
+        assertTrue( dirty.get( 0 ).getMembers( ).contains( pkD ) );
+    }
+
+    @Test
+    public void sharedObservationMergesComponents( ) {
+        // levels of both components are computed before the merge
+        for ( final ConceptComponents.Component component : components.takeDirty( ) )
+            component.getLevels( graph );
+        final Observation shared = ObservationImpl.builder( )
+                                                  .name( "shared" )
+                                                  .type( ObservationType.COMPUTATION )
+                                                  .truthValue( TruthValue.t )
+                                                  .build( );
+        final Relation toB = new RelationImpl( shared, pkB, shared.getType( ) );
+        final Relation toD = new RelationImpl( shared, pkD, shared.getType( ) );
+        graph.addRelations( toB, toD );
+        components.addRelation( toB );
+        components.addRelation( toD );
+        assertEquals( 1, components.size( ) );
+        final List< ConceptComponents.Component > dirty = components.takeDirty( );
+        assertEquals( 1, dirty.size( ) );
+        final PriorKnowledgeLevels levels = dirty.get( 0 ).getLevels( graph );
+        int count = 0;
+        for ( final List< PriorKnowledge > level : levels.getBottomUp( ) ) {
+            count += level.size( );
+            if ( level.contains( pkD ) )
+                assertTrue( level.contains( pkB ) );
+        }
+        assertEquals( 4, count );
+    }
+}
@@ -0,0 +1,142 @@
+package fr.cea.ig.grools.reasoner;
+
+import fr.cea.ig.grools.Mode;
+import fr.cea.ig.grools.Verbosity;
+import fr.cea.ig.grools.fact.Concept;
+import fr.cea.ig.grools.fact.Observation;
+import fr.cea.ig.grools.fact.ObservationImpl;
+import fr.cea.ig.grools.fact.ObservationType;
+import fr.cea.ig.grools.fact.PriorKnowledge;
+import fr.cea.ig.grools.fact.PriorKnowledgeImpl;
+import fr.cea.ig.grools.fact.Relation;
+import fr.cea.ig.grools.fact.RelationImpl;
+import fr.cea.ig.grools.fact.RelationType;
+import fr.cea.ig.grools.logic.TruthValue;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * ConceptGraphBuildTest
+ */
+public class ConceptGraphBuildTest {
+    private static final int SIZE = 5000;
+
+    /**
+     * Each prior-knowledge i > 0 is a part or a subtype of (i - 1) / 3, every fifth one is observed
+     */
+    private static List< Relation > relations( final List< Concept > concepts ) {
+        final PriorKnowledge[] pks = new PriorKnowledge[ SIZE ];
+        for ( int i = 0; i < SIZE; i++ ) {
+            pks[ i ] = PriorKnowledgeImpl.builder( ).name( "pk" + i ).isDispensable( i % 7 == 0 ).build( );
+            concepts.add( pks[ i ] );
+        }
+        final List< Relation > relations = new ArrayList<>( );
+        for ( int i = 1; i < SIZE; i++ )
+            relations.add( new RelationImpl( pks[ i ], pks[ ( i - 1 ) / 3 ], i % 2 == 0 ? RelationType.PART : RelationType.SUBTYPE ) );
+        for ( int i = 0; i < SIZE; i += 5 ) {
+            final Observation observation = ObservationImpl.builder( )
+                                                           .name( "o" + i )
+                                                           .type( ObservationType.COMPUTATION )
+                                                           .truthValue( i % 2 == 0 ? TruthValue.t : TruthValue.f )
+                                                           .build( );
+            relations.add( new RelationImpl( observation, pks[ i ], observation.getType( ) ) );
+        }
+        return relations;
+    }
+
+    private static void assertSameGraph( final ConceptGraph expected, final ConceptGraph actual ) {
+        assertEquals( expected.getConcepts( ), actual.getConcepts( ) );
+        assertEquals( expected.getRelations( ), actual.getRelations( ) );
+        assertEquals( expected.getLeaves( ), actual.getLeaves( ) );
+        assertEquals( expected.getTops( ), actual.getTops( ) );
+        final Set< Integer > ids = new HashSet<>( );
+        for ( final Concept concept : expected.getConcepts( ) ) {
+            assertEquals( concept, actual.getConcept( concept.getName( ) ) );
+            assertEquals( expected.getOutgoing( concept ), actual.getOutgoing( concept ) );
+            assertEquals( expected.getIncoming( concept ), actual.getIncoming( concept ) );
+            assertEquals( expected.hasOutGoingRelation( concept ), actual.hasOutGoingRelation( concept ) );
+            assertEquals( expected.getChildren( concept ), actual.getChildren( concept ) );
+            assertEquals( expected.getParents( concept, RelationType.PART ), actual.getParents( concept, RelationType.PART ) );
+            assertEquals( expected.getObservations( concept, ObservationType.COMPUTATION ),
+                          actual.getObservations( concept, ObservationType.COMPUTATION ) );
+            final int id = actual.getId( concept );
+            assertTrue( id >= 0 && id < actual.getIdsCount( ) );
+            assertEquals( concept, actual.getConcept( id ) );
+            ids.add( id );
+        }
+        assertEquals( expected.getConcepts( ).size( ), ids.size( ) );
+    }
+
+    @Test
+    public void sameGraphAsAddedOneByOne( ) {
+        final List< Concept > concepts = new ArrayList<>( );
+        final List< Relation > relations = relations( concepts );
+        final ConceptGraph expected = new ConceptGraph( );
+        concepts.forEach( expected::addConcept );
+        expected.addRelations( relations );
+
+        // duplicates are ignored
+        final List< Relation > batch = new ArrayList<>( relations );
+        batch.addAll( relations.subList( 0, 10 ) );
+        Collections.shuffle( batch );
+        assertSameGraph( expected, ConceptGraph.build( concepts, batch, new ForkJoinPool( 4 ) ) );
+        assertSameGraph( expected, ConceptGraph.build( concepts, batch, null ) );
+        // concepts of relations are added
+        assertSameGraph( expected, ConceptGraph.build( Collections.emptySet( ), relations ) );
+    }
+
+    @Test
+    public void sameResultsAsAddedOneByOne( ) {
+        final List< Concept > concepts = new ArrayList<>( );
+        final List< Relation > relations = relations( concepts );
+        final ConceptGraph added = new ConceptGraph( );
+        concepts.forEach( added::addConcept );
+        added.addRelations( relations );
+        final ReasonerImpl expected = new ReasonerImpl( added, Mode.NORMAL, Verbosity.QUIET );
+        expected.setWriteThrough( false );
+        expected.reasoning( );
+
+        final ReasonerImpl actual = new ReasonerImpl( ConceptGraph.build( concepts, relations ), Mode.NORMAL, Verbosity.QUIET );
+        actual.setWriteThrough( false );
+        actual.reasoning( );
+        for ( final Concept concept : concepts ) {
+            final PriorKnowledge pk = ( PriorKnowledge ) concept;
+            assertEquals( expected.getPrediction( pk ), actual.getPrediction( pk ) );
+            assertEquals( expected.getExpectation( pk ), actual.getExpectation( pk ) );
+            assertEquals( expected.getConclusion( pk ), actual.getConclusion( pk ) );
+        }
+    }
+
+    @Test
+    public void builtGraphCanChange( ) {
+        final List< Concept > concepts = new ArrayList<>( );
+        final ConceptGraph graph = ConceptGraph.build( concepts, relations( concepts ) );
+        final ConceptGraph fork = graph.fork( );
+        final PriorKnowledge pk1 = ( PriorKnowledge ) graph.getConcept( "pk1" );
+        final Relation relation = graph.getOutgoing( pk1 ).iterator( ).next( );
+        graph.deleteRelation( relation );
+        assertFalse( graph.getRelations( ).contains( relation ) );
+        assertTrue( graph.getTops( ).contains( pk1 ) );
+        assertTrue( fork.getRelations( ).contains( relation ) );
+        assertFalse( fork.getTops( ).contains( pk1 ) );
+
+        final PriorKnowledge extra = PriorKnowledgeImpl.builder( ).name( "extra" ).build( );
+        final int nextId = graph.getIdsCount( );
+        graph.addRelation( new RelationImpl( extra, pk1, RelationType.PART ) );
+        assertNotNull( graph.getConcept( "extra" ) );
+        assertEquals( nextId, graph.getId( extra ) );
+        assertTrue( graph.getChildren( pk1 ).contains( extra ) );
+        assertFalse( fork.getChildren( pk1 ).contains( extra ) );
+    }
+}
@@ -0,0 +1,223 @@
+package fr.cea.ig.grools.reasoner;
+
+import fr.cea.ig.grools.Mode;
+import fr.cea.ig.grools.Verbosity;
+import fr.cea.ig.grools.fact.Concept;
+import fr.cea.ig.grools.fact.Observation;
+import fr.cea.ig.grools.fact.ObservationImpl;
+import fr.cea.ig.grools.fact.ObservationType;
+import fr.cea.ig.grools.fact.PriorKnowledge;
+import fr.cea.ig.grools.fact.PriorKnowledgeImpl;
+import fr.cea.ig.grools.fact.Relation;
+import fr.cea.ig.grools.fact.RelationImpl;
+import fr.cea.ig.grools.fact.RelationType;
+import fr.cea.ig.grools.logic.TruthValue;
+import fr.cea.ig.grools.logic.TruthValuePowerSet;
+import fr.cea.ig.grools.logic.TruthValueSet;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * ConceptGraphTest
+ */
+public class ConceptGraphTest {
+    private ConceptGraph graph;
+    private PriorKnowledge pkA;
+    private PriorKnowledge pkB;
+    private PriorKnowledge pkC;
+    private Observation oB;
+    private Relation bToA;
+    private Relation cToA;
+    private Relation oBToB;
+
+    @Before
+    public void setUp( ) {
+        graph = new ConceptGraph( );
+        pkA = PriorKnowledgeImpl.builder( ).name( "A" ).build( );
+        pkB = PriorKnowledgeImpl.builder( ).name( "B" ).build( );
+        pkC = PriorKnowledgeImpl.builder( ).name( "C" ).build( );
+        oB = ObservationImpl.builder( )
+                            .name( "oB" )
+                            .type( ObservationType.COMPUTATION )
+                            .truthValue( TruthValue.t )
+                            .build( );
+        bToA = new RelationImpl( pkB, pkA, RelationType.PART );
+        cToA = new RelationImpl( pkC, pkA, RelationType.SUBTYPE );
+        oBToB = new RelationImpl( oB, pkB, oB.getType( ) );
+        graph.addRelations( bToA, cToA, oBToB );
+    }
+
+    @Test
+    public void compactKeepsAdjacency( ) {
+        final ConceptGraph compact = graph.compact( );
+        assertEquals( graph.getConcepts( ).size( ), compact.getConcepts( ).size( ) );
+        assertEquals( graph.getRelations( ).size( ), compact.getRelations( ).size( ) );
+        assertEquals( 2, compact.getIncoming( pkA ).size( ) );
+        assertEquals( 1, compact.getOutgoing( pkB ).size( ) );
+        assertEquals( 0, compact.getOutgoing( pkA ).size( ) );
+        assertTrue( compact.getIncoming( pkA ).contains( bToA ) );
+        assertTrue( compact.getRelations( ).contains( oBToB ) );
+        assertFalse( compact.hasOutGoingRelation( pkA ) );
+        assertTrue( compact.hasIncomingRelation( pkB, Observation.class ) );
+        assertEquals( pkC, compact.getConcept( "C" ) );
+    }
+
+    @Test( expected = UnsupportedOperationException.class )
+    public void compactIsReadOnly( ) {
+        graph.compact( ).addRelation( new RelationImpl( pkA, pkC, RelationType.PART ) );
+    }
+
+    @Test
+    public void partitionedAdjacency( ) {
+        assertEquals( 1, graph.getChildren( pkA, RelationType.PART ).size( ) );
+        assertTrue( graph.getChildren( pkA, RelationType.SUBTYPE ).contains( pkC ) );
+        assertEquals( 2, graph.getChildren( pkA ).size( ) );
+        assertTrue( graph.getParents( pkB, RelationType.PART ).contains( pkA ) );
+        assertTrue( graph.getParents( pkC, RelationType.PART ).isEmpty( ) );
+        assertTrue( graph.getObservations( pkB, ObservationType.COMPUTATION ).contains( oB ) );
+        assertTrue( graph.getObservations( pkB, ObservationType.CURATION ).isEmpty( ) );
+
+        graph.deleteRelation( bToA );
+        assertTrue( graph.getChildren( pkA, RelationType.PART ).isEmpty( ) );
+        assertTrue( graph.getParents( pkB ).isEmpty( ) );
+        graph.deleteConcept( oB );
+        assertTrue( graph.getObservations( pkB, ObservationType.COMPUTATION ).isEmpty( ) );
+        assertFalse( graph.getConcepts( ).contains( oB ) );
+    }
+
+    @Test
+    public void leavesAndTops( ) {
+        assertEquals( 2, graph.getLeaves( ).size( ) );
+        assertTrue( graph.getLeaves( ).containsAll( Arrays.asList( pkB, pkC ) ) );
+        assertEquals( 1, graph.getTops( ).size( ) );
+        assertTrue( graph.getTops( ).contains( pkA ) );
+
+        graph.deleteRelation( cToA );
+        assertTrue( graph.getTops( ).contains( pkC ) );
+        graph.deleteConcept( pkB );
+        assertTrue( graph.getLeaves( ).contains( pkA ) );
+        assertFalse( graph.getLeaves( ).contains( pkB ) );
+        assertEquals( 2, graph.getTops( ).size( ) );
+
+        graph.addRelation( new RelationImpl( pkA, pkC, RelationType.PART ) );
+        assertFalse( graph.getLeaves( ).contains( pkC ) );
+        assertFalse( graph.getTops( ).contains( pkA ) );
+        assertTrue( graph.getLeaves( ).equals( graph.compact( ).getLeaves( ) ) );
+    }
+
+    @Test
+    public void directEvidence( ) {
+        assertEquals( TruthValueSet.T, graph.getDirectPrediction( pkB ) );
+        assertEquals( TruthValueSet.N, graph.getDirectExpectation( pkB ) );
+        assertEquals( TruthValueSet.N, graph.getDirectPrediction( pkA ) );
+
+        final Observation curation = ObservationImpl.builder( )
+                                                    .name( "cB" )
+                                                    .type( ObservationType.CURATION )
+                                                    .truthValue( TruthValue.f )
+                                                    .build( );
+        final Relation curationToB = new RelationImpl( curation, pkB, curation.getType( ) );
+        graph.addRelation( curationToB );
+        assertEquals( TruthValueSet.B, graph.getDirectPrediction( pkB ) );
+        assertEquals( TruthValueSet.F, graph.getDirectExpectation( pkB ) );
+
+        graph.deleteRelation( curationToB );
+        assertEquals( TruthValueSet.T, graph.getDirectPrediction( pkB ) );
+        assertEquals( TruthValueSet.N, graph.getDirectExpectation( pkB ) );
+    }
+
+    @Test( expected = UnsupportedOperationException.class )
+    public void partitionIsReadOnly( ) {
+        graph.getChildren( pkA, RelationType.PART ).clear( );
+    }
+
+    @Test
+    public void reasoningOnCompact( ) throws Exception {
+        final ReasonerImpl reasoner = new ReasonerImpl( graph.compact( ), Mode.NORMAL, Verbosity.QUIET );
+        reasoner.reasoning( );
+        assertEquals( TruthValuePowerSet.T, reasoner.getPrediction( pkB ) );
+        reasoner.close( );
+    }
+
+    @Test
+    public void compactViewsAreRows( ) {
+        final CompressedAdjacency adjacency = new CompressedAdjacency( graph.getConcepts( ), graph.getRelations( ) );
+        final int idA = adjacency.idOf( pkA );
+        final int idB = adjacency.idOf( pkB );
+        assertEquals( graph.getChildren( pkA ), adjacency.children( idA, null ) );
+        assertEquals( graph.getChildren( pkA, RelationType.PART ), adjacency.children( idA, RelationType.PART ) );
+        assertEquals( graph.getParents( pkB ), adjacency.parents( idB, null ) );
+        assertTrue( adjacency.parents( adjacency.idOf( oB ), null ).isEmpty( ) );
+        assertEquals( graph.getObservations( pkB, ObservationType.COMPUTATION ),
+                      adjacency.observations( idB, ObservationType.COMPUTATION ) );
+        assertEquals( graph.getDirectPrediction( pkB ), adjacency.getDirectPrediction( idB ) );
+        assertEquals( graph.getDirectExpectation( pkA ), adjacency.getDirectExpectation( idA ) );
+
+        final Map< String, Concept > names = adjacency.namesView( );
+        assertEquals( graph.getNameToConcept( ), names );
+        assertEquals( oB, names.get( "oB" ) );
+        assertFalse( names.containsKey( "Z" ) );
+        final Map< Integer, Concept > ids = adjacency.idsView( );
+        for ( final Concept concept : graph.getConcepts( ) )
+            assertEquals( concept, ids.get( adjacency.idOf( concept ) ) );
+        assertEquals( graph.getLeaves( ), adjacency.priorKnowledgesView( true ) );
+        assertEquals( graph.getTops( ), adjacency.priorKnowledgesView( false ) );
+    }
+
+    @Test
+    public void compactSeesEachChildOnce( ) {
+        graph.addRelation( new RelationImpl( pkB, pkA, RelationType.SUBTYPE ) );
+        final ConceptGraph compact = graph.compact( );
+        assertEquals( graph.getChildren( pkA ), compact.getChildren( pkA ) );
+        assertEquals( 2, compact.getChildren( pkA ).size( ) );
+        assertEquals( graph.getChildren( pkA, RelationType.SUBTYPE ), compact.getChildren( pkA, RelationType.SUBTYPE ) );
+    }
+
+    @Test
+    public void compactReasoningBuildsNoNeighbourhood( ) throws Exception {
+        // each prior-knowledge i > 0 is a part of (i - 1) / 2, every second one is observed
+        final int size = 2000;
+        final List< Relation > batch = new ArrayList<>( );
+        final PriorKnowledge[] pks = new PriorKnowledge[ size ];
+        for ( int i = 0; i < size; i++ ) {
+            pks[ i ] = PriorKnowledgeImpl.builder( ).name( "pk" + i ).build( );
+            if ( i > 0 )
+                batch.add( new RelationImpl( pks[ i ], pks[ ( i - 1 ) / 2 ], RelationType.PART ) );
+            if ( i % 2 == 0 ) {
+                final Observation observation = ObservationImpl.builder( )
+                                                               .name( "o" + i )
+                                                               .type( ObservationType.COMPUTATION )
+                                                               .truthValue( TruthValue.t )
+                                                               .build( );
+                batch.add( new RelationImpl( observation, pks[ i ], observation.getType( ) ) );
+            }
+        }
+        final ConceptGraph large = new ConceptGraph( );
+        large.addRelations( batch );
+        final ConceptGraph compact = large.compact( );
+        final ReasonerImpl regular = new ReasonerImpl( large, Mode.NORMAL, Verbosity.QUIET );
+        final ReasonerImpl compacted = new ReasonerImpl( compact, Mode.NORMAL, Verbosity.QUIET );
+        regular.reasoning( );
+        compacted.reasoning( );
+        for ( final PriorKnowledge pk : pks ) {
+            assertEquals( regular.getPrediction( pk ), compacted.getPrediction( pk ) );
+            assertEquals( regular.getConclusion( pk ), compacted.getConclusion( pk ) );
+        }
+        // ids come from the storage and adjacency from its rows
+        assertEquals( 0, compact.getNeighbourhoodsCount( ) );
+        assertEquals( large.getConcepts( ).size( ), compact.getIdsCount( ) );
+        assertNotNull( compact.getConcept( "pk" + ( size - 1 ) ) );
+        regular.close( );
+        compacted.close( );
+    }
+}
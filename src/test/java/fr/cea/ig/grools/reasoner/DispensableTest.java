@@ -18,7 +18,10 @@ public class DispensableTest {
 
     @Before
     public void setUp( ) {
-        reasoner = new ReasonerImpl( Mode.DISPENSABLE, Verbosity.HIGHT );
+        final ReasonerImpl impl = new ReasonerImpl( Mode.DISPENSABLE, Verbosity.HIGHT );
+        // values are read from prior-knowledges
+        impl.setWriteThrough( true );
+        reasoner = impl;
     }
 
     @Test
@@ -0,0 +1,55 @@
+package fr.cea.ig.grools.reasoner;
+
+import fr.cea.ig.grools.logic.TruthValueSet;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * EnumDoubleEntryTableTest
+ */
+public class EnumDoubleEntryTableTest {
+    private EnumDoubleEntryTable< TruthValueSet, TruthValueSet, String > table;
+
+    @Before
+    public void setUp( ) {
+        table = new EnumDoubleEntryTable<>( new TruthValueSet[]{ TruthValueSet.T, TruthValueSet.F },
+                                            new TruthValueSet[]{ TruthValueSet.T, TruthValueSet.F, TruthValueSet.N },
+                                            new String[][]{ { "TT", "TF", "TN" },
+                                                            { "FT", "FF", "FN" } } );
+    }
+
+    @Test
+    public void getDoesNotThrow( ) {
+        assertEquals( "FN", table.get( TruthValueSet.F, TruthValueSet.N ) );
+        assertNull( table.get( TruthValueSet.B, TruthValueSet.T ) );
+        assertNull( table.get( TruthValueSet.T, TruthValueSet.B ) );
+        assertEquals( "none", table.getOrDefault( TruthValueSet.N, TruthValueSet.T, "none" ) );
+        assertTrue( table.contains( TruthValueSet.T, TruthValueSet.N ) );
+        assertFalse( table.containsRow( TruthValueSet.N ) );
+    }
+
+    @Test
+    public void rowAndColumnViews( ) {
+        assertEquals( Arrays.asList( "FT", "FF", "FN" ), table.getRow( TruthValueSet.F ) );
+        assertEquals( Arrays.asList( "TF", "FF" ), table.getColumn( TruthValueSet.F ) );
+        assertTrue( table.getColumn( TruthValueSet.B ).isEmpty( ) );
+        table.put( TruthValueSet.F, TruthValueSet.F, "ff" );
+        assertEquals( "ff", table.getRow( TruthValueSet.F ).get( 1 ) );
+    }
+
+    @Test( expected = UnsupportedOperationException.class )
+    public void frozenTableIsReadOnly( ) {
+        final EnumDoubleEntryTable< TruthValueSet, TruthValueSet, String > frozen = table.freeze( );
+        table.put( TruthValueSet.T, TruthValueSet.T, "tt" );
+        assertTrue( frozen.isFrozen( ) );
+        assertEquals( "TT", frozen.get( TruthValueSet.T, TruthValueSet.T ) );
+        frozen.put( TruthValueSet.T, TruthValueSet.T, "tt" );
+    }
+}
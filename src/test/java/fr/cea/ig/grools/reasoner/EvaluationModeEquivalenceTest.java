@@ -0,0 +1,92 @@
+package fr.cea.ig.grools.reasoner;
+
+import fr.cea.ig.grools.Mode;
+import fr.cea.ig.grools.Reasoner;
+import fr.cea.ig.grools.Verbosity;
+import fr.cea.ig.grools.fact.PriorKnowledge;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * EvaluationModeEquivalenceTest
+ * <p>
+ * Each graph of {@link Cases} is reasoned with each evaluation mode and compared to {@link EvaluationMode#LEVEL_ORDERED}
+ * on every prior-knowledge. The worklist only evaluates a prior-knowledge when one of its dependencies changed, thus a
+ * value it never reached keeps its initial value.
+ */
+@RunWith( Parameterized.class )
+public class EvaluationModeEquivalenceTest {
+    private final Method graph;
+    private final EvaluationMode evaluationMode;
+
+    public EvaluationModeEquivalenceTest( final String name, final Method graph, final EvaluationMode evaluationMode ) {
+        this.graph = graph;
+        this.evaluationMode = evaluationMode;
+    }
+
+    @Parameterized.Parameters( name = "{0}" )
+    public static Collection< Object[] > parameters( ) {
+        final List< Object[] > parameters = new ArrayList<>( );
+        Arrays.stream( Cases.class.getDeclaredMethods( ) )
+              .filter( method -> method.getName( ).matches( "case\\d+|cycle" ) )
+              .sorted( Comparator.comparing( Method::getName ) )
+              .forEach( method -> {
+                  method.setAccessible( true );
+                  for ( final EvaluationMode evaluationMode : EvaluationMode.values( ) ) {
+                      // the worklist does not evaluate by level, it is only compared on acyclic graphs
+                      if ( evaluationMode == EvaluationMode.LEVEL_ORDERED ||
+                           ( evaluationMode == EvaluationMode.WORKLIST && method.getName( ).equals( "cycle" ) ) )
+                          continue;
+                      parameters.add( new Object[]{ method.getName( ) + " " + evaluationMode, method, evaluationMode } );
+                  }
+              } );
+        return parameters;
+    }
+
+    private ReasonerImpl reason( final EvaluationMode evaluationMode ) throws Exception {
+        final ReasonerImpl reasoner = new ReasonerImpl( Mode.NORMAL, Verbosity.QUIET );
+        reasoner.setEvaluationMode( evaluationMode );
+        reasoner.setParallelThreshold( 1 );
+        // prior-knowledges keep their initial values
+        reasoner.setWriteThrough( false );
+        graph.invoke( null, ( Reasoner ) reasoner );
+        return reasoner;
+    }
+
+    private void assertEquivalent( final String message, final Object expected, final Object actual, final Object initial ) {
+        if ( evaluationMode == EvaluationMode.WORKLIST )
+            assertTrue( message + ": " + actual, Objects.equals( expected, actual ) || Objects.equals( initial, actual ) );
+        else
+            assertEquals( message, expected, actual );
+    }
+
+    @Test
+    public void sameValues( ) throws Exception {
+        final ReasonerImpl expected = reason( EvaluationMode.LEVEL_ORDERED );
+        final ReasonerImpl actual = reason( evaluationMode );
+        assertEquals( expected.getPriorKnowledges( ).size( ), actual.getPriorKnowledges( ).size( ) );
+        for ( final PriorKnowledge pk : expected.getPriorKnowledges( ) ) {
+            final PriorKnowledge other = actual.getPriorKnowledge( pk.getName( ) );
+            assertEquivalent( pk.getName( ) + " prediction", expected.getPrediction( pk ), actual.getPrediction( other ),
+                              other.getPrediction( ) );
+            assertEquivalent( pk.getName( ) + " expectation", expected.getExpectation( pk ), actual.getExpectation( other ),
+                              other.getExpectation( ) );
+            assertEquivalent( pk.getName( ) + " conclusion", expected.getConclusion( pk ), actual.getConclusion( other ),
+                              other.getConclusion( ) );
+        }
+        expected.close( );
+        actual.close( );
+    }
+}
@@ -0,0 +1,158 @@
+package fr.cea.ig.grools.reasoner;
+
+import fr.cea.ig.grools.Mode;
+import fr.cea.ig.grools.Verbosity;
+import fr.cea.ig.grools.fact.Observation;
+import fr.cea.ig.grools.fact.ObservationImpl;
+import fr.cea.ig.grools.fact.ObservationType;
+import fr.cea.ig.grools.fact.PriorKnowledge;
+import fr.cea.ig.grools.fact.Relation;
+import fr.cea.ig.grools.fact.RelationImpl;
+import fr.cea.ig.grools.logic.TruthValue;
+import fr.cea.ig.grools.logic.TruthValuePowerSet;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * EvaluationModeTest
+ */
+@RunWith( Parameterized.class )
+public class EvaluationModeTest {
+    private final EvaluationMode evaluationMode;
+    private ReasonerImpl reasoner;
+
+    public EvaluationModeTest( final EvaluationMode evaluationMode ) {
+        this.evaluationMode = evaluationMode;
+    }
+
+    @Parameterized.Parameters( name = "{0}" )
+    public static Collection< Object[] > evaluationModes( ) {
+        return Arrays.stream( EvaluationMode.values( ) )
+                     .map( evaluationMode -> new Object[]{ evaluationMode } )
+                     .collect( Collectors.toList( ) );
+    }
+
+    @Before
+    public void setUp( ) {
+        reasoner = new ReasonerImpl( Mode.NORMAL, Verbosity.QUIET );
+        reasoner.setEvaluationMode( evaluationMode );
+        reasoner.setParallelThreshold( 1 );
+        // values are read from prior-knowledges
+        reasoner.setWriteThrough( true );
+    }
+
+    @Test
+    public void case6( ) throws Exception {
+        Cases.case6( reasoner );
+        final PriorKnowledge pk1 = reasoner.getPriorKnowledge( "pk1" );
+        final PriorKnowledge pk11 = reasoner.getPriorKnowledge( "pk11" );
+        final PriorKnowledge pk12 = reasoner.getPriorKnowledge( "pk12" );
+
+        assertEquals( TruthValuePowerSet.T, pk11.getPrediction( ) );
+        assertEquals( TruthValuePowerSet.N, pk12.getPrediction( ) );
+        assertEquals( TruthValuePowerSet.NT, pk1.getPrediction( ) );
+        reasoner.close( );
+    }
+
+    @Test
+    public void case12( ) throws Exception {
+        Cases.case12( reasoner );
+        final PriorKnowledge cA = reasoner.getPriorKnowledge( "A" );
+        final PriorKnowledge cB = reasoner.getPriorKnowledge( "B" );
+        final PriorKnowledge cC = reasoner.getPriorKnowledge( "C" );
+        final PriorKnowledge cD = reasoner.getPriorKnowledge( "D" );
+        final PriorKnowledge cE = reasoner.getPriorKnowledge( "E" );
+        final PriorKnowledge cF = reasoner.getPriorKnowledge( "F" );
+        assertEquals( TruthValuePowerSet.T, cF.getPrediction( ) );
+        assertEquals( TruthValuePowerSet.F, cE.getPrediction( ) );
+        assertEquals( TruthValuePowerSet.F, cD.getPrediction( ) );
+        assertEquals( TruthValuePowerSet.TF, cC.getPrediction( ) );
+        assertEquals( TruthValuePowerSet.TF, cB.getPrediction( ) );
+        assertEquals( TruthValuePowerSet.TF, cA.getPrediction( ) );
+        reasoner.close( );
+    }
+
+    @Test
+    public void case14( ) throws Exception {
+        Cases.case14( reasoner );
+        final PriorKnowledge cA = reasoner.getPriorKnowledge( "A" );
+        final PriorKnowledge cC = reasoner.getPriorKnowledge( "C" );
+        final PriorKnowledge cD = reasoner.getPriorKnowledge( "D" );
+
+        assertEquals( TruthValuePowerSet.TF, cC.getPrediction( ) );
+        assertEquals( TruthValuePowerSet.TF, cA.getPrediction( ) );
+        assertEquals( TruthValuePowerSet.F, cA.getExpectation( ) );
+        assertEquals( TruthValuePowerSet.F, cD.getExpectation( ) );
+
+        Observation o = ObservationImpl.builder( )
+                                       .name( "oD2" )
+                                       .truthValue( TruthValue.t )
+                                       .type( ObservationType.EXPERIMENTATION )
+                                       .build( );
+        Relation oD2TocD = new RelationImpl( o, cD, o.getType( ) );
+        reasoner.insert( o, oD2TocD );
+        reasoner.reasoning( );
+        assertEquals( TruthValuePowerSet.TF, cD.getExpectation( ) );
+
+        reasoner.delete( oD2TocD );
+        reasoner.reasoning( );
+        assertEquals( TruthValuePowerSet.F, cD.getExpectation( ) );
+        assertEquals( TruthValuePowerSet.F, cA.getExpectation( ) );
+        reasoner.close( );
+    }
+
+    @Test
+    public void cycle( ) throws Exception {
+        // the worklist does not evaluate by level, it is only compared on acyclic graphs
+        Assume.assumeTrue( evaluationMode != EvaluationMode.WORKLIST );
+        final ReasonerImpl expected = new ReasonerImpl( Mode.NORMAL, Verbosity.QUIET );
+        expected.setEvaluationMode( EvaluationMode.LEVEL_ORDERED );
+        expected.setWriteThrough( false );
+        Cases.cycle( expected );
+        // many runs, a race between prior-knowledges of the cycle would not show at once
+        for ( int run = 0; run < 20; run++ ) {
+            final ReasonerImpl actual = new ReasonerImpl( Mode.NORMAL, Verbosity.QUIET );
+            actual.setEvaluationMode( evaluationMode );
+            actual.setParallelThreshold( 1 );
+            actual.setWriteThrough( false );
+            Cases.cycle( actual );
+            for ( final PriorKnowledge pk : expected.getPriorKnowledges( ) ) {
+                final PriorKnowledge other = actual.getPriorKnowledge( pk.getName( ) );
+                assertEquals( pk.getName( ), expected.getPrediction( pk ), actual.getPrediction( other ) );
+                assertEquals( pk.getName( ), expected.getExpectation( pk ), actual.getExpectation( other ) );
+                assertEquals( pk.getName( ), expected.getConclusion( pk ), actual.getConclusion( other ) );
+            }
+        }
+    }
+
+    @Test
+    public void cycleDoesNotDependOnNames( ) throws Exception {
+        Assume.assumeTrue( evaluationMode != EvaluationMode.WORKLIST );
+        final String[] names = { "A", "B", "C", "D", "E" };
+        // the cycle is evaluated in reverse name order
+        final String[] renamed = { "E", "D", "C", "B", "A" };
+        reasoner.setWriteThrough( false );
+        Cases.renamedCycle( reasoner, names );
+        final ReasonerImpl other = new ReasonerImpl( Mode.NORMAL, Verbosity.QUIET );
+        other.setEvaluationMode( evaluationMode );
+        other.setParallelThreshold( 1 );
+        other.setWriteThrough( false );
+        Cases.renamedCycle( other, renamed );
+        for ( int i = 0; i < names.length; i++ ) {
+            final PriorKnowledge pk = reasoner.getPriorKnowledge( names[ i ] );
+            final PriorKnowledge same = other.getPriorKnowledge( renamed[ i ] );
+            assertEquals( names[ i ], reasoner.getPrediction( pk ), other.getPrediction( same ) );
+            assertEquals( names[ i ], reasoner.getExpectation( pk ), other.getExpectation( same ) );
+            assertEquals( names[ i ], reasoner.getConclusion( pk ), other.getConclusion( same ) );
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package fr.cea.ig.grools.reasoner;
+
+import fr.cea.ig.grools.Mode;
+import fr.cea.ig.grools.Verbosity;
+import fr.cea.ig.grools.fact.Observation;
+import fr.cea.ig.grools.fact.ObservationType;
+import fr.cea.ig.grools.fact.PriorKnowledge;
+import fr.cea.ig.grools.fact.PriorKnowledgeImpl;
+import fr.cea.ig.grools.fact.Relation;
+import fr.cea.ig.grools.fact.RelationImpl;
+import fr.cea.ig.grools.fact.RelationType;
+import fr.cea.ig.grools.logic.TruthValue;
+import org.junit.Test;
+
+import static fr.cea.ig.grools.reasoner.Cases.assertSameValues;
+import static fr.cea.ig.grools.reasoner.Cases.observation;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * EvidenceFingerprintsTest
+ */
+public class EvidenceFingerprintsTest {
+    private static final String[] NAMES = { "A", "B", "C", "X", "Y" };
+
+    /**
+     * A has parts B and C, X has part Y, B and Y are predicted by observations
+     */
+    private static ReasonerImpl genome( final EvaluationMode evaluationMode ) {
+        final ReasonerImpl reasoner = new ReasonerImpl( Mode.NORMAL, Verbosity.QUIET );
+        reasoner.setEvaluationMode( evaluationMode );
+        final PriorKnowledge[] pks = new PriorKnowledge[ NAMES.length ];
+        for ( int i = 0; i < NAMES.length; i++ )
+            pks[ i ] = PriorKnowledgeImpl.builder( ).name( NAMES[ i ] ).build( );
+        reasoner.insert( ( Object[] ) pks );
+        final Observation oB = observation( "oB", ObservationType.COMPUTATION, TruthValue.t );
+        final Observation oY = observation( "oY", ObservationType.COMPUTATION, TruthValue.f );
+        reasoner.insert( new RelationImpl( pks[ 1 ], pks[ 0 ], RelationType.PART ),
+                         new RelationImpl( pks[ 2 ], pks[ 0 ], RelationType.PART ),
+                         new RelationImpl( pks[ 4 ], pks[ 3 ], RelationType.PART ),
+                         new RelationImpl( oB, pks[ 1 ], oB.getType( ) ),
+                         new RelationImpl( oY, pks[ 4 ], oY.getType( ) ) );
+        reasoner.setWriteThrough( false );
+        return reasoner;
+    }
+
+    @Test
+    public void fingerprintsChangeUpward( ) {
+        final ConceptGraph graph = new ConceptGraph( );
+        final PriorKnowledge a = PriorKnowledgeImpl.builder( ).name( "A" ).build( );
+        final PriorKnowledge b = PriorKnowledgeImpl.builder( ).name( "B" ).build( );
+        final PriorKnowledge c = PriorKnowledgeImpl.builder( ).name( "C" ).build( );
+        final PriorKnowledge x = PriorKnowledgeImpl.builder( ).name( "X" ).build( );
+        graph.addConcept( a );
+        graph.addConcept( b );
+        graph.addConcept( c );
+        graph.addConcept( x );
+        graph.addRelation( new RelationImpl( b, a, RelationType.PART ) );
+        graph.addRelation( new RelationImpl( c, a, RelationType.PART ) );
+        final EvidenceFingerprints fingerprints = new EvidenceFingerprints( graph );
+        final long fa = fingerprints.get( a );
+        final long fb = fingerprints.get( b );
+        final long fx = fingerprints.get( x );
+        // names are not hashed
+        assertEquals( fb, fingerprints.get( c ) );
+
+        final Observation oC = observation( "oC", ObservationType.COMPUTATION, TruthValue.t );
+        graph.addConcept( oC );
+        graph.addRelation( new RelationImpl( oC, c, oC.getType( ) ) );
+        fingerprints.invalidate( c );
+        assertNotEquals( fb, fingerprints.get( c ) );
+        assertNotEquals( fa, fingerprints.get( a ) );
+        assertEquals( fb, fingerprints.get( b ) );
+        assertEquals( fx, fingerprints.get( x ) );
+    }
+
+    @Test
+    public void sameResultsAsLevelOrdered( ) {
+        final ReasonerImpl expected = genome( EvaluationMode.LEVEL_ORDERED );
+        final ReasonerImpl actual = genome( EvaluationMode.FINGERPRINTED );
+        expected.reasoning( );
+        actual.reasoning( );
+        assertSameValues( expected, actual, NAMES );
+
+        final Observation[] oC = new Observation[ 2 ];
+        final Relation[] oCToC = new Relation[ 2 ];
+        final ReasonerImpl[] reasoners = { expected, actual };
+        for ( int i = 0; i < reasoners.length; i++ ) {
+            oC[ i ] = observation( "oC", ObservationType.COMPUTATION, TruthValue.f );
+            oCToC[ i ] = new RelationImpl( oC[ i ], reasoners[ i ].getPriorKnowledge( "C" ), oC[ i ].getType( ) );
+            reasoners[ i ].insert( oC[ i ], oCToC[ i ] );
+            reasoners[ i ].reasoning( );
+        }
+        assertSameValues( expected, actual, NAMES );
+
+        for ( int i = 0; i < reasoners.length; i++ ) {
+            reasoners[ i ].delete( oCToC[ i ] );
+            reasoners[ i ].reasoning( );
+        }
+        assertSameValues( expected, actual, NAMES );
+    }
+
+    @Test
+    public void memoIsShared( ) {
+        final PredictionMemo memo = new PredictionMemo( 1024 );
+        final ReasonerImpl first = genome( EvaluationMode.FINGERPRINTED );
+        first.setPredictionMemo( memo );
+        first.reasoning( );
+        assertEquals( 0, memo.getHits( ) );
+        assertEquals( NAMES.length, memo.getMisses( ) );
+
+        final ReasonerImpl second = genome( EvaluationMode.FINGERPRINTED );
+        second.setPredictionMemo( memo );
+        second.reasoning( );
+        assertEquals( NAMES.length, memo.getHits( ) );
+        assertEquals( NAMES.length, memo.getMisses( ) );
+        assertSameValues( first, second, NAMES );
+    }
+}
@@ -0,0 +1,159 @@
+package fr.cea.ig.grools.reasoner;
+
+import fr.cea.ig.grools.Mode;
+import fr.cea.ig.grools.VariantMode;
+import fr.cea.ig.grools.Verbosity;
+import fr.cea.ig.grools.fact.Observation;
+import fr.cea.ig.grools.fact.ObservationImpl;
+import fr.cea.ig.grools.fact.ObservationType;
+import fr.cea.ig.grools.fact.PriorKnowledge;
+import fr.cea.ig.grools.fact.PriorKnowledgeImpl;
+import fr.cea.ig.grools.fact.Relation;
+import fr.cea.ig.grools.fact.RelationImpl;
+import fr.cea.ig.grools.fact.RelationType;
+import fr.cea.ig.grools.logic.TruthValue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * KnowledgeBaseCodecTest
+ */
+public class KnowledgeBaseCodecTest {
+    private static final String[] NAMES = { "A", "B", "C", "D" };
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder( );
+
+    /**
+     * A has parts B and C, D is a subtype of C, B is predicted and A is expected
+     */
+    private static ReasonerImpl genome( ) {
+        final ReasonerImpl reasoner = new ReasonerImpl( Mode.NORMAL, Verbosity.QUIET );
+        final PriorKnowledge[] pks = new PriorKnowledge[ NAMES.length ];
+        for ( int i = 0; i < NAMES.length; i++ )
+            pks[ i ] = PriorKnowledgeImpl.builder( ).name( NAMES[ i ] ).isDispensable( i == 2 ).build( );
+        reasoner.insert( ( Object[] ) pks );
+        final Observation oB = ObservationImpl.builder( )
+                                              .name( "oB" )
+                                              .type( ObservationType.COMPUTATION )
+                                              .truthValue( TruthValue.t )
+                                              .build( );
+        final Observation oA = ObservationImpl.builder( )
+                                              .name( "oA" )
+                                              .type( ObservationType.EXPERIMENTATION )
+                                              .truthValue( TruthValue.f )
+                                              .build( );
+        reasoner.insert( oB, oA );
+        reasoner.insert( new RelationImpl( pks[ 1 ], pks[ 0 ], RelationType.PART ),
+                         new RelationImpl( pks[ 2 ], pks[ 0 ], RelationType.PART ),
+                         new RelationImpl( pks[ 3 ], pks[ 2 ], RelationType.SUBTYPE ),
+                         new RelationImpl( oB, pks[ 1 ], oB.getType( ) ),
+                         new RelationImpl( oA, pks[ 0 ], oA.getType( ) ) );
+        return reasoner;
+    }
+
+    @Test
+    public void roundTrip( ) throws Exception {
+        final ReasonerImpl saved = genome( );
+        saved.setEvaluationMode( EvaluationMode.LEVEL_ORDERED );
+        saved.reasoning( );
+        final File file = folder.newFile( "kb.grk" );
+        saved.save( file );
+
+        final ReasonerImpl loaded = ReasonerImpl.load( file );
+        assertEquals( EvaluationMode.LEVEL_ORDERED, loaded.getEvaluationMode( ) );
+        assertEquals( saved.getConcepts( ).size( ), loaded.getConcepts( ).size( ) );
+        assertEquals( saved.getRelations( ).size( ), loaded.getRelations( ).size( ) );
+        for ( final Relation relation : saved.getRelations( ) ) {
+            final Relation copy = loaded.getRelation( loaded.getConcept( relation.getSource( ).getName( ) ),
+                                                      loaded.getConcept( relation.getTarget( ).getName( ) ),
+                                                      relation.getType( ) );
+            assertNotNull( copy );
+        }
+        final Observation oA = loaded.getObservation( "oA" );
+        assertEquals( ObservationType.EXPERIMENTATION, oA.getType( ) );
+        assertEquals( TruthValue.f, oA.getTruthValue( ) );
+        for ( final String name : NAMES ) {
+            final PriorKnowledge expected = saved.getPriorKnowledge( name );
+            final PriorKnowledge actual = loaded.getPriorKnowledge( name );
+            assertEquals( expected.getIsDispensable( ), actual.getIsDispensable( ) );
+            assertEquals( saved.getPrediction( expected ), loaded.getPrediction( actual ) );
+            assertEquals( saved.getExpectation( expected ), loaded.getExpectation( actual ) );
+            assertEquals( saved.getConclusion( expected ), loaded.getConclusion( actual ) );
+        }
+
+        loaded.reasoning( );
+        for ( final String name : NAMES )
+            assertEquals( saved.getConclusion( saved.getPriorKnowledge( name ) ),
+                          loaded.getConclusion( loaded.getPriorKnowledge( name ) ) );
+    }
+
+    @Test
+    public void truncatedFileIsRejected( ) throws Exception {
+        final File file = folder.newFile( "kb.grk" );
+        genome( ).save( file );
+        try ( RandomAccessFile raf = new RandomAccessFile( file, "rw" ) ) {
+            raf.setLength( raf.length( ) - 1 );
+        }
+        try {
+            ReasonerImpl.load( file );
+            fail( "A truncated file is loaded" );
+        }
+        catch ( IOException e ) {
+            assertTrue( file.exists( ) );
+        }
+    }
+
+    @Test
+    public void otherVariantsAreRejected( ) throws Exception {
+        final File file = folder.newFile( "kb.grk" );
+        genome( ).save( file );
+        final Set< VariantMode > variants = EnumSet.noneOf( VariantMode.class );
+        variants.addAll( Mode.NORMAL.getVariants( ) );
+        final Set< VariantMode > others = variants.isEmpty( ) ? EnumSet.of( VariantMode.DISPENSABLE ) : EnumSet.noneOf( VariantMode.class );
+        Mode.NORMAL.setVariants( others );
+        try {
+            ReasonerImpl.load( file );
+            fail( "A file of other variants is loaded" );
+        }
+        catch ( IOException e ) {
+            assertEquals( others, Mode.NORMAL.getVariants( ) );
+        }
+        finally {
+            Mode.NORMAL.setVariants( variants );
+        }
+    }
+
+    @Test
+    public void varints( ) throws Exception {
+        final File file = folder.newFile( "varints" );
+        final long[] values = { 0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE, -1, Long.MAX_VALUE, Long.MIN_VALUE };
+        try ( BinaryWriter out = BinaryWriter.open( file ) ) {
+            for ( final long value : values ) {
+                out.writeVarInt( ( int ) value );
+                out.writeVarLong( value );
+            }
+            out.writeString( "prior-knowledge é" );
+        }
+        try ( BinaryReader in = BinaryReader.open( file ) ) {
+            for ( final long value : values ) {
+                assertEquals( ( int ) value, in.readVarInt( ) );
+                assertEquals( value, in.readVarLong( ) );
+            }
+            assertEquals( "prior-knowledge é", in.readString( ) );
+            assertTrue( in.isAtEnd( ) );
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package fr.cea.ig.grools.reasoner;
+
+import fr.cea.ig.grools.Mode;
+import fr.cea.ig.grools.Verbosity;
+import fr.cea.ig.grools.fact.Observation;
+import fr.cea.ig.grools.fact.ObservationImpl;
+import fr.cea.ig.grools.fact.ObservationType;
+import fr.cea.ig.grools.fact.PriorKnowledge;
+import fr.cea.ig.grools.fact.PriorKnowledgeImpl;
+import fr.cea.ig.grools.fact.RelationImpl;
+import fr.cea.ig.grools.fact.RelationType;
+import fr.cea.ig.grools.logic.TruthValue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * KnowledgeBaseImageTest
+ */
+public class KnowledgeBaseImageTest {
+    private static final String[] NAMES = { "A", "B", "C", "D", "E" };
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder( );
+
+    /**
+     * A has parts B and C, D is a subtype of C, E is alone
+     */
+    private static ConceptGraph knowledgeBase( ) {
+        final ConceptGraph graph = new ConceptGraph( );
+        final PriorKnowledge[] pks = new PriorKnowledge[ NAMES.length ];
+        for ( int i = 0; i < NAMES.length; i++ ) {
+            pks[ i ] = PriorKnowledgeImpl.builder( ).name( NAMES[ i ] ).isDispensable( i == 2 ).build( );
+            graph.addConcept( pks[ i ] );
+        }
+        graph.addRelation( new RelationImpl( pks[ 1 ], pks[ 0 ], RelationType.PART ) );
+        graph.addRelation( new RelationImpl( pks[ 2 ], pks[ 0 ], RelationType.PART ) );
+        graph.addRelation( new RelationImpl( pks[ 3 ], pks[ 2 ], RelationType.SUBTYPE ) );
+        return graph;
+    }
+
+    private static void observe( final ReasonerImpl reasoner ) {
+        final Observation oB = ObservationImpl.builder( )
+                                              .name( "oB" )
+                                              .type( ObservationType.COMPUTATION )
+                                              .truthValue( TruthValue.t )
+                                              .build( );
+        final Observation oD = ObservationImpl.builder( )
+                                              .name( "oD" )
+                                              .type( ObservationType.COMPUTATION )
+                                              .truthValue( TruthValue.f )
+                                              .build( );
+        reasoner.insert( oB, oD );
+        reasoner.insert( new RelationImpl( oB, reasoner.getPriorKnowledge( "B" ), oB.getType( ) ),
+                         new RelationImpl( oD, reasoner.getPriorKnowledge( "D" ), oD.getType( ) ) );
+    }
+
+    @Test
+    public void graphIsReadInPlace( ) throws Exception {
+        final ConceptGraph source = knowledgeBase( );
+        final File file = folder.newFile( "kb.img" );
+        KnowledgeBaseImage.write( source, file );
+
+        final ConceptGraph graph = ConceptGraph.open( file );
+        assertEquals( NAMES.length, graph.getConcepts( ).size( ) );
+        assertEquals( source.getRelations( ).size( ), graph.getRelations( ).size( ) );
+        assertNull( graph.getConcept( "Z" ) );
+        final PriorKnowledge a = ( PriorKnowledge ) graph.getConcept( "A" );
+        final PriorKnowledge c = ( PriorKnowledge ) graph.getConcept( "C" );
+        final PriorKnowledge d = ( PriorKnowledge ) graph.getConcept( "D" );
+        assertSame( a, graph.getConcept( "A" ) );
+        assertTrue( c.getIsDispensable( ) );
+        assertEquals( 2, graph.getChildren( a, RelationType.PART ).size( ) );
+        assertTrue( graph.getChildren( c, RelationType.SUBTYPE ).contains( d ) );
+        assertTrue( graph.getParents( d ).contains( c ) );
+        assertTrue( graph.getRelations( ).contains( new RelationImpl( d, c, RelationType.SUBTYPE ) ) );
+        assertEquals( source.getLeaves( ).size( ), graph.getLeaves( ).size( ) );
+        assertEquals( source.getTops( ).size( ), graph.getTops( ).size( ) );
+        assertTrue( graph.getTops( ).contains( graph.getConcept( "E" ) ) );
+        assertTrue( graph.getLeaves( ).contains( d ) );
+    }
+
+    @Test
+    public void sameResultsAsBuiltGraph( ) throws Exception {
+        final File file = folder.newFile( "kb.img" );
+        KnowledgeBaseImage.write( knowledgeBase( ), file );
+
+        final ReasonerImpl expected = new ReasonerImpl( knowledgeBase( ), Mode.NORMAL, Verbosity.QUIET );
+        final ReasonerImpl actual = new ReasonerImpl( ConceptGraph.open( file ), Mode.NORMAL, Verbosity.QUIET );
+        for ( final ReasonerImpl reasoner : new ReasonerImpl[]{ expected, actual } ) {
+            observe( reasoner );
+            reasoner.setEvaluationMode( EvaluationMode.LEVEL_ORDERED );
+            reasoner.reasoning( );
+        }
+        for ( final String name : NAMES ) {
+            final PriorKnowledge expectedPk = expected.getPriorKnowledge( name );
+            final PriorKnowledge actualPk = actual.getPriorKnowledge( name );
+            assertEquals( expected.getPrediction( expectedPk ), actual.getPrediction( actualPk ) );
+            assertEquals( expected.getExpectation( expectedPk ), actual.getExpectation( actualPk ) );
+            assertEquals( expected.getConclusion( expectedPk ), actual.getConclusion( actualPk ) );
+        }
+    }
+
+    @Test
+    public void imagesAreIndependent( ) throws Exception {
+        final File file = folder.newFile( "kb.img" );
+        KnowledgeBaseImage.write( knowledgeBase( ), file );
+        final ConceptGraph first = ConceptGraph.open( file );
+        final ConceptGraph second = ConceptGraph.open( file );
+        final PriorKnowledge e = ( PriorKnowledge ) first.getConcept( "E" );
+        first.deleteConcept( e );
+        assertNull( first.getConcept( "E" ) );
+        assertEquals( NAMES.length - 1, first.getConcepts( ).size( ) );
+        assertEquals( NAMES.length, second.getConcepts( ).size( ) );
+        assertTrue( second.getConcept( "E" ) != e );
+    }
+}
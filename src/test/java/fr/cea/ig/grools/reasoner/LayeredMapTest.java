@@ -0,0 +1,112 @@
+package fr.cea.ig.grools.reasoner;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * LayeredMapTest
+ */
+public class LayeredMapTest {
+    private LayeredMap< String, Set< Integer > > map;
+
+    @SafeVarargs
+    private static < T > Set< T > set( final T... values ) {
+        final Set< T > set = new HashSet<>( );
+        for ( final T value : values )
+            set.add( value );
+        return set;
+    }
+
+    @Before
+    public void setUp( ) {
+        map = new LayeredMap<>( );
+        map.put( "a", set( 1 ) );
+        map.put( "b", set( 2 ) );
+    }
+
+    @Test
+    public void forksAreIndependent( ) {
+        final LayeredMap< String, Set< Integer > > fork = map.fork( );
+        fork.put( "c", set( 3 ) );
+        fork.remove( "a" );
+        map.remove( "b" );
+        assertEquals( 2, fork.size( ) );
+        assertFalse( fork.containsKey( "a" ) );
+        assertTrue( fork.containsKey( "b" ) );
+        assertEquals( 1, map.size( ) );
+        assertTrue( map.containsKey( "a" ) );
+        assertNull( map.get( "c" ) );
+        final Map< String, Set< Integer > > expected = new HashMap<>( );
+        expected.put( "b", set( 2 ) );
+        expected.put( "c", set( 3 ) );
+        assertEquals( expected, new HashMap<>( fork ) );
+    }
+
+    @Test
+    public void writableCopiesSharedValues( ) {
+        final LayeredMap< String, Set< Integer > > fork = map.fork( );
+        final Set< Integer > shared = map.get( "a" );
+        final Set< Integer > own = fork.writable( "a", HashSet::new );
+        assertNotSame( shared, own );
+        assertSame( own, fork.writable( "a", HashSet::new ) );
+        own.add( 4 );
+        assertEquals( set( 1 ), map.get( "a" ) );
+        assertEquals( set( 1, 4 ), fork.get( "a" ) );
+        assertNull( fork.writable( "z", HashSet::new ) );
+    }
+
+    @Test
+    public void manyForks( ) {
+        LayeredMap< String, Set< Integer > > current = map;
+        for ( int i = 0; i < 20; i++ ) {
+            current.put( "k" + i, set( i ) );
+            current = current.fork( );
+        }
+        assertEquals( 22, current.size( ) );
+        assertEquals( set( 7 ), current.get( "k7" ) );
+        assertEquals( 3, map.size( ) );
+        int count = 0;
+        for ( final Map.Entry< String, Set< Integer > > ignored : current.entrySet( ) )
+            count++;
+        assertEquals( 22, count );
+    }
+
+    @Test
+    public void removeThroughIterators( ) {
+        // without frozen layer
+        map.keySet( ).removeIf( "a"::equals );
+        assertEquals( 1, map.size( ) );
+        assertFalse( map.containsKey( "a" ) );
+
+        map.put( "c", set( 3 ) );
+        final LayeredMap< String, Set< Integer > > fork = map.fork( );
+        fork.put( "d", set( 4 ) );
+        final Iterator< String > keys = fork.keySet( ).iterator( );
+        while ( keys.hasNext( ) )
+            if ( !keys.next( ).equals( "b" ) )
+                keys.remove( );
+        assertEquals( 1, fork.size( ) );
+        assertEquals( set( "b" ), fork.keySet( ) );
+        assertEquals( 2, map.size( ) );
+        assertTrue( map.containsKey( "c" ) );
+
+        final LayeredSet< String > elements = new LayeredSet<>( set( "x", "y" ) );
+        final LayeredSet< String > other = elements.fork( );
+        assertTrue( other.removeIf( "x"::equals ) );
+        assertEquals( set( "y" ), other );
+        assertEquals( set( "x", "y" ), elements );
+    }
+}
@@ -20,7 +20,10 @@ public class NormalSpecificTest {
 
     @Before
     public void setUp( ) {
-        reasoner = new ReasonerImpl( Mode.NORMAL_SPECIFIC, Verbosity.HIGHT );
+        final ReasonerImpl impl = new ReasonerImpl( Mode.NORMAL_SPECIFIC, Verbosity.HIGHT );
+        // values are read from prior-knowledges
+        impl.setWriteThrough( true );
+        reasoner = impl;
     }
 
     @Test
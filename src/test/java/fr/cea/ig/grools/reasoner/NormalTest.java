@@ -24,7 +24,10 @@ public class NormalTest {
 
     @Before
     public void setUp( ) {
-        reasoner = new ReasonerImpl( Mode.NORMAL, Verbosity.HIGHT );
+        final ReasonerImpl impl = new ReasonerImpl( Mode.NORMAL, Verbosity.HIGHT );
+        // values are read from prior-knowledges
+        impl.setWriteThrough( true );
+        reasoner = impl;
     }
 
     @Test
@@ -0,0 +1,137 @@
+package fr.cea.ig.grools.reasoner;
+
+import fr.cea.ig.grools.Mode;
+import fr.cea.ig.grools.Verbosity;
+import fr.cea.ig.grools.fact.Observation;
+import fr.cea.ig.grools.fact.ObservationImpl;
+import fr.cea.ig.grools.fact.ObservationType;
+import fr.cea.ig.grools.fact.PriorKnowledge;
+import fr.cea.ig.grools.fact.PriorKnowledgeImpl;
+import fr.cea.ig.grools.fact.RelationImpl;
+import fr.cea.ig.grools.fact.RelationType;
+import fr.cea.ig.grools.logic.TruthValue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * ObservationIngestionTest
+ */
+public class ObservationIngestionTest {
+    private static final String[] NAMES = { "A", "B", "C", "D" };
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder( );
+
+    /**
+     * A has parts B and C, D is a subtype of C
+     */
+    private static ReasonerImpl knowledgeBase( ) {
+        final ReasonerImpl reasoner = new ReasonerImpl( Mode.NORMAL, Verbosity.QUIET );
+        final PriorKnowledge[] pks = new PriorKnowledge[ NAMES.length ];
+        for ( int i = 0; i < NAMES.length; i++ )
+            pks[ i ] = PriorKnowledgeImpl.builder( ).name( NAMES[ i ] ).build( );
+        reasoner.insert( ( Object[] ) pks );
+        reasoner.insert( new RelationImpl( pks[ 1 ], pks[ 0 ], RelationType.PART ),
+                         new RelationImpl( pks[ 2 ], pks[ 0 ], RelationType.PART ),
+                         new RelationImpl( pks[ 3 ], pks[ 2 ], RelationType.SUBTYPE ) );
+        return reasoner;
+    }
+
+    private File table( final String... lines ) throws IOException {
+        final File file = folder.newFile( );
+        Files.write( file.toPath( ), String.join( "\n", lines ).getBytes( StandardCharsets.UTF_8 ) );
+        return file;
+    }
+
+    @Test
+    public void tabSeparatedHits( ) throws Exception {
+        final File file = table( "# protein\tmd5\tsignature\tdescription",
+                                 "p1\tx\tB\tfirst part\r",
+                                 "p2\tx\tD\tsubtype",
+                                 "",
+                                 "p3\tx\tZ\tnot in the knowledge base",
+                                 "p1\tx\tB\tsame hit again",
+                                 "p4\tx\tB" );
+        final ReasonerImpl reasoner = knowledgeBase( );
+        final ObservationIngestion ingestion = new ObservationIngestion( reasoner, 0, 2, 2 );
+        ingestion.setLabelColumn( 3 );
+        try {
+            ingestion.ingest( file );
+            fail( "A line without label is read" );
+        }
+        catch ( IOException e ) {
+            // both first batches are kept
+            assertEquals( 2, ingestion.getObservationsCount( ) );
+        }
+
+        final ReasonerImpl other = knowledgeBase( );
+        final ObservationIngestion labelLess = new ObservationIngestion( other, 0, 2, 2 );
+        assertEquals( 3, labelLess.ingest( file ) );
+        assertEquals( 2, labelLess.getSkippedCount( ) );
+        final Observation observation = other.getObservation( "p1:B" );
+        assertNotNull( observation );
+        assertEquals( file.getName( ), observation.getSource( ) );
+        assertEquals( ObservationType.COMPUTATION, observation.getType( ) );
+        assertEquals( TruthValue.t, observation.getTruthValue( ) );
+        assertTrue( other.getObservationsRelatedToConcept( other.getPriorKnowledge( "B" ) ).contains( observation ) );
+        assertNull( other.getConcept( "p3:Z" ) );
+        assertEquals( 2, other.getObservationsRelatedToConcept( other.getPriorKnowledge( "B" ) ).size( ) );
+    }
+
+    @Test
+    public void spaceSeparatedHits( ) throws Exception {
+        final File file = table( "#target  accession  query",
+                                 "B    -   p1   ",
+                                 "  D  -   p2" );
+        final ReasonerImpl reasoner = knowledgeBase( );
+        final ObservationIngestion ingestion = new ObservationIngestion( reasoner, 2, 0, 16 );
+        ingestion.setSeparator( ' ' );
+        ingestion.setType( ObservationType.EXPERIMENTATION );
+        assertEquals( 2, ingestion.ingest( file ) );
+        assertEquals( ObservationType.EXPERIMENTATION, reasoner.getObservation( "p2:D" ).getType( ) );
+    }
+
+    @Test
+    public void sameResultsAsInsertedObservations( ) throws Exception {
+        // a label longer than the read buffer
+        final char[] label = new char[ 100_000 ];
+        Arrays.fill( label, 'l' );
+        final File file = table( "p1\tB\t" + new String( label ), "p2\tD\t-" );
+        final ReasonerImpl ingested = knowledgeBase( );
+        final ObservationIngestion ingestion = new ObservationIngestion( ingested, 0, 1, 1 );
+        ingestion.setLabelColumn( 2 );
+        assertEquals( 2, ingestion.ingest( file ) );
+        assertEquals( label.length, ingested.getObservation( "p1:B" ).getLabel( ).length( ) );
+        ingested.reasoning( );
+
+        final ReasonerImpl inserted = knowledgeBase( );
+        for ( final String[] hit : new String[][]{ { "p1", "B" }, { "p2", "D" } } ) {
+            final Observation observation = ObservationImpl.builder( )
+                                                           .name( hit[ 0 ] + ":" + hit[ 1 ] )
+                                                           .type( ObservationType.COMPUTATION )
+                                                           .truthValue( TruthValue.t )
+                                                           .build( );
+            inserted.insert( observation, new RelationImpl( observation, inserted.getPriorKnowledge( hit[ 1 ] ), observation.getType( ) ) );
+        }
+        inserted.reasoning( );
+        for ( final String name : NAMES ) {
+            assertEquals( inserted.getPrediction( inserted.getPriorKnowledge( name ) ),
+                          ingested.getPrediction( ingested.getPriorKnowledge( name ) ) );
+            assertEquals( inserted.getConclusion( inserted.getPriorKnowledge( name ) ),
+                          ingested.getConclusion( ingested.getPriorKnowledge( name ) ) );
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package fr.cea.ig.grools.reasoner;
+
+import fr.cea.ig.grools.Mode;
+import fr.cea.ig.grools.Verbosity;
+import fr.cea.ig.grools.fact.Observation;
+import fr.cea.ig.grools.fact.ObservationImpl;
+import fr.cea.ig.grools.fact.ObservationType;
+import fr.cea.ig.grools.fact.PriorKnowledge;
+import fr.cea.ig.grools.fact.PriorKnowledgeImpl;
+import fr.cea.ig.grools.fact.Relation;
+import fr.cea.ig.grools.fact.RelationImpl;
+import fr.cea.ig.grools.fact.RelationType;
+import fr.cea.ig.grools.logic.TruthValue;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * PanelReasonerTest
+ */
+public class PanelReasonerTest {
+    private static final int PRIOR_KNOWLEDGES = 30;
+    private static final int GENOMES = 150;
+
+    private final List< PriorKnowledge > priorKnowledges = new ArrayList<>( );
+    private final List< Relation > relations = new ArrayList<>( );
+    private final List< List< Relation > > observations = new ArrayList<>( );
+
+    private void build( final long seed ) {
+        final Random random = new Random( seed );
+        for ( int i = 0; i < PRIOR_KNOWLEDGES; i++ ) {
+            priorKnowledges.add( PriorKnowledgeImpl.builder( )
+                                                   .name( "pk" + i )
+                                                   .isDispensable( random.nextInt( 6 ) == 0 )
+                                                   .build( ) );
+        }
+        for ( int i = 1; i < PRIOR_KNOWLEDGES; i++ ) {
+            final int parent = random.nextInt( i );
+            relations.add( new RelationImpl( priorKnowledges.get( i ), priorKnowledges.get( parent ), random.nextInt( 3 ) == 0 ? RelationType.SUBTYPE : RelationType.PART ) );
+            if ( random.nextInt( 4 ) == 0 && parent + 1 < i )
+                relations.add( new RelationImpl( priorKnowledges.get( i ), priorKnowledges.get( parent + 1 ), RelationType.PART ) );
+        }
+        for ( int genome = 0; genome < GENOMES; genome++ ) {
+            final List< Relation > genomeObservations = new ArrayList<>( );
+            for ( int i = 0; i < PRIOR_KNOWLEDGES; i++ ) {
+                final ObservationType type = ObservationType.values( )[ random.nextInt( ObservationType.values( ).length ) ];
+                final Observation observation = ObservationImpl.builder( )
+                                                               .name( "o" + genome + "_" + i )
+                                                               .type( type )
+                                                               .truthValue( random.nextInt( 3 ) == 0 ? TruthValue.f : TruthValue.t )
+                                                               .build( );
+                genomeObservations.add( new RelationImpl( observation, priorKnowledges.get( random.nextInt( PRIOR_KNOWLEDGES ) ), type ) );
+            }
+            observations.add( genomeObservations );
+        }
+    }
+
+    private void sameAsLevelOrdered( final Mode mode ) {
+        build( 42 );
+        final ConceptGraph graph = new ConceptGraph( );
+        priorKnowledges.forEach( graph::addConcept );
+        graph.addRelations( relations );
+        final PanelReasoner panel = new PanelReasoner( graph, mode, GENOMES );
+        for ( int genome = 0; genome < GENOMES; genome++ )
+            for ( final Relation relation : observations.get( genome ) )
+                panel.addObservation( genome, relation );
+        panel.reasoning( );
+
+        for ( int genome = 0; genome < GENOMES; genome++ ) {
+            final ReasonerImpl reasoner = new ReasonerImpl( mode, Verbosity.QUIET );
+            reasoner.setEvaluationMode( EvaluationMode.LEVEL_ORDERED );
+            reasoner.insert( priorKnowledges );
+            reasoner.insert( relations );
+            for ( final Relation relation : observations.get( genome ) )
+                reasoner.insert( relation.getSource( ), relation );
+            reasoner.reasoning( );
+            for ( final PriorKnowledge pk : priorKnowledges ) {
+                assertEquals( reasoner.getPrediction( pk ), panel.getPrediction( pk, genome ) );
+                assertEquals( reasoner.getExpectation( pk ), panel.getExpectation( pk, genome ) );
+                assertEquals( reasoner.getConclusion( pk ), panel.getConclusion( pk, genome ) );
+            }
+        }
+    }
+
+    @Test
+    public void normal( ) {
+        sameAsLevelOrdered( Mode.NORMAL );
+    }
+
+    @Test
+    public void dispensable( ) {
+        sameAsLevelOrdered( Mode.DISPENSABLE );
+    }
+
+    @Test
+    public void normalSpecific( ) {
+        sameAsLevelOrdered( Mode.NORMAL_SPECIFIC );
+    }
+
+    @Test
+    public void sharedObservations( ) {
+        build( 7 );
+        // observations of the graph apply to every genome
+        final ConceptGraph graph = new ConceptGraph( );
+        priorKnowledges.forEach( graph::addConcept );
+        graph.addRelations( relations );
+        graph.addRelations( observations.get( 0 ) );
+        final PanelReasoner panel = new PanelReasoner( graph, Mode.NORMAL, GENOMES );
+        panel.reasoning( );
+
+        final ReasonerImpl reasoner = new ReasonerImpl( Mode.NORMAL, Verbosity.QUIET );
+        reasoner.setEvaluationMode( EvaluationMode.LEVEL_ORDERED );
+        reasoner.insert( priorKnowledges );
+        reasoner.insert( relations );
+        for ( final Relation relation : observations.get( 0 ) )
+            reasoner.insert( relation.getSource( ), relation );
+        reasoner.reasoning( );
+        for ( int genome = 0; genome < GENOMES; genome++ ) {
+            for ( final PriorKnowledge pk : priorKnowledges ) {
+                assertEquals( reasoner.getPrediction( pk ), panel.getPrediction( pk, genome ) );
+                assertEquals( reasoner.getExpectation( pk ), panel.getExpectation( pk, genome ) );
+                assertEquals( reasoner.getConclusion( pk ), panel.getConclusion( pk, genome ) );
+            }
+        }
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void cycleIsRejected( ) {
+        final ConceptGraph graph = new ConceptGraph( );
+        Cases.cycle( new ReasonerImpl( graph, Mode.NORMAL, Verbosity.QUIET ) );
+        new PanelReasoner( graph, Mode.NORMAL, GENOMES );
+    }
+}
@@ -0,0 +1,58 @@
+package fr.cea.ig.grools.reasoner;
+
+import fr.cea.ig.grools.logic.TruthValuePowerSet;
+import org.junit.Test;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * PredictionHistogramTest
+ */
+public class PredictionHistogramTest {
+
+    private static TruthValuePowerSet expected( final Set< TruthValuePowerSet > part, final Set< TruthValuePowerSet > subtype ) {
+        final Set< TruthValuePowerSet > choices = EnumSet.noneOf( TruthValuePowerSet.class );
+        choices.addAll( subtype );
+        choices.add( TruthValuePowerSet.merge( part ) );
+        return TruthValuePowerSet.choice( choices );
+    }
+
+    @Test
+    public void aggregateFollowsChildrenChanges( ) {
+        final PredictionHistogram histogram = new PredictionHistogram( );
+        histogram.addPart( TruthValuePowerSet.T, false );
+        histogram.addPart( TruthValuePowerSet.N, false );
+        histogram.addPart( TruthValuePowerSet.N, false );
+        assertEquals( expected( EnumSet.of( TruthValuePowerSet.T, TruthValuePowerSet.N ), EnumSet.noneOf( TruthValuePowerSet.class ) ),
+                      histogram.aggregate( false ) );
+
+        histogram.movePart( TruthValuePowerSet.N, TruthValuePowerSet.F, false );
+        assertEquals( expected( EnumSet.of( TruthValuePowerSet.T, TruthValuePowerSet.N, TruthValuePowerSet.F ), EnumSet.noneOf( TruthValuePowerSet.class ) ),
+                      histogram.aggregate( false ) );
+
+        histogram.movePart( TruthValuePowerSet.N, TruthValuePowerSet.T, false );
+        histogram.addSubtype( TruthValuePowerSet.F );
+        assertEquals( expected( EnumSet.of( TruthValuePowerSet.T, TruthValuePowerSet.F ), EnumSet.of( TruthValuePowerSet.F ) ),
+                      histogram.aggregate( false ) );
+    }
+
+    @Test
+    public void specificRuleDiscardsUnknown( ) {
+        final PredictionHistogram histogram = new PredictionHistogram( );
+        histogram.addPart( TruthValuePowerSet.N, false );
+        histogram.addPart( TruthValuePowerSet.F, true );
+        assertFalse( histogram.hasSpecificPresent( ) );
+
+        histogram.movePart( TruthValuePowerSet.F, TruthValuePowerSet.T, true );
+        assertTrue( histogram.hasSpecificPresent( ) );
+        assertEquals( expected( EnumSet.of( TruthValuePowerSet.T ), EnumSet.noneOf( TruthValuePowerSet.class ) ),
+                      histogram.aggregate( true ) );
+        assertEquals( expected( EnumSet.of( TruthValuePowerSet.T, TruthValuePowerSet.N ), EnumSet.noneOf( TruthValuePowerSet.class ) ),
+                      histogram.aggregate( false ) );
+    }
+}
@@ -0,0 +1,127 @@
+package fr.cea.ig.grools.reasoner;
+
+import fr.cea.ig.grools.Mode;
+import fr.cea.ig.grools.Verbosity;
+import fr.cea.ig.grools.fact.Observation;
+import fr.cea.ig.grools.fact.ObservationType;
+import fr.cea.ig.grools.fact.PriorKnowledge;
+import fr.cea.ig.grools.fact.PriorKnowledgeImpl;
+import fr.cea.ig.grools.fact.RelationImpl;
+import fr.cea.ig.grools.fact.RelationType;
+import fr.cea.ig.grools.logic.Conclusion;
+import fr.cea.ig.grools.logic.TruthValue;
+import fr.cea.ig.grools.logic.TruthValuePowerSet;
+import org.junit.Test;
+
+import static fr.cea.ig.grools.reasoner.Cases.observation;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * PriorKnowledgeStatesTest
+ */
+public class PriorKnowledgeStatesTest {
+
+    /**
+     * A has parts B, dispensable and predicted false, and C predicted true
+     */
+    private static ConceptGraph graph( ) {
+        final ConceptGraph graph = new ConceptGraph( );
+        final PriorKnowledge pkA = PriorKnowledgeImpl.builder( ).name( "A" ).build( );
+        final PriorKnowledge pkB = PriorKnowledgeImpl.builder( ).name( "B" ).isDispensable( true ).build( );
+        final PriorKnowledge pkC = PriorKnowledgeImpl.builder( ).name( "C" ).build( );
+        final Observation oB = observation( "oB", ObservationType.COMPUTATION, TruthValue.f );
+        final Observation oC = observation( "oC", ObservationType.COMPUTATION, TruthValue.t );
+        for ( final Observation observation : new Observation[]{ oB, oC } )
+            graph.addConcept( observation );
+        for ( final PriorKnowledge pk : new PriorKnowledge[]{ pkA, pkB, pkC } )
+            graph.addConcept( pk );
+        graph.addRelation( new RelationImpl( pkB, pkA, RelationType.PART ) );
+        graph.addRelation( new RelationImpl( pkC, pkA, RelationType.PART ) );
+        graph.addRelation( new RelationImpl( oB, pkB, oB.getType( ) ) );
+        graph.addRelation( new RelationImpl( oC, pkC, oC.getType( ) ) );
+        return graph;
+    }
+
+    private static ReasonerImpl reason( final ConceptGraph graph, final Mode mode, final boolean writeThrough ) {
+        final ReasonerImpl reasoner = new ReasonerImpl( graph, mode, Verbosity.QUIET );
+        reasoner.setWriteThrough( writeThrough );
+        reasoner.setEvaluationMode( EvaluationMode.LEVEL_ORDERED );
+        reasoner.reasoning( );
+        return reasoner;
+    }
+
+    @Test
+    public void idsAreDense( ) {
+        final ConceptGraph graph = graph( );
+        final PriorKnowledge pkA = ( PriorKnowledge ) graph.getConcept( "A" );
+        assertEquals( 5, graph.getIdsCount( ) );
+        assertTrue( graph.getId( pkA ) >= 0 && graph.getId( pkA ) < graph.getIdsCount( ) );
+        graph.deleteConcept( pkA );
+        assertEquals( -1, graph.getId( pkA ) );
+        graph.addConcept( pkA );
+        assertEquals( 5, graph.getId( pkA ) );
+    }
+
+    @Test
+    public void reasonersShareGraph( ) {
+        final ConceptGraph shared = graph( );
+        final PriorKnowledge pkA = ( PriorKnowledge ) shared.getConcept( "A" );
+        final TruthValuePowerSet initial = pkA.getPrediction( );
+        final Conclusion initialConclusion = pkA.getConclusion( );
+        final ReasonerImpl normal = reason( shared, Mode.NORMAL, false );
+        final ReasonerImpl dispensable = reason( shared, Mode.DISPENSABLE, false );
+
+        final ConceptGraph normalGraph = graph( );
+        final ConceptGraph dispensableGraph = graph( );
+        reason( normalGraph, Mode.NORMAL, true );
+        reason( dispensableGraph, Mode.DISPENSABLE, true );
+        for ( final String name : new String[]{ "A", "B", "C" } ) {
+            final PriorKnowledge pk = ( PriorKnowledge ) shared.getConcept( name );
+            final PriorKnowledge expectedNormal = ( PriorKnowledge ) normalGraph.getConcept( name );
+            final PriorKnowledge expectedDispensable = ( PriorKnowledge ) dispensableGraph.getConcept( name );
+            assertEquals( expectedNormal.getPrediction( ), normal.getPrediction( pk ) );
+            assertEquals( expectedNormal.getExpectation( ), normal.getExpectation( pk ) );
+            assertEquals( expectedNormal.getConclusion( ), normal.getConclusion( pk ) );
+            assertEquals( expectedDispensable.getPrediction( ), dispensable.getPrediction( pk ) );
+            assertEquals( expectedDispensable.getExpectation( ), dispensable.getExpectation( pk ) );
+            assertEquals( expectedDispensable.getConclusion( ), dispensable.getConclusion( pk ) );
+        }
+        assertNotEquals( normal.getPrediction( pkA ), dispensable.getPrediction( pkA ) );
+        // shared prior-knowledges are left untouched
+        assertEquals( initial, pkA.getPrediction( ) );
+        assertEquals( initialConclusion, pkA.getConclusion( ) );
+    }
+
+    @Test
+    public void freshReasonersShareGraph( ) {
+        final ConceptGraph shared = graph( );
+        final ReasonerImpl first = new ReasonerImpl( shared, Mode.NORMAL, Verbosity.QUIET );
+        final ReasonerImpl second = new ReasonerImpl( shared, Mode.NORMAL, Verbosity.QUIET );
+        assertFalse( first.isWriteThrough( ) );
+        final PriorKnowledge pkA = ( PriorKnowledge ) shared.getConcept( "A" );
+        final TruthValuePowerSet initial = second.getPrediction( pkA );
+        final Conclusion initialConclusion = second.getConclusion( pkA );
+        // values written through by a legacy reasoner are not read by the other one
+        first.setWriteThrough( true );
+        first.reasoning( );
+        assertEquals( first.getPrediction( pkA ), pkA.getPrediction( ) );
+        assertEquals( initial, second.getPrediction( pkA ) );
+        assertEquals( initialConclusion, second.getConclusion( pkA ) );
+
+        // the worklist keeps initial values of the second reasoner where nothing changed
+        second.reasoning( );
+        final ConceptGraph alone = graph( );
+        final ReasonerImpl expected = new ReasonerImpl( alone, Mode.NORMAL, Verbosity.QUIET );
+        expected.reasoning( );
+        for ( final String name : new String[]{ "A", "B", "C" } ) {
+            final PriorKnowledge pk = ( PriorKnowledge ) shared.getConcept( name );
+            final PriorKnowledge same = ( PriorKnowledge ) alone.getConcept( name );
+            assertEquals( expected.getPrediction( same ), second.getPrediction( pk ) );
+            assertEquals( expected.getExpectation( same ), second.getExpectation( pk ) );
+            assertEquals( expected.getConclusion( same ), second.getConclusion( pk ) );
+        }
+    }
+}
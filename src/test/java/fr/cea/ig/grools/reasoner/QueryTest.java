@@ -0,0 +1,105 @@
+package fr.cea.ig.grools.reasoner;
+
+import fr.cea.ig.grools.Mode;
+import fr.cea.ig.grools.Verbosity;
+import fr.cea.ig.grools.fact.Observation;
+import fr.cea.ig.grools.fact.ObservationType;
+import fr.cea.ig.grools.fact.PriorKnowledge;
+import fr.cea.ig.grools.fact.PriorKnowledgeImpl;
+import fr.cea.ig.grools.fact.RelationImpl;
+import fr.cea.ig.grools.fact.RelationType;
+import fr.cea.ig.grools.logic.Conclusion;
+import fr.cea.ig.grools.logic.TruthValue;
+import fr.cea.ig.grools.logic.TruthValuePowerSet;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static fr.cea.ig.grools.reasoner.Cases.observation;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * QueryTest
+ */
+public class QueryTest {
+
+    /**
+     * A has parts B and C, D is alone
+     */
+    private static ReasonerImpl load( ) {
+        final ReasonerImpl reasoner = new ReasonerImpl( Mode.NORMAL, Verbosity.QUIET );
+        final PriorKnowledge pkA = PriorKnowledgeImpl.builder( ).name( "A" ).build( );
+        final PriorKnowledge pkB = PriorKnowledgeImpl.builder( ).name( "B" ).build( );
+        final PriorKnowledge pkC = PriorKnowledgeImpl.builder( ).name( "C" ).build( );
+        final PriorKnowledge pkD = PriorKnowledgeImpl.builder( ).name( "D" ).build( );
+        final Observation oA = observation( "oA", ObservationType.EXPERIMENTATION, TruthValue.t );
+        final Observation oB = observation( "oB", ObservationType.COMPUTATION, TruthValue.t );
+        final Observation oC = observation( "oC", ObservationType.COMPUTATION, TruthValue.f );
+        final Observation oD = observation( "oD", ObservationType.CURATION, TruthValue.t );
+        reasoner.insert( pkA, pkB, pkC, pkD, oA, oB, oC, oD );
+        reasoner.insert( new RelationImpl( pkB, pkA, RelationType.PART ),
+                         new RelationImpl( pkC, pkA, RelationType.PART ),
+                         new RelationImpl( oA, pkA, oA.getType( ) ),
+                         new RelationImpl( oB, pkB, oB.getType( ) ),
+                         new RelationImpl( oC, pkC, oC.getType( ) ),
+                         new RelationImpl( oD, pkD, oD.getType( ) ) );
+        return reasoner;
+    }
+
+    @Test
+    public void queryMatchesReasoning( ) {
+        final ReasonerImpl expected = load( );
+        expected.reasoning( );
+
+        final ReasonerImpl reasoner = load( );
+        final TruthValuePowerSet unevaluated = reasoner.getPrediction( reasoner.getPriorKnowledge( "D" ) );
+        final Map< String, Conclusion > conclusions = reasoner.queryConclusions( "B", "A", "unknown" );
+        assertEquals( 2, conclusions.size( ) );
+        assertFalse( conclusions.containsKey( "unknown" ) );
+        assertEquals( expected.getConclusion( expected.getPriorKnowledge( "A" ) ), conclusions.get( "A" ) );
+        assertEquals( expected.getConclusion( expected.getPriorKnowledge( "B" ) ), conclusions.get( "B" ) );
+        assertEquals( expected.getPrediction( expected.getPriorKnowledge( "C" ) ), reasoner.getPrediction( reasoner.getPriorKnowledge( "C" ) ) );
+        // D does not belong to the queried sub-graph
+        assertEquals( unevaluated, reasoner.getPrediction( reasoner.getPriorKnowledge( "D" ) ) );
+        assertEquals( expected.getConclusion( expected.getPriorKnowledge( "D" ) ), reasoner.queryConclusion( "D" ) );
+        assertNull( reasoner.queryConclusion( "oD" ) );
+    }
+
+    @Test
+    public void queryAfterInsert( ) {
+        final ReasonerImpl reasoner = load( );
+        reasoner.reasoning( );
+        final Observation oC2 = observation( "oC2", ObservationType.CURATION, TruthValue.t );
+        final PriorKnowledge pkC = reasoner.getPriorKnowledge( "C" );
+        reasoner.insert( oC2, new RelationImpl( oC2, pkC, oC2.getType( ) ) );
+
+        final ReasonerImpl expected = load( );
+        expected.insert( oC2, new RelationImpl( oC2, expected.getPriorKnowledge( "C" ), oC2.getType( ) ) );
+        expected.reasoning( );
+
+        assertEquals( expected.getConclusion( expected.getPriorKnowledge( "C" ) ), reasoner.queryConclusion( "C" ) );
+        reasoner.reasoning( );
+        assertEquals( expected.getConclusion( expected.getPriorKnowledge( "A" ) ), reasoner.getConclusion( reasoner.getPriorKnowledge( "A" ) ) );
+    }
+
+    @Test
+    public void coldQueryStaysInSubGraph( ) {
+        final ReasonerImpl reasoner = load( );
+        final PriorKnowledge pkX = PriorKnowledgeImpl.builder( ).name( "X" ).build( );
+        final PriorKnowledge pkY = PriorKnowledgeImpl.builder( ).name( "Y" ).build( );
+        reasoner.insert( pkX, pkY );
+        reasoner.insert( new RelationImpl( pkY, pkX, RelationType.PART ) );
+
+        final ReasonerImpl expected = load( );
+        expected.reasoning( );
+        assertEquals( expected.getConclusion( expected.getPriorKnowledge( "A" ) ), reasoner.queryConclusion( "A" ) );
+        assertTrue( reasoner.getIsSpecific( reasoner.getPriorKnowledge( "B" ) ) );
+        // Y is only marked along with its sub-graph
+        assertFalse( reasoner.getIsSpecific( pkY ) );
+        reasoner.reasoning( );
+        assertTrue( reasoner.getIsSpecific( pkY ) );
+    }
+}
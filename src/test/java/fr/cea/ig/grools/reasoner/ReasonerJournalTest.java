@@ -0,0 +1,168 @@
+package fr.cea.ig.grools.reasoner;
+
+import fr.cea.ig.grools.Mode;
+import fr.cea.ig.grools.Verbosity;
+import fr.cea.ig.grools.fact.Observation;
+import fr.cea.ig.grools.fact.ObservationType;
+import fr.cea.ig.grools.fact.PriorKnowledge;
+import fr.cea.ig.grools.fact.PriorKnowledgeImpl;
+import fr.cea.ig.grools.fact.Relation;
+import fr.cea.ig.grools.fact.RelationImpl;
+import fr.cea.ig.grools.fact.RelationType;
+import fr.cea.ig.grools.logic.TruthValue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static fr.cea.ig.grools.reasoner.Cases.observation;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * ReasonerJournalTest
+ */
+public class ReasonerJournalTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder( );
+
+    /**
+     * A has parts B and C, B and C are observed then the observation of C is deleted
+     */
+    private static void changes( final ReasonerImpl reasoner ) {
+        final PriorKnowledge a = PriorKnowledgeImpl.builder( ).name( "A" ).build( );
+        final PriorKnowledge b = PriorKnowledgeImpl.builder( ).name( "B" ).build( );
+        final PriorKnowledge c = PriorKnowledgeImpl.builder( ).name( "C" ).isDispensable( true ).build( );
+        reasoner.insert( a );
+        // B and C are added along with their relations
+        reasoner.insert( new RelationImpl( b, a, RelationType.PART ), new RelationImpl( c, a, RelationType.PART ) );
+        final Observation oB = observation( "oB", TruthValue.t );
+        final Observation oC = observation( "oC", TruthValue.f );
+        final Relation oCToC = new RelationImpl( oC, c, oC.getType( ) );
+        reasoner.insert( oB, new RelationImpl( oB, b, oB.getType( ) ), oCToC );
+        reasoner.delete( oCToC );
+    }
+
+    private static void assertSameGraph( final ReasonerImpl expected, final ReasonerImpl actual ) {
+        assertEquals( expected.getConcepts( ).size( ), actual.getConcepts( ).size( ) );
+        assertEquals( expected.getRelations( ).size( ), actual.getRelations( ).size( ) );
+        for ( final Relation relation : expected.getRelations( ) )
+            assertNotNull( actual.getRelation( actual.getConcept( relation.getSource( ).getName( ) ),
+                                               actual.getConcept( relation.getTarget( ).getName( ) ),
+                                               relation.getType( ) ) );
+        for ( final PriorKnowledge pk : expected.getPriorKnowledges( ) )
+            assertEquals( pk.getIsDispensable( ), actual.getPriorKnowledge( pk.getName( ) ).getIsDispensable( ) );
+    }
+
+    @Test
+    public void replay( ) throws Exception {
+        final File file = new File( folder.getRoot( ), "journal" );
+        final ReasonerImpl reasoner = new ReasonerImpl( Mode.NORMAL, Verbosity.QUIET );
+        try ( ReasonerJournal journal = new ReasonerJournal( file, 4 ) ) {
+            reasoner.setJournal( journal );
+            changes( reasoner );
+        }
+
+        final ReasonerImpl recovered = new ReasonerImpl( Mode.NORMAL, Verbosity.QUIET );
+        // 5 concepts, 4 relations inserted and 1 deleted
+        assertEquals( 10, ReasonerJournal.replay( file, recovered ) );
+        assertSameGraph( reasoner, recovered );
+        assertNull( recovered.getRelation( recovered.getConcept( "oC" ), recovered.getConcept( "C" ), ObservationType.COMPUTATION ) );
+    }
+
+    @Test
+    public void tornTailIsCut( ) throws Exception {
+        final File file = new File( folder.getRoot( ), "journal" );
+        final ReasonerImpl reasoner = new ReasonerImpl( Mode.NORMAL, Verbosity.QUIET );
+        try ( ReasonerJournal journal = new ReasonerJournal( file, 1 ) ) {
+            reasoner.setJournal( journal );
+            changes( reasoner );
+        }
+        final long length = file.length( );
+        try ( FileOutputStream out = new FileOutputStream( file, true ) ) {
+            out.write( new byte[]{ 0, 0, 0, 42, 1, 2 } );
+        }
+
+        final ReasonerImpl recovered = new ReasonerImpl( Mode.NORMAL, Verbosity.QUIET );
+        assertEquals( 10, ReasonerJournal.replay( file, recovered ) );
+        assertEquals( length, file.length( ) );
+        assertSameGraph( reasoner, recovered );
+    }
+
+    @Test
+    public void compaction( ) throws Exception {
+        final File file = new File( folder.getRoot( ), "journal" );
+        final File snapshot = new File( folder.getRoot( ), "snapshot" );
+        final ReasonerImpl reasoner = new ReasonerImpl( Mode.NORMAL, Verbosity.QUIET );
+        try ( ReasonerJournal journal = new ReasonerJournal( file, 64 ) ) {
+            reasoner.setJournal( journal );
+            changes( reasoner );
+            journal.compact( reasoner, snapshot );
+            assertEquals( 0, file.length( ) );
+            reasoner.insert( PriorKnowledgeImpl.builder( ).name( "D" ).build( ) );
+        }
+
+        final ReasonerImpl recovered = ReasonerImpl.load( snapshot );
+        assertEquals( 1, ReasonerJournal.replay( file, recovered ) );
+        assertSameGraph( reasoner, recovered );
+        // records already held by the snapshot change nothing
+        final ReasonerImpl again = ReasonerImpl.load( snapshot );
+        ReasonerJournal.replay( file, again );
+        ReasonerJournal.replay( file, again );
+        assertSameGraph( reasoner, again );
+    }
+
+    @Test
+    public void fullJournalReplayedOnCompactedSnapshot( ) throws Exception {
+        final File file = new File( folder.getRoot( ), "journal" );
+        final File snapshot = new File( folder.getRoot( ), "snapshot" );
+        final ReasonerImpl reasoner = new ReasonerImpl( Mode.NORMAL, Verbosity.QUIET );
+        final byte[] records;
+        try ( ReasonerJournal journal = new ReasonerJournal( file, 64 ) ) {
+            reasoner.setJournal( journal );
+            changes( reasoner );
+            journal.compact( reasoner, snapshot );
+            // oB is held by the first snapshot, it is related to C then deleted
+            final Observation oB = reasoner.getObservation( "oB" );
+            reasoner.insert( new RelationImpl( oB, reasoner.getPriorKnowledge( "C" ), oB.getType( ) ) );
+            reasoner.delete( oB );
+            journal.sync( );
+            records = Files.readAllBytes( file.toPath( ) );
+            journal.compact( reasoner, snapshot );
+        }
+        // a crash before the journal was emptied
+        Files.write( file.toPath( ), records );
+
+        final ReasonerImpl recovered = ReasonerImpl.load( snapshot );
+        assertEquals( 2, ReasonerJournal.replay( file, recovered ) );
+        assertNull( recovered.getConcept( "oB" ) );
+        assertSameGraph( reasoner, recovered );
+    }
+
+    @Test
+    public void batchInsert( ) throws Exception {
+        final File file = new File( folder.getRoot( ), "journal" );
+        final ReasonerImpl reasoner = new ReasonerImpl( Mode.NORMAL, Verbosity.QUIET );
+        final PriorKnowledge a = PriorKnowledgeImpl.builder( ).name( "A" ).build( );
+        final PriorKnowledge b = PriorKnowledgeImpl.builder( ).name( "B" ).build( );
+        final Observation oAB = observation( "oAB", TruthValue.t );
+        try ( ReasonerJournal journal = new ReasonerJournal( file, 64 ) ) {
+            reasoner.setJournal( journal );
+            reasoner.insert( a );
+            reasoner.insert( Arrays.asList( b, new RelationImpl( b, a, RelationType.PART ),
+                                            new RelationImpl( oAB, a, oAB.getType( ) ),
+                                            new RelationImpl( oAB, b, oAB.getType( ) ) ) );
+        }
+        assertNotNull( reasoner.getRelation( b, a, RelationType.PART ) );
+
+        final ReasonerImpl recovered = new ReasonerImpl( Mode.NORMAL, Verbosity.QUIET );
+        // A, B, oAB once and 3 relations
+        assertEquals( 6, ReasonerJournal.replay( file, recovered ) );
+        assertSameGraph( reasoner, recovered );
+    }
+}
@@ -5,8 +5,17 @@ import fr.cea.ig.grools.Reasoner;
 import fr.cea.ig.grools.VariantMode;
 import fr.cea.ig.grools.Verbosity;
 import fr.cea.ig.grools.fact.Concept;
+import fr.cea.ig.grools.fact.Observation;
+import fr.cea.ig.grools.fact.ObservationImpl;
+import fr.cea.ig.grools.fact.ObservationType;
 import fr.cea.ig.grools.fact.PriorKnowledge;
 import fr.cea.ig.grools.fact.PriorKnowledgeImpl;
+import fr.cea.ig.grools.fact.Relation;
+import fr.cea.ig.grools.fact.RelationImpl;
+import fr.cea.ig.grools.fact.RelationType;
+import fr.cea.ig.grools.logic.Conclusion;
+import fr.cea.ig.grools.logic.TruthValue;
+import fr.cea.ig.grools.logic.TruthValuePowerSet;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -15,7 +24,9 @@ import java.util.Set;
 
 import static junit.framework.TestCase.assertNotNull;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -36,6 +47,90 @@ public class ReasonerTest {
         assertNotEquals( reasoner_copied, reasoner );
     }
 
+    @Test
+    public void copyIsCopyOnWrite( ) {
+        final ReasonerImpl original = new ReasonerImpl( Mode.NORMAL, Verbosity.QUIET );
+        original.setWriteThrough( true );
+        final PriorKnowledge pkA = PriorKnowledgeImpl.builder( ).name( "A" ).build( );
+        final PriorKnowledge pkB = PriorKnowledgeImpl.builder( ).name( "B" ).build( );
+        final PriorKnowledge pkC = PriorKnowledgeImpl.builder( ).name( "C" ).build( );
+        final Observation oB = ObservationImpl.builder( ).name( "oB" ).type( ObservationType.COMPUTATION ).truthValue( TruthValue.t ).build( );
+        final Observation oC = ObservationImpl.builder( ).name( "oC" ).type( ObservationType.COMPUTATION ).truthValue( TruthValue.f ).build( );
+        original.insert( pkA, pkB, pkC, oB );
+        original.insert( new RelationImpl( pkB, pkA, RelationType.PART ), new RelationImpl( pkC, pkA, RelationType.PART ),
+                         new RelationImpl( oB, pkB, oB.getType( ) ) );
+        original.reasoning( );
+        final TruthValuePowerSet predictionA = original.getPrediction( pkA );
+        final TruthValuePowerSet predictionC = original.getPrediction( pkC );
+        final Conclusion conclusionC = original.getConclusion( pkC );
+        final int relations = original.getRelations( ).size( );
+
+        final ReasonerImpl copy = ( ReasonerImpl ) original.copy( );
+        assertEquals( predictionC, copy.getPrediction( pkC ) );
+        final Relation oCToC = new RelationImpl( oC, pkC, oC.getType( ) );
+        copy.insert( oC, oCToC );
+        copy.reasoning( );
+        assertEquals( TruthValuePowerSet.F, copy.getPrediction( pkC ) );
+        assertTrue( copy.getRelations( ).contains( oCToC ) );
+
+        assertFalse( original.getRelations( ).contains( oCToC ) );
+        assertNull( original.getConcept( "oC" ) );
+        assertEquals( relations, original.getRelations( ).size( ) );
+        assertEquals( predictionA, original.getPrediction( pkA ) );
+        assertEquals( predictionC, original.getPrediction( pkC ) );
+        assertEquals( conclusionC, original.getConclusion( pkC ) );
+        // prior-knowledges keep values written through by the original
+        assertEquals( predictionC, pkC.getPrediction( ) );
+
+        original.reasoning( );
+        assertEquals( TruthValuePowerSet.F, copy.getPrediction( pkC ) );
+        assertEquals( predictionC, original.getPrediction( pkC ) );
+    }
+
+
+    /**
+     * A has parts B and C, C is dispensable, B is observed
+     */
+    private static ReasonerImpl dispensablePart( ) {
+        final ReasonerImpl reasoner = new ReasonerImpl( Mode.NORMAL, Verbosity.QUIET );
+        reasoner.setEvaluationMode( EvaluationMode.INCREMENTAL );
+        reasoner.setWriteThrough( false );
+        final PriorKnowledge pkA = PriorKnowledgeImpl.builder( ).name( "A" ).build( );
+        final PriorKnowledge pkB = PriorKnowledgeImpl.builder( ).name( "B" ).build( );
+        final PriorKnowledge pkC = PriorKnowledgeImpl.builder( ).name( "C" ).isDispensable( true ).build( );
+        final Observation oB = ObservationImpl.builder( ).name( "oB" ).type( ObservationType.COMPUTATION ).truthValue( TruthValue.t ).build( );
+        reasoner.insert( pkA, pkB, pkC, oB );
+        reasoner.insert( new RelationImpl( pkB, pkA, RelationType.PART ), new RelationImpl( pkC, pkA, RelationType.PART ),
+                         new RelationImpl( oB, pkB, oB.getType( ) ) );
+        return reasoner;
+    }
+
+    @Test
+    public void variantsChangedByCopy( ) {
+        final ReasonerImpl original = dispensablePart( );
+        original.reasoning( );
+        final TruthValuePowerSet predictionA = original.getPrediction( original.getPriorKnowledge( "A" ) );
+        final ReasonerImpl copy = ( ReasonerImpl ) original.copy( );
+        try {
+            // the mode is shared, the original has to evaluate its graph with the new variants
+            copy.addVariantMode( VariantMode.DISPENSABLE );
+            assertFalse( original.isUpToDate( ) );
+            original.reasoning( );
+            final ReasonerImpl expected = dispensablePart( );
+            expected.reasoning( );
+            for ( final String name : new String[]{ "A", "B", "C" } ) {
+                assertEquals( expected.getPrediction( expected.getPriorKnowledge( name ) ),
+                              original.getPrediction( original.getPriorKnowledge( name ) ) );
+                assertEquals( expected.getConclusion( expected.getPriorKnowledge( name ) ),
+                              original.getConclusion( original.getPriorKnowledge( name ) ) );
+            }
+            assertNotEquals( predictionA, original.getPrediction( original.getPriorKnowledge( "A" ) ) );
+        }
+        finally {
+            copy.removeVariantMode( VariantMode.DISPENSABLE );
+        }
+    }
+
 
     @Test
     public void reasonerHasNormalMode( ) {
@@ -70,4 +165,28 @@ public class ReasonerTest {
         assertEquals( pk1, concept1 );
         assertNotNull( concepts );
     }
+
+    @Test
+    public void deleteObservations( ) throws Exception {
+        final ReasonerImpl impl = new ReasonerImpl( Mode.NORMAL, Verbosity.QUIET );
+        impl.setEvaluationMode( EvaluationMode.LEVEL_ORDERED );
+        impl.setWriteThrough( false );
+        Cases.case12( impl );
+        impl.deleteObservations( );
+        assertTrue( impl.getObservations( ).isEmpty( ) );
+        impl.reasoning( );
+
+        // the same prior-knowledges without observation
+        final ReasonerImpl expected = new ReasonerImpl( Mode.NORMAL, Verbosity.QUIET );
+        expected.setEvaluationMode( EvaluationMode.LEVEL_ORDERED );
+        expected.setWriteThrough( false );
+        expected.insert( impl.getPriorKnowledges( ) );
+        expected.insert( impl.getRelations( ) );
+        expected.reasoning( );
+        for ( final PriorKnowledge pk : impl.getPriorKnowledges( ) ) {
+            assertEquals( expected.getPrediction( pk ), impl.getPrediction( pk ) );
+            assertEquals( expected.getExpectation( pk ), impl.getExpectation( pk ) );
+            assertEquals( expected.getConclusion( pk ), impl.getConclusion( pk ) );
+        }
+    }
 }
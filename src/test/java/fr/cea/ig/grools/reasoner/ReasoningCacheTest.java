@@ -0,0 +1,155 @@
+package fr.cea.ig.grools.reasoner;
+
+import fr.cea.ig.grools.Mode;
+import fr.cea.ig.grools.Verbosity;
+import fr.cea.ig.grools.fact.Observation;
+import fr.cea.ig.grools.fact.ObservationType;
+import fr.cea.ig.grools.fact.PriorKnowledge;
+import fr.cea.ig.grools.fact.PriorKnowledgeImpl;
+import fr.cea.ig.grools.fact.RelationImpl;
+import fr.cea.ig.grools.fact.RelationType;
+import fr.cea.ig.grools.logic.TruthValue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static fr.cea.ig.grools.reasoner.Cases.assertSameValues;
+import static fr.cea.ig.grools.reasoner.Cases.observation;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * ReasoningCacheTest
+ */
+public class ReasoningCacheTest {
+    private static final String[] NAMES = { "A", "B", "C", "X", "Y" };
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder( );
+
+    /**
+     * Two components: A has parts B and C, X has part Y. Each call builds new concepts as a resubmitted genome would.
+     */
+    private static ReasonerImpl genome( final TruthValue b, final TruthValue y ) {
+        final ReasonerImpl reasoner = new ReasonerImpl( Mode.NORMAL, Verbosity.QUIET );
+        final PriorKnowledge[] pks = new PriorKnowledge[ NAMES.length ];
+        for ( int i = 0; i < NAMES.length; i++ )
+            pks[ i ] = PriorKnowledgeImpl.builder( ).name( NAMES[ i ] ).build( );
+        reasoner.insert( ( Object[] ) pks );
+        final Observation oB = observation( "oB", ObservationType.COMPUTATION, b );
+        final Observation oY = observation( "oY", ObservationType.COMPUTATION, y );
+        reasoner.insert( new RelationImpl( pks[ 1 ], pks[ 0 ], RelationType.PART ),
+                         new RelationImpl( pks[ 2 ], pks[ 0 ], RelationType.PART ),
+                         new RelationImpl( pks[ 4 ], pks[ 3 ], RelationType.PART ),
+                         new RelationImpl( oB, pks[ 1 ], oB.getType( ) ),
+                         new RelationImpl( oY, pks[ 4 ], oY.getType( ) ) );
+        reasoner.setWriteThrough( false );
+        reasoner.setEvaluationMode( EvaluationMode.LEVEL_ORDERED );
+        return reasoner;
+    }
+
+    @Test
+    public void wholeGraphIsRestored( ) {
+        final ReasoningCache cache = new ReasoningCache( 1 << 20 );
+        final ReasonerImpl first = genome( TruthValue.t, TruthValue.f );
+        first.setCache( cache );
+        first.reasoning( );
+        assertEquals( 1, cache.getMisses( ) );
+
+        final ReasonerImpl second = genome( TruthValue.t, TruthValue.f );
+        second.setCache( cache );
+        second.reasoning( );
+        assertEquals( 1, cache.getHits( ) );
+        assertSameValues( first, second, NAMES );
+
+        final ReasonerImpl other = genome( TruthValue.f, TruthValue.f );
+        other.setCache( cache );
+        other.reasoning( );
+        assertEquals( 1, cache.getHits( ) );
+        assertNotEquals( first.getPrediction( first.getPriorKnowledge( "B" ) ), other.getPrediction( other.getPriorKnowledge( "B" ) ) );
+    }
+
+    @Test
+    public void componentsAreRestored( ) {
+        final ReasoningCache cache = new ReasoningCache( 1 << 20 );
+        final ReasonerImpl first = genome( TruthValue.t, TruthValue.f );
+        first.setEvaluationMode( EvaluationMode.PARTITIONED );
+        first.setCache( cache );
+        first.reasoning( );
+        assertEquals( 2, cache.getMisses( ) );
+
+        // the component of X and Y is the same
+        final ReasonerImpl second = genome( TruthValue.f, TruthValue.f );
+        second.setEvaluationMode( EvaluationMode.PARTITIONED );
+        second.setCache( cache );
+        second.reasoning( );
+        assertEquals( 1, cache.getHits( ) );
+
+        final ReasonerImpl expected = genome( TruthValue.f, TruthValue.f );
+        expected.setEvaluationMode( EvaluationMode.LEVEL_ORDERED );
+        expected.reasoning( );
+        assertSameValues( expected, second, NAMES );
+    }
+
+    @Test
+    public void entriesAreEvicted( ) {
+        final ReasoningCache cache = new ReasoningCache( 1 );
+        final ReasonerImpl first = genome( TruthValue.t, TruthValue.f );
+        first.setCache( cache );
+        first.reasoning( );
+        assertEquals( 0, cache.size( ) );
+    }
+
+    @Test
+    public void diskTier( ) throws Exception {
+        final ReasonerImpl first = genome( TruthValue.t, TruthValue.t );
+        first.setCache( new ReasoningCache( 1, folder.getRoot( ) ) );
+        first.reasoning( );
+
+        final ReasoningCache cache = new ReasoningCache( 1 << 20, folder.getRoot( ) );
+        final ReasonerImpl second = genome( TruthValue.t, TruthValue.t );
+        second.setCache( cache );
+        second.reasoning( );
+        assertEquals( 1, cache.getHits( ) );
+        assertSameValues( first, second, NAMES );
+    }
+
+    @Test
+    public void worklistIsNotCached( ) {
+        final ReasoningCache cache = new ReasoningCache( 1 << 20 );
+        final ReasonerImpl reasoner = genome( TruthValue.t, TruthValue.f );
+        reasoner.setEvaluationMode( EvaluationMode.WORKLIST );
+        reasoner.setCache( cache );
+        reasoner.reasoning( );
+        assertEquals( 0, cache.getMisses( ) );
+        assertEquals( 0, cache.size( ) );
+    }
+
+    @Test
+    public void keyFollowsChanges( ) {
+        final ReasoningCache cache = new ReasoningCache( 1 << 20 );
+        final ReasonerImpl reasoner = genome( TruthValue.t, TruthValue.f );
+        reasoner.setCache( cache );
+        reasoner.reasoning( );
+
+        final Observation oC = observation( "oC", ObservationType.COMPUTATION, TruthValue.f );
+        final RelationImpl oCToC = new RelationImpl( oC, reasoner.getPriorKnowledge( "C" ), oC.getType( ) );
+        reasoner.insert( oC, oCToC );
+        reasoner.reasoning( );
+        assertEquals( 2, cache.getMisses( ) );
+
+        // back to the first graph
+        reasoner.delete( oC );
+        reasoner.reasoning( );
+        assertEquals( 2, cache.getMisses( ) );
+        assertEquals( 1, cache.getHits( ) );
+        final ReasonerImpl expected = genome( TruthValue.t, TruthValue.f );
+        expected.reasoning( );
+        assertSameValues( expected, reasoner, NAMES );
+    }
+
+    @Test
+    public void modeIsKeyed( ) {
+        assertNotEquals( ReasoningCache.key( 0, 0, Mode.NORMAL ), ReasoningCache.key( 0, 0, Mode.DISPENSABLE ) );
+    }
+}
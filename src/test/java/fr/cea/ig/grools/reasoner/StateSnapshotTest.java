@@ -0,0 +1,135 @@
+package fr.cea.ig.grools.reasoner;
+
+import fr.cea.ig.grools.Mode;
+import fr.cea.ig.grools.VariantMode;
+import fr.cea.ig.grools.Verbosity;
+import fr.cea.ig.grools.fact.Observation;
+import fr.cea.ig.grools.fact.ObservationImpl;
+import fr.cea.ig.grools.fact.ObservationType;
+import fr.cea.ig.grools.fact.PriorKnowledge;
+import fr.cea.ig.grools.fact.PriorKnowledgeImpl;
+import fr.cea.ig.grools.fact.RelationImpl;
+import fr.cea.ig.grools.fact.RelationType;
+import fr.cea.ig.grools.logic.TruthValue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static fr.cea.ig.grools.reasoner.Cases.assertSameValues;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * StateSnapshotTest
+ */
+public class StateSnapshotTest {
+    private static final String[] NAMES = { "A", "B", "C", "D" };
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder( );
+
+    /**
+     * A has parts B and C, D is a subtype of C, prior-knowledges are inserted in the given order
+     */
+    private static ReasonerImpl knowledgeBase( final boolean isReversed ) {
+        final ReasonerImpl reasoner = new ReasonerImpl( Mode.NORMAL, Verbosity.QUIET );
+        final PriorKnowledge[] pks = new PriorKnowledge[ NAMES.length ];
+        for ( int i = 0; i < NAMES.length; i++ )
+            pks[ i ] = PriorKnowledgeImpl.builder( ).name( NAMES[ i ] ).isDispensable( i == 2 ).build( );
+        for ( int i = 0; i < NAMES.length; i++ )
+            reasoner.insert( pks[ isReversed ? NAMES.length - 1 - i : i ] );
+        reasoner.insert( new RelationImpl( pks[ 1 ], pks[ 0 ], RelationType.PART ),
+                         new RelationImpl( pks[ 2 ], pks[ 0 ], RelationType.PART ),
+                         new RelationImpl( pks[ 3 ], pks[ 2 ], RelationType.SUBTYPE ) );
+        return reasoner;
+    }
+
+    private static Observation observation( final String name, final ObservationType type, final TruthValue truthValue ) {
+        return ObservationImpl.builder( )
+                              .name( name )
+                              .source( "hmm" )
+                              .type( type )
+                              .truthValue( truthValue )
+                              .build( );
+    }
+
+    private static void observe( final ReasonerImpl reasoner ) {
+        final Observation oB = observation( "oB", ObservationType.COMPUTATION, TruthValue.t );
+        final Observation oD = observation( "oD", ObservationType.COMPUTATION, TruthValue.f );
+        final Observation oA = observation( "oA", ObservationType.EXPERIMENTATION, TruthValue.t );
+        reasoner.insert( oB, oD, oA );
+        reasoner.insert( new RelationImpl( oB, reasoner.getPriorKnowledge( "B" ), oB.getType( ) ),
+                         new RelationImpl( oD, reasoner.getPriorKnowledge( "D" ), oD.getType( ) ),
+                         new RelationImpl( oA, reasoner.getPriorKnowledge( "A" ), oA.getType( ) ) );
+    }
+
+    @Test
+    public void roundTrip( ) throws Exception {
+        final ReasonerImpl saved = knowledgeBase( false );
+        saved.addVariantMode( VariantMode.DISPENSABLE );
+        observe( saved );
+        saved.reasoning( );
+        final File state = folder.newFile( "genome.grs" );
+        saved.saveState( state );
+        final File full = folder.newFile( "genome.grk" );
+        saved.save( full );
+        assertTrue( state.length( ) < full.length( ) );
+
+        final ReasonerImpl loaded = knowledgeBase( true );
+        assertEquals( saved.getKnowledgeBaseVersion( ), loaded.getKnowledgeBaseVersion( ) );
+        loaded.loadState( state );
+        assertEquals( saved.getConcepts( ).size( ), loaded.getConcepts( ).size( ) );
+        assertEquals( saved.getRelations( ).size( ), loaded.getRelations( ).size( ) );
+        assertTrue( loaded.getMode( ).getVariants( ).contains( VariantMode.DISPENSABLE ) );
+        final Observation oD = loaded.getObservation( "oD" );
+        assertEquals( "hmm", oD.getSource( ) );
+        assertEquals( TruthValue.f, oD.getTruthValue( ) );
+        assertTrue( loaded.getObservationsRelatedToConcept( loaded.getPriorKnowledge( "D" ) ).contains( oD ) );
+        assertSameValues( saved, loaded, NAMES );
+
+        loaded.reasoning( );
+        assertSameValues( saved, loaded, NAMES );
+    }
+
+    @Test
+    public void observationsAreReplaced( ) throws Exception {
+        final ReasonerImpl saved = knowledgeBase( false );
+        saved.reasoning( );
+        final File state = folder.newFile( "empty.grs" );
+        saved.saveState( state );
+
+        final ReasonerImpl loaded = knowledgeBase( false );
+        observe( loaded );
+        loaded.reasoning( );
+        loaded.loadState( state );
+        assertTrue( loaded.getObservations( ).isEmpty( ) );
+        assertNull( loaded.getConcept( "oB" ) );
+        assertSameValues( saved, loaded, NAMES );
+    }
+
+    @Test
+    public void otherKnowledgeBaseIsRejected( ) throws Exception {
+        final ReasonerImpl saved = knowledgeBase( false );
+        observe( saved );
+        saved.reasoning( );
+        final File state = folder.newFile( "genome.grs" );
+        saved.saveState( state );
+
+        final ReasonerImpl other = knowledgeBase( false );
+        other.insert( PriorKnowledgeImpl.builder( ).name( "E" ).build( ) );
+        assertNotEquals( saved.getKnowledgeBaseVersion( ), other.getKnowledgeBaseVersion( ) );
+        try {
+            other.loadState( state );
+            fail( "A state of another knowledge base is loaded" );
+        }
+        catch ( IOException e ) {
+            assertTrue( other.getObservations( ).isEmpty( ) );
+        }
+    }
+}
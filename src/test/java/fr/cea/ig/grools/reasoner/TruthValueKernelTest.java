@@ -0,0 +1,55 @@
+package fr.cea.ig.grools.reasoner;
+
+import fr.cea.ig.grools.logic.TruthValuePowerSet;
+import fr.cea.ig.grools.logic.TruthValueSet;
+import org.junit.Test;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * TruthValueKernelTest
+ */
+public class TruthValueKernelTest {
+
+    @Test
+    public void masksAreSets( ) {
+        final Set< TruthValuePowerSet > values = EnumSet.of( TruthValuePowerSet.T, TruthValuePowerSet.N, TruthValuePowerSet.TF );
+        assertEquals( values, TruthValueKernel.values( TruthValueKernel.mask( values ) ) );
+        assertEquals( TruthValuePowerSet.TF, TruthValueKernel.valueOf( TruthValuePowerSet.TF.ordinal( ) ) );
+    }
+
+    @Test
+    public void mergeAndChoiceOfPairs( ) {
+        for ( final TruthValuePowerSet first : TruthValuePowerSet.values( ) ) {
+            for ( final TruthValuePowerSet second : TruthValuePowerSet.values( ) ) {
+                final Set< TruthValuePowerSet > values = EnumSet.of( first, second );
+                final int mask = TruthValueKernel.mask( values );
+                assertEquals( TruthValuePowerSet.merge( values ), TruthValueKernel.merge( mask ) );
+                assertEquals( TruthValuePowerSet.choice( values ), TruthValueKernel.choice( mask ) );
+            }
+        }
+    }
+
+    @Test
+    public void mergeAndChoiceOfEveryMask( ) {
+        for ( int mask = 0; mask < 1 << TruthValueKernel.size( ); mask++ ) {
+            final Set< TruthValuePowerSet > values = TruthValueKernel.values( mask );
+            assertEquals( TruthValuePowerSet.merge( values ), TruthValueKernel.merge( mask ) );
+            assertEquals( TruthValuePowerSet.choice( values ), TruthValueKernel.choice( mask ) );
+        }
+    }
+
+    @Test
+    public void addRemoveAndUnion( ) {
+        for ( final TruthValueSet tvs : TruthValueSet.values( ) ) {
+            assertEquals( TruthValueSet.union( tvs ), TruthValueKernel.union( tvs ) );
+            for ( final TruthValuePowerSet tvps : TruthValuePowerSet.values( ) ) {
+                assertEquals( TruthValuePowerSet.add( tvps, tvs ), TruthValueKernel.add( tvps, tvs ) );
+                assertEquals( TruthValuePowerSet.remove( tvps, tvs ), TruthValueKernel.remove( tvps, tvs ) );
+            }
+        }
+    }
+}